@@ -1,6 +1,5 @@
 package org.fp;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
@@ -14,7 +13,12 @@ import java.util.Scanner;
 public class AdminUI {
     private static final Scanner sc = new Scanner(System.in);
 
-    public static void start(LibraryUsers users, VICData vic, LibraryModel model) {
+    /**
+     * Runs the admin menu for the logged-in SUPERADMIN of {@code session};
+     * every action checks that the session is still live.
+     */
+    public static void start(LibraryUsers users, String session, VICData vic, LibraryModel model,
+                             AutosaveService autosave) {
         while (true) {
             System.out.println("──── SuperAdmin Interface ────");
             // list all users
@@ -25,14 +29,19 @@ public class AdminUI {
             System.out.print("👉 Choice: ");
             String choice = sc.nextLine().trim().toLowerCase();
 
+            if (!choice.equals("0") && !users.hasRole(session, LibraryUsers.UserType.SUPERADMIN)) {
+                System.out.println("❌ Session expired, please log in again.");
+                return;
+            }
+
             switch (choice) {
                 case "0" -> {
                     return;
                 }
                 case "m" -> rosterManage(users, model);
-                case "b" -> bulkRegisterStudents(users, vic, model);
+                case "b" -> bulkRegisterStudents(users, vic, model, autosave);
                 case "c" -> {
-                    clearAllUsersUI(users, vic, model);
+                    clearAllUsersUI(users, model);
                     return;
                 }
                 default  -> System.out.println("❌ Invalid option, please enter 'm', 'b', 'c', or '0'");
@@ -74,14 +83,14 @@ public class AdminUI {
 
             if (users.assignRole(username, newType, model)) {
                 System.out.printf("✅ Assigned %s → %s%n", username, newType);
-                users.saveToJSON("data/users.json");
             } else {
                 System.out.println("❌ Assignment failed");
             }
         }
     }
 
-    private static void bulkRegisterStudents(LibraryUsers users, VICData vic, LibraryModel model) {
+    private static void bulkRegisterStudents(LibraryUsers users, VICData vic, LibraryModel model,
+                                             AutosaveService autosave) {
         System.out.print("Enter initial password for all new students: ");
         String initPassword = sc.nextLine().trim();
         if (initPassword.isEmpty()) {
@@ -110,98 +119,35 @@ public class AdminUI {
             return;
         }
 
-        int totalNew = 0, totalDup = 0, totalInvalid = 0;
-        for (Path file : csvFiles) {
-            int newCount = 0, dupCount = 0, invalidCount = 0;
-            System.out.println("Processing file: " + file.getFileName());
-            try (BufferedReader reader = Files.newBufferedReader(file)) {
-                String header = reader.readLine();
-                if (header == null) {
-                    System.out.println("❌ File is empty: " + file.getFileName());
-                    continue;
-                }
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    String[] parts = line.split(",", -1);
-                    if (parts.length < 3) {
-                        invalidCount++;
-                        continue;
-                    }
-                    String first = parts[0].trim();
-                    String last  = parts[1].trim();
-                    String email = parts[2].trim();
-                    if (first.isEmpty() || last.isEmpty() || !email.contains("@")) {
-                        invalidCount++;
-                        continue;
-                    }
-
-                    if (users.userExists(email)) {
-                        dupCount++;
-                        System.out.println("⚠️ Already registered, skipping: " + email);
-                        continue;
-                    }
-
-                    // register not assigned
-                    boolean reg = users.registerUser(
-                            email, initPassword, first, last, email,
-                            LibraryUsers.UserType.UNASSIGNED, vic
-                    );
-                    if (!reg) {
-                        dupCount++;
-                        System.out.println("⚠️ Registration failed or duplicate: " + email);
-                        continue;
-                    }
-
-                    // give to the model with students
-                    boolean assigned = users.assignRole(email, LibraryUsers.UserType.STUDENT, model);
-                    if (!assigned) {
-                        System.out.println("❌ Failed to assign STUDENT for: " + email);
-                        continue;
-                    }
-
-                    newCount++;
-                }
-
-                System.out.printf("→ %s: %d new, %d duplicates, %d invalid%n",
-                        file.getFileName(), newCount, dupCount, invalidCount);
-                totalNew     += newCount;
-                totalDup     += dupCount;
-                totalInvalid += invalidCount;
-
-            } catch (IOException e) {
-                System.out.println("❌ Error processing file " +
-                        file.getFileName() + ": " + e.getMessage());
+        System.out.println("Importing " + csvFiles.size() + " file(s)...");
+        BulkImport.Result result = BulkImport.run(csvFiles, initPassword, vic, users, model);
+        for (BulkImport.FileSummary f : result.files()) {
+            if (f.error() != null) {
+                System.out.println("❌ Error processing file " + f.file().getFileName() + ": " + f.error());
             }
+            System.out.printf("→ %s: %d new, %d duplicates, %d invalid%n",
+                    f.file().getFileName(), f.added(), f.duplicates(), f.invalid());
         }
 
         System.out.println("── Bulk registration summary ──");
         System.out.printf("Total new: %d, duplicates skipped: %d, invalid lines: %d%n",
-                totalNew, totalDup, totalInvalid);
-        users.saveToJSON("data/users.json");
-    }
-
-
-    private static void clearAllUsersUI(LibraryUsers users, VICData vic, LibraryModel model) {
-        // find SUPERADMIN
-        String superadmin = users.listAllUsers().entrySet().stream()
-                .filter(e -> e.getValue() == LibraryUsers.UserType.SUPERADMIN)
-                .map(Map.Entry::getKey)
-                .findFirst()
-                .orElse(null);
-
-        if (superadmin == null) {
-            System.out.println("❌ No SUPERADMIN account found; cannot clear users.");
-            return;
+                result.added(), result.duplicates(), result.invalid());
+        System.out.printf("⏱️ %d rows in %d ms (%.0f rows/s)%n",
+                result.rows(), result.millis(), result.rowsPerSecond());
+
+        // one save for the whole batch instead of waiting for the next autosave tick
+        if (autosave != null) {
+            try {
+                autosave.flush();
+            } catch (IOException e) {
+                System.out.println("⚠️ Saving after the import failed: " + e.getMessage());
+            }
         }
+    }
 
-        // redo the password check
-        System.out.print("Re-enter SUPERADMIN password: ");
-        String pwd = sc.nextLine().trim();
-        if (!users.authenticate(superadmin, pwd, vic)) {
-            System.out.println("❌ Password incorrect. Aborting.");
-            return;
-        }
 
+    private static void clearAllUsersUI(LibraryUsers users, LibraryModel model) {
+        // the caller checked the SUPERADMIN session, so the password is not asked again
         //double check
         System.out.print("Type 'DELETE' to confirm clearing all user data: ");
         String confirm = sc.nextLine().trim();
@@ -212,7 +158,6 @@ public class AdminUI {
 
         // clear all users
         users.clearAllUsers();
-        users.saveToJSON("data/users.json");
 
         model.clearAllData();
         System.out.println("✅ All user data cleared. Returning to main menu.");
@@ -33,6 +33,22 @@ public class Assignment {
         this.dueDate = dueDate;
     }
 
+    /** Rebuild a persisted assignment with its original ID and state (used by {@link DataStoreLoader}). */
+    Assignment(String assignmentID, String assignmentName, String studentID, String courseID,
+               String gradeID, LocalDate assignDate, LocalDate dueDate,
+               SubmissionStatus status, boolean published, String category) {
+        this.assignmentID = assignmentID;
+        this.assignmentName = assignmentName;
+        this.studentID = studentID;
+        this.courseID = courseID;
+        this.gradeID = gradeID;
+        this.assignDate = assignDate;
+        this.dueDate = dueDate;
+        this.status = (status == null) ? SubmissionStatus.UNSUBMITTED : status;
+        this.published = published;
+        this.category = category;
+    }
+
     // Copy constructor
     public Assignment(Assignment other) {
         if (other == null) {
@@ -0,0 +1,118 @@
+package org.fp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * (student handle, course handle) → assignment handles, for
+ * {@link LibraryModel#getAssignmentsForStudentInCourse}, and course handle →
+ * assignment handles, for {@link LibraryModel#getAssignmentsInCourse}.
+ * <p>
+ * Each student keeps a short list of its courses, each with a compact
+ * {@link IntList} of assignment handles. Memory therefore grows with the
+ * number of assignments, not with pairs × assignments as a bitset per pair
+ * would, and a lookup boxes nothing: one array index and a scan over the
+ * few courses of one student. Not thread-safe; LibraryModel guards it with
+ * its locks.
+ */
+class AssignmentIndex {
+
+    /** The assignments of one student, split by course. */
+    private static class PerStudent {
+        private int[] courses = new int[2];
+        private IntList[] assignments = new IntList[2];
+        private int size;
+
+        IntList get(int course) {
+            for (int i = 0; i < size; i++) {
+                if (courses[i] == course) return assignments[i];
+            }
+            return null;
+        }
+
+        IntList getOrCreate(int course) {
+            IntList list = get(course);
+            if (list != null) return list;
+            if (size == courses.length) {
+                courses = Arrays.copyOf(courses, size * 2);
+                assignments = Arrays.copyOf(assignments, size * 2);
+            }
+            courses[size] = course;
+            list = new IntList();
+            assignments[size++] = list;
+            return list;
+        }
+
+        void drop(int course) {
+            for (int i = 0; i < size; i++) {
+                if (courses[i] == course) {
+                    size--;
+                    courses[i] = courses[size];
+                    assignments[i] = assignments[size];
+                    assignments[size] = null;
+                    return;
+                }
+            }
+        }
+    }
+
+    // student handle → its courses and their assignments
+    private final List<PerStudent> byStudent = new ArrayList<>();
+    // course handle → every assignment of the course
+    private final List<IntList> byCourse = new ArrayList<>();
+
+    void add(int student, int course, int assignment) {
+        while (byStudent.size() <= student) {
+            byStudent.add(null);
+        }
+        PerStudent s = byStudent.get(student);
+        if (s == null) {
+            s = new PerStudent();
+            byStudent.set(student, s);
+        }
+        IntList list = s.getOrCreate(course);
+        if (!list.contains(assignment)) {
+            list.add(assignment);
+            while (byCourse.size() <= course) {
+                byCourse.add(null);
+            }
+            IntList all = byCourse.get(course);
+            if (all == null) {
+                all = new IntList();
+                byCourse.set(course, all);
+            }
+            all.add(assignment);
+        }
+    }
+
+    void remove(int student, int course, int assignment) {
+        PerStudent s = (student < 0 || student >= byStudent.size()) ? null : byStudent.get(student);
+        IntList list = (s == null) ? null : s.get(course);
+        if (list == null || !list.removeValue(assignment)) return;
+        if (list.isEmpty()) {
+            s.drop(course);
+        }
+        IntList all = byCourse.get(course);
+        all.removeValue(assignment);
+        if (all.isEmpty()) {
+            byCourse.set(course, null);
+        }
+    }
+
+    /** Assignment handles of the pair, or null if there are none. */
+    IntList get(int student, int course) {
+        PerStudent s = (student < 0 || student >= byStudent.size()) ? null : byStudent.get(student);
+        return (s == null) ? null : s.get(course);
+    }
+
+    /** Assignment handles of every student in the course, or null if there are none. */
+    IntList inCourse(int course) {
+        return (course < 0 || course >= byCourse.size()) ? null : byCourse.get(course);
+    }
+
+    void clear() {
+        byStudent.clear();
+        byCourse.clear();
+    }
+}
@@ -0,0 +1,33 @@
+package org.fp;
+
+import java.time.LocalDate;
+
+/**
+ * Immutable, shareable view of an {@link Assignment}.
+ */
+public record AssignmentSnapshot(String assignmentID,
+                                 String assignmentName,
+                                 String studentID,
+                                 String courseID,
+                                 String gradeID,
+                                 String category,
+                                 LocalDate assignDate,
+                                 LocalDate dueDate,
+                                 Assignment.SubmissionStatus status,
+                                 boolean published) {
+
+    static AssignmentSnapshot of(Assignment a) {
+        return new AssignmentSnapshot(
+                a.getAssignmentID(),
+                a.getAssignmentName(),
+                a.getStudentID(),
+                a.getCourseID(),
+                a.getGradeID(),
+                a.getCategory(),
+                a.getAssignDate(),
+                a.getDueDate(),
+                a.getStatus(),
+                a.isPublished()
+        );
+    }
+}
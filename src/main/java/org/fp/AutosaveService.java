@@ -0,0 +1,138 @@
+package org.fp;
+
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Saves the {@link DataStore} in the background instead of on the UI thread.
+ * Every mutation only marks the store dirty; a daemon thread checks once per
+ * interval and runs the save action if anything changed since the last save,
+ * so a burst of edits ends up in a single write.
+ * <p>
+ * The save action captures the store under its locks (see
+ * {@link DataStoreSnapshot#encode}) and does the file IO after releasing them.
+ */
+class AutosaveService implements MutationListener, AutoCloseable {
+
+    /** Writes the store somewhere durable; runs on the autosave thread. */
+    @FunctionalInterface
+    interface SaveAction {
+        void save() throws IOException;
+    }
+
+    private final DataStore ds;
+    private final SaveAction action;
+    private final ScheduledExecutorService scheduler;
+
+    // bumped by every mutation; the store is dirty while it differs from savedGeneration
+    private final AtomicLong generation = new AtomicLong();
+    private volatile long savedGeneration = 0;
+    // System.nanoTime() of the oldest change not yet saved, 0 if none
+    private final AtomicLong dirtySince = new AtomicLong();
+
+    private volatile long lastSaveNanos = 0;
+    private final AtomicLong saveCount = new AtomicLong();
+
+    private AutosaveService(DataStore ds, SaveAction action, long intervalMillis) {
+        this.ds = ds;
+        this.action = action;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "autosave");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::saveQuietly, intervalMillis, intervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /** Start saving {@code ds} with {@code action} at most once per interval while it changes. */
+    public static AutosaveService start(DataStore ds, SaveAction action, long intervalMillis) {
+        AutosaveService autosave = new AutosaveService(ds, action, intervalMillis);
+        ds.model.addMutationListener(autosave);
+        ds.users.addMutationListener(autosave);
+        return autosave;
+    }
+
+    @Override
+    public void changed() {
+        generation.incrementAndGet();
+        dirtySince.compareAndSet(0, System.nanoTime());
+    }
+
+    public boolean isDirty() {
+        return generation.get() != savedGeneration;
+    }
+
+    /**
+     * Save now if anything changed since the last save.
+     * @return true if the save action ran
+     */
+    public synchronized boolean flush() throws IOException {
+        long since = dirtySince.getAndSet(0);
+        long target = generation.get();
+        if (target == savedGeneration) {
+            return false;
+        }
+        long start = System.nanoTime();
+        try {
+            action.save();
+        } catch (IOException | RuntimeException e) {
+            // still dirty; put back the time of the oldest unsaved change
+            if (since != 0) {
+                dirtySince.accumulateAndGet(since, (cur, old) -> (cur == 0 || old - cur < 0) ? old : cur);
+            }
+            throw e;
+        }
+        lastSaveNanos = System.nanoTime() - start;
+        savedGeneration = target;
+        saveCount.incrementAndGet();
+        return true;
+    }
+
+    private void saveQuietly() {
+        try {
+            flush();
+        } catch (IOException | RuntimeException e) {
+            System.err.println("⚠️ Autosave failed, will retry: " + e.getMessage());
+        }
+    }
+
+    // ---------- metrics ----------
+
+    /** How long the last save took, in milliseconds. */
+    public long lastSaveMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(lastSaveNanos);
+    }
+
+    /** Age of the oldest change that is not on disk yet, in milliseconds (0 if clean). */
+    public long lagMillis() {
+        long since = dirtySince.get();
+        if (since == 0 || !isDirty()) return 0;
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - since);
+    }
+
+    public long saveCount() {
+        return saveCount.get();
+    }
+
+    /** Stop the background thread and save whatever is still pending. */
+    @Override
+    public void close() {
+        ds.model.removeMutationListener(this);
+        ds.users.removeMutationListener(this);
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            flush();
+        } catch (IOException | RuntimeException e) {
+            System.err.println("❌ Final save failed: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package org.fp;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Registers students from StudentList*.csv files (a header line, then
+ * {@code first,last,email} per row) in three stages:
+ * <ol>
+ *   <li>every file is read and validated on its own thread;</li>
+ *   <li>rows are de-duplicated by email across the whole batch, the first
+ *       file and row winning, and the shared initial password is encrypted once;</li>
+ *   <li>everything is applied with one {@link LibraryUsers#registerStudents}
+ *       call, which skips emails that are already registered.</li>
+ * </ol>
+ * Saving is left to the caller, once the whole batch is in.
+ */
+class BulkImport {
+
+    /** What happened to the rows of one file. */
+    record FileSummary(Path file, int added, int duplicates, int invalid, String error) { }
+
+    /** Outcome of a whole import. */
+    record Result(List<FileSummary> files, int rows, long millis) {
+        int added() {
+            return files.stream().mapToInt(FileSummary::added).sum();
+        }
+
+        int duplicates() {
+            return files.stream().mapToInt(FileSummary::duplicates).sum();
+        }
+
+        int invalid() {
+            return files.stream().mapToInt(FileSummary::invalid).sum();
+        }
+
+        double rowsPerSecond() {
+            return millis == 0 ? rows * 1000.0 : rows * 1000.0 / millis;
+        }
+    }
+
+    /** The valid rows of one file, before de-duplication. */
+    private record ParsedFile(Path file, List<LibraryUsers.NewStudent> rows, int invalid, String error) { }
+
+    private BulkImport() { }
+
+    static Result run(List<Path> files, String initPassword, VICData vic,
+                      LibraryUsers users, LibraryModel model) {
+        long start = System.nanoTime();
+        List<ParsedFile> parsed = files.parallelStream().map(BulkImport::parse).toList();
+
+        Set<String> seen = new HashSet<>();
+        List<LibraryUsers.NewStudent> batch = new ArrayList<>();
+        List<List<LibraryUsers.NewStudent>> keptPerFile = new ArrayList<>();
+        int rows = 0;
+        for (ParsedFile p : parsed) {
+            List<LibraryUsers.NewStudent> kept = new ArrayList<>();
+            for (LibraryUsers.NewStudent r : p.rows()) {
+                if (seen.add(r.email())) kept.add(r);
+            }
+            rows += p.rows().size() + p.invalid();
+            batch.addAll(kept);
+            keptPerFile.add(kept);
+        }
+
+        String encrypted = vic.cipher().encrypt(initPassword);
+        Set<String> skipped = users.registerStudents(batch, encrypted, model);
+
+        List<FileSummary> summaries = new ArrayList<>(parsed.size());
+        for (int i = 0; i < parsed.size(); i++) {
+            ParsedFile p = parsed.get(i);
+            int added = 0;
+            for (LibraryUsers.NewStudent r : keptPerFile.get(i)) {
+                if (!skipped.contains(r.email())) added++;
+            }
+            summaries.add(new FileSummary(p.file(), added, p.rows().size() - added, p.invalid(), p.error()));
+        }
+        return new Result(summaries, rows, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static ParsedFile parse(Path file) {
+        List<LibraryUsers.NewStudent> rows = new ArrayList<>();
+        int invalid = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            if (reader.readLine() == null) {
+                return new ParsedFile(file, rows, 0, "File is empty");
+            }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split(",", -1);
+                if (parts.length < 3) {
+                    invalid++;
+                    continue;
+                }
+                String first = parts[0].trim();
+                String last  = parts[1].trim();
+                String email = parts[2].trim();
+                if (first.isEmpty() || last.isEmpty() || !email.contains("@")) {
+                    invalid++;
+                    continue;
+                }
+                rows.add(new LibraryUsers.NewStudent(first, last, email));
+            }
+        } catch (IOException e) {
+            return new ParsedFile(file, rows, invalid, e.getMessage());
+        }
+        return new ParsedFile(file, rows, invalid, null);
+    }
+}
@@ -0,0 +1,157 @@
+package org.fp;
+
+import java.util.Arrays;
+
+/**
+ * Straddling checkerboard held in primitive lookup tables.
+ * <p>
+ * Builds the same board as {@link VICOperations#get2DTable}, but instead of a
+ * {@code Character → String} map it keeps a 26-entry letter → code table and
+ * two code → letter tables: 10 entries for the one-digit codes and 100
+ * indexed by the two-digit code (row label * 10 + column). Encoding and
+ * decoding are one array lookup per character and allocate nothing besides
+ * the output.
+ * <p>
+ * Output matches {@link VICOperations#checkerboardEncode} and
+ * {@link VICOperations#checkerboardDecode}: a character without a code is
+ * encoded as "null", and a code without a letter is dropped when decoding.
+ */
+final class CheckerboardCodec {
+    private static final int NONE = -1;
+
+    // letter - 'A' → code: 0-9 one digit, 100 + row * 10 + column two digits, NONE if not on the board
+    private final int[] encodeTable = new int[26];
+    // anagram letters outside A-Z (isValidAnagram takes any letter), with their codes
+    private final char[] otherLetters;
+    private final int[] otherCodes;
+    private final char[] singleDecode = new char[10];
+    private final char[] pairDecode = new char[100];
+    // digits that start a two-digit code
+    private final boolean[] rowLabel = new boolean[10];
+
+    private CheckerboardCodec(String number, String letter) {
+        Arrays.fill(encodeTable, NONE);
+        String label = VICOperations.getLabel(number, letter);
+        for (int i = 0; i < label.length(); i++) {
+            rowLabel[label.charAt(i) - '0'] = true;
+        }
+
+        int others = 0;
+        char[] otherLetters = new char[10];
+        int[] otherCodes = new int[10];
+        // the anagram's letters take the one-digit codes of their column
+        for (int i = 0; i < 10; i++) {
+            char c = letter.charAt(i);
+            if (c == ' ') continue;
+            int digit = number.charAt(i) - '0';
+            singleDecode[digit] = c;
+            if (c >= 'A' && c <= 'Z') {
+                encodeTable[c - 'A'] = digit;
+            } else {
+                otherLetters[others] = c;
+                otherCodes[others++] = digit;
+            }
+        }
+        // every other letter fills the labelled rows left to right
+        int row = 0;
+        int column = 0;
+        for (char c = 'A'; c <= 'Z'; c++) {
+            if (letter.indexOf(c) >= 0) continue;
+            if (column >= 10) {
+                row++;
+                column = 0;
+            }
+            int pair = (label.charAt(row) - '0') * 10 + (number.charAt(column) - '0');
+            encodeTable[c - 'A'] = 100 + pair;
+            pairDecode[pair] = c;
+            column++;
+        }
+        this.otherLetters = Arrays.copyOf(otherLetters, others);
+        this.otherCodes = Arrays.copyOf(otherCodes, others);
+    }
+
+    /**
+     * The codec for a digit permutation and an anagram, or null when
+     * {@link VICOperations#get2DTable} would return null for them.
+     */
+    static CheckerboardCodec of(String number, String anagram) {
+        String letter = anagram.toUpperCase();
+        if (VICOperations.createStraddlingCheckerboard(number, letter) == null) {
+            return null;
+        }
+        return new CheckerboardCodec(number, letter);
+    }
+
+    String encode(CharSequence message) {
+        StringBuilder out = new StringBuilder(message.length() * 2);
+        encode(message, out);
+        return out.toString();
+    }
+
+    void encode(CharSequence message, StringBuilder out) {
+        for (int i = 0, n = message.length(); i < n; i++) {
+            int code = codeOf(message.charAt(i));
+            if (code == NONE) {
+                out.append("null");
+            } else if (code < 100) {
+                out.append((char) ('0' + code));
+            } else {
+                out.append((char) ('0' + (code - 100) / 10)).append((char) ('0' + code % 10));
+            }
+        }
+    }
+
+    private int codeOf(char c) {
+        if (c >= 'A' && c <= 'Z') {
+            return encodeTable[c - 'A'];
+        }
+        for (int i = 0; i < otherLetters.length; i++) {
+            if (otherLetters[i] == c) return otherCodes[i];
+        }
+        return NONE;
+    }
+
+    String decode(CharSequence encoded) {
+        StringBuilder out = new StringBuilder(encoded.length());
+        decode(encoded, out);
+        return out.toString();
+    }
+
+    /**
+     * A row label digit starts a two-digit code, any other character is a
+     * code of its own.
+     *
+     * @throws StringIndexOutOfBoundsException if the input ends in a row label,
+     *         as checkerboardDecode does
+     */
+    void decode(CharSequence encoded, StringBuilder out) {
+        int n = encoded.length();
+        int i = 0;
+        while (i < n) {
+            char c = encoded.charAt(i);
+            char decoded = 0;
+            if (isDigit(c) && rowLabel[c - '0']) {
+                if (i + 1 >= n) {
+                    throw new StringIndexOutOfBoundsException("Code at " + i + " is cut off");
+                }
+                char d = encoded.charAt(i + 1);
+                if (isDigit(d)) {
+                    decoded = pairDecode[(c - '0') * 10 + (d - '0')];
+                }
+                i += 2;
+            } else {
+                if (isDigit(c)) {
+                    decoded = singleDecode[c - '0'];
+                }
+                i++;
+            }
+            if (decoded != 0) {
+                out.append(decoded);
+            }
+        }
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
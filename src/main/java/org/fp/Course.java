@@ -1,8 +1,10 @@
 package org.fp;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 public class Course {
     private final String courseID;
@@ -14,6 +16,9 @@ public class Course {
     private Map<String, Double> categoryWeights = new HashMap<>(); //Homework → 0.4
     private Map<String, Integer> categoryDropCount = new HashMap<>(); //Quiz → 1
     private boolean isCompleted = false;
+    // bumped whenever the grading mode, a weight or a drop count changes, after the change;
+    // volatile for the lock-free readers in LibraryModel
+    private transient volatile int gradingVersion = 0;
     public Course(String courseName, String courseDescription, String teacherID) {
         this.courseID = IDGen.generate("CRS");
         this.courseName = courseName;
@@ -22,6 +27,24 @@ public class Course {
         this.assignments = new HashMap<>();
     }
 
+    /**
+     * Rebuild a persisted course with its original ID (used by {@link DataStoreLoader}).
+     * Assignments are tied back in afterwards through {@link #addAssignment}.
+     */
+    Course(String courseID, String courseName, String courseDescription, String teacherID,
+           boolean useWeightedGrading, Map<String, Double> categoryWeights,
+           Map<String, Integer> categoryDropCount, boolean isCompleted) {
+        this.courseID = courseID;
+        this.courseName = courseName;
+        this.courseDescription = courseDescription;
+        this.teacherID = teacherID;
+        this.assignments = new HashMap<>();
+        this.useWeightedGrading = useWeightedGrading;
+        this.categoryWeights = new HashMap<>(categoryWeights);
+        this.categoryDropCount = new HashMap<>(categoryDropCount);
+        this.isCompleted = isCompleted;
+    }
+
     // Copy constructor
     public Course (Course c){
         if (c == null){
@@ -39,6 +62,7 @@ public class Course {
         this.categoryWeights= new HashMap<>(c.categoryWeights);
         this.categoryDropCount= new HashMap<>(c.categoryDropCount);
         this.isCompleted= c.isCompleted;
+        this.gradingVersion = c.gradingVersion;
     }
 
     public String getCourseID() {
@@ -62,12 +86,22 @@ public class Course {
     }
     public void setGradingMode(boolean useWeighted) {
         this.useWeightedGrading = useWeighted;
+        gradingVersion++;
     }
     public void setCategoryWeight(String category, double weight) {
         categoryWeights.put(category, weight);
+        gradingVersion++;
     }
     public void setCategoryDropCount(String category, int count) {
         categoryDropCount.put(category, count);
+        gradingVersion++;
+    }
+    /**
+     * Counter that changes whenever the grading setup of this course changes,
+     * so cached grades computed against an older setup can be recognised.
+     */
+    public int getGradingVersion() {
+        return gradingVersion;
     }
     public boolean isUsingWeightedGrading() {
         return useWeightedGrading;
@@ -97,6 +131,13 @@ public class Course {
         }
         return Collections.unmodifiableMap(copy);
     }
+    /** Live view of the assignments, for serialization in this package. */
+    Collection<Assignment> assignmentValues() {
+        return Collections.unmodifiableCollection(assignments.values());
+    }
+    public Set<String> getAssignmentIDs() {
+        return Collections.unmodifiableSet(assignments.keySet());
+    }
     public void removeAssignmentByID(String assignmentID) {
         assignments.remove(assignmentID);
     }
@@ -0,0 +1,332 @@
+package org.fp;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+
+/**
+ * The locks of {@link LibraryModel}, partitioned by course ID.
+ * <p>
+ * Every course has a lock of its own, so grading in one course never waits
+ * for another. Above them sits one structure lock: course operations hold it
+ * shared, while changes to the shape of the model (adding or removing
+ * entities, enrolling, loading a course, freezing for a save) hold it
+ * exclusively and so never overlap a course operation. Operations that span
+ * courses lock them in ascending course ID order, so two of them cannot
+ * deadlock.
+ * <p>
+ * Calculations usually take no lock at all: {@link #optimisticRead} runs
+ * them against the stamps of their courses and of the structure, and keeps
+ * the result only if no writer got in between. Readers therefore never make
+ * a grading write wait, and only fall back to the read locks when they keep
+ * losing to writers.
+ * <p>
+ * Lock order: users → structure → courses (ascending) → storage backend.
+ * A thread holding only shared locks must not ask for {@link #exclusive},
+ * and course locks are not reentrant: a thread writing a course (e.g. a
+ * {@link MutationListener}) must not read that course through the model.
+ * Work that must not happen under a lock, such as waiting for a journal
+ * fsync, is handed to {@link #whenUnlocked} and runs once the thread has let
+ * go of its last lock.
+ */
+class CourseLocks {
+
+    /** Locks taken together and released by {@link #close}, for try-with-resources. */
+    interface Held extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    // optimistic attempts before a calculation takes the read locks
+    private static final int OPTIMISTIC_ATTEMPTS = 3;
+
+    // per thread: how many Held are open across all models, and what runs once none is
+    private static final ThreadLocal<int[]> depth = ThreadLocal.withInitial(() -> new int[1]);
+    private static final ThreadLocal<List<Runnable>> deferred = ThreadLocal.withInitial(ArrayList::new);
+    // the optimistic run in progress on this thread, for checkpoint()
+    private static final ThreadLocal<Attempt> current = new ThreadLocal<>();
+    private static final Object CONFLICT = new Object();
+
+    private final ReentrantReadWriteLock structure = new ReentrantReadWriteLock();
+    // write-locked for as long as the structure is held exclusively, so optimistic readers notice
+    private final StampedLock structureStamps = new StampedLock();
+    // created on first use; only dropped while the structure lock is held exclusively
+    private final ConcurrentHashMap<String, StampedLock> courses = new ConcurrentHashMap<>();
+
+    /** The whole model, e.g. for a structural change or a save. */
+    Held exclusive() {
+        Lock l = structure.writeLock();
+        l.lock();
+        if (structure.getWriteHoldCount() > 1) {
+            return held(l::unlock);
+        }
+        long stamp = structureStamps.writeLock();
+        return held(() -> {
+            structureStamps.unlockWrite(stamp);
+            l.unlock();
+        });
+    }
+
+    /** No structural change until closed; courses themselves are not locked. */
+    Held shared() {
+        Lock l = structure.readLock();
+        l.lock();
+        return held(l::unlock);
+    }
+
+    /** Exclusive access to one course. */
+    Held write(String courseID) {
+        Lock shared = structure.readLock();
+        shared.lock();
+        StampedLock course = lockOf(courseID);
+        long stamp = course.writeLock();
+        return held(() -> {
+            course.unlockWrite(stamp);
+            shared.unlock();
+        });
+    }
+
+    /** Shared access to one course. */
+    Held read(String courseID) {
+        Lock shared = structure.readLock();
+        shared.lock();
+        StampedLock course = lockOf(courseID);
+        long stamp = course.readLock();
+        return held(() -> {
+            course.unlockRead(stamp);
+            shared.unlock();
+        });
+    }
+
+    /**
+     * Shared access to several courses, locked in ascending ID order. The
+     * collection is read after the structure lock is taken, so it may be a
+     * live view of the model, e.g. a student's enrolled courses.
+     */
+    Held read(Collection<String> courseIDs) {
+        Lock shared = structure.readLock();
+        shared.lock();
+        TreeSet<String> sorted = new TreeSet<>();
+        for (String id : courseIDs) {
+            sorted.add(key(id));
+        }
+        StampedLock[] locks = new StampedLock[sorted.size()];
+        long[] stamps = new long[locks.length];
+        int n = 0;
+        for (String id : sorted) {
+            locks[n] = lockOf(id);
+            stamps[n] = locks[n].readLock();
+            n++;
+        }
+        return held(() -> {
+            for (int i = locks.length - 1; i >= 0; i--) {
+                locks[i].unlockRead(stamps[i]);
+            }
+            shared.unlock();
+        });
+    }
+
+    /**
+     * Run {@code action} as soon as the calling thread holds no lock of any
+     * model: right away if it holds none, otherwise when its outermost
+     * {@link Held} closes. Whatever the action throws is thrown from that
+     * {@code close}, after every lock is released.
+     */
+    static void whenUnlocked(Runnable action) {
+        if (depth.get()[0] == 0) {
+            action.run();
+        } else {
+            deferred.get().add(action);
+        }
+    }
+
+    /** Count the locks as held by this thread until closed. */
+    private static Held held(Runnable unlock) {
+        int[] d = depth.get();
+        d[0]++;
+        return () -> {
+            try {
+                unlock.run();
+            } finally {
+                d[0]--;
+            }
+            if (d[0] == 0) {
+                runDeferred();
+            }
+        };
+    }
+
+    private static void runDeferred() {
+        List<Runnable> actions = deferred.get();
+        if (actions.isEmpty()) return;
+        List<Runnable> batch = new ArrayList<>(actions);
+        actions.clear();
+        RuntimeException failure = null;
+        for (Runnable action : batch) {
+            try {
+                action.run();
+            } catch (RuntimeException e) {
+                if (failure == null) failure = e;
+                else failure.addSuppressed(e);
+            }
+        }
+        if (failure != null) throw failure;
+    }
+
+    /**
+     * Run a calculation over one course that changes nothing. It first runs
+     * without locking and its result is kept if neither that course nor the
+     * structure was written meanwhile; after a few conflicts, or right away
+     * if a writer is active, it runs under {@link #read(String)} instead. A
+     * conflicting attempt may see a half-made change, so anything it throws,
+     * errors included, only counts if the attempt turns out to be valid, and
+     * its loops call {@link #checkpoint} so such a change cannot keep it
+     * running forever.
+     */
+    <T> T optimisticRead(String courseID, Supplier<T> calculation) {
+        if (!structure.isWriteLockedByCurrentThread()) {
+            for (int attempt = 0; attempt < OPTIMISTIC_ATTEMPTS; attempt++) {
+                long structureStamp = structureStamps.tryOptimisticRead();
+                // looked up after the structure stamp: a course dropped since then fails validation
+                StampedLock course = lockOf(courseID);
+                long stamp = course.tryOptimisticRead();
+                if (structureStamp == 0 || stamp == 0) break;   // a writer is in; wait for it below
+                Attempt run = new Attempt(new StampedLock[] {course}, new long[] {stamp}, structureStamp);
+                Object result = run(run, calculation);
+                if (result != CONFLICT) {
+                    @SuppressWarnings("unchecked")
+                    T t = (T) result;
+                    return t;
+                }
+            }
+        }
+        try (Held held = read(courseID)) {
+            return calculation.get();
+        }
+    }
+
+    /** {@link #optimisticRead(String, Supplier)} for a calculation over several courses. */
+    <T> T optimisticRead(Collection<String> courseIDs, Supplier<T> calculation) {
+        if (!structure.isWriteLockedByCurrentThread()) {
+            attempts:
+            for (int attempt = 0; attempt < OPTIMISTIC_ATTEMPTS; attempt++) {
+                long structureStamp = structureStamps.tryOptimisticRead();
+                if (structureStamp == 0) break;
+                String[] ids;
+                try {
+                    // the IDs may be a live view, which only a structural change can break
+                    ids = courseIDs.toArray(new String[0]);
+                } catch (RuntimeException e) {
+                    if (structureStamps.validate(structureStamp)) throw e;
+                    continue;
+                }
+                StampedLock[] locks = new StampedLock[ids.length];
+                long[] stamps = new long[ids.length];
+                for (int i = 0; i < ids.length; i++) {
+                    locks[i] = lockOf(ids[i]);
+                    stamps[i] = locks[i].tryOptimisticRead();
+                    if (stamps[i] == 0) break attempts;
+                }
+                Object result = run(new Attempt(locks, stamps, structureStamp), calculation);
+                if (result != CONFLICT) {
+                    @SuppressWarnings("unchecked")
+                    T t = (T) result;
+                    return t;
+                }
+            }
+        }
+        try (Held held = read(courseIDs)) {
+            return calculation.get();
+        }
+    }
+
+    /**
+     * Give up the optimistic attempt running on this thread if a writer got
+     * in since it started. Loops of calculations passed to
+     * {@link #optimisticRead} call it once per step; elsewhere it does nothing.
+     */
+    static void checkpoint() {
+        Attempt run = current.get();
+        if (run != null && !run.valid()) {
+            throw Conflict.INSTANCE;
+        }
+    }
+
+    /** One unlocked run of a calculation: its result, or CONFLICT if a writer got in. */
+    private static Object run(Attempt run, Supplier<?> calculation) {
+        Attempt outer = current.get();
+        current.set(run);
+        try {
+            Object result = calculation.get();
+            return run.valid() ? result : CONFLICT;
+        } catch (Throwable t) {
+            // a torn read can throw anything, even a StackOverflowError; only a valid run may
+            if (t != Conflict.INSTANCE && run.valid()) {
+                throw t;
+            }
+            return CONFLICT;
+        } finally {
+            current.set(outer);
+        }
+    }
+
+    /** The stamps an optimistic run started from. */
+    private final class Attempt {
+        private final StampedLock[] locks;
+        private final long[] stamps;
+        private final long structureStamp;
+
+        Attempt(StampedLock[] locks, long[] stamps, long structureStamp) {
+            this.locks = locks;
+            this.stamps = stamps;
+            this.structureStamp = structureStamp;
+        }
+
+        boolean valid() {
+            return CourseLocks.this.valid(locks, stamps, structureStamp);
+        }
+    }
+
+    /** Thrown by {@link #checkpoint} to abandon a run; preallocated, since it only unwinds. */
+    private static final class Conflict extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        static final Conflict INSTANCE = new Conflict();
+
+        private Conflict() {
+            super("optimistic read conflict", null, false, false);
+        }
+    }
+
+    /** True if no writer got in since the stamps were taken. */
+    private boolean valid(StampedLock[] locks, long[] stamps, long structureStamp) {
+        for (int i = 0; i < locks.length; i++) {
+            if (!locks[i].validate(stamps[i])) return false;
+        }
+        return structureStamps.validate(structureStamp);
+    }
+
+    /** Drop the lock of a removed course; the caller holds {@link #exclusive}. */
+    void forget(String courseID) {
+        courses.remove(key(courseID));
+    }
+
+    /** Drop every course lock; the caller holds {@link #exclusive}. */
+    void clear() {
+        courses.clear();
+    }
+
+    private StampedLock lockOf(String courseID) {
+        return courses.computeIfAbsent(key(courseID), k -> new StampedLock());
+    }
+
+    // assignments of an unknown course still need some lock; ConcurrentHashMap takes no null keys
+    private static String key(String courseID) {
+        return courseID == null ? "" : courseID;
+    }
+}
@@ -0,0 +1,34 @@
+package org.fp;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable, shareable view of a {@link Course}.
+ * Unlike {@link LibraryModel#getCourse}, it does not copy the course's assignments;
+ * it only carries their IDs.
+ */
+public record CourseSnapshot(String courseID,
+                             String courseName,
+                             String courseDescription,
+                             String teacherID,
+                             boolean usingWeightedGrading,
+                             boolean completed,
+                             Map<String, Double> categoryWeights,
+                             Map<String, Integer> categoryDropCounts,
+                             Set<String> assignmentIDs) {
+
+    static CourseSnapshot of(Course c) {
+        return new CourseSnapshot(
+                c.getCourseID(),
+                c.getCourseName(),
+                c.getCourseDescription(),
+                c.getTeacherID(),
+                c.isUsingWeightedGrading(),
+                c.isCompleted(),
+                Map.copyOf(c.getCategoryWeights()),
+                Map.copyOf(c.getCategoryDropCounts()),
+                Set.copyOf(c.getAssignmentIDs())
+        );
+    }
+}
@@ -0,0 +1,161 @@
+package org.fp;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DateTimeException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+/**
+ * Streams data/datastore.json into a {@link DataStore} token by token instead
+ * of materializing the whole document first. Every entity is constructed as
+ * soon as its JSON object has been read and handed straight to the model, so
+ * the derived indexes are built while the file is still being read.
+ * <p>
+ * Entities are read by the adapters in {@link GsonSupport}. The copies of
+ * each assignment nested under {@code courseMap.*.assignments} are skipped;
+ * courses are tied to the instances in {@code assignmentMap} instead, which
+ * is what the in-memory model shares anyway.
+ */
+class DataStoreLoader {
+
+    /** Receives loading progress as bytes read out of the file's total size. */
+    @FunctionalInterface
+    interface ProgressListener {
+        void onProgress(long bytesRead, long totalBytes);
+    }
+
+    private final ProgressListener listener;
+    // the shared hand-written adapters (see GsonSupport)
+    private final TypeAdapter<LibraryUsers> users = GsonSupport.GSON.getAdapter(LibraryUsers.class);
+    private final TypeAdapter<Student> students = GsonSupport.GSON.getAdapter(Student.class);
+    private final TypeAdapter<Teacher> teachers = GsonSupport.GSON.getAdapter(Teacher.class);
+    private final TypeAdapter<Course> courses = GsonSupport.GSON.getAdapter(Course.class);
+    private final TypeAdapter<Assignment> assignments = GsonSupport.GSON.getAdapter(Assignment.class);
+    private final TypeAdapter<Score> scores = GsonSupport.GSON.getAdapter(Score.class);
+
+    DataStoreLoader(ProgressListener listener) {
+        this.listener = listener;
+    }
+
+    public DataStore load(Path path) throws IOException {
+        long size = Files.size(path);
+        try (InputStream raw = Files.newInputStream(path);
+             CountingInputStream counted = new CountingInputStream(raw, size, listener);
+             JsonReader in = new JsonReader(new InputStreamReader(counted, StandardCharsets.UTF_8))) {
+            DataStore ds = readDataStore(in);
+            listener.onProgress(size, size);
+            return ds;
+        } catch (IllegalStateException | IllegalArgumentException | DateTimeException e) {
+            // unexpected tokens, unknown enum names and bad dates
+            throw new IOException("Malformed datastore: " + e.getMessage(), e);
+        }
+    }
+
+    private DataStore readDataStore(JsonReader in) throws IOException {
+        DataStore ds = new DataStore();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "users" -> {
+                    LibraryUsers loaded = users.read(in);
+                    if (loaded != null) ds.users = loaded;
+                }
+                case "model" -> readModel(in, ds.model);
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+        return ds;
+    }
+
+    private void readModel(JsonReader in, LibraryModel model) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return;
+        }
+        // assignments are only tied into courses that already exist, so hold
+        // them back if the file lists assignmentMap before courseMap
+        boolean coursesRead = false;
+        List<Assignment> early = new ArrayList<>();
+
+        in.beginObject();
+        while (in.hasNext()) {
+            String section = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            in.beginObject();
+            while (in.hasNext()) {
+                in.nextName();
+                switch (section) {
+                    case "studentMap" -> model.addStudent(students.read(in));
+                    case "teacherMap" -> model.addTeacher(teachers.read(in));
+                    case "courseMap" -> model.addCourse(courses.read(in));
+                    case "assignmentMap" -> {
+                        Assignment a = assignments.read(in);
+                        if (coursesRead) model.addAssignment(a);
+                        else early.add(a);
+                    }
+                    case "gradeMap" -> model.addScore(scores.read(in));
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            if (section.equals("courseMap")) {
+                coursesRead = true;
+                early.forEach(model::addAssignment);
+                early.clear();
+            }
+        }
+        in.endObject();
+        early.forEach(model::addAssignment);
+    }
+
+    /** Counts bytes as the reader pulls them and reports each new percent. */
+    private static class CountingInputStream extends FilterInputStream {
+        private final long total;
+        private final ProgressListener listener;
+        private long count = 0;
+        private long lastPercent = -1;
+
+        CountingInputStream(InputStream in, long total, ProgressListener listener) {
+            super(in);
+            this.total = total;
+            this.listener = listener;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) advance(1);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buf, int off, int len) throws IOException {
+            int n = super.read(buf, off, len);
+            if (n > 0) advance(n);
+            return n;
+        }
+
+        private void advance(int n) {
+            count += n;
+            long percent = (total == 0) ? 100 : (100 * count / total);
+            if (percent != lastPercent) {
+                lastPercent = percent;
+                listener.onProgress(count, total);
+            }
+        }
+    }
+}
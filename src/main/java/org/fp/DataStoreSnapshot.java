@@ -0,0 +1,459 @@
+package org.fp;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compact binary snapshot of a whole {@link DataStore} (data/datastore.bin).
+ * <pre>
+ * header   : int magic, short version, short sectionCount,
+ *            sectionCount x (int kind, long offset, long length)
+ * STRINGS  : int count, count x (int byteLength, UTF-8 bytes)
+ * USERS, STUDENTS, TEACHERS, COURSES, ASSIGNMENTS, SCORES :
+ *            int count, then one fixed-order record per entity
+ * </pre>
+ * Every string (IDs, names, categories, ...) is written once to the string
+ * table and referenced by its index, -1 meaning null. Dates are stored as
+ * epoch-day ints. Reading maps the file through a {@link FileChannel} and
+ * hands each entity to the model as soon as it is decoded, like
+ * {@link DataStoreLoader} does for JSON, which stays the import/export format.
+ */
+class DataStoreSnapshot {
+    static final int MAGIC = 0x4742_4B53;   // "GBKS"
+    static final short VERSION = 1;
+
+    private static final int STRINGS = 0;
+    private static final int USERS = 1;
+    private static final int STUDENTS = 2;
+    private static final int TEACHERS = 3;
+    private static final int COURSES = 4;
+    private static final int ASSIGNMENTS = 5;
+    private static final int SCORES = 6;
+    private static final int SECTION_COUNT = 7;
+
+    private static final int NO_DATE = Integer.MIN_VALUE;
+    // every record, string and set element starts with at least one int
+    private static final int MIN_RECORD_BYTES = 4;
+
+    private DataStoreSnapshot() { }
+
+    // ---------- writing ----------
+
+    public static void write(DataStore ds, Path path) throws IOException {
+        writeSections(encode(ds), path);
+    }
+
+    /**
+     * Write the snapshot next to {@code path}, force it to disk and move it
+     * into place, so readers only ever see a complete file. Safe to call from
+     * any thread: the store is captured under its locks and written after
+     * they are released.
+     */
+    public static void save(DataStore ds, Path path) throws IOException {
+        writeAtomically(encode(ds), path);
+    }
+
+    /**
+     * Capture the users under their lock and freeze the model under its lock
+     * (the same order {@link LibraryUsers#assignRole} takes them in), then
+     * encode every section after both are released, so writers only wait for
+     * the freeze.
+     */
+    static byte[][] encode(DataStore ds) throws IOException {
+        List<LibraryUsers.UserRecord> users;
+        FrozenModel view;
+        synchronized (ds.users) {
+            users = ds.users.exportUsers();
+            view = ds.model.freeze();
+        }
+        try (view) {
+            return encode(users, view.studentValues(), view.teacherValues(), view.courseValues(),
+                    view.assignmentValues(), view.scoreValues());
+        }
+    }
+
+    /** Encode the given snapshots as one snapshot file; no lock is needed. */
+    static byte[][] encode(List<LibraryUsers.UserRecord> users, Collection<StudentSnapshot> students,
+                           Collection<TeacherSnapshot> teachers, Collection<CourseSnapshot> courses,
+                           Collection<AssignmentSnapshot> assignments,
+                           Collection<ScoreSnapshot> scores) throws IOException {
+        StringTable strings = new StringTable();
+        byte[][] sections = new byte[SECTION_COUNT][];
+        sections[USERS] = encodeUsers(users, strings);
+        sections[STUDENTS] = encodeStudents(students, strings);
+        sections[TEACHERS] = encodeTeachers(teachers, strings);
+        sections[COURSES] = encodeCourses(courses, strings);
+        sections[ASSIGNMENTS] = encodeAssignments(assignments, strings);
+        sections[SCORES] = encodeScores(scores, strings);
+        sections[STRINGS] = strings.encode();
+        return sections;
+    }
+
+    /** Write encoded sections to a temp file, force it and move it over {@code path}. */
+    static void writeAtomically(byte[][] sections, Path path) throws IOException {
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        writeSections(sections, tmp);
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeSections(byte[][] sections, Path path) throws IOException {
+
+        ByteBuffer header = ByteBuffer.allocate(8 + SECTION_COUNT * 20);
+        header.putInt(MAGIC).putShort(VERSION).putShort((short) SECTION_COUNT);
+        long offset = header.capacity();
+        for (int kind = 0; kind < SECTION_COUNT; kind++) {
+            header.putInt(kind).putLong(offset).putLong(sections[kind].length);
+            offset += sections[kind].length;
+        }
+        header.flip();
+
+        ByteBuffer[] out = new ByteBuffer[SECTION_COUNT + 1];
+        out[0] = header;
+        for (int kind = 0; kind < SECTION_COUNT; kind++) {
+            out[kind + 1] = ByteBuffer.wrap(sections[kind]);
+        }
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long remaining = offset;
+            while (remaining > 0) {
+                remaining -= ch.write(out);
+            }
+            ch.force(true);
+        }
+    }
+
+    private static byte[] encodeUsers(List<LibraryUsers.UserRecord> records, StringTable st) throws IOException {
+        Section s = new Section(records.size());
+        for (LibraryUsers.UserRecord u : records) {
+            s.out.writeInt(st.ref(u.username()));
+            s.out.writeInt(st.ref(u.encryptedPassword()));
+            s.out.writeInt(st.ref(u.firstName()));
+            s.out.writeInt(st.ref(u.lastName()));
+            s.out.writeInt(st.ref(u.email()));
+            s.out.writeByte(u.type() == null ? -1 : u.type().ordinal());
+            s.out.writeInt(st.ref(u.objectID()));
+        }
+        return s.bytes();
+    }
+
+    private static byte[] encodeStudents(Collection<StudentSnapshot> students, StringTable st) throws IOException {
+        Section s = new Section(students.size());
+        for (StudentSnapshot stu : students) {
+            s.out.writeInt(st.ref(stu.stuID()));
+            s.out.writeInt(st.ref(stu.firstName()));
+            s.out.writeInt(st.ref(stu.lastName()));
+            s.out.writeInt(st.ref(stu.email()));
+            writeRefs(s.out, st, stu.enrolledCourseIDs());
+            writeRefs(s.out, st, stu.assignmentIDs());
+        }
+        return s.bytes();
+    }
+
+    private static byte[] encodeTeachers(Collection<TeacherSnapshot> teachers, StringTable st) throws IOException {
+        Section s = new Section(teachers.size());
+        for (TeacherSnapshot t : teachers) {
+            s.out.writeInt(st.ref(t.teacherID()));
+            s.out.writeInt(st.ref(t.firstName()));
+            s.out.writeInt(st.ref(t.lastName()));
+            writeRefs(s.out, st, t.teachingCourseIDs());
+        }
+        return s.bytes();
+    }
+
+    private static byte[] encodeCourses(Collection<CourseSnapshot> courses, StringTable st) throws IOException {
+        Section s = new Section(courses.size());
+        for (CourseSnapshot c : courses) {
+            s.out.writeInt(st.ref(c.courseID()));
+            s.out.writeInt(st.ref(c.courseName()));
+            s.out.writeInt(st.ref(c.courseDescription()));
+            s.out.writeInt(st.ref(c.teacherID()));
+            s.out.writeByte((c.usingWeightedGrading() ? 1 : 0) | (c.completed() ? 2 : 0));
+            s.out.writeInt(c.categoryWeights().size());
+            for (Map.Entry<String, Double> w : c.categoryWeights().entrySet()) {
+                s.out.writeInt(st.ref(w.getKey()));
+                s.out.writeDouble(w.getValue());
+            }
+            s.out.writeInt(c.categoryDropCounts().size());
+            for (Map.Entry<String, Integer> d : c.categoryDropCounts().entrySet()) {
+                s.out.writeInt(st.ref(d.getKey()));
+                s.out.writeInt(d.getValue());
+            }
+        }
+        return s.bytes();
+    }
+
+    private static byte[] encodeAssignments(Collection<AssignmentSnapshot> assignments, StringTable st)
+            throws IOException {
+        Section s = new Section(assignments.size());
+        for (AssignmentSnapshot a : assignments) {
+            s.out.writeInt(st.ref(a.assignmentID()));
+            s.out.writeInt(st.ref(a.assignmentName()));
+            s.out.writeInt(st.ref(a.studentID()));
+            s.out.writeInt(st.ref(a.courseID()));
+            s.out.writeInt(st.ref(a.gradeID()));
+            s.out.writeInt(st.ref(a.category()));
+            s.out.writeInt(epochDay(a.assignDate()));
+            s.out.writeInt(epochDay(a.dueDate()));
+            s.out.writeByte(a.status().ordinal());
+            s.out.writeBoolean(a.published());
+        }
+        return s.bytes();
+    }
+
+    private static byte[] encodeScores(Collection<ScoreSnapshot> scores, StringTable st) throws IOException {
+        Section s = new Section(scores.size());
+        for (ScoreSnapshot sc : scores) {
+            s.out.writeInt(st.ref(sc.gradeID()));
+            s.out.writeInt(st.ref(sc.assignmentID()));
+            s.out.writeInt(st.ref(sc.studentID()));
+            s.out.writeInt(sc.earned());
+            s.out.writeInt(sc.total());
+        }
+        return s.bytes();
+    }
+
+    private static void writeRefs(DataOutputStream out, StringTable st, Set<String> values) throws IOException {
+        out.writeInt(values.size());
+        for (String v : values) {
+            out.writeInt(st.ref(v));
+        }
+    }
+
+    private static int epochDay(LocalDate d) {
+        return (d == null) ? NO_DATE : (int) d.toEpochDay();
+    }
+
+    /** One section being encoded: an entity count followed by the records. */
+    private static class Section {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+
+        Section(int count) throws IOException {
+            out.writeInt(count);
+        }
+
+        byte[] bytes() throws IOException {
+            out.flush();
+            return bytes.toByteArray();
+        }
+    }
+
+    /** Interns strings into table indexes while the sections are encoded. */
+    private static class StringTable {
+        private final Map<String, Integer> index = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int ref(String s) {
+            if (s == null) return -1;
+            Integer i = index.get(s);
+            if (i == null) {
+                i = values.size();
+                index.put(s, i);
+                values.add(s);
+            }
+            return i;
+        }
+
+        byte[] encode() throws IOException {
+            Section s = new Section(values.size());
+            for (String v : values) {
+                byte[] utf8 = v.getBytes(StandardCharsets.UTF_8);
+                s.out.writeInt(utf8.length);
+                s.out.write(utf8);
+            }
+            return s.bytes();
+        }
+    }
+
+    // ---------- reading ----------
+
+    public static DataStore read(Path path) throws IOException {
+        DataStore ds = new DataStore();
+        readInto(path, ds.users, ds.model);
+        return ds;
+    }
+
+    /**
+     * Add everything in the snapshot at {@code path} to an existing model.
+     * Pass null for {@code users} to skip the users section.
+     */
+    static void readInto(Path path, LibraryUsers users, LibraryModel model) throws IOException {
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            decode(buf, users, model);
+        } catch (IndexOutOfBoundsException | BufferUnderflowException e) {
+            throw new IOException("Truncated snapshot: " + path, e);
+        } catch (DateTimeException e) {
+            throw new IOException("Corrupt snapshot: " + path, e);
+        }
+    }
+
+    private static void decode(ByteBuffer buf, LibraryUsers users, LibraryModel model) throws IOException {
+        if (buf.getInt() != MAGIC) {
+            throw new IOException("Not a datastore snapshot");
+        }
+        short version = buf.getShort();
+        if (version != VERSION) {
+            throw new IOException("Unsupported snapshot version " + version);
+        }
+        int count = buf.getShort();
+        ByteBuffer[] sections = new ByteBuffer[SECTION_COUNT];
+        for (int i = 0; i < count; i++) {
+            int kind = buf.getInt();
+            long offset = buf.getLong();
+            long length = buf.getLong();
+            if (offset < 0 || length < 0 || offset + length > buf.limit()) {
+                throw new IOException("Corrupt snapshot: section " + kind + " lies outside the file");
+            }
+            if (kind >= 0 && kind < SECTION_COUNT) {
+                sections[kind] = buf.slice((int) offset, (int) length);
+            }
+        }
+        for (int kind = 0; kind < SECTION_COUNT; kind++) {
+            if (sections[kind] == null) {
+                throw new IOException("Snapshot is missing section " + kind);
+            }
+        }
+
+        String[] strings = decodeStrings(sections[STRINGS]);
+        if (users != null) {
+            decodeUsers(sections[USERS], strings, users);
+        }
+
+        ByteBuffer b = sections[STUDENTS];
+        for (int n = count(b, MIN_RECORD_BYTES); n > 0; n--) {
+            String id = id(b, strings), first = str(b, strings), last = str(b, strings), email = str(b, strings);
+            Set<String> courses = strSet(b, strings);
+            Set<String> assignments = strSet(b, strings);
+            model.addStudent(new Student(id, first, last, email, courses, assignments));
+        }
+
+        b = sections[TEACHERS];
+        for (int n = count(b, MIN_RECORD_BYTES); n > 0; n--) {
+            String id = id(b, strings), first = str(b, strings), last = str(b, strings);
+            model.addTeacher(new Teacher(id, first, last, strSet(b, strings)));
+        }
+
+        b = sections[COURSES];
+        for (int n = count(b, MIN_RECORD_BYTES); n > 0; n--) {
+            String id = id(b, strings), name = str(b, strings);
+            String description = str(b, strings), teacherID = str(b, strings);
+            byte flags = b.get();
+            Map<String, Double> weights = new HashMap<>();
+            for (int w = count(b, MIN_RECORD_BYTES); w > 0; w--) {
+                weights.put(str(b, strings), b.getDouble());
+            }
+            Map<String, Integer> drops = new HashMap<>();
+            for (int d = count(b, MIN_RECORD_BYTES); d > 0; d--) {
+                drops.put(str(b, strings), b.getInt());
+            }
+            model.addCourse(new Course(id, name, description, teacherID,
+                    (flags & 1) != 0, weights, drops, (flags & 2) != 0));
+        }
+
+        b = sections[ASSIGNMENTS];
+        Assignment.SubmissionStatus[] statuses = Assignment.SubmissionStatus.values();
+        for (int n = count(b, MIN_RECORD_BYTES); n > 0; n--) {
+            String id = id(b, strings), name = str(b, strings);
+            String studentID = id(b, strings), courseID = id(b, strings);
+            String gradeID = str(b, strings), category = str(b, strings);
+            LocalDate assigned = date(b.getInt()), due = date(b.getInt());
+            Assignment.SubmissionStatus status = statuses[b.get()];   // bad ordinals end up as IndexOutOfBounds
+            boolean published = b.get() != 0;
+            model.addAssignment(new Assignment(id, name, studentID, courseID, gradeID,
+                    assigned, due, status, published, category));
+        }
+
+        b = sections[SCORES];
+        for (int n = count(b, MIN_RECORD_BYTES); n > 0; n--) {
+            String gradeID = id(b, strings), assignmentID = str(b, strings), studentID = str(b, strings);
+            model.addScore(new Score(gradeID, assignmentID, studentID, b.getInt(), b.getInt()));
+        }
+    }
+
+    private static String[] decodeStrings(ByteBuffer b) throws IOException {
+        String[] strings = new String[count(b, MIN_RECORD_BYTES)];
+        for (int i = 0; i < strings.length; i++) {
+            byte[] utf8 = new byte[count(b, 1)];
+            b.get(utf8);
+            strings[i] = new String(utf8, StandardCharsets.UTF_8);
+        }
+        return strings;
+    }
+
+    private static void decodeUsers(ByteBuffer b, String[] strings, LibraryUsers users) throws IOException {
+        LibraryUsers.UserType[] types = LibraryUsers.UserType.values();
+        List<LibraryUsers.UserRecord> records = new ArrayList<>();
+        for (int n = count(b, MIN_RECORD_BYTES); n > 0; n--) {
+            String username = id(b, strings), password = str(b, strings);
+            String first = str(b, strings), last = str(b, strings), email = str(b, strings);
+            byte type = b.get();
+            String objectID = str(b, strings);
+            records.add(new LibraryUsers.UserRecord(username, password, first, last, email,
+                    type < 0 ? null : types[type], objectID));
+        }
+        users.importUsers(records);
+    }
+
+    private static String str(ByteBuffer b, String[] strings) throws IOException {
+        int ref = b.getInt();
+        if (ref >= strings.length) {
+            throw new IOException("Corrupt snapshot: string " + ref + " of " + strings.length);
+        }
+        return (ref < 0) ? null : strings[ref];
+    }
+
+    /** A string that must be there, e.g. the ID of a record. */
+    private static String id(ByteBuffer b, String[] strings) throws IOException {
+        String id = str(b, strings);
+        if (id == null) {
+            throw new IOException("Corrupt snapshot: record without an ID");
+        }
+        return id;
+    }
+
+    /**
+     * Read a count or length and check it against what is left of the
+     * section, so damaged data ends in an IOException instead of a negative
+     * or huge allocation.
+     */
+    private static int count(ByteBuffer b, int bytesPerItem) throws IOException {
+        int n = b.getInt();
+        if (n < 0 || (long) n * bytesPerItem > b.remaining()) {
+            throw new IOException("Corrupt snapshot: count " + n + " with " + b.remaining() + " bytes left");
+        }
+        return n;
+    }
+
+    private static Set<String> strSet(ByteBuffer b, String[] strings) throws IOException {
+        int n = count(b, MIN_RECORD_BYTES);
+        Set<String> set = new HashSet<>(n * 2);
+        for (int i = 0; i < n; i++) {
+            set.add(str(b, strings));
+        }
+        return set;
+    }
+
+    private static LocalDate date(int epochDay) {
+        return (epochDay == NO_DATE) ? null : LocalDate.ofEpochDay(epochDay);
+    }
+}
@@ -15,11 +15,8 @@ public class DecryptVIC {
         String encodedMessage = VICOperations.extractEncodedMessage(encryptedPassword, vicData.date);
 
         // VIC decoding
-        String step1 = VICOperations.noCarryAddition(agentID, vicData.date.substring(0, 5));
-        String step2 = VICOperations.chainAddition(step1, 10);
-        String step3 = VICOperations.digitPermutation(vicData.phrase);
-        String step4 = VICOperations.noCarryAddition(step2, step3);
-        String step5 = VICOperations.digitPermutation(step4);
+        // steps 1-5: the digit permutation of the checkerboard
+        String step5 = VICKernels.checkerboardPermutation(agentID, vicData.date, vicData.phrase);
         String decodedMessage = VICOperations.checkerboardDecode(step5, vicData.anagram, encodedMessage);
 
         return decodedMessage;
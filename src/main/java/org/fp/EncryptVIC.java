@@ -14,11 +14,8 @@ public class EncryptVIC {
 		vicData.message = password;
 
 		// VIC encoding
-		String step1 = VICOperations.noCarryAddition(vicData.agentID, vicData.date.substring(0, 5));
-		String step2 = VICOperations.chainAddition(step1, 10);
-		String step3 = VICOperations.digitPermutation(vicData.phrase);
-		String step4 = VICOperations.noCarryAddition(step2, step3);
-		String step5 = VICOperations.digitPermutation(step4);
+		// steps 1-5: the digit permutation of the checkerboard
+		String step5 = VICKernels.checkerboardPermutation(vicData.agentID, vicData.date, vicData.phrase);
 		String step6and7 = VICOperations.checkerboardEncode(step5, vicData.anagram, vicData.message);
 
 		return VICOperations.insertID(step6and7, vicData.agentID, vicData.date);
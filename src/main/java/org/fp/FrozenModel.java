@@ -0,0 +1,96 @@
+package org.fp;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Every entity of a {@link LibraryModel} as it was at one instant, taken by
+ * {@link LibraryModel#freeze}. The view is made of immutable snapshots, so it
+ * can be read (e.g. serialized) on any thread while the model keeps changing,
+ * without holding the model lock. Close it when done, so the model can stop
+ * copying the maps it shares with this view.
+ */
+final class FrozenModel implements AutoCloseable {
+
+    private final LibraryModel owner;
+    final Map<String, StudentSnapshot> students;
+    final Map<String, TeacherSnapshot> teachers;
+    final Map<String, CourseSnapshot> courses;
+    final Map<String, AssignmentSnapshot> assignments;
+    final Map<String, ScoreSnapshot> scores;
+    private final Set<String> unloadedCourses;
+    private boolean closed = false;
+
+    FrozenModel(LibraryModel owner, Map<String, StudentSnapshot> students, Map<String, TeacherSnapshot> teachers,
+                Map<String, CourseSnapshot> courses, Map<String, AssignmentSnapshot> assignments,
+                Map<String, ScoreSnapshot> scores, Set<String> unloadedCourses) {
+        this.owner = owner;
+        this.students = students;
+        this.teachers = teachers;
+        this.courses = courses;
+        this.assignments = assignments;
+        this.scores = scores;
+        this.unloadedCourses = unloadedCourses;
+    }
+
+    Collection<StudentSnapshot> studentValues() {
+        return Collections.unmodifiableCollection(students.values());
+    }
+
+    Collection<TeacherSnapshot> teacherValues() {
+        return Collections.unmodifiableCollection(teachers.values());
+    }
+
+    Collection<CourseSnapshot> courseValues() {
+        return Collections.unmodifiableCollection(courses.values());
+    }
+
+    Collection<AssignmentSnapshot> assignmentValues() {
+        return Collections.unmodifiableCollection(assignments.values());
+    }
+
+    Collection<ScoreSnapshot> scoreValues() {
+        return Collections.unmodifiableCollection(scores.values());
+    }
+
+    /** Whether the course's assignments and scores were in memory when the view was taken. */
+    boolean isCourseLoaded(String courseID) {
+        return courses.containsKey(courseID) && !unloadedCourses.contains(courseID);
+    }
+
+    /**
+     * A detached model holding a copy of this view, e.g. for formats that
+     * serialize the live entity classes. Listeners of the original are not copied.
+     */
+    LibraryModel thaw() {
+        LibraryModel m = new LibraryModel();
+        for (StudentSnapshot s : students.values()) {
+            m.addStudent(new Student(s.stuID(), s.firstName(), s.lastName(), s.email(),
+                    s.enrolledCourseIDs(), s.assignmentIDs()));
+        }
+        for (TeacherSnapshot t : teachers.values()) {
+            m.addTeacher(new Teacher(t.teacherID(), t.firstName(), t.lastName(), t.teachingCourseIDs()));
+        }
+        for (CourseSnapshot c : courses.values()) {
+            m.addCourse(new Course(c.courseID(), c.courseName(), c.courseDescription(), c.teacherID(),
+                    c.usingWeightedGrading(), c.categoryWeights(), c.categoryDropCounts(), c.completed()));
+        }
+        for (AssignmentSnapshot a : assignments.values()) {
+            m.addAssignment(new Assignment(a.assignmentID(), a.assignmentName(), a.studentID(), a.courseID(),
+                    a.gradeID(), a.assignDate(), a.dueDate(), a.status(), a.published(), a.category()));
+        }
+        for (ScoreSnapshot s : scores.values()) {
+            m.addScore(new Score(s.gradeID(), s.assignmentID(), s.studentID(), s.earned(), s.total()));
+        }
+        return m;
+    }
+
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        owner.release(this);
+    }
+}
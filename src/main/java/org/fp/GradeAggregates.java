@@ -0,0 +1,221 @@
+package org.fp;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Running earned/total sums for every (student, course) pair and every
+ * (student, course, category) triple.
+ * LibraryModel folds a score in as soon as both the graded assignment and its
+ * Score are in the model, and takes it back out when the score is edited or the
+ * assignment is removed, so an unweighted percentage is a constant-time read.
+ * <p>
+ * Each category also keeps its scores ordered by percentage, so the weighted
+ * percentage can drop the lowest scores of a category by walking the front of
+ * that order instead of sorting. The weighted result is cached per
+ * (student, course) and re-evaluated lazily when a score of the pair changes
+ * or when the course's weights, drop counts or grading mode change.
+ * <p>
+ * The maps shared between courses are concurrent, so scores of different
+ * courses can be folded in at the same time; everything below one
+ * (student, course) pair is guarded by that course's lock in LibraryModel.
+ */
+class GradeAggregates {
+
+    /** Earned/total sums of one bucket, plus how many scores feed it. */
+    static class Totals {
+        private int earned;
+        private int total;
+        private int count;
+
+        public int getEarned() { return earned; }
+        public int getTotal() { return total; }
+        public int getCount() { return count; }
+
+        public double getPercentage() {
+            return total == 0 ? 0.0 : (100.0 * earned / total);
+        }
+
+        void add(int earned, int total) {
+            this.earned += earned;
+            this.total += total;
+            this.count++;
+        }
+
+        void subtract(int earned, int total) {
+            this.earned -= earned;
+            this.total -= total;
+            this.count--;
+        }
+    }
+
+    /** One folded-in score, ordered low → high by percentage (ties by gradeID). */
+    private record ScoreEntry(String gradeID, int earned, int total) {
+        double percentage() {
+            return total == 0 ? 0.0 : (double) earned / total;
+        }
+    }
+
+    private static final Comparator<ScoreEntry> LOW_TO_HIGH =
+            Comparator.comparingDouble(ScoreEntry::percentage).thenComparing(ScoreEntry::gradeID);
+
+    /** Category totals plus the category's scores in percentage order. */
+    private static class CategoryTotals extends Totals {
+        private final TreeSet<ScoreEntry> ordered = new TreeSet<>(LOW_TO_HIGH);
+    }
+
+    /** A weighted percentage together with the course setup and totals it was computed for. */
+    private record WeightedResult(Course course, int gradingVersion, int totalsVersion, double percentage) { }
+
+    /** Course-level totals with their per-category breakdown. */
+    private static class CourseTotals extends Totals {
+        private final Map<String, CategoryTotals> byCategory = new HashMap<>();
+        private volatile WeightedResult weighted;
+        // bumped after every change to these totals; a lock-free reader that
+        // overlapped a change caches its result under the older version
+        private volatile int version;
+    }
+
+    /** What a single gradeID currently contributes, so it can be taken back out. */
+    private record Contribution(String studentID, String courseID, String category,
+                                ScoreEntry entry) { }
+
+    // studentID → courseID → totals
+    private final Map<String, Map<String, CourseTotals>> byStudent = new ConcurrentHashMap<>();
+    // gradeID → folded-in contribution
+    private final Map<String, Contribution> contributions = new ConcurrentHashMap<>();
+
+    /**
+     * Fold a score into the totals, replacing whatever the same gradeID
+     * contributed before.
+     */
+    public void put(String gradeID, String studentID, String courseID, String category,
+                    int earned, int total) {
+        remove(gradeID);
+        ScoreEntry entry = new ScoreEntry(gradeID, earned, total);
+        contributions.put(gradeID, new Contribution(studentID, courseID, category, entry));
+        CourseTotals[] created = new CourseTotals[1];
+        // inside compute, so removing a student's emptied map (below) cannot lose this course
+        byStudent.compute(studentID, (k, byCourse) -> {
+            if (byCourse == null) byCourse = new ConcurrentHashMap<>();
+            created[0] = byCourse.computeIfAbsent(courseID, c -> new CourseTotals());
+            return byCourse;
+        });
+        CourseTotals ct = created[0];
+        ct.add(earned, total);
+        CategoryTotals cat = ct.byCategory.computeIfAbsent(category, k -> new CategoryTotals());
+        cat.add(earned, total);
+        cat.ordered.add(entry);
+        ct.version++;
+    }
+
+    /**
+     * Replace the points of an already folded-in score.
+     * @return false if the gradeID is not part of any aggregate
+     */
+    public boolean rescore(String gradeID, int earned, int total) {
+        Contribution c = contributions.get(gradeID);
+        if (c == null) return false;
+        put(gradeID, c.studentID(), c.courseID(), c.category(), earned, total);
+        return true;
+    }
+
+    /** Take a score back out of the totals; unknown gradeIDs are ignored. */
+    public void remove(String gradeID) {
+        Contribution c = contributions.remove(gradeID);
+        if (c == null) return;
+        Map<String, CourseTotals> byCourse = byStudent.get(c.studentID());
+        CourseTotals ct = byCourse.get(c.courseID());
+        ScoreEntry entry = c.entry();
+        ct.subtract(entry.earned(), entry.total());
+        CategoryTotals cat = ct.byCategory.get(c.category());
+        cat.subtract(entry.earned(), entry.total());
+        cat.ordered.remove(entry);
+        ct.version++;
+        if (cat.getCount() == 0) {
+            ct.byCategory.remove(c.category());
+        }
+        if (ct.getCount() == 0) {
+            byCourse.remove(c.courseID());
+            byStudent.computeIfPresent(c.studentID(), (k, m) -> m.isEmpty() ? null : m);
+        }
+    }
+
+    public boolean contains(String gradeID) {
+        return contributions.containsKey(gradeID);
+    }
+
+    /** Totals for a student in a course, or null if nothing has been graded. */
+    public Totals get(String studentID, String courseID) {
+        Map<String, CourseTotals> byCourse = byStudent.get(studentID);
+        return (byCourse == null) ? null : byCourse.get(courseID);
+    }
+
+    /** Totals for one category of a student's course, or null if nothing has been graded. */
+    public Totals get(String studentID, String courseID, String category) {
+        Map<String, CourseTotals> byCourse = byStudent.get(studentID);
+        CourseTotals ct = (byCourse == null) ? null : byCourse.get(courseID);
+        return (ct == null) ? null : ct.byCategory.get(category);
+    }
+
+    /** Total-points percentage of a student in a course (0 when nothing is graded). */
+    public double getPercentage(String studentID, String courseID) {
+        Totals t = get(studentID, courseID);
+        return (t == null) ? 0.0 : t.getPercentage();
+    }
+
+    /**
+     * Weighted percentage of a student in a course: every weighted category
+     * contributes (earned / total) * weight after dropping its lowest
+     * {@link Course#getDropCountForCategory} scores. A category with no scores
+     * left after dropping contributes nothing.
+     */
+    public double getWeightedPercentage(String studentID, String courseID, Course course) {
+        Map<String, CourseTotals> byCourse = byStudent.get(studentID);
+        CourseTotals ct = (byCourse == null) ? null : byCourse.get(courseID);
+        if (ct == null) return 0.0;
+
+        // versions first: whatever changes while the sums are read makes this result stale
+        int totalsVersion = ct.version;
+        int version = course.getGradingVersion();
+        WeightedResult cached = ct.weighted;
+        if (cached != null && cached.course() == course && cached.gradingVersion() == version
+                && cached.totalsVersion() == totalsVersion) {
+            return cached.percentage();
+        }
+
+        double weightedTotal = 0.0;
+        for (Map.Entry<String, Double> w : course.getCategoryWeights().entrySet()) {
+            CourseLocks.checkpoint();   // torn sums under an optimistic read must not loop on
+            CategoryTotals cat = ct.byCategory.get(w.getKey());
+            if (cat == null) continue;
+            int drop = course.getDropCountForCategory(w.getKey());
+            if (drop >= cat.getCount()) continue;
+
+            int earned = cat.getEarned();
+            int total = cat.getTotal();
+            Iterator<ScoreEntry> lowest = cat.ordered.iterator();
+            for (int i = 0; i < drop; i++) {
+                CourseLocks.checkpoint();
+                ScoreEntry e = lowest.next();
+                earned -= e.earned();
+                total -= e.total();
+            }
+            if (total > 0) {
+                weightedTotal += (1.0 * earned / total) * w.getValue();
+            }
+        }
+        double pct = weightedTotal * 100.0;
+        ct.weighted = new WeightedResult(course, version, totalsVersion, pct);
+        return pct;
+    }
+
+    public void clear() {
+        byStudent.clear();
+        contributions.clear();
+    }
+}
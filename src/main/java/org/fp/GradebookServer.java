@@ -0,0 +1,421 @@
+package org.fp;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.gson.JsonParseException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * JSON API over the gradebook, so many clients can share one {@link DataStore}
+ * instead of each running the console UI on its own copy. Built on the JDK's
+ * {@link HttpServer}; every request runs on a virtual thread of its own and
+ * relies on the locking of {@link LibraryModel} and {@link LibraryUsers}.
+ * <p>
+ * Clients log in with {@code POST /api/login} and send the returned token as
+ * {@code Authorization: Bearer <token>}. Teachers see and change their own
+ * courses, students their own records, the super admin everything.
+ * <pre>
+ * POST /api/login                    {"username", "password"} → {"token"}
+ * POST /api/logout
+ * GET  /api/courses/{id}/roster      students of a course
+ * GET  /api/courses/{id}/assignments assignments grouped by name, with average and median
+ * GET  /api/courses/{id}/grades      final percentage and letter grade per student
+ * POST /api/courses/{id}/enroll      {"studentID"}
+ * GET  /api/students/{id}/scores     every score of a student
+ * GET  /api/students/{id}/gpa        GPA and final percentage per course
+ * POST /api/assignments/{id}/submit
+ * POST /api/assignments/{id}/grade   {"earned", "total"} → {"gradeID"}
+ * </pre>
+ */
+class GradebookServer implements AutoCloseable {
+
+    // how long a stop waits for requests in flight
+    private static final long STOP_DELAY_MILLIS = 2_000;
+
+    private record LoginRequest(String username, String password) { }
+    private record GradeRequest(Integer earned, Integer total) { }
+    private record EnrollRequest(String studentID) { }
+
+    private record AssignmentGroup(String name, double average, double median,
+                                   List<AssignmentSnapshot> assignments) { }
+    private record FinalGrade(String studentID, String name, double percentage, Grade grade) { }
+
+    /** The logged-in user behind a request. */
+    private record Caller(String token, String username, LibraryUsers.UserType type, String objectID) {
+        boolean is(LibraryUsers.UserType t) {
+            return type == t;
+        }
+    }
+
+    /** Ends a request with an HTTP error status and {"error": message}. */
+    private static class HttpError extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        final int status;
+
+        HttpError(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private final DataStore ds;
+    private final VICData vic;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile boolean stopping = false;
+
+    private GradebookServer(DataStore ds, VICData vic, HttpServer server) {
+        this.ds = ds;
+        this.vic = vic;
+        this.server = server;
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext("/api/", this::handle);
+    }
+
+    /** Serve {@code ds} on {@code port}; 0 picks a free port (see {@link #port()}). */
+    public static GradebookServer start(DataStore ds, VICData vic, int port) throws IOException {
+        HttpServer http = HttpServer.create(new InetSocketAddress(port), 0);
+        GradebookServer server = new GradebookServer(ds, vic, http);
+        http.start();
+        return server;
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Refuse new requests, wait up to {@link #STOP_DELAY_MILLIS} for those in
+     * flight, then stop. HttpServer's own delayed stop also waits for idle
+     * keep-alive connections, so it would always take the full delay.
+     */
+    @Override
+    public void close() {
+        stopping = true;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(STOP_DELAY_MILLIS);
+        while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        server.stop(0);
+        executor.close();
+    }
+
+    private void handle(HttpExchange ex) throws IOException {
+        inFlight.incrementAndGet();
+        try (ex) {
+            int status = 200;
+            Object body;
+            try {
+                if (stopping) {
+                    throw new HttpError(503, "Shutting down");
+                }
+                body = route(ex);
+            } catch (HttpError e) {
+                status = e.status;
+                body = Map.of("error", e.getMessage());
+            } catch (JsonParseException e) {
+                status = 400;
+                body = Map.of("error", "Malformed JSON body");
+            } catch (IllegalArgumentException e) {
+                status = 404;
+                body = Map.of("error", String.valueOf(e.getMessage()));
+            } catch (IllegalStateException e) {
+                status = 409;
+                body = Map.of("error", String.valueOf(e.getMessage()));
+            } catch (RuntimeException e) {
+                System.err.println("❌ " + ex.getRequestMethod() + " " + ex.getRequestURI() + " failed: " + e);
+                status = 500;
+                body = Map.of("error", "Internal error");
+            }
+            byte[] json = GsonSupport.GSON.toJson(body).getBytes(StandardCharsets.UTF_8);
+            ex.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            ex.sendResponseHeaders(status, json.length);
+            try (OutputStream out = ex.getResponseBody()) {
+                out.write(json);
+            }
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private Object route(HttpExchange ex) throws IOException {
+        String method = ex.getRequestMethod();
+        // "/api/courses/CRS001/roster" → ["courses", "CRS001", "roster"]
+        String[] path = ex.getRequestURI().getPath().substring("/api/".length()).split("/");
+
+        if (path.length == 1 && path[0].equals("login")) {
+            requireMethod(method, "POST");
+            return login(readBody(ex, LoginRequest.class));
+        }
+        Caller caller = authenticate(ex);
+        if (path.length == 1 && path[0].equals("logout")) {
+            requireMethod(method, "POST");
+            ds.users.logout(caller.token());
+            return Map.of("loggedOut", true);
+        }
+        if (path.length != 3) {
+            throw new HttpError(404, "No such endpoint");
+        }
+        String id = path[1];
+        String action = path[0] + "/" + path[2];
+        return switch (action) {
+            case "courses/roster" -> {
+                requireMethod(method, "GET");
+                yield roster(caller, id);
+            }
+            case "courses/assignments" -> {
+                requireMethod(method, "GET");
+                yield assignmentGroups(caller, id);
+            }
+            case "courses/grades" -> {
+                requireMethod(method, "GET");
+                yield finalGrades(caller, id);
+            }
+            case "courses/enroll" -> {
+                requireMethod(method, "POST");
+                yield enroll(caller, id, readBody(ex, EnrollRequest.class));
+            }
+            case "students/scores" -> {
+                requireMethod(method, "GET");
+                yield scores(caller, id);
+            }
+            case "students/gpa" -> {
+                requireMethod(method, "GET");
+                yield gpa(caller, id);
+            }
+            case "assignments/submit" -> {
+                requireMethod(method, "POST");
+                yield submit(caller, id);
+            }
+            case "assignments/grade" -> {
+                requireMethod(method, "POST");
+                yield grade(caller, id, readBody(ex, GradeRequest.class));
+            }
+            default -> throw new HttpError(404, "No such endpoint");
+        };
+    }
+
+    // ---- authentication ----
+
+    private Object login(LoginRequest req) {
+        if (req == null || req.username() == null || req.password() == null) {
+            throw new HttpError(400, "username and password are required");
+        }
+        String token = ds.users.login(req.username(), req.password(), vic);
+        if (token == null) {
+            throw new HttpError(401, "Invalid username or password");
+        }
+        LibraryUsers.UserType type = ds.users.getUserType(req.username());
+        if (type == LibraryUsers.UserType.UNASSIGNED) {
+            ds.users.logout(token);
+            throw new HttpError(403, "This account has not been assigned a role");
+        }
+        return Map.of("token", token, "role", type);
+    }
+
+    private Caller authenticate(HttpExchange ex) {
+        String header = ex.getRequestHeaders().getFirst("Authorization");
+        String token = (header != null && header.startsWith("Bearer ")) ? header.substring(7).trim() : null;
+        SessionManager.Session session = ds.users.session(token);
+        if (session == null) {
+            throw new HttpError(401, "Log in first");
+        }
+        return new Caller(token, session.username(), session.type(), ds.users.getObjectID(session.username()));
+    }
+
+    /**
+     * The course, loaded, if the caller teaches it or is the super admin.
+     * The checks run on the course index, so a caller without access never
+     * makes the server read the course's assignments from disk.
+     */
+    private CourseSnapshot teachableCourse(Caller caller, String courseID) {
+        CourseSnapshot course = ds.model.getCourseSnapshot(courseID);
+        if (course == null) {
+            throw new HttpError(404, "No such course: " + courseID);
+        }
+        if (!caller.is(LibraryUsers.UserType.SUPERADMIN)
+                && !(caller.is(LibraryUsers.UserType.TEACHER) && teaches(caller, course))) {
+            throw new HttpError(403, "Not your course");
+        }
+        ds.model.loadCourse(courseID);
+        CourseSnapshot loaded = ds.model.getCourseSnapshot(courseID);
+        if (loaded == null) {
+            throw new HttpError(404, "No such course: " + courseID);
+        }
+        return loaded;
+    }
+
+    /** Whether the caller is the teacher of the course; courses without a teacher belong to nobody. */
+    private static boolean teaches(Caller caller, CourseSnapshot course) {
+        return caller.objectID() != null && caller.objectID().equals(course.teacherID());
+    }
+
+    /** The student, with their courses loaded, if the caller is them, teaches them or is the super admin. */
+    private StudentSnapshot visibleStudent(Caller caller, String studentID) {
+        StudentSnapshot student = ds.model.getStudentSnapshot(studentID);
+        if (student == null) {
+            throw new HttpError(404, "No such student: " + studentID);
+        }
+        boolean allowed = switch (caller.type()) {
+            case SUPERADMIN -> true;
+            case STUDENT -> studentID.equals(caller.objectID());
+            case TEACHER -> student.enrolledCourseIDs().stream()
+                    .map(ds.model::getCourseSnapshot)
+                    .anyMatch(c -> c != null && teaches(caller, c));
+            default -> false;
+        };
+        if (!allowed) {
+            throw new HttpError(403, "Not your student");
+        }
+        student.enrolledCourseIDs().forEach(ds.model::loadCourse);
+        return student;
+    }
+
+    /** The assignment; if it is not in memory, the courses the caller may act on are loaded first. */
+    private AssignmentSnapshot assignmentOf(Caller caller, String assignmentID) {
+        AssignmentSnapshot loaded = ds.model.getAssignmentSnapshot(assignmentID);
+        if (loaded != null) {
+            return loaded;
+        }
+        if (caller.is(LibraryUsers.UserType.STUDENT)) {
+            StudentSnapshot me = ds.model.getStudentSnapshot(caller.objectID());
+            if (me != null) me.enrolledCourseIDs().forEach(ds.model::loadCourse);
+        } else if (caller.is(LibraryUsers.UserType.TEACHER)) {
+            for (CourseSnapshot c : ds.model.getCourseSnapshots()) {
+                if (teaches(caller, c)) ds.model.loadCourse(c.courseID());
+            }
+        } else {
+            ds.model.loadAllCourses();
+        }
+        AssignmentSnapshot a = ds.model.getAssignmentSnapshot(assignmentID);
+        if (a == null) {
+            throw new HttpError(404, "No such assignment: " + assignmentID);
+        }
+        return a;
+    }
+
+    // ---- reads ----
+    // only snapshots and locked (or validated optimistic) model reads: handlers run concurrently with grading
+
+    private List<StudentSnapshot> roster(Caller caller, String courseID) {
+        teachableCourse(caller, courseID);
+        List<StudentSnapshot> roster = new ArrayList<>();
+        for (String sid : ds.model.getStudentIDsInCourse(courseID)) {
+            StudentSnapshot s = ds.model.getStudentSnapshot(sid);
+            if (s != null) roster.add(s);
+        }
+        return roster;
+    }
+
+    private List<AssignmentGroup> assignmentGroups(Caller caller, String courseID) {
+        CourseSnapshot course = teachableCourse(caller, courseID);
+        Map<String, List<AssignmentSnapshot>> byName = new TreeMap<>();
+        for (String aid : course.assignmentIDs()) {
+            AssignmentSnapshot a = ds.model.getAssignmentSnapshot(aid);
+            if (a != null) byName.computeIfAbsent(a.assignmentName(), k -> new ArrayList<>()).add(a);
+        }
+        List<AssignmentGroup> groups = new ArrayList<>();
+        byName.forEach((name, list) -> groups.add(new AssignmentGroup(name,
+                ds.model.getAveragePercentageForGroup(courseID, name),
+                ds.model.getMedianPercentageForGroup(courseID, name),
+                list)));
+        return groups;
+    }
+
+    private List<FinalGrade> finalGrades(Caller caller, String courseID) {
+        teachableCourse(caller, courseID);
+        List<FinalGrade> grades = new ArrayList<>();
+        ds.model.calculateGradeSummaries(ds.model.getStudentIDsInCourse(courseID)).forEach((sid, summary) -> {
+            StudentSnapshot s = ds.model.getStudentSnapshot(sid);
+            double pct = summary.finalPercentage(courseID);
+            grades.add(new FinalGrade(sid, s == null ? "" : s.fullName(), pct, Grade.fromScore(pct)));
+        });
+        return grades;
+    }
+
+    private List<ScoreSnapshot> scores(Caller caller, String studentID) {
+        StudentSnapshot student = visibleStudent(caller, studentID);
+        List<ScoreSnapshot> scores = new ArrayList<>();
+        for (String aid : student.assignmentIDs()) {
+            AssignmentSnapshot a = ds.model.getAssignmentSnapshot(aid);
+            ScoreSnapshot s = (a == null || a.gradeID() == null) ? null : ds.model.getScoreSnapshot(a.gradeID());
+            if (s != null) scores.add(s);
+        }
+        return scores;
+    }
+
+    private StudentGradeSummary gpa(Caller caller, String studentID) {
+        visibleStudent(caller, studentID);
+        StudentGradeSummary summary = ds.model.calculateGradeSummaries(List.of(studentID)).get(studentID);
+        if (summary == null) {
+            throw new HttpError(404, "No such student: " + studentID);
+        }
+        return summary;
+    }
+
+    // ---- writes ----
+
+    private Object enroll(Caller caller, String courseID, EnrollRequest req) {
+        teachableCourse(caller, courseID);
+        if (req == null || req.studentID() == null) {
+            throw new HttpError(400, "studentID is required");
+        }
+        ds.model.enrollStudentInCourse(req.studentID(), courseID);
+        return Map.of("studentID", req.studentID(), "courseID", courseID);
+    }
+
+    private Object submit(Caller caller, String assignmentID) {
+        AssignmentSnapshot a = assignmentOf(caller, assignmentID);
+        if (!caller.is(LibraryUsers.UserType.STUDENT) || !a.studentID().equals(caller.objectID())) {
+            throw new HttpError(403, "Not your assignment");
+        }
+        ds.model.submitAssignment(assignmentID);
+        return ds.model.getAssignmentSnapshot(assignmentID);
+    }
+
+    private Object grade(Caller caller, String assignmentID, GradeRequest req) {
+        AssignmentSnapshot a = assignmentOf(caller, assignmentID);
+        teachableCourse(caller, a.courseID());
+        if (req == null || req.earned() == null || req.total() == null
+                || req.earned() < 0 || req.total() <= 0) {
+            throw new HttpError(400, "earned >= 0 and total > 0 are required");
+        }
+        String gradeID = ds.model.gradeAssignment(assignmentID, req.earned(), req.total());
+        return Map.of("gradeID", gradeID);
+    }
+
+    // ---- plumbing ----
+
+    private static void requireMethod(String method, String expected) {
+        if (!method.equals(expected)) {
+            throw new HttpError(405, "Use " + expected);
+        }
+    }
+
+    private static <T> T readBody(HttpExchange ex, Class<T> type) throws IOException {
+        try (Reader in = new InputStreamReader(ex.getRequestBody(), StandardCharsets.UTF_8)) {
+            return GsonSupport.GSON.fromJson(in, type);
+        }
+    }
+}
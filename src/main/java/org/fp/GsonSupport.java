@@ -0,0 +1,305 @@
+package org.fp;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * The one {@link Gson} used for every JSON file (datastore.json, users.json).
+ * Gson is thread-safe once built, so it is created once and shared.
+ * <p>
+ * Entities are written and read by the streaming adapters below instead of by
+ * reflection: they go through the getters and the package-private restore
+ * constructors, and produce the same field names, field order and
+ * null-omission as reflective Gson did, so existing files stay readable.
+ */
+final class GsonSupport {
+
+    static final Gson GSON = LibraryUsers.registerTypeAdapters(new GsonBuilder())
+            .setPrettyPrinting()
+            .registerTypeAdapter(LocalDate.class, new LocalDateAdapter().nullSafe())
+            .registerTypeAdapter(Student.class, new StudentAdapter().nullSafe())
+            .registerTypeAdapter(Teacher.class, new TeacherAdapter().nullSafe())
+            .registerTypeAdapter(Course.class, new CourseAdapter().nullSafe())
+            .registerTypeAdapter(Assignment.class, new AssignmentAdapter().nullSafe())
+            .registerTypeAdapter(Score.class, new ScoreAdapter().nullSafe())
+            .create();
+
+    private GsonSupport() { }
+
+    /** ISO-8601 date string, e.g. "2025-04-08". */
+    static class LocalDateAdapter extends TypeAdapter<LocalDate> {
+        @Override
+        public void write(JsonWriter out, LocalDate date) throws IOException {
+            out.value(date.toString());
+        }
+
+        @Override
+        public LocalDate read(JsonReader in) throws IOException {
+            return LocalDate.parse(in.nextString());
+        }
+    }
+
+    static class StudentAdapter extends TypeAdapter<Student> {
+        @Override
+        public void write(JsonWriter out, Student s) throws IOException {
+            out.beginObject();
+            out.name("stuID").value(s.getStuID());
+            out.name("firstName").value(s.getFirstName());
+            out.name("lastName").value(s.getLastName());
+            out.name("email").value(s.getEmail());
+            out.name("enrolledCourseIDs");
+            writeStrings(out, s.getEnrolledCourseIDs());
+            out.name("assignmentIDs");
+            writeStrings(out, s.getAssignmentIDs());
+            out.endObject();
+        }
+
+        @Override
+        public Student read(JsonReader in) throws IOException {
+            String id = null, first = null, last = null, email = null;
+            Set<String> courses = Set.of(), assignments = Set.of();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "stuID" -> id = readString(in);
+                    case "firstName" -> first = readString(in);
+                    case "lastName" -> last = readString(in);
+                    case "email" -> email = readString(in);
+                    case "enrolledCourseIDs" -> courses = readStrings(in);
+                    case "assignmentIDs" -> assignments = readStrings(in);
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return new Student(id, first, last, email, courses, assignments);
+        }
+    }
+
+    static class TeacherAdapter extends TypeAdapter<Teacher> {
+        @Override
+        public void write(JsonWriter out, Teacher t) throws IOException {
+            out.beginObject();
+            out.name("teacherID").value(t.getTeacherID());
+            out.name("firstName").value(t.getFirstName());
+            out.name("lastName").value(t.getLastName());
+            out.name("teachingCourseIDs");
+            writeStrings(out, t.getTeachingCourseIDs());
+            out.endObject();
+        }
+
+        @Override
+        public Teacher read(JsonReader in) throws IOException {
+            String id = null, first = null, last = null;
+            Set<String> courses = Set.of();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "teacherID" -> id = readString(in);
+                    case "firstName" -> first = readString(in);
+                    case "lastName" -> last = readString(in);
+                    case "teachingCourseIDs" -> courses = readStrings(in);
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return new Teacher(id, first, last, courses);
+        }
+    }
+
+    /**
+     * Writes each course with a copy of its assignments, as the file always
+     * had. Reading skips those copies: the model ties every course to the
+     * shared instances from {@code assignmentMap} when they are added.
+     */
+    static class CourseAdapter extends TypeAdapter<Course> {
+        private final AssignmentAdapter assignments = new AssignmentAdapter();
+
+        @Override
+        public void write(JsonWriter out, Course c) throws IOException {
+            out.beginObject();
+            out.name("courseID").value(c.getCourseID());
+            out.name("courseName").value(c.getCourseName());
+            out.name("courseDescription").value(c.getCourseDescription());
+            out.name("teacherID").value(c.getTeacherID());
+            out.name("assignments").beginObject();
+            for (Assignment a : c.assignmentValues()) {
+                out.name(a.getAssignmentID());
+                assignments.write(out, a);
+            }
+            out.endObject();
+            out.name("useWeightedGrading").value(c.isUsingWeightedGrading());
+            out.name("categoryWeights").beginObject();
+            for (Map.Entry<String, Double> w : c.getCategoryWeights().entrySet()) {
+                out.name(w.getKey()).value(w.getValue());
+            }
+            out.endObject();
+            out.name("categoryDropCount").beginObject();
+            for (Map.Entry<String, Integer> d : c.getCategoryDropCounts().entrySet()) {
+                out.name(d.getKey()).value(d.getValue());
+            }
+            out.endObject();
+            out.name("isCompleted").value(c.isCompleted());
+            out.endObject();
+        }
+
+        @Override
+        public Course read(JsonReader in) throws IOException {
+            String id = null, name = null, description = null, teacherID = null;
+            boolean weighted = false, completed = false;
+            Map<String, Double> weights = new HashMap<>();
+            Map<String, Integer> drops = new HashMap<>();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "courseID" -> id = readString(in);
+                    case "courseName" -> name = readString(in);
+                    case "courseDescription" -> description = readString(in);
+                    case "teacherID" -> teacherID = readString(in);
+                    case "useWeightedGrading" -> weighted = in.nextBoolean();
+                    case "isCompleted" -> completed = in.nextBoolean();
+                    case "categoryWeights" -> {
+                        in.beginObject();
+                        while (in.hasNext()) weights.put(in.nextName(), in.nextDouble());
+                        in.endObject();
+                    }
+                    case "categoryDropCount" -> {
+                        in.beginObject();
+                        while (in.hasNext()) drops.put(in.nextName(), in.nextInt());
+                        in.endObject();
+                    }
+                    default -> in.skipValue();   // includes the assignment copies
+                }
+            }
+            in.endObject();
+            return new Course(id, name, description, teacherID, weighted, weights, drops, completed);
+        }
+    }
+
+    static class AssignmentAdapter extends TypeAdapter<Assignment> {
+        @Override
+        public void write(JsonWriter out, Assignment a) throws IOException {
+            out.beginObject();
+            out.name("assignmentID").value(a.getAssignmentID());
+            out.name("assignmentName").value(a.getAssignmentName());
+            out.name("studentID").value(a.getStudentID());
+            out.name("courseID").value(a.getCourseID());
+            out.name("gradeID").value(a.getGradeID());
+            out.name("assignDate").value(a.getAssignDate() == null ? null : a.getAssignDate().toString());
+            out.name("dueDate").value(a.getDueDate() == null ? null : a.getDueDate().toString());
+            out.name("status").value(a.getStatus() == null ? null : a.getStatus().name());
+            out.name("published").value(a.isPublished());
+            out.name("category").value(a.getCategory());
+            out.endObject();
+        }
+
+        @Override
+        public Assignment read(JsonReader in) throws IOException {
+            String id = null, name = null, studentID = null, courseID = null, gradeID = null;
+            String category = "Default";
+            LocalDate assigned = null, due = null;
+            Assignment.SubmissionStatus status = null;
+            boolean published = false;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "assignmentID" -> id = readString(in);
+                    case "assignmentName" -> name = readString(in);
+                    case "studentID" -> studentID = readString(in);
+                    case "courseID" -> courseID = readString(in);
+                    case "gradeID" -> gradeID = readString(in);
+                    case "assignDate" -> assigned = readDate(in);
+                    case "dueDate" -> due = readDate(in);
+                    case "status" -> {
+                        String s = readString(in);
+                        status = (s == null) ? null : Assignment.SubmissionStatus.valueOf(s);
+                    }
+                    case "published" -> published = in.nextBoolean();
+                    case "category" -> category = readString(in);
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return new Assignment(id, name, studentID, courseID, gradeID, assigned, due,
+                    status, published, category);
+        }
+    }
+
+    static class ScoreAdapter extends TypeAdapter<Score> {
+        @Override
+        public void write(JsonWriter out, Score s) throws IOException {
+            out.beginObject();
+            out.name("gradeID").value(s.getGradeID());
+            out.name("assignmentID").value(s.getAssignmentID());
+            out.name("studentID").value(s.getStudentID());
+            out.name("earned").value(s.getEarned());
+            out.name("total").value(s.getTotal());
+            out.endObject();
+        }
+
+        @Override
+        public Score read(JsonReader in) throws IOException {
+            String gradeID = null, assignmentID = null, studentID = null;
+            int earned = 0, total = 0;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "gradeID" -> gradeID = readString(in);
+                    case "assignmentID" -> assignmentID = readString(in);
+                    case "studentID" -> studentID = readString(in);
+                    case "earned" -> earned = in.nextInt();
+                    case "total" -> total = in.nextInt();
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return new Score(gradeID, assignmentID, studentID, earned, total);
+        }
+    }
+
+    // ---------- shared helpers ----------
+
+    static String readString(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return in.nextString();
+    }
+
+    private static LocalDate readDate(JsonReader in) throws IOException {
+        String s = readString(in);
+        return (s == null) ? null : LocalDate.parse(s);
+    }
+
+    private static Set<String> readStrings(JsonReader in) throws IOException {
+        Set<String> set = new HashSet<>();
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return set;
+        }
+        in.beginArray();
+        while (in.hasNext()) set.add(in.nextString());
+        in.endArray();
+        return set;
+    }
+
+    private static void writeStrings(JsonWriter out, Collection<String> values) throws IOException {
+        out.beginArray();
+        for (String v : values) {
+            out.value(v);
+        }
+        out.endArray();
+    }
+}
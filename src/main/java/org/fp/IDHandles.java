@@ -0,0 +1,51 @@
+package org.fp;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Interns the string IDs handed out by {@link IDGen} into dense int handles
+ * (0, 1, 2, ...) so derived indexes can be arrays and bitsets instead of
+ * string-keyed maps. LibraryModel keeps one table per entity kind, so each
+ * kind's handles stay dense.
+ * <p>
+ * A handle is stable for the lifetime of the table: removing an entity does
+ * not free its handle, and re-adding the same ID returns the same handle.
+ */
+class IDHandles {
+    private final Map<String, Integer> handles = new HashMap<>();
+    private final List<String> ids = new ArrayList<>();
+
+    /** Handle of the ID, assigning the next free one on first sight. */
+    public int intern(String id) {
+        Integer h = handles.get(id);
+        if (h == null) {
+            h = ids.size();
+            handles.put(id, h);
+            ids.add(id);
+        }
+        return h;
+    }
+
+    /** Handle of an already interned ID, or -1. */
+    public int handleOf(String id) {
+        Integer h = handles.get(id);
+        return (h == null) ? -1 : h;
+    }
+
+    public String idOf(int handle) {
+        return ids.get(handle);
+    }
+
+    /** Number of handles handed out so far (one past the largest handle). */
+    public int size() {
+        return ids.size();
+    }
+
+    public void clear() {
+        handles.clear();
+        ids.clear();
+    }
+}
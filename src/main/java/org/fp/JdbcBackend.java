@@ -0,0 +1,661 @@
+package org.fp;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps the store in an embedded H2 database file (data/gradebook.mv.db),
+ * one table per entity plus the enrollment, teaching and grading-setup
+ * tables. The indexes follow the model's lookups: assignments by course and
+ * by (student, course), enrollments by course, scores by assignment.
+ * <p>
+ * Like {@link ShardedSnapshot} it only remembers which rows changed; {@link #save}
+ * captures them under the users and model locks and writes them in one
+ * transaction, one batched prepared statement per table. The write-ahead
+ * journal covers the time in between. The change sets have a lock of their
+ * own, separate from the one that serialises the connection, so a mutation
+ * (which records its change while holding a model lock) never waits for a
+ * transaction to commit.
+ * <p>
+ * Reports read the tables directly, e.g. {@link #classAverage}, so nothing
+ * has to be loaded into the JVM. The database is embedded: it runs in this
+ * process and opens no port, so while the app is running nothing else can
+ * open the file.
+ */
+class JdbcBackend implements StorageBackend, MutationListener {
+
+    private static final String[] SCHEMA = {
+            "CREATE TABLE IF NOT EXISTS users (username VARCHAR PRIMARY KEY, encrypted_password VARCHAR,"
+                    + " first_name VARCHAR, last_name VARCHAR, email VARCHAR, user_type VARCHAR, object_id VARCHAR)",
+            "CREATE TABLE IF NOT EXISTS students (student_id VARCHAR PRIMARY KEY, first_name VARCHAR,"
+                    + " last_name VARCHAR, email VARCHAR)",
+            "CREATE TABLE IF NOT EXISTS teachers (teacher_id VARCHAR PRIMARY KEY, first_name VARCHAR,"
+                    + " last_name VARCHAR)",
+            "CREATE TABLE IF NOT EXISTS teaching (teacher_id VARCHAR, course_id VARCHAR,"
+                    + " PRIMARY KEY (teacher_id, course_id))",
+            "CREATE TABLE IF NOT EXISTS courses (course_id VARCHAR PRIMARY KEY, course_name VARCHAR,"
+                    + " course_description VARCHAR, teacher_id VARCHAR, weighted BOOLEAN, completed BOOLEAN)",
+            "CREATE TABLE IF NOT EXISTS course_weights (course_id VARCHAR, category VARCHAR, weight DOUBLE,"
+                    + " PRIMARY KEY (course_id, category))",
+            "CREATE TABLE IF NOT EXISTS course_drops (course_id VARCHAR, category VARCHAR, drop_count INT,"
+                    + " PRIMARY KEY (course_id, category))",
+            "CREATE TABLE IF NOT EXISTS enrollments (student_id VARCHAR, course_id VARCHAR,"
+                    + " PRIMARY KEY (student_id, course_id))",
+            "CREATE TABLE IF NOT EXISTS assignments (assignment_id VARCHAR PRIMARY KEY, assignment_name VARCHAR,"
+                    + " student_id VARCHAR, course_id VARCHAR, grade_id VARCHAR, category VARCHAR,"
+                    + " assign_date DATE, due_date DATE, status VARCHAR, published BOOLEAN)",
+            "CREATE TABLE IF NOT EXISTS scores (grade_id VARCHAR PRIMARY KEY, assignment_id VARCHAR,"
+                    + " student_id VARCHAR, earned INT, total INT)",
+            // getStudentIDsInCourse
+            "CREATE INDEX IF NOT EXISTS enrollments_by_course ON enrollments (course_id)",
+            // getAssignmentsInCourse
+            "CREATE INDEX IF NOT EXISTS assignments_by_course ON assignments (course_id)",
+            // getAssignmentsForStudentInCourse
+            "CREATE INDEX IF NOT EXISTS assignments_by_student_course ON assignments (student_id, course_id)",
+            "CREATE INDEX IF NOT EXISTS scores_by_assignment ON scores (assignment_id)",
+    };
+
+    private static final List<String> MODEL_TABLES = List.of("students", "teachers", "teaching", "courses",
+            "course_weights", "course_drops", "enrollments", "assignments", "scores");
+
+    /** Total-points percentage of every enrolled student, averaged; students without scores count as 0. */
+    private static final String TOTAL_POINTS_AVERAGE = """
+            SELECT AVG(pct) FROM (
+              SELECT e.student_id,
+                     CASE WHEN SUM(s.total) > 0 THEN 100.0 * SUM(s.earned) / SUM(s.total) ELSE 0 END AS pct
+              FROM enrollments e
+              LEFT JOIN assignments a ON a.course_id = e.course_id AND a.student_id = e.student_id
+              LEFT JOIN scores s ON s.grade_id = a.grade_id
+              WHERE e.course_id = ?
+              GROUP BY e.student_id) per_student""";
+
+    /**
+     * Weighted percentage of every enrolled student, averaged: per category the
+     * lowest drop_count scores are dropped (by percentage, then grade ID, as in
+     * {@link GradeAggregates#getWeightedPercentage}) and the rest weighted.
+     */
+    private static final String WEIGHTED_AVERAGE = """
+            SELECT AVG(pct) FROM (
+              SELECT e.student_id,
+                     100.0 * COALESCE(SUM(CASE WHEN k.total > 0
+                         THEN CAST(k.earned AS DOUBLE) / k.total * w.weight END), 0) AS pct
+              FROM enrollments e
+              LEFT JOIN (
+                SELECT g.student_id, g.category, SUM(g.earned) AS earned, SUM(g.total) AS total
+                FROM (
+                  SELECT a.student_id, a.course_id, a.category, s.earned, s.total,
+                         ROW_NUMBER() OVER (PARTITION BY a.student_id, a.category
+                             ORDER BY CASE WHEN s.total = 0 THEN 0.0 ELSE CAST(s.earned AS DOUBLE) / s.total END,
+                                      s.grade_id) AS rank_low
+                  FROM assignments a JOIN scores s ON s.grade_id = a.grade_id
+                  WHERE a.course_id = ?) g
+                LEFT JOIN course_drops d ON d.course_id = g.course_id AND d.category = g.category
+                WHERE g.rank_low > COALESCE(d.drop_count, 0)
+                GROUP BY g.student_id, g.category) k ON k.student_id = e.student_id
+              LEFT JOIN course_weights w ON w.course_id = e.course_id AND w.category = k.category
+              WHERE e.course_id = ?
+              GROUP BY e.student_id) per_student""";
+
+    private static final String GROUP_AVERAGE = """
+            SELECT AVG(CASE WHEN s.total = 0 THEN 0.0 ELSE 100.0 * s.earned / s.total END)
+            FROM assignments a JOIN scores s ON s.grade_id = a.grade_id
+            WHERE a.course_id = ? AND a.assignment_name = ?""";
+
+    /** One statement and the rows to run it for. */
+    private record Batch(String sql, List<Object[]> rows) { }
+
+    private final String url;
+    // guarded by this, which also makes saves run one at a time, in capture order
+    private Connection connection;
+    private volatile DataStore ds;
+
+    // guards everything below; taken by listeners under the model locks, so never held for I/O
+    private final Object changes = new Object();
+    // what changed since the last save
+    private boolean modelCleared = false;
+    private boolean usersCleared = false;
+    // set by adopt and by a failed save: rewrite every table
+    private boolean rewriteAll = false;
+    private final Map<String, LibraryUsers.UserRecord> dirtyUsers = new HashMap<>();
+    private final Set<String> dirtyStudents = new HashSet<>();
+    private final Set<String> removedStudents = new HashSet<>();
+    private final Set<String> dirtyTeachers = new HashSet<>();
+    private final Set<String> dirtyCourses = new HashSet<>();
+    private final Set<String> removedCourses = new HashSet<>();
+    private final Set<String> dirtyAssignments = new HashSet<>();
+    private final Set<String> removedAssignments = new HashSet<>();
+    private final Set<String> dirtyScores = new HashSet<>();
+
+    JdbcBackend(String url) {
+        this.url = url;
+    }
+
+    /** The H2 database file {@code base}.mv.db, opened in-process. */
+    static JdbcBackend h2File(Path base) {
+        return new JdbcBackend("jdbc:h2:file:" + base.toAbsolutePath());
+    }
+
+    private synchronized Connection connection() throws SQLException {
+        if (connection == null) {
+            connection = DriverManager.getConnection(url);
+            try (Statement st = connection.createStatement()) {
+                for (String ddl : SCHEMA) {
+                    st.execute(ddl);
+                }
+            }
+        }
+        return connection;
+    }
+
+    @Override
+    public synchronized boolean exists() throws IOException {
+        try (Statement st = connection().createStatement();
+             ResultSet rs = st.executeQuery("SELECT (SELECT COUNT(*) FROM users) + (SELECT COUNT(*) FROM students)"
+                     + " + (SELECT COUNT(*) FROM teachers) + (SELECT COUNT(*) FROM courses)")) {
+            return rs.next() && rs.getLong(1) > 0;
+        } catch (SQLException e) {
+            throw new IOException("Reading " + url + " failed: " + e.getMessage(), e);
+        }
+    }
+
+    // ---------- loading ----------
+
+    @Override
+    public DataStore open() throws IOException {
+        DataStore loaded = new DataStore();
+        synchronized (this) {
+            try {
+                load(connection(), loaded);
+            } catch (SQLException e) {
+                throw new IOException("Reading " + url + " failed: " + e.getMessage(), e);
+            }
+        }
+        follow(loaded);
+        return loaded;
+    }
+
+    private static void load(Connection c, DataStore store) throws SQLException {
+        List<LibraryUsers.UserRecord> users = new ArrayList<>();
+        query(c, "SELECT username, encrypted_password, first_name, last_name, email, user_type, object_id FROM users",
+                rs -> users.add(new LibraryUsers.UserRecord(rs.getString(1), rs.getString(2), rs.getString(3),
+                        rs.getString(4), rs.getString(5),
+                        rs.getString(6) == null ? null : LibraryUsers.UserType.valueOf(rs.getString(6)),
+                        rs.getString(7))));
+        store.users.importUsers(users);
+
+        LibraryModel model = store.model;
+        Map<String, Set<String>> enrolled = new HashMap<>();
+        query(c, "SELECT student_id, course_id FROM enrollments",
+                rs -> enrolled.computeIfAbsent(rs.getString(1), k -> new HashSet<>()).add(rs.getString(2)));
+        query(c, "SELECT student_id, first_name, last_name, email FROM students",
+                rs -> model.addStudent(new Student(rs.getString(1), rs.getString(2), rs.getString(3), rs.getString(4),
+                        enrolled.getOrDefault(rs.getString(1), Set.of()), Set.of())));
+
+        Map<String, Set<String>> teaching = new HashMap<>();
+        query(c, "SELECT teacher_id, course_id FROM teaching",
+                rs -> teaching.computeIfAbsent(rs.getString(1), k -> new HashSet<>()).add(rs.getString(2)));
+        query(c, "SELECT teacher_id, first_name, last_name FROM teachers",
+                rs -> model.addTeacher(new Teacher(rs.getString(1), rs.getString(2), rs.getString(3),
+                        teaching.getOrDefault(rs.getString(1), Set.of()))));
+
+        Map<String, Map<String, Double>> weights = new HashMap<>();
+        query(c, "SELECT course_id, category, weight FROM course_weights",
+                rs -> weights.computeIfAbsent(rs.getString(1), k -> new HashMap<>()).put(rs.getString(2), rs.getDouble(3)));
+        Map<String, Map<String, Integer>> drops = new HashMap<>();
+        query(c, "SELECT course_id, category, drop_count FROM course_drops",
+                rs -> drops.computeIfAbsent(rs.getString(1), k -> new HashMap<>()).put(rs.getString(2), rs.getInt(3)));
+        query(c, "SELECT course_id, course_name, course_description, teacher_id, weighted, completed FROM courses",
+                rs -> model.addCourse(new Course(rs.getString(1), rs.getString(2), rs.getString(3), rs.getString(4),
+                        rs.getBoolean(5), weights.getOrDefault(rs.getString(1), Map.of()),
+                        drops.getOrDefault(rs.getString(1), Map.of()), rs.getBoolean(6))));
+
+        query(c, "SELECT assignment_id, assignment_name, student_id, course_id, grade_id, assign_date, due_date,"
+                        + " status, published, category FROM assignments",
+                rs -> model.addAssignment(new Assignment(rs.getString(1), rs.getString(2), rs.getString(3),
+                        rs.getString(4), rs.getString(5), rs.getObject(6, LocalDate.class),
+                        rs.getObject(7, LocalDate.class),
+                        rs.getString(8) == null ? null : Assignment.SubmissionStatus.valueOf(rs.getString(8)),
+                        rs.getBoolean(9), rs.getString(10))));
+        query(c, "SELECT grade_id, assignment_id, student_id, earned, total FROM scores",
+                rs -> model.addScore(new Score(rs.getString(1), rs.getString(2), rs.getString(3),
+                        rs.getInt(4), rs.getInt(5))));
+    }
+
+    @FunctionalInterface
+    private interface RowHandler {
+        void row(ResultSet rs) throws SQLException;
+    }
+
+    private static void query(Connection c, String sql, RowHandler handler, Object... params) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++) {
+                ps.setObject(i + 1, params[i]);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    handler.row(rs);
+                }
+            }
+        }
+    }
+
+    // ---------- following and saving ----------
+
+    /** Replace every row with {@code store}. */
+    @Override
+    public void adopt(DataStore store) throws IOException {
+        follow(store);
+        synchronized (changes) {
+            rewriteAll = true;
+        }
+        save();
+    }
+
+    private void follow(DataStore store) {
+        synchronized (changes) {
+            stopFollowing();
+            clearPending();
+            ds = store;
+        }
+        store.model.addMutationListener(this);
+        store.users.addMutationListener(this);
+    }
+
+    private void stopFollowing() {
+        if (ds != null) {
+            ds.model.removeMutationListener(this);
+            ds.users.removeMutationListener(this);
+        }
+    }
+
+    private void clearPending() {
+        rewriteAll = false;
+        modelCleared = false;
+        usersCleared = false;
+        dirtyUsers.clear();
+        dirtyStudents.clear();
+        removedStudents.clear();
+        dirtyTeachers.clear();
+        dirtyCourses.clear();
+        removedCourses.clear();
+        dirtyAssignments.clear();
+        removedAssignments.clear();
+        dirtyScores.clear();
+    }
+
+    /**
+     * Write every row that changed since the last save. The rows are captured
+     * under the users and model locks; the statements run after both are
+     * released, in one transaction. Saves run one at a time, so an older
+     * capture never lands after a newer one.
+     */
+    @Override
+    public synchronized void save() throws IOException {
+        DataStore store = ds;
+        if (store == null) return;
+        List<Batch> batches;
+        synchronized (store.users) {
+            try (CourseLocks.Held locked = store.model.lockAll()) {
+                synchronized (changes) {
+                    batches = capture();
+                    clearPending();
+                }
+            }
+        }
+        if (batches.isEmpty()) return;
+
+        try {
+            Connection c = connection();
+            c.setAutoCommit(false);
+            try {
+                for (Batch b : batches) {
+                    try (PreparedStatement ps = c.prepareStatement(b.sql())) {
+                        for (Object[] row : b.rows()) {
+                            for (int i = 0; i < row.length; i++) {
+                                ps.setObject(i + 1, row[i]);
+                            }
+                            ps.addBatch();
+                        }
+                        ps.executeBatch();
+                    }
+                }
+                c.commit();
+            } catch (SQLException e) {
+                c.rollback();
+                throw e;
+            } finally {
+                c.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            // the rows are gone from the pending sets; rewrite everything next time
+            synchronized (changes) {
+                rewriteAll = true;
+            }
+            throw new IOException("Writing " + url + " failed: " + e.getMessage(), e);
+        }
+    }
+
+    /** The statements that bring the tables up to date; deletes first, then the rows to (re)write. */
+    private List<Batch> capture() {
+        List<Batch> out = new ArrayList<>();
+        LibraryModel model = ds.model;
+        if (rewriteAll) {
+            modelCleared = true;
+            usersCleared = true;
+            for (LibraryUsers.UserRecord u : ds.users.exportUsers()) {
+                dirtyUsers.put(u.username(), u);
+            }
+            model.studentValues().forEach(s -> dirtyStudents.add(s.getStuID()));
+            model.teacherValues().forEach(t -> dirtyTeachers.add(t.getTeacherID()));
+            model.courseValues().forEach(c -> dirtyCourses.add(c.getCourseID()));
+            model.assignmentValues().forEach(a -> dirtyAssignments.add(a.getAssignmentID()));
+            dirtyScores.addAll(model.scoreStore().gradeIDs());
+        }
+        if (usersCleared) {
+            out.add(new Batch("DELETE FROM users", List.<Object[]>of(new Object[0])));
+        }
+        if (modelCleared) {
+            for (String table : MODEL_TABLES) {
+                out.add(new Batch("DELETE FROM " + table, List.<Object[]>of(new Object[0])));
+            }
+        }
+        deleteBy(out, List.of("students", "enrollments"), "student_id", removedStudents);
+        deleteBy(out, List.of("courses", "course_weights", "course_drops", "enrollments"), "course_id", removedCourses);
+        deleteBy(out, List.of("assignments", "scores"), "assignment_id", removedAssignments);
+
+        // users
+        List<Object[]> users = new ArrayList<>();
+        for (LibraryUsers.UserRecord u : dirtyUsers.values()) {
+            users.add(new Object[] {u.username(), u.encryptedPassword(), u.firstName(), u.lastName(), u.email(),
+                    u.type() == null ? null : u.type().name(), u.objectID()});
+        }
+        replace(out, "users", "username", dirtyUsers.keySet(),
+                "INSERT INTO users VALUES (?, ?, ?, ?, ?, ?, ?)", users);
+
+        // students and their enrollments
+        List<Object[]> students = new ArrayList<>();
+        List<Object[]> enrollments = new ArrayList<>();
+        Set<String> studentIDs = new HashSet<>();
+        for (String id : dirtyStudents) {
+            Student s = model.getStudent(id);
+            if (s == null) continue;
+            studentIDs.add(id);
+            students.add(new Object[] {id, s.getFirstName(), s.getLastName(), s.getEmail()});
+            for (String courseID : s.getEnrolledCourseIDs()) {
+                enrollments.add(new Object[] {id, courseID});
+            }
+        }
+        replace(out, "students", "student_id", studentIDs, "INSERT INTO students VALUES (?, ?, ?, ?)", students);
+        replace(out, "enrollments", "student_id", studentIDs, "INSERT INTO enrollments VALUES (?, ?)", enrollments);
+
+        // teachers and what they teach
+        List<Object[]> teachers = new ArrayList<>();
+        List<Object[]> teaching = new ArrayList<>();
+        Set<String> teacherIDs = new HashSet<>();
+        for (String id : dirtyTeachers) {
+            Teacher t = model.getTeacher(id);
+            if (t == null) continue;
+            teacherIDs.add(id);
+            teachers.add(new Object[] {id, t.getFirstName(), t.getLastName()});
+            for (String courseID : t.getTeachingCourseIDs()) {
+                teaching.add(new Object[] {id, courseID});
+            }
+        }
+        replace(out, "teachers", "teacher_id", teacherIDs, "INSERT INTO teachers VALUES (?, ?, ?)", teachers);
+        replace(out, "teaching", "teacher_id", teacherIDs, "INSERT INTO teaching VALUES (?, ?)", teaching);
+
+        // courses and their grading setup
+        List<Object[]> courses = new ArrayList<>();
+        List<Object[]> weights = new ArrayList<>();
+        List<Object[]> drops = new ArrayList<>();
+        Set<String> courseIDs = new HashSet<>();
+        for (String id : dirtyCourses) {
+            Course c = model.getCourse(id);
+            if (c == null) continue;
+            courseIDs.add(id);
+            courses.add(new Object[] {id, c.getCourseName(), c.getCourseDescription(), c.getTeacherID(),
+                    c.isUsingWeightedGrading(), c.isCompleted()});
+            c.getCategoryWeights().forEach((category, w) -> weights.add(new Object[] {id, category, w}));
+            c.getCategoryDropCounts().forEach((category, d) -> drops.add(new Object[] {id, category, d}));
+        }
+        replace(out, "courses", "course_id", courseIDs, "INSERT INTO courses VALUES (?, ?, ?, ?, ?, ?)", courses);
+        replace(out, "course_weights", "course_id", courseIDs, "INSERT INTO course_weights VALUES (?, ?, ?)", weights);
+        replace(out, "course_drops", "course_id", courseIDs, "INSERT INTO course_drops VALUES (?, ?, ?)", drops);
+
+        // assignments and scores
+        List<Object[]> assignments = new ArrayList<>();
+        Set<String> assignmentIDs = new HashSet<>();
+        for (String id : dirtyAssignments) {
+            AssignmentSnapshot a = model.getAssignmentSnapshot(id);
+            if (a == null) continue;
+            assignmentIDs.add(id);
+            assignments.add(new Object[] {id, a.assignmentName(), a.studentID(), a.courseID(), a.gradeID(),
+                    a.category(), a.assignDate(), a.dueDate(), a.status() == null ? null : a.status().name(),
+                    a.published()});
+        }
+        replace(out, "assignments", "assignment_id", assignmentIDs,
+                "INSERT INTO assignments VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", assignments);
+
+        List<Object[]> scores = new ArrayList<>();
+        Set<String> gradeIDs = new HashSet<>();
+        for (String id : dirtyScores) {
+            Score s = model.getScore(id);
+            if (s == null) continue;
+            gradeIDs.add(id);
+            scores.add(new Object[] {id, s.getAssignmentID(), s.getStudentID(), s.getEarned(), s.getTotal()});
+        }
+        replace(out, "scores", "grade_id", gradeIDs, "INSERT INTO scores VALUES (?, ?, ?, ?, ?)", scores);
+        return out;
+    }
+
+    private static void deleteBy(List<Batch> out, List<String> tables, String column, Set<String> ids) {
+        if (ids.isEmpty()) return;
+        List<Object[]> rows = new ArrayList<>();
+        for (String id : ids) {
+            rows.add(new Object[] {id});
+        }
+        for (String table : tables) {
+            out.add(new Batch("DELETE FROM " + table + " WHERE " + column + " = ?", rows));
+        }
+    }
+
+    /** Delete the rows of {@code ids} and insert their current version. */
+    private static void replace(List<Batch> out, String table, String column, Set<String> ids,
+                                String insert, List<Object[]> rows) {
+        deleteBy(out, List.of(table), column, ids);
+        if (!rows.isEmpty()) {
+            out.add(new Batch(insert, rows));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        save();
+        synchronized (this) {
+            stopFollowing();
+            if (connection == null) return;
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                throw new IOException("Closing " + url + " failed: " + e.getMessage(), e);
+            } finally {
+                connection = null;
+            }
+        }
+    }
+
+    // ---------- reports, answered by the database ----------
+
+    /** Same value as {@link LibraryModel#calculateClassAverage}, for what has been saved. */
+    public synchronized double classAverage(String courseID) throws IOException {
+        try {
+            Connection c = connection();
+            Boolean[] weighted = {null};
+            query(c, "SELECT weighted FROM courses WHERE course_id = ?", rs -> weighted[0] = rs.getBoolean(1), courseID);
+            if (weighted[0] == null) return 0.0;
+            double[] avg = {0.0};
+            if (weighted[0]) {
+                query(c, WEIGHTED_AVERAGE, rs -> avg[0] = rs.getDouble(1), courseID, courseID);
+            } else {
+                query(c, TOTAL_POINTS_AVERAGE, rs -> avg[0] = rs.getDouble(1), courseID);
+            }
+            return avg[0];
+        } catch (SQLException e) {
+            throw new IOException("Querying " + url + " failed: " + e.getMessage(), e);
+        }
+    }
+
+    /** Same value as {@link LibraryModel#getAveragePercentageForGroup}, for what has been saved. */
+    public synchronized double groupAverage(String courseID, String assignmentName) throws IOException {
+        try {
+            double[] avg = {0.0};
+            query(connection(), GROUP_AVERAGE, rs -> avg[0] = rs.getDouble(1), courseID, assignmentName);
+            return avg[0];
+        } catch (SQLException e) {
+            throw new IOException("Querying " + url + " failed: " + e.getMessage(), e);
+        }
+    }
+
+    public synchronized List<String> studentIDsInCourse(String courseID) throws IOException {
+        return ids("SELECT student_id FROM enrollments WHERE course_id = ?", courseID);
+    }
+
+    public synchronized List<String> assignmentIDsInCourse(String courseID) throws IOException {
+        return ids("SELECT assignment_id FROM assignments WHERE course_id = ?", courseID);
+    }
+
+    public synchronized List<String> assignmentIDsForStudentInCourse(String studentID, String courseID)
+            throws IOException {
+        return ids("SELECT assignment_id FROM assignments WHERE student_id = ? AND course_id = ?",
+                studentID, courseID);
+    }
+
+    private List<String> ids(String sql, Object... params) throws IOException {
+        try {
+            List<String> result = new ArrayList<>();
+            query(connection(), sql, rs -> result.add(rs.getString(1)), params);
+            return result;
+        } catch (SQLException e) {
+            throw new IOException("Querying " + url + " failed: " + e.getMessage(), e);
+        }
+    }
+
+    // ---------- change tracking ----------
+
+    @Override
+    public void studentPut(Student s) {
+        synchronized (changes) {
+            dirtyStudents.add(s.getStuID());
+            removedStudents.remove(s.getStuID());
+        }
+    }
+
+    @Override
+    public void studentRemoved(String studentID) {
+        synchronized (changes) {
+            dirtyStudents.remove(studentID);
+            removedStudents.add(studentID);
+        }
+    }
+
+    @Override
+    public void teacherPut(Teacher t) {
+        synchronized (changes) {
+            dirtyTeachers.add(t.getTeacherID());
+        }
+    }
+
+    @Override
+    public void coursePut(Course c) {
+        synchronized (changes) {
+            dirtyCourses.add(c.getCourseID());
+            removedCourses.remove(c.getCourseID());
+        }
+    }
+
+    @Override
+    public void courseRemoved(String courseID) {
+        synchronized (changes) {
+            dirtyCourses.remove(courseID);
+            removedCourses.add(courseID);
+        }
+    }
+
+    @Override
+    public void assignmentPut(Assignment a) {
+        synchronized (changes) {
+            dirtyAssignments.add(a.getAssignmentID());
+            removedAssignments.remove(a.getAssignmentID());
+        }
+    }
+
+    @Override
+    public void assignmentRemoved(String assignmentID) {
+        synchronized (changes) {
+            dirtyAssignments.remove(assignmentID);
+            removedAssignments.add(assignmentID);
+        }
+    }
+
+    @Override
+    public void scorePut(String gradeID, String assignmentID, String studentID, int earned, int total) {
+        synchronized (changes) {
+            dirtyScores.add(gradeID);
+        }
+    }
+
+    @Override
+    public void enrolled(String studentID, String courseID) {
+        synchronized (changes) {
+            dirtyStudents.add(studentID);
+        }
+    }
+
+    @Override
+    public void unenrolled(String studentID, String courseID) {
+        synchronized (changes) {
+            dirtyStudents.add(studentID);
+        }
+    }
+
+    @Override
+    public void modelCleared() {
+        synchronized (changes) {
+            if (rewriteAll) return;
+            boolean users = usersCleared;
+            Map<String, LibraryUsers.UserRecord> pendingUsers = new HashMap<>(dirtyUsers);
+            clearPending();
+            usersCleared = users;
+            dirtyUsers.putAll(pendingUsers);
+            modelCleared = true;
+        }
+    }
+
+    @Override
+    public void userPut(LibraryUsers.UserRecord u) {
+        synchronized (changes) {
+            dirtyUsers.put(u.username(), u);
+        }
+    }
+
+    @Override
+    public void usersCleared() {
+        synchronized (changes) {
+            dirtyUsers.clear();
+            usersCleared = true;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package org.fp;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * The whole store as one JSON document (data/datastore.json), the format the
+ * app started out with. Every save rewrites the file, so this backend suits
+ * small stores and hand inspection; it only writes when something changed.
+ */
+class JsonFileBackend implements StorageBackend, MutationListener {
+
+    private final Path file;
+    private final DataStoreLoader.ProgressListener progress;
+    private DataStore ds;
+    private volatile boolean dirty = false;
+
+    JsonFileBackend(Path file) {
+        this(file, (read, total) -> { });
+    }
+
+    JsonFileBackend(Path file, DataStoreLoader.ProgressListener progress) {
+        this.file = file;
+        this.progress = progress;
+    }
+
+    @Override
+    public boolean exists() {
+        return Files.exists(file);
+    }
+
+    @Override
+    public DataStore open() throws IOException {
+        DataStore loaded = exists() ? new DataStoreLoader(progress).load(file) : new DataStore();
+        follow(loaded);
+        return loaded;
+    }
+
+    @Override
+    public void adopt(DataStore store) throws IOException {
+        follow(store);
+        dirty = true;
+        save();
+    }
+
+    private synchronized void follow(DataStore store) {
+        stopFollowing();
+        ds = store;
+        dirty = false;
+        ds.model.addMutationListener(this);
+        ds.users.addMutationListener(this);
+    }
+
+    private void stopFollowing() {
+        if (ds != null) {
+            ds.model.removeMutationListener(this);
+            ds.users.removeMutationListener(this);
+        }
+    }
+
+    @Override
+    public void changed() {
+        dirty = true;
+    }
+
+    /**
+     * Freeze the store under its locks, then render it and replace the file
+     * atomically without holding them.
+     */
+    @Override
+    public void save() throws IOException {
+        if (ds == null || !dirty) return;
+        dirty = false;   // a change from here on lands in the freeze below or marks us dirty again
+        try {
+            write(ds, file);
+        } catch (IOException | RuntimeException e) {
+            dirty = true;   // try again next time
+            throw e;
+        }
+    }
+
+    /**
+     * Write a consistent copy of {@code store} to {@code file}, e.g. for an
+     * export: users and model are captured together under their locks, and
+     * the file is replaced atomically, so a reader never sees half of it.
+     */
+    static void write(DataStore store, Path file) throws IOException {
+        DataStore copy = new DataStore();
+        FrozenModel view;
+        synchronized (store.users) {
+            try (CourseLocks.Held locked = store.model.lockAll()) {
+                store.model.loadAllCourses();
+                copy.users.importUsers(store.users.exportUsers());
+                view = store.model.freeze();
+            }
+        }
+        byte[] json;
+        try (view) {
+            copy.model = view.thaw();
+            json = GsonSupport.GSON.toJson(copy).getBytes(StandardCharsets.UTF_8);
+        }
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path tmp = parent.resolve(file.getFileName() + ".tmp");
+        Files.write(tmp, json);
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public void close() throws IOException {
+        save();
+        stopFollowing();
+    }
+}
@@ -0,0 +1,284 @@
+package org.fp;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the store in a {@link KeyValueStore} (data/kv), one key per entity:
+ * <pre>
+ * U/username   S/studentID   T/teacherID   C/courseID   A/assignmentID   G/gradeID
+ * </pre>
+ * Values are the record bodies of {@link MutationJournal}, so they are read
+ * back with {@link MutationJournal#apply}. Every mutation rewrites only the
+ * entities it touched as it happens, e.g. a score update is one small
+ * append; {@link #save} forces the appends to disk.
+ */
+class KeyValueBackend implements StorageBackend, MutationListener {
+
+    private static final String USER = "U/";
+    private static final String STUDENT = "S/";
+    private static final String TEACHER = "T/";
+    private static final String COURSE = "C/";
+    private static final String ASSIGNMENT = "A/";
+    private static final String SCORE = "G/";
+    // the order entities are loaded in, so everything they refer to already exists
+    private static final List<String> LOAD_ORDER = List.of(USER, STUDENT, TEACHER, COURSE, ASSIGNMENT, SCORE);
+
+    /** Student and score an assignment points at, to update both when it is removed. */
+    private record Owner(String studentID, String gradeID) { }
+
+    private final Path dir;
+    private KeyValueStore kv;
+    private DataStore ds;
+    // guarded by this
+    private final Map<String, Owner> owners = new HashMap<>();
+
+    KeyValueBackend(Path dir) {
+        this.dir = dir;
+    }
+
+    @Override
+    public boolean exists() throws IOException {
+        return store().size() > 0;
+    }
+
+    @Override
+    public DataStore open() throws IOException {
+        DataStore loaded = new DataStore();
+        KeyValueStore store = store();
+        for (String prefix : LOAD_ORDER) {
+            for (String key : store.keys(prefix)) {
+                MutationJournal.apply(store.get(key), loaded);
+            }
+        }
+        // a removed course is only dropped from the students in memory
+        LibraryModel model = loaded.model;
+        for (Student s : model.studentValues()) {
+            for (String courseID : List.copyOf(s.getEnrolledCourseIDs())) {
+                if (model.getCourse(courseID) == null) {
+                    model.removeStudentFromCourse(s.getStuID(), courseID);
+                }
+            }
+        }
+        follow(loaded);
+        return loaded;
+    }
+
+    /** Replace the whole key space with {@code store}. */
+    @Override
+    public void adopt(DataStore store) throws IOException {
+        KeyValueStore kvs = store();
+        synchronized (store.users) {
+            try (CourseLocks.Held locked = store.model.lockAll()) {
+                for (String prefix : LOAD_ORDER) {
+                    for (String key : kvs.keys(prefix)) {
+                        kvs.delete(key);
+                    }
+                }
+                for (LibraryUsers.UserRecord u : store.users.exportUsers()) {
+                    userPut(u);
+                }
+                LibraryModel model = store.model;
+                for (Student s : model.studentValues()) {
+                    kvs.put(STUDENT + s.getStuID(), MutationJournal.studentRecord(s));
+                }
+                for (Teacher t : model.teacherValues()) {
+                    teacherPut(t);
+                }
+                for (Course c : model.courseValues()) {
+                    coursePut(c);
+                }
+                for (Assignment a : model.assignmentValues()) {
+                    kvs.put(ASSIGNMENT + a.getAssignmentID(), MutationJournal.assignmentRecord(a));
+                }
+                for (String gradeID : model.scoreStore().gradeIDs()) {
+                    Score s = model.getScore(gradeID);
+                    scorePut(gradeID, s.getAssignmentID(), s.getStudentID(), s.getEarned(), s.getTotal());
+                }
+                follow(store);
+            }
+        }
+        save();
+    }
+
+    /** Read one score straight from disk, without loading the store. */
+    Score readScore(String gradeID) throws IOException {
+        byte[] value = store().get(SCORE + gradeID);
+        if (value == null) return null;
+        DataStore one = new DataStore();
+        MutationJournal.apply(value, one);
+        return one.model.getScore(gradeID);
+    }
+
+    private KeyValueStore store() throws IOException {
+        synchronized (this) {
+            if (kv == null) {
+                kv = KeyValueStore.open(dir);
+            }
+            return kv;
+        }
+    }
+
+    private void follow(DataStore store) {
+        synchronized (this) {
+            stopFollowing();
+            owners.clear();
+            for (Assignment a : store.model.assignmentValues()) {
+                owners.put(a.getAssignmentID(), new Owner(a.getStudentID(), a.getGradeID()));
+            }
+            ds = store;
+        }
+        store.model.addMutationListener(this);
+        store.users.addMutationListener(this);
+    }
+
+    private void stopFollowing() {
+        if (ds != null) {
+            ds.model.removeMutationListener(this);
+            ds.users.removeMutationListener(this);
+        }
+    }
+
+    @Override
+    public void save() throws IOException {
+        store().sync();
+    }
+
+    @Override
+    public boolean writesThrough() {
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            stopFollowing();
+            if (kv == null) return;
+            kv.close();
+            kv = null;
+        }
+    }
+
+    // ---------- MutationListener: write each touched entity ----------
+
+    private void put(String key, byte[] value) {
+        try {
+            store().put(key, value);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Writing " + key + " failed", e);
+        }
+    }
+
+    private void delete(String key) {
+        try {
+            store().delete(key);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Deleting " + key + " failed", e);
+        }
+    }
+
+    private void deleteAll(String prefix) {
+        try {
+            KeyValueStore store = store();
+            for (String key : store.keys(prefix)) {
+                store.delete(key);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Deleting " + prefix + " failed", e);
+        }
+    }
+
+    /** Rewrite a student from the model, e.g. after its enrollment changed. */
+    private void rewriteStudent(String studentID) {
+        Student s = ds.model.getStudent(studentID);
+        if (s != null) {
+            put(STUDENT + studentID, MutationJournal.studentRecord(s));
+        }
+    }
+
+    @Override
+    public void studentPut(Student s) {
+        put(STUDENT + s.getStuID(), MutationJournal.studentRecord(s));
+    }
+
+    @Override
+    public void studentRemoved(String studentID) {
+        delete(STUDENT + studentID);
+    }
+
+    @Override
+    public void teacherPut(Teacher t) {
+        put(TEACHER + t.getTeacherID(), MutationJournal.teacherRecord(t));
+    }
+
+    @Override
+    public void coursePut(Course c) {
+        put(COURSE + c.getCourseID(), MutationJournal.courseRecord(c));
+    }
+
+    @Override
+    public void courseRemoved(String courseID) {
+        delete(COURSE + courseID);
+    }
+
+    @Override
+    public void assignmentPut(Assignment a) {
+        synchronized (this) {
+            owners.put(a.getAssignmentID(), new Owner(a.getStudentID(), a.getGradeID()));
+        }
+        put(ASSIGNMENT + a.getAssignmentID(), MutationJournal.assignmentRecord(a));
+        rewriteStudent(a.getStudentID());
+    }
+
+    @Override
+    public void assignmentRemoved(String assignmentID) {
+        Owner owner;
+        synchronized (this) {
+            owner = owners.remove(assignmentID);
+        }
+        delete(ASSIGNMENT + assignmentID);
+        if (owner != null) {
+            if (owner.gradeID() != null) delete(SCORE + owner.gradeID());
+            rewriteStudent(owner.studentID());
+        }
+    }
+
+    @Override
+    public void scorePut(String gradeID, String assignmentID, String studentID, int earned, int total) {
+        put(SCORE + gradeID, MutationJournal.scoreRecord(gradeID, assignmentID, studentID, earned, total));
+    }
+
+    @Override
+    public void enrolled(String studentID, String courseID) {
+        rewriteStudent(studentID);
+    }
+
+    @Override
+    public void unenrolled(String studentID, String courseID) {
+        rewriteStudent(studentID);
+    }
+
+    @Override
+    public void modelCleared() {
+        for (String prefix : List.of(STUDENT, TEACHER, COURSE, ASSIGNMENT, SCORE)) {
+            deleteAll(prefix);
+        }
+        synchronized (this) {
+            owners.clear();
+        }
+    }
+
+    @Override
+    public void userPut(LibraryUsers.UserRecord u) {
+        put(USER + u.username(), MutationJournal.userRecord(u));
+    }
+
+    @Override
+    public void usersCleared() {
+        deleteAll(USER);
+    }
+}
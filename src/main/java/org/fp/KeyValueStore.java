@@ -0,0 +1,384 @@
+package org.fp;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * A small log-structured key-value store (Bitcask style). Every put or
+ * delete is appended to the active segment file ({@code kv-000001.data},
+ * ...) as
+ * <pre>
+ * [int crc32][int keyLength][int valueLength, -1 for a delete][key utf-8][value]
+ * </pre>
+ * and an in-memory key directory remembers where the latest value of each
+ * key lives, so a read is one positional read. Once the active segment is
+ * larger than the segment size a new one is started.
+ * <p>
+ * Old values are dropped by {@link #merge}, which a background thread runs
+ * every minute: the live records of all sealed segments are copied into one
+ * file that takes the place of the newest sealed segment. The copy is first
+ * written as {@code .merge} and renamed to {@code .merged} once complete;
+ * {@link #open} finishes a {@code .merged} file left by a crash and deletes a
+ * {@code .merge} one.
+ */
+class KeyValueStore implements AutoCloseable {
+
+    private static final long DEFAULT_SEGMENT_BYTES = 4L * 1024 * 1024;
+    private static final long MERGE_INTERVAL_SECONDS = 60;
+    private static final int HEADER_BYTES = 12;
+    private static final String PREFIX = "kv-";
+    private static final String SUFFIX = ".data";
+
+    /** Where the value of a key is: segment number, offset of the value, value length. */
+    private record Location(int segment, long offset, int length) { }
+
+    private final Path dir;
+    private final long segmentBytes;
+
+    // guarded by this
+    private final Map<String, Location> keydir = new HashMap<>();
+    private final Map<Integer, FileChannel> segments = new TreeMap<>();
+    private int active;
+    private long activeSize;
+    private boolean closed = false;
+
+    // one merge at a time
+    private final Object mergeLock = new Object();
+    private final ScheduledExecutorService merger;
+
+    private KeyValueStore(Path dir, long segmentBytes) {
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.merger = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "kv-merge");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public static KeyValueStore open(Path dir) throws IOException {
+        return open(dir, DEFAULT_SEGMENT_BYTES);
+    }
+
+    /** Open (or create) the store in {@code dir}, starting a new segment after {@code segmentBytes}. */
+    static KeyValueStore open(Path dir, long segmentBytes) throws IOException {
+        Files.createDirectories(dir);
+        KeyValueStore store = new KeyValueStore(dir, segmentBytes);
+        store.recover();
+        store.merger.scheduleWithFixedDelay(store::mergeQuietly,
+                MERGE_INTERVAL_SECONDS, MERGE_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        return store;
+    }
+
+    // ---------- reads and writes ----------
+
+    /** The latest value of {@code key}, or null if it has none. */
+    public synchronized byte[] get(String key) throws IOException {
+        Location loc = keydir.get(key);
+        if (loc == null) return null;
+        ByteBuffer buf = ByteBuffer.allocate(loc.length());
+        FileChannel ch = segments.get(loc.segment());
+        while (buf.hasRemaining()) {
+            if (ch.read(buf, loc.offset() + buf.position()) < 0) {
+                throw new EOFException("Value of " + key + " is cut off");
+            }
+        }
+        return buf.array();
+    }
+
+    public synchronized boolean containsKey(String key) {
+        return keydir.containsKey(key);
+    }
+
+    /** Every key starting with {@code prefix}, in no particular order. */
+    public synchronized List<String> keys(String prefix) {
+        List<String> result = new ArrayList<>();
+        for (String key : keydir.keySet()) {
+            if (key.startsWith(prefix)) result.add(key);
+        }
+        return result;
+    }
+
+    public synchronized int size() {
+        return keydir.size();
+    }
+
+    public synchronized void put(String key, byte[] value) throws IOException {
+        long valueOffset = append(key, value);
+        keydir.put(key, new Location(active, valueOffset, value.length));
+        rotateIfFull();
+    }
+
+    public synchronized void delete(String key) throws IOException {
+        if (keydir.remove(key) == null) return;
+        append(key, null);
+        rotateIfFull();
+    }
+
+    /** Force everything appended so far to disk. */
+    public synchronized void sync() throws IOException {
+        segments.get(active).force(false);
+    }
+
+    /** Append one record to the active segment; returns the offset of its value. */
+    private long append(String key, byte[] value) throws IOException {
+        if (closed) {
+            throw new IOException("Key-value store is closed");
+        }
+        byte[] record = encode(key, value);
+        FileChannel ch = segments.get(active);
+        ByteBuffer buf = ByteBuffer.wrap(record);
+        while (buf.hasRemaining()) {
+            ch.write(buf, activeSize + buf.position());
+        }
+        long valueOffset = activeSize + record.length - (value == null ? 0 : value.length);
+        activeSize += record.length;
+        return valueOffset;
+    }
+
+    private void rotateIfFull() throws IOException {
+        if (activeSize < segmentBytes) return;
+        segments.get(active).force(false);
+        active++;
+        activeSize = 0;
+        segments.put(active, openSegment(segmentPath(active)));
+    }
+
+    private static byte[] encode(String key, byte[] value) {
+        byte[] k = key.getBytes(StandardCharsets.UTF_8);
+        int valueLength = (value == null) ? -1 : value.length;
+        ByteBuffer buf = ByteBuffer.allocate(HEADER_BYTES + k.length + Math.max(valueLength, 0));
+        buf.putInt(0).putInt(k.length).putInt(valueLength).put(k);
+        if (value != null) buf.put(value);
+        CRC32 crc = new CRC32();
+        crc.update(buf.array(), 4, buf.capacity() - 4);
+        buf.putInt(0, (int) crc.getValue());
+        return buf.array();
+    }
+
+    // ---------- merging ----------
+
+    /**
+     * Copy the live records of every sealed segment into one file and drop
+     * the rest. Reads and writes go on while the copy is written.
+     * @return true if anything was merged
+     */
+    public boolean merge() throws IOException {
+        synchronized (mergeLock) {
+            return mergeSealed();
+        }
+    }
+
+    private boolean mergeSealed() throws IOException {
+        int newest;
+        Map<String, Location> live = new HashMap<>();
+        Map<Integer, FileChannel> sealed = new HashMap<>();
+        synchronized (this) {
+            if (closed) return false;
+            newest = active - 1;
+            for (Map.Entry<Integer, FileChannel> e : segments.entrySet()) {
+                if (e.getKey() < active) sealed.put(e.getKey(), e.getValue());
+            }
+            if (sealed.size() < 2) return false;
+            for (Map.Entry<String, Location> e : keydir.entrySet()) {
+                if (e.getValue().segment() < active) live.put(e.getKey(), e.getValue());
+            }
+        }
+
+        // sealed segments never change, so the copy needs no lock
+        Path merging = dir.resolve(PREFIX + String.format("%06d", newest) + SUFFIX + ".merge");
+        Map<String, Location> moved = new HashMap<>();
+        try (FileChannel out = FileChannel.open(merging, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            long size = 0;
+            for (Map.Entry<String, Location> e : live.entrySet()) {
+                Location loc = e.getValue();
+                ByteBuffer value = ByteBuffer.allocate(loc.length());
+                FileChannel in = sealed.get(loc.segment());
+                while (value.hasRemaining()) {
+                    if (in.read(value, loc.offset() + value.position()) < 0) {
+                        throw new EOFException("Value of " + e.getKey() + " is cut off");
+                    }
+                }
+                byte[] record = encode(e.getKey(), value.array());
+                ByteBuffer buf = ByteBuffer.wrap(record);
+                while (buf.hasRemaining()) {
+                    out.write(buf);
+                }
+                moved.put(e.getKey(), new Location(newest, size + record.length - loc.length(), loc.length()));
+                size += record.length;
+            }
+            out.force(true);
+        }
+        Path merged = completedMerge(newest);
+        Files.move(merging, merged, StandardCopyOption.ATOMIC_MOVE);
+
+        synchronized (this) {
+            if (closed) return false;   // the next open finishes the merge
+            for (FileChannel ch : sealed.values()) {
+                ch.close();
+            }
+            segments.keySet().removeAll(sealed.keySet());
+            finishMerge(newest, merged);
+            segments.put(newest, openSegment(segmentPath(newest)));
+            // keys written again while copying keep their newer location
+            for (Map.Entry<String, Location> e : moved.entrySet()) {
+                keydir.replace(e.getKey(), live.get(e.getKey()), e.getValue());
+            }
+        }
+        return true;
+    }
+
+    /** Delete every segment up to {@code newest} and put the merged file in its place. */
+    private void finishMerge(int newest, Path merged) throws IOException {
+        for (Path p : segmentFiles()) {
+            if (segmentNumber(p) <= newest) Files.delete(p);
+        }
+        Files.move(merged, segmentPath(newest), StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void mergeQuietly() {
+        try {
+            merge();
+        } catch (IOException | RuntimeException e) {
+            System.err.println("⚠️ Key-value merge failed: " + e.getMessage());
+        }
+    }
+
+    // ---------- recovery ----------
+
+    /** Finish or discard an interrupted merge, then rebuild the key directory from the segments. */
+    private synchronized void recover() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path p : (Iterable<Path>) files::iterator) {
+                String name = p.getFileName().toString();
+                if (name.endsWith(SUFFIX + ".merge")) {
+                    Files.delete(p);
+                } else if (name.endsWith(SUFFIX + ".merged")) {
+                    finishMerge(segmentNumber(p), p);
+                }
+            }
+        }
+        List<Path> files = segmentFiles();
+        for (Path p : files) {
+            int n = segmentNumber(p);
+            long valid = scan(p, n);
+            if (valid < Files.size(p)) {
+                // torn tail from a crash mid-append; drop it
+                try (FileChannel ch = FileChannel.open(p, StandardOpenOption.WRITE)) {
+                    ch.truncate(valid);
+                }
+            }
+            segments.put(n, openSegment(p));
+        }
+        if (files.isEmpty()) {
+            active = 1;
+            segments.put(active, openSegment(segmentPath(active)));
+        } else {
+            active = segmentNumber(files.get(files.size() - 1));
+        }
+        activeSize = segments.get(active).size();
+    }
+
+    /**
+     * Load the records of one segment into the key directory.
+     * @return the length of the valid prefix
+     */
+    private long scan(Path p, int segment) throws IOException {
+        long valid = 0;
+        try (InputStream raw = new BufferedInputStream(Files.newInputStream(p));
+             DataInputStream in = new DataInputStream(raw)) {
+            while (true) {
+                byte[] key;
+                int valueLength;
+                try {
+                    int expected = in.readInt();
+                    int keyLength = in.readInt();
+                    valueLength = in.readInt();
+                    if (keyLength <= 0 || valueLength < -1) break;
+                    key = in.readNBytes(keyLength);
+                    if (key.length < keyLength) break;
+                    byte[] value = in.readNBytes(Math.max(valueLength, 0));
+                    if (value.length < Math.max(valueLength, 0)) break;
+                    CRC32 crc = new CRC32();
+                    crc.update(ByteBuffer.allocate(8).putInt(keyLength).putInt(valueLength).array());
+                    crc.update(key);
+                    crc.update(value);
+                    if ((int) crc.getValue() != expected) break;
+                } catch (EOFException e) {
+                    break;
+                }
+                String k = new String(key, StandardCharsets.UTF_8);
+                long end = valid + HEADER_BYTES + key.length + Math.max(valueLength, 0);
+                if (valueLength < 0) {
+                    keydir.remove(k);
+                } else {
+                    keydir.put(k, new Location(segment, end - valueLength, valueLength));
+                }
+                valid = end;
+            }
+        }
+        return valid;
+    }
+
+    // ---------- files ----------
+
+    private Path segmentPath(int n) {
+        return dir.resolve(PREFIX + String.format("%06d", n) + SUFFIX);
+    }
+
+    private Path completedMerge(int n) {
+        return dir.resolve(PREFIX + String.format("%06d", n) + SUFFIX + ".merged");
+    }
+
+    private static FileChannel openSegment(Path p) throws IOException {
+        return FileChannel.open(p, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.getFileName().toString().matches("kv-\\d+\\.data"))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static int segmentNumber(Path p) {
+        String name = p.getFileName().toString();
+        return Integer.parseInt(name.substring(PREFIX.length(), name.indexOf(SUFFIX)));
+    }
+
+    /** Stop merging, force what was written and close every segment. */
+    @Override
+    public void close() throws IOException {
+        merger.shutdownNow();
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            segments.get(active).force(false);
+            for (FileChannel ch : segments.values()) {
+                ch.close();
+            }
+        }
+    }
+}
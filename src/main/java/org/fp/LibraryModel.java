@@ -2,6 +2,7 @@ package org.fp;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -17,26 +18,308 @@ import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import com.google.gson.annotations.JsonAdapter;
 
 /**
  * This class serves as the model for the library system, managing students, teachers,
  * courses, assignments, and scores. It provides methods to add, remove, and retrieve
  * these entities, as well as to perform various calculations related to grades and
  * course averages.
+ * <p>
+ * Locking is partitioned by course (see {@link CourseLocks}): grading,
+ * submitting and changing a course's grading setup lock only that course,
+ * calculations read the courses they look at optimistically (retrying, and
+ * read-locking them only if writers keep getting in), and everything that
+ * changes the shape of the model locks the whole of it.
  */
 public class LibraryModel {
-    private final Map<String, Student> studentMap = new HashMap<>();
-    private final Map<String, Teacher> teacherMap = new HashMap<>();
-    private final Map<String, Course> courseMap = new HashMap<>();
-    private final Map<String, Assignment> assignmentMap = new HashMap<>();
-    private final Map<String, Score> gradeMap = new HashMap<>();
+    private final ConcurrentMap<String, Student> studentMap = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Teacher> teacherMap = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Course> courseMap = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Assignment> assignmentMap = new ConcurrentHashMap<>();
+    @JsonAdapter(ScoreStore.GsonAdapterFactory.class)
+    private final ScoreStore gradeMap = new ScoreStore();
+
+    // rosters at least this large are summarized in parallel
+    private static final int PARALLEL_SUMMARY_THRESHOLD = 256;
+
+    // Derived indexes (not persisted; rebuilt by rebuildIndexes() after loading)
+    // dense int handles for the string IDs the indexes below are keyed on
+    private transient IDHandles studentHandles = new IDHandles();
+    private transient IDHandles courseHandles = new IDHandles();
+    private transient IDHandles assignmentHandles = new IDHandles();
+    // (student handle, course handle) → assignment handles
+    private transient AssignmentIndex assignmentIndex = new AssignmentIndex();
+    // course handle → enrolled student handles
+    private transient List<BitSet> rosterIndex = new ArrayList<>();
+    // running earned/total sums per (student, course) and (student, course, category)
+    private transient GradeAggregates aggregates = new GradeAggregates();
+    // (course, assignment name) → score slots, for the group statistics
+    private transient ScoreGroups scoreGroups = new ScoreGroups();
+
+    // per-course locks under one structure lock, see CourseLocks
+    private final transient CourseLocks locks = new CourseLocks();
+
+    // told about every mutation, e.g. by the write-ahead journal and the autosave
+    private transient List<MutationListener> mutationListeners = new CopyOnWriteArrayList<>();
+
+    /** Reads the persisted assignments and scores of one course into the model. */
+    @FunctionalInterface
+    interface CourseLoader {
+        void load(String courseID) throws IOException;
+    }
+
+    // courses whose assignments and scores are still on disk (see ShardedSnapshot)
+    private transient Set<String> unloadedCourses = new HashSet<>();
+    private transient CourseLoader courseLoader;
+    // true while a course is being loaded; listeners are not told about what it reads
+    private transient boolean loadingCourse = false;
+    // what the running course load added, so a failed load can be taken back out
+    private transient List<String> loadedAssignmentIDs;
+    private transient List<String> loadedGradeIDs;
+
+    // Immutable snapshots shared between readers until the entity changes
+    private transient SnapshotCache<Student, StudentSnapshot> studentSnapshots =
+            new SnapshotCache<>(StudentSnapshot::of);
+    private transient SnapshotCache<Teacher, TeacherSnapshot> teacherSnapshots =
+            new SnapshotCache<>(TeacherSnapshot::of);
+    private transient SnapshotCache<Course, CourseSnapshot> courseSnapshots =
+            new SnapshotCache<>(CourseSnapshot::of);
+    private transient SnapshotCache<Assignment, AssignmentSnapshot> assignmentSnapshots =
+            new SnapshotCache<>(AssignmentSnapshot::of);
+    private transient SnapshotCache<Score, ScoreSnapshot> scoreSnapshots =
+            new SnapshotCache<>(ScoreSnapshot::of);
 
     public void clearAllData() {
-        studentMap.clear();
-        teacherMap.clear();
-        courseMap.clear();
-        assignmentMap.clear();
-        gradeMap.clear();
+        try (CourseLocks.Held held = locks.exclusive()) {
+            studentMap.clear();
+            teacherMap.clear();
+            courseMap.clear();
+            assignmentMap.clear();
+            gradeMap.clear();
+            assignmentIndex.clear();
+            rosterIndex.clear();
+            studentHandles.clear();
+            courseHandles.clear();
+            assignmentHandles.clear();
+            aggregates.clear();
+            scoreGroups.clear();
+            clearSnapshots();
+            unloadedCourses.clear();
+            locks.clear();
+            fire(l -> l.modelCleared());
+        }
+    }
+
+    /** Register a listener that is told about every mutation from now on. */
+    public void addMutationListener(MutationListener listener) {
+        mutationListeners.add(listener);
+    }
+
+    public void removeMutationListener(MutationListener listener) {
+        mutationListeners.remove(listener);
+    }
+
+    private void fire(Consumer<MutationListener> event) {
+        if (loadingCourse) return;
+        for (MutationListener l : mutationListeners) {
+            event.accept(l);
+        }
+    }
+
+    /**
+     * Leave the assignments and scores of {@code courseIDs} on disk until
+     * {@link #loadCourse} is first called for them.
+     */
+    void setCourseLoader(CourseLoader loader, Collection<String> courseIDs) {
+        try (CourseLocks.Held held = locks.exclusive()) {
+            this.courseLoader = loader;
+            this.unloadedCourses = new HashSet<>(courseIDs);
+        }
+    }
+
+    /** Make sure the assignments and scores of a course are in memory. */
+    public void loadCourse(String courseID) {
+        // loaded courses are the common case and must not serialize every caller
+        try (CourseLocks.Held held = locks.shared()) {
+            if (courseID == null || !unloadedCourses.contains(courseID)) return;
+        }
+        try (CourseLocks.Held held = locks.exclusive()) {
+            if (courseID == null || !unloadedCourses.remove(courseID)) return;
+            loadingCourse = true;
+            loadedAssignmentIDs = new ArrayList<>();
+            loadedGradeIDs = new ArrayList<>();
+            try {
+                courseLoader.load(courseID);
+            } catch (IOException e) {
+                undoLoad();
+                unloadedCourses.add(courseID);
+                throw new UncheckedIOException("Loading course " + courseID + " failed", e);
+            } catch (RuntimeException e) {
+                undoLoad();
+                unloadedCourses.add(courseID);
+                throw e;
+            } finally {
+                loadedAssignmentIDs = null;
+                loadedGradeIDs = null;
+                loadingCourse = false;
+            }
+        }
+    }
+
+    /** Take out what a failed course load read so far, so loading it again starts clean. */
+    private void undoLoad() {
+        List<String> grades = loadedGradeIDs;
+        List<String> assignments = loadedAssignmentIDs;
+        loadedGradeIDs = null;
+        loadedAssignmentIDs = null;
+        for (String gradeID : grades) {
+            gradeMap.remove(gradeID);
+            aggregates.remove(gradeID);
+            scoreGroups.remove(gradeID);
+            scoreSnapshots.invalidate(gradeID);
+        }
+        for (String assignmentID : assignments) {
+            removeAssignment(assignmentID);
+        }
+    }
+
+    public void loadCourses(Collection<String> courseIDs) {
+        try (CourseLocks.Held held = locks.exclusive()) {
+            for (String id : courseIDs) {
+                loadCourse(id);
+            }
+        }
+    }
+
+    /** Load every course that is still on disk, e.g. before a full export. */
+    public void loadAllCourses() {
+        try (CourseLocks.Held held = locks.exclusive()) {
+            loadCourses(new ArrayList<>(unloadedCourses));
+        }
+    }
+
+    public boolean isCourseLoaded(String courseID) {
+        try (CourseLocks.Held held = locks.shared()) {
+            return contains(courseMap, courseID) && !unloadedCourses.contains(courseID);
+        }
+    }
+
+    /**
+     * Rebuild every derived index from the entity maps.
+     * Must be called after the model has been deserialized, since the
+     * indexes are transient and are not part of the persisted data.
+     */
+    public void rebuildIndexes() {
+        try (CourseLocks.Held held = locks.exclusive()) {
+            studentHandles = new IDHandles();
+            courseHandles = new IDHandles();
+            assignmentHandles = new IDHandles();
+            // hand out handles in ID order so they are stable from one load to the next
+            studentMap.keySet().stream().sorted().forEach(studentHandles::intern);
+            courseMap.keySet().stream().sorted().forEach(courseHandles::intern);
+            assignmentMap.keySet().stream().sorted().forEach(assignmentHandles::intern);
+
+            assignmentIndex = new AssignmentIndex();
+            for (Assignment a : assignmentMap.values()) {
+                indexAssignment(a);
+            }
+            rosterIndex = new ArrayList<>();
+            for (Student s : studentMap.values()) {
+                indexEnrollments(s);
+            }
+            aggregates = new GradeAggregates();
+            scoreGroups = new ScoreGroups();
+            for (Assignment a : assignmentMap.values()) {
+                foldScore(a);
+            }
+            clearSnapshots();
+        }
+    }
+
+    private void clearSnapshots() {
+        studentSnapshots.clear();
+        teacherSnapshots.clear();
+        courseSnapshots.clear();
+        assignmentSnapshots.clear();
+        scoreSnapshots.clear();
+    }
+
+    /**
+     * Fold the score of a graded assignment into the running totals,
+     * provided both the assignment and its Score are in the model.
+     */
+    private void foldScore(Assignment a) {
+        String gradeID = a.getGradeID();
+        if (gradeID == null) return;
+        int slot = gradeMap.slotOf(gradeID);
+        if (slot < 0) return;
+        aggregates.put(gradeID, a.getStudentID(), a.getCourseID(), a.getCategory(),
+                gradeMap.earnedAt(slot), gradeMap.totalAt(slot));
+        scoreGroups.put(gradeID, a.getCourseID(), a.getAssignmentName(), slot);
+    }
+
+    private void indexEnrollments(Student s) {
+        for (String courseID : s.getEnrolledCourseIDs()) {
+            indexEnrollment(s.getStuID(), courseID);
+        }
+    }
+
+    private void indexEnrollment(String studentID, String courseID) {
+        int course = courseHandles.intern(courseID);
+        while (rosterIndex.size() <= course) {
+            rosterIndex.add(null);
+        }
+        BitSet roster = rosterIndex.get(course);
+        if (roster == null) {
+            roster = new BitSet();
+            rosterIndex.set(course, roster);
+        }
+        roster.set(studentHandles.intern(studentID));
+    }
+
+    private void unindexEnrollment(String studentID, String courseID) {
+        BitSet roster = rosterOf(courseID);
+        int student = studentHandles.handleOf(studentID);
+        if (roster != null && student >= 0) {
+            roster.clear(student);
+        }
+    }
+
+    /** Enrolled student handles of a course, or null if nobody was ever enrolled. */
+    private BitSet rosterOf(String courseID) {
+        int course = courseHandles.handleOf(courseID);
+        return (course < 0 || course >= rosterIndex.size()) ? null : rosterIndex.get(course);
+    }
+
+    private void indexAssignment(Assignment a) {
+        assignmentIndex.add(studentHandles.intern(a.getStudentID()), courseHandles.intern(a.getCourseID()),
+                assignmentHandles.intern(a.getAssignmentID()));
+    }
+
+    private void unindexAssignment(Assignment a) {
+        int student = studentHandles.handleOf(a.getStudentID());
+        int course = courseHandles.handleOf(a.getCourseID());
+        if (student < 0 || course < 0) return;
+        assignmentIndex.remove(student, course, assignmentHandles.handleOf(a.getAssignmentID()));
+    }
+
+    // the entity maps are concurrent and take no null keys; a null ID is simply not there
+    private static <V> V lookup(Map<String, V> map, String id) {
+        return (id == null) ? null : map.get(id);
+    }
+
+    private static boolean contains(Map<String, ?> map, String id) {
+        return id != null && map.containsKey(id);
+    }
+
+    private static <V> V removeFrom(Map<String, V> map, String id) {
+        return (id == null) ? null : map.remove(id);
     }
 
     public int getCourseCount() {
@@ -45,157 +328,450 @@ public class LibraryModel {
 
 
     public void addStudent(Student s) {
-        studentMap.put(s.getStuID(), s);
+        try (CourseLocks.Held held = locks.exclusive()) {
+            studentHandles.intern(s.getStuID());
+            Student previous = studentMap.put(s.getStuID(), s);
+            if (previous != null) {
+                for (String courseID : previous.getEnrolledCourseIDs()) {
+                    unindexEnrollment(previous.getStuID(), courseID);
+                }
+            }
+            indexEnrollments(s);
+            studentSnapshots.invalidate(s.getStuID());
+            fire(l -> l.studentPut(s));
+        }
     }
 
     public void removeStudent(String studentID) {
-        studentMap.remove(studentID);
+        try (CourseLocks.Held held = locks.exclusive()) {
+            Student s = removeFrom(studentMap, studentID);
+            if (s == null) return;
+            studentSnapshots.invalidate(studentID);
+            for (String courseID : s.getEnrolledCourseIDs()) {
+                unindexEnrollment(studentID, courseID);
+            }
+            fire(l -> l.studentRemoved(studentID));
+        }
     }
 
 
+    /** A copy of the student; students only change under the exclusive lock, so shared is enough. */
     public Student getStudent(String id) {
-        Student original = studentMap.get(id);
-        return (original != null) ? new Student(original) : null;
+        try (CourseLocks.Held held = locks.shared()) {
+            Student original = lookup(studentMap, id);
+            return (original != null) ? new Student(original) : null;
+        }
     }
 
 
 
     public boolean studentExists(String id) {
-        return studentMap.containsKey(id);
+        return contains(studentMap, id);
+    }
+
+    /** Shared immutable snapshot of a student, or null if there is no such student. */
+    public StudentSnapshot getStudentSnapshot(String id) {
+        try (CourseLocks.Held held = locks.shared()) {
+            return studentSnapshots.get(id, studentMap);
+        }
+    }
+
+    /** Shared immutable snapshots of every student; nothing is copied unless a student changed. */
+    public Collection<StudentSnapshot> getStudentSnapshots() {
+        try (CourseLocks.Held held = locks.shared()) {
+            return studentSnapshots.all(studentMap);
+        }
     }
 
     // This method returns a copy of the student list
     public Collection<Student> getAllStudents() {
-        List<Student> copiedList = new ArrayList<>();
-        for (Student s : studentMap.values()) {
-            copiedList.add(new Student(s));  // assumes you have a copy constructor
+        try (CourseLocks.Held held = locks.shared()) {
+            List<Student> copiedList = new ArrayList<>();
+            for (Student s : studentMap.values()) {
+                copiedList.add(new Student(s));  // assumes you have a copy constructor
+            }
+            return Collections.unmodifiableCollection(copiedList);
         }
-        return Collections.unmodifiableCollection(copiedList);
     }
 
     public void addTeacher(Teacher t) {
-        teacherMap.put(t.getTeacherID(), t);
+        try (CourseLocks.Held held = locks.exclusive()) {
+            teacherMap.put(t.getTeacherID(), t);
+            teacherSnapshots.invalidate(t.getTeacherID());
+            fire(l -> l.teacherPut(t));
+        }
+    }
+
+    /** Record that a teacher teaches a course. */
+    public void assignCourseToTeacher(String teacherID, String courseID) {
+        try (CourseLocks.Held held = locks.exclusive()) {
+            Teacher t = lookup(teacherMap, teacherID);
+            if (t == null) {
+                throw new IllegalArgumentException("No such teacher: " + teacherID);
+            }
+            t.addCourse(courseID);
+            teacherSnapshots.invalidate(teacherID);
+            fire(l -> l.teacherPut(t));
+        }
     }
 
+    /** A copy of the teacher; change teachers through the model, e.g. {@link #assignCourseToTeacher}. */
     public Teacher getTeacher(String id) {
-        return teacherMap.get(id);
+        try (CourseLocks.Held held = locks.shared()) {
+            Teacher t = lookup(teacherMap, id);
+            return (t == null) ? null : new Teacher(t);
+        }
     }
 
     public boolean teacherExists(String id) {
-        return teacherMap.containsKey(id);
+        return contains(teacherMap, id);
     }
 
     public Collection<Teacher> getAllTeachers() {
-        List<Teacher> copiedList = new ArrayList<>();
-        for (Teacher t : teacherMap.values()){
-            copiedList.add(new Teacher(t));
+        try (CourseLocks.Held held = locks.shared()) {
+            List<Teacher> copiedList = new ArrayList<>();
+            for (Teacher t : teacherMap.values()){
+                copiedList.add(new Teacher(t));
+            }
+            return Collections.unmodifiableCollection(copiedList);
         }
-        return Collections.unmodifiableCollection(copiedList);
     }
 
     public void addCourse(Course c) {
-        courseMap.put(c.getCourseID(), c);
+        try (CourseLocks.Held held = locks.exclusive()) {
+            courseHandles.intern(c.getCourseID());
+            courseMap.put(c.getCourseID(), c);
+            courseSnapshots.invalidate(c.getCourseID());
+            fire(l -> l.coursePut(c));
+        }
+    }
+
+    /** Shared immutable snapshot of a course (without assignment copies), or null. */
+    public CourseSnapshot getCourseSnapshot(String id) {
+        try (CourseLocks.Held shared = locks.shared()) {
+            if (!contains(courseMap, id)) return null;   // no lock is made for unknown IDs
+            // locked outside the cache: grading setup changes invalidate the entry under the course lock
+            try (CourseLocks.Held held = locks.read(id)) {
+                return courseSnapshots.get(id, courseMap);
+            }
+        }
+    }
+
+    /** Shared immutable snapshots of every course. */
+    public Collection<CourseSnapshot> getCourseSnapshots() {
+        try (CourseLocks.Held held = readAllCourses()) {
+            return courseSnapshots.all(courseMap);
+        }
     }
 
     public Course getCourse(String id) {
-        Course c = courseMap.get(id);
-        if (c == null){
-                return null;
+        try (CourseLocks.Held shared = locks.shared()) {
+            Course c = lookup(courseMap, id);
+            if (c == null){
+                    return null;
+            }
+            try (CourseLocks.Held held = locks.read(id)) {
+                return new Course(c);
+            }
         }
-        return new Course(c);
     }
 
     public Collection<Course> getAllCourses() {
-        List<Course> copiedList = new ArrayList<>();
-        for (Course c : courseMap.values()){
-            copiedList.add(new Course(c));
+        try (CourseLocks.Held held = readAllCourses()) {
+            List<Course> copiedList = new ArrayList<>();
+            for (Course c : courseMap.values()){
+                copiedList.add(new Course(c));
+            }
+            return Collections.unmodifiableCollection(copiedList);
         }
-        return Collections.unmodifiableCollection(copiedList);
     }
 
+    /** Copies of the courses a teacher teaches. */
     public List<Course> getCoursesByTeacher(String teacherID) {
-        List<Course> result = new ArrayList<>();
-        for (Course c : courseMap.values()) {
-            if (c.getTeacherID().equals(teacherID)) {
-                result.add(c);
+        try (CourseLocks.Held held = readAllCourses()) {
+            List<Course> result = new ArrayList<>();
+            for (Course c : courseMap.values()) {
+                if (Objects.equals(c.getTeacherID(), teacherID)) {
+                    result.add(new Course(c));
+                }
             }
+            return result;
         }
-        return result;
     }
 
-    public void addAssignment(Assignment a) {
-        assignmentMap.put(a.getAssignmentID(), a);
-
-        // tie into Course
-        Course c = courseMap.get(a.getCourseID());
-        if (c != null) {
-            c.addAssignment(a);
+    /**
+     * The structure lock shared plus the read lock of every course, and of
+     * assignments and scores whose course is gone, for copies that span the
+     * whole model.
+     */
+    private CourseLocks.Held readAllCourses() {
+        CourseLocks.Held shared = locks.shared();
+        try {
+            List<String> courseIDs = new ArrayList<>(courseMap.keySet());
+            courseIDs.add(null);
+            CourseLocks.Held courses = locks.read(courseIDs);
+            return () -> {
+                courses.close();
+                shared.close();
+            };
+        } catch (RuntimeException e) {
+            shared.close();
+            throw e;
         }
+    }
+
+    public void addAssignment(Assignment a) {
+        try (CourseLocks.Held held = locks.exclusive()) {
+            loadCourse(a.getCourseID());
+            Assignment previous = assignmentMap.put(a.getAssignmentID(), a);
+            if (previous == null && loadedAssignmentIDs != null) {
+                loadedAssignmentIDs.add(a.getAssignmentID());
+            }
+            if (previous != null) {
+                unindexAssignment(previous);
+                if (previous.getGradeID() != null && !previous.getGradeID().equals(a.getGradeID())) {
+                    aggregates.remove(previous.getGradeID());
+                    scoreGroups.remove(previous.getGradeID());
+                }
+            }
+            indexAssignment(a);
+            foldScore(a);
+            assignmentSnapshots.invalidate(a.getAssignmentID());
+            courseSnapshots.invalidate(a.getCourseID());
+            studentSnapshots.invalidate(a.getStudentID());
+
+            // tie into Course
+            Course c = lookup(courseMap, a.getCourseID());
+            if (c != null) {
+                c.addAssignment(a);
+            }
 
-        // tie into Student
-        Student s = studentMap.get(a.getStudentID());
-        if (s != null) {
-            s.addAssignment(a.getAssignmentID());
+            // tie into Student
+            Student s = lookup(studentMap, a.getStudentID());
+            if (s != null) {
+                s.addAssignment(a.getAssignmentID());
+            }
+            fire(l -> l.assignmentPut(a));
         }
     }
 
     /// This method is used to add an assignment from a file
     public Assignment getAssignment(String id) {
-        Assignment original = assignmentMap.get(id);
-        if (original == null) return null;
-        return new Assignment(original);
+        try (CourseLocks.Held shared = locks.shared()) {
+            Assignment original = lookup(assignmentMap, id);
+            if (original == null) return null;
+            try (CourseLocks.Held held = locks.read(original.getCourseID())) {
+                return new Assignment(original);
+            }
+        }
+    }
+
+    /** Shared immutable snapshot of an assignment, or null. */
+    public AssignmentSnapshot getAssignmentSnapshot(String id) {
+        try (CourseLocks.Held shared = locks.shared()) {
+            Assignment a = lookup(assignmentMap, id);
+            if (a == null) return null;
+            // locked outside the cache: submitting invalidates the entry under the course lock
+            try (CourseLocks.Held held = locks.read(a.getCourseID())) {
+                return assignmentSnapshots.get(id, assignmentMap);
+            }
+        }
+    }
+
+    /** Shared immutable snapshots of every assignment. */
+    public Collection<AssignmentSnapshot> getAssignmentSnapshots() {
+        try (CourseLocks.Held held = readAllCourses()) {
+            return assignmentSnapshots.all(assignmentMap);
+        }
     }
 
     public Collection<Assignment> getAllAssignments() {
-        List<Assignment> copiedList = new ArrayList<>();
-        for (Assignment a : assignmentMap.values()){
-            copiedList.add(new Assignment(a));
+        try (CourseLocks.Held held = readAllCourses()) {
+            List<Assignment> copiedList = new ArrayList<>();
+            for (Assignment a : assignmentMap.values()){
+                copiedList.add(new Assignment(a));
+            }
+            return Collections.unmodifiableCollection(copiedList);
         }
-        return Collections.unmodifiableCollection(copiedList);
     }
 
+    /** Locks only the assignment's course. */
     public void submitAssignment(String assignmentID) {
-        Assignment a = assignmentMap.get(assignmentID);
-        if (a == null) {
-            throw new IllegalArgumentException("No such assignment: " + assignmentID);
+        while (true) {
+            Assignment a = lookup(assignmentMap, assignmentID);
+            if (a == null) {
+                throw new IllegalArgumentException("No such assignment: " + assignmentID);
+            }
+            try (CourseLocks.Held held = locks.write(a.getCourseID())) {
+                if (lookup(assignmentMap, assignmentID) != a) continue;   // replaced before we got the lock
+                a.submit();
+                assignmentSnapshots.invalidate(assignmentID);
+                fire(l -> l.assignmentPut(a));
+                return;
+            }
         }
-        a.submit();
     }
 
+    /**
+     * Grade a submitted assignment, or regrade it if it already has a score.
+     * A regrade locks only the assignment's course; a first grade adds a
+     * score and is structural.
+     *
+     * @return the grade ID of the assignment's score
+     * @throws IllegalStateException if the assignment has not been submitted
+     */
+    public String gradeAssignment(String assignmentID, int earned, int total) {
+        String gradeID;
+        try (CourseLocks.Held shared = locks.shared()) {
+            Assignment a = lookup(assignmentMap, assignmentID);
+            if (a == null) {
+                throw new IllegalArgumentException("No such assignment: " + assignmentID);
+            }
+            try (CourseLocks.Held held = locks.read(a.getCourseID())) {
+                gradeID = a.getGradeID();
+                if (gradeID != null && gradeMap.slotOf(gradeID) < 0) {
+                    gradeID = null;
+                }
+            }
+        }
+        if (gradeID != null) {
+            updateScore(gradeID, earned, total);
+            return gradeID;
+        }
+        try (CourseLocks.Held held = locks.exclusive()) {
+            Assignment current = lookup(assignmentMap, assignmentID);
+            if (current == null) {
+                throw new IllegalArgumentException("No such assignment: " + assignmentID);
+            }
+            if (current.getGradeID() == null) {
+                current.markGraded("G_" + assignmentID);
+                assignmentSnapshots.invalidate(assignmentID);
+                fire(l -> l.assignmentPut(current));
+            }
+            addScore(new Score(current.getGradeID(), assignmentID, current.getStudentID(), earned, total));
+            return current.getGradeID();
+        }
+    }
+
+    /** Copies of every assignment of a course, in handle order, straight from the assignment index. */
     public List<Assignment> getAssignmentsInCourse(String courseID) {
-        List<Assignment> result = new ArrayList<>();
-        for (Assignment a : assignmentMap.values()) {
-            if (a.getCourseID().equals(courseID)) {
-                result.add(a);
+        try (CourseLocks.Held shared = locks.shared()) {
+            IntList ids = assignmentIndex.inCourse(courseHandles.handleOf(courseID));
+            if (ids == null) {
+                return new ArrayList<>();
+            }
+            try (CourseLocks.Held held = locks.read(courseID)) {
+                int[] handles = ids.toArray();
+                Arrays.sort(handles);
+                List<Assignment> result = new ArrayList<>(handles.length);
+                for (int h : handles) {
+                    Assignment a = lookup(assignmentMap, assignmentHandles.idOf(h));
+                    if (a != null) {
+                        result.add(new Assignment(a));
+                    }
+                }
+                return result;
             }
         }
-        return result;
     }
 
     public void addScore(Score score) {
-        gradeMap.put(score.getGradeID(), score);
+        try (CourseLocks.Held held = locks.exclusive()) {
+            if (loadedGradeIDs != null && !gradeMap.contains(score.getGradeID())) {
+                loadedGradeIDs.add(score.getGradeID());
+            }
+            gradeMap.put(score);
+            scoreSnapshots.invalidate(score.getGradeID());
+            fire(l -> l.scorePut(score.getGradeID(), score.getAssignmentID(), score.getStudentID(),
+                    score.getEarned(), score.getTotal()));
+            if (aggregates.rescore(score.getGradeID(), score.getEarned(), score.getTotal())) {
+                return;
+            }
+            Assignment a = lookup(assignmentMap, score.getAssignmentID());
+            if (a != null && Objects.equals(score.getGradeID(), a.getGradeID())) {
+                foldScore(a);
+            }
+        }
+    }
+
+    /**
+     * Edit the points of an existing score and refresh the running totals.
+     * Locks only the course of the graded assignment.
+     */
+    public void updateScore(String gradeID, int earned, int total) {
+        try (CourseLocks.Held shared = locks.shared();
+             CourseLocks.Held held = locks.write(courseOfScore(gradeID))) {
+            if (!gradeMap.setPoints(gradeID, earned, total)) {
+                throw new IllegalArgumentException("No such score: " + gradeID);
+            }
+            scoreSnapshots.invalidate(gradeID);
+            int slot = gradeMap.slotOf(gradeID);
+            fire(l -> l.scorePut(gradeID, gradeMap.assignmentIDAt(slot), gradeMap.studentIDAt(slot), earned, total));
+            if (!aggregates.rescore(gradeID, earned, total)) {
+                Assignment a = lookup(assignmentMap, gradeMap.assignmentIDAt(slot));
+                if (a != null && gradeID.equals(a.getGradeID())) {
+                    foldScore(a);
+                }
+            }
+        }
     }
 
+    /** Course of the assignment a score belongs to, or null if unknown. */
+    private String courseOfScore(String gradeID) {
+        int slot = gradeMap.slotOf(gradeID);
+        Assignment a = (slot < 0) ? null : lookup(assignmentMap, gradeMap.assignmentIDAt(slot));
+        return (a == null) ? null : a.getCourseID();
+    }
+
+    /** Reads the score under the lock of its course, since grading rewrites the score columns. */
     public Score getScore(String gradeID) {
-        Score original = gradeMap.get(gradeID);
-        if (original == null) {
-            return null;
+        try (CourseLocks.Held shared = locks.shared();
+             CourseLocks.Held held = locks.read(courseOfScore(gradeID))) {
+            return gradeMap.get(gradeID);
+        }
+    }
+
+    /** Shared immutable snapshot of a score, or null. */
+    public ScoreSnapshot getScoreSnapshot(String gradeID) {
+        // locked outside the cache: a grading write invalidates the same entry under its course lock
+        try (CourseLocks.Held shared = locks.shared();
+             CourseLocks.Held held = locks.read(courseOfScore(gradeID))) {
+            return scoreSnapshots.get(gradeID, gradeMap::get);
+        }
+    }
+
+    /** Shared immutable snapshots of every score. */
+    public Collection<ScoreSnapshot> getScoreSnapshots() {
+        try (CourseLocks.Held held = readAllCourses()) {
+            return scoreSnapshots.all(gradeMap.gradeIDs(), gradeMap::get);
         }
-        return new Score(original);
     }
 
     public Map<String, Score> getAllScores() {
-        Map<String, Score> copiedMap = new HashMap<>();
-        for (Map.Entry<String, Score> entry : gradeMap.entrySet()) {
-            copiedMap.put(entry.getKey(), new Score(entry.getValue())); // deep copy
+        try (CourseLocks.Held held = readAllCourses()) {
+            return Collections.unmodifiableMap(gradeMap.toMap());
         }
-        return Collections.unmodifiableMap(copiedMap);
     }
 
     public List<Assignment> getAssignmentsForStudentInCourse(String studentID, String courseID) {
-        List<Assignment> result = new ArrayList<>();
-        for (Assignment a : assignmentMap.values()) {
-            if (a.getStudentID().equals(studentID) && a.getCourseID().equals(courseID)) {
+        return locks.optimisticRead(courseID, () -> assignmentsForStudentInCourse(studentID, courseID));
+    }
+
+    /** Copies of a student's assignments in a course; the caller takes care of locking. */
+    private List<Assignment> assignmentsForStudentInCourse(String studentID, String courseID) {
+        int student = studentHandles.handleOf(studentID);
+        int course = courseHandles.handleOf(courseID);
+        IntList ids = assignmentIndex.get(student, course);
+        if (ids == null) {
+            return new ArrayList<>();
+        }
+        int[] handles = ids.toArray();
+        Arrays.sort(handles);   // handle order, as the bitset gave it
+        List<Assignment> result = new ArrayList<>(handles.length);
+        for (int h : handles) {
+            CourseLocks.checkpoint();
+            Assignment a = lookup(assignmentMap, assignmentHandles.idOf(h));
+            if (a != null) {
                 result.add(new Assignment(a));
             }
         }
@@ -203,79 +779,191 @@ public class LibraryModel {
     }
 
     public Score getScoreForAssignment(String assignmentID) {
-        Assignment a = assignmentMap.get(assignmentID);
-        return (a == null || a.getGradeID() == null) ? null : new Score(gradeMap.get(a.getGradeID()));
+        try (CourseLocks.Held shared = locks.shared()) {
+            Assignment a = lookup(assignmentMap, assignmentID);
+            if (a == null) return null;
+            try (CourseLocks.Held held = locks.read(a.getCourseID())) {
+                return (a.getGradeID() == null) ? null : gradeMap.get(a.getGradeID());
+            }
+        }
     }
 
     public List<String> getStudentIDsInCourse(String courseID) {
-        // Optionally check courseMap.containsKey(courseID) first
-        return studentMap.values().stream()
-                .filter(s -> s.getEnrolledCourseIDs().contains(courseID))
-                .map(Student::getStuID)
-                .collect(Collectors.toList());
+        return locks.optimisticRead(courseID, () -> studentIDsInCourse(courseID));
     }
 
-    public void enrollStudentInCourse(String studentID, String courseID) {
-        Student s = studentMap.get(studentID);
-        if (s == null) {
-            throw new IllegalArgumentException("No such student: " + studentID);
+    /** Roster of a course in handle order; the caller takes care of locking. */
+    private List<String> studentIDsInCourse(String courseID) {
+        BitSet roster = rosterOf(courseID);
+        List<String> ids = new ArrayList<>();
+        if (roster != null) {
+            for (int h = roster.nextSetBit(0); h >= 0; h = roster.nextSetBit(h + 1)) {
+                CourseLocks.checkpoint();
+                ids.add(studentHandles.idOf(h));
+            }
         }
-        Course c = courseMap.get(courseID);
-        if (c == null) {
-            throw new IllegalArgumentException("No such course: " + courseID);
+        return ids;
+    }
+
+    public void enrollStudentInCourse(String studentID, String courseID) {
+        try (CourseLocks.Held held = locks.exclusive()) {
+            Student s = lookup(studentMap, studentID);
+            if (s == null) {
+                throw new IllegalArgumentException("No such student: " + studentID);
+            }
+            Course c = lookup(courseMap, courseID);
+            if (c == null) {
+                throw new IllegalArgumentException("No such course: " + courseID);
+            }
+            s.enrollInCourse(courseID);
+            indexEnrollment(studentID, courseID);
+            studentSnapshots.invalidate(studentID);
+            fire(l -> l.enrolled(studentID, courseID));
         }
-        s.enrollInCourse(courseID);
     }
 
 
     public void removeAssignment(String assignmentID) {
-        Assignment a = assignmentMap.remove(assignmentID);
-        if (a == null) return;
-        // detach from Course
-        Course course = courseMap.get(a.getCourseID());
-        if (course != null) {
-            course.removeAssignmentByID(assignmentID);
-        }
+        try (CourseLocks.Held held = locks.exclusive()) {
+            Assignment a = removeFrom(assignmentMap, assignmentID);
+            if (a == null) return;
+            unindexAssignment(a);
+            assignmentSnapshots.invalidate(assignmentID);
+            courseSnapshots.invalidate(a.getCourseID());
+            studentSnapshots.invalidate(a.getStudentID());
+            // detach from Course
+            Course course = lookup(courseMap, a.getCourseID());
+            if (course != null) {
+                course.removeAssignmentByID(assignmentID);
+            }
 
-        // detach from Student
-        Student student = studentMap.get(a.getStudentID());
-        if (student != null) {
-            student.removeAssignment(assignmentID);
-        }
-        String gradeID = a.getGradeID();
-        if (gradeID != null) {
-            gradeMap.remove(gradeID);
+            // detach from Student
+            Student student = lookup(studentMap, a.getStudentID());
+            if (student != null) {
+                student.removeAssignment(assignmentID);
+            }
+            String gradeID = a.getGradeID();
+            if (gradeID != null) {
+                gradeMap.remove(gradeID);
+                aggregates.remove(gradeID);
+                scoreGroups.remove(gradeID);
+                scoreSnapshots.invalidate(gradeID);
+            }
+            fire(l -> l.assignmentRemoved(assignmentID));
         }
     }
 
     public void removeStudentFromCourse(String studentID, String courseID) {
-        Student student = studentMap.get(studentID);
-        if (student != null) {
-            student.dropCourse(courseID);
+        try (CourseLocks.Held held = locks.exclusive()) {
+            Student student = lookup(studentMap, studentID);
+            if (student != null) {
+                student.dropCourse(courseID);
+                unindexEnrollment(studentID, courseID);
+                studentSnapshots.invalidate(studentID);
+                fire(l -> l.unenrolled(studentID, courseID));
+            }
         }
     }
 
 
     public void removeCourse(String courseID) {
-        // pull out and delete the Course itself
-        Course c = courseMap.remove(courseID);
-        if (c == null) return;
-        for (String aid : new ArrayList<>(c.getAssignments().keySet())) {
-            removeAssignment(aid);
+        try (CourseLocks.Held held = locks.exclusive()) {
+            loadCourse(courseID);
+            // pull out and delete the Course itself
+            Course c = removeFrom(courseMap, courseID);
+            if (c == null) return;
+            courseSnapshots.invalidate(courseID);
+            for (String aid : new ArrayList<>(c.getAssignmentIDs())) {
+                removeAssignment(aid);
+            }
+
+            //drop this course from the enrolled list of every student on its roster
+            BitSet roster = rosterOf(courseID);
+            if (roster != null) {
+                for (int h = roster.nextSetBit(0); h >= 0; h = roster.nextSetBit(h + 1)) {
+                    String sid = studentHandles.idOf(h);
+                    Student s = lookup(studentMap, sid);
+                    if (s != null) {
+                        s.dropCourse(courseID);
+                        studentSnapshots.invalidate(sid);
+                    }
+                }
+                roster.clear();
+            }
+            locks.forget(courseID);
+            fire(l -> l.courseRemoved(courseID));
         }
+    }
 
-        //drop this course from every student’s enrolled list
-        for (Student s : studentMap.values()) {
-            s.dropCourse(courseID);
+
+    // ---------- live views for the persistence formats in this package ----------
+
+    /**
+     * Lock the whole model until the handle is closed, e.g. to capture it
+     * together with the users for a save. Taken before any backend lock.
+     */
+    CourseLocks.Held lockAll() {
+        return locks.exclusive();
+    }
+
+    /**
+     * Freeze the model for saving. Only the entities changed since the last
+     * freeze are snapshotted, so writers wait for that much and no longer;
+     * the returned view is then read without the lock.
+     */
+    FrozenModel freeze() {
+        try (CourseLocks.Held held = locks.exclusive()) {
+            return new FrozenModel(this,
+                    studentSnapshots.freeze(studentMap.keySet(), studentMap::get),
+                    teacherSnapshots.freeze(teacherMap.keySet(), teacherMap::get),
+                    courseSnapshots.freeze(courseMap.keySet(), courseMap::get),
+                    assignmentSnapshots.freeze(assignmentMap.keySet(), assignmentMap::get),
+                    scoreSnapshots.freeze(gradeMap.gradeIDs(), gradeMap::get),
+                    Set.copyOf(unloadedCourses));
+        }
+    }
+
+    /** Called by {@link FrozenModel#close}. */
+    void release(FrozenModel view) {
+        try (CourseLocks.Held held = locks.exclusive()) {
+            studentSnapshots.release(view.students);
+            teacherSnapshots.release(view.teachers);
+            courseSnapshots.release(view.courses);
+            assignmentSnapshots.release(view.assignments);
+            scoreSnapshots.release(view.scores);
         }
     }
 
+    Collection<Student> studentValues() {
+        return Collections.unmodifiableCollection(studentMap.values());
+    }
+
+    Collection<Teacher> teacherValues() {
+        return Collections.unmodifiableCollection(teacherMap.values());
+    }
+
+    Collection<Course> courseValues() {
+        return Collections.unmodifiableCollection(courseMap.values());
+    }
+
+    Collection<Assignment> assignmentValues() {
+        return Collections.unmodifiableCollection(assignmentMap.values());
+    }
+
+    ScoreStore scoreStore() {
+        return gradeMap;
+    }
 
     public void initializeIDGen() {
         initPrefix("STU", studentMap.keySet());
         initPrefix("TCH", teacherMap.keySet());
         initPrefix("CRS", courseMap.keySet());
-        initPrefix("ASG", assignmentMap.keySet());
+        // students list the IDs of assignments in courses that are not loaded yet
+        Set<String> assignmentIDs = new HashSet<>(assignmentMap.keySet());
+        for (Student s : studentMap.values()) {
+            assignmentIDs.addAll(s.getAssignmentIDs());
+        }
+        initPrefix("ASG", assignmentIDs);
     }
 
     private void initPrefix(String prefix, Set<String> ids) {
@@ -299,38 +987,45 @@ public class LibraryModel {
      * @param courseID the course to populate
      */
     public void populateDemoData(String courseID) {
-        // see if the course exists
-        Course c = courseMap.get(courseID);
-        if (c == null) {
-            throw new IllegalArgumentException("Course " + courseID + " not found.");
-        }
-        //quick check
-        Teacher tch = teacherMap.get(c.getTeacherID());
-        if (tch != null && !tch.getTeachingCourseIDs().contains(courseID)) {
-            tch.addCourse(courseID);
-        }
-
-        c.setGradingMode(true);
-        c.setCategoryWeight("Homework", 0.3);
-        c.setCategoryWeight("Project",  0.4);
-        c.setCategoryWeight("Quiz",     0.3);
-        c.setCategoryDropCount("Quiz", 1);
+        try (CourseLocks.Held held = locks.exclusive()) {
+            loadCourse(courseID);
+            // see if the course exists
+            Course c = lookup(courseMap, courseID);
+            if (c == null) {
+                throw new IllegalArgumentException("Course " + courseID + " not found.");
+            }
+            //quick check
+            Teacher tch = lookup(teacherMap, c.getTeacherID());
+            if (tch != null && !tch.getTeachingCourseIDs().contains(courseID)) {
+                tch.addCourse(courseID);
+                teacherSnapshots.invalidate(tch.getTeacherID());
+                fire(l -> l.teacherPut(tch));
+            }
 
-        List<String> sids = getStudentIDsInCourse(courseID);
-        if (sids.isEmpty()) {
-            System.out.println("⚠️ No students enrolled in course " + courseID + " – skipping demo data.");
-            return;
+            c.setGradingMode(true);
+            c.setCategoryWeight("Homework", 0.3);
+            c.setCategoryWeight("Project",  0.4);
+            c.setCategoryWeight("Quiz",     0.3);
+            c.setCategoryDropCount("Quiz", 1);
+            courseSnapshots.invalidate(courseID);
+            fire(l -> l.coursePut(c));
+
+            List<String> sids = studentIDsInCourse(courseID);
+            if (sids.isEmpty()) {
+                System.out.println("⚠️ No students enrolled in course " + courseID + " – skipping demo data.");
+                return;
+            }
+            List<Student> studs = sids.stream()
+                    .map(studentMap::get)
+                    .filter(Objects::nonNull)
+                    .toList();
+            LocalDate base = LocalDate.of(2025, 4, 1);
+            createGroup("HW", 4, "Homework", 5, base, studs, courseID, 60, 100);
+            createGroup("Project", 2, "Project", 10, base, studs, courseID, 80, 120);
+            createGroup("Quiz", 3, "Quiz", 2, base, studs, courseID, 70, 100);
+
+            System.out.println("✅ Demo data populated for course " + courseID);
         }
-        List<Student> studs = sids.stream()
-                .map(studentMap::get)
-                .filter(Objects::nonNull)
-                .toList();
-        LocalDate base = LocalDate.of(2025, 4, 1);
-        createGroup("HW", 4, "Homework", 5, base, studs, courseID, 60, 100);
-        createGroup("Project", 2, "Project", 10, base, studs, courseID, 80, 120);
-        createGroup("Quiz", 3, "Quiz", 2, base, studs, courseID, 70, 100);
-
-        System.out.println("✅ Demo data populated for course " + courseID);
     }
 
     /**
@@ -357,7 +1052,8 @@ public class LibraryModel {
                         base.plusDays(span)
                 );
                 a.setCategory(category);
-                addAssignment(a);
+                Score score = null;
+                // settle the submission state before the assignment enters the model
                 if (Math.random() < 0.85) {
                     a.submit();
                     if (Math.random() < 0.75) {
@@ -366,30 +1062,39 @@ public class LibraryModel {
                         int earned = minEarned
                                 + (int)(Math.random() * (maxEarned - minEarned + 1));
 
-                        // create, init and store the Score
-                        Score score = new Score(
+                        // create and init the Score
+                        score = new Score(
                                 gradeID,
                                 a.getAssignmentID(),
                                 s.getStuID(),
                                 earned,
                                 maxEarned
                         );
-                        addScore(score);
                     }
                 }
+                addAssignment(a);
+                if (score != null) {
+                    addScore(score);
+                }
             }
         }
     }
 
 
     public double calculateClassAverage(String courseID) {
-        Course course = courseMap.get(courseID);
+        return locks.optimisticRead(courseID, () -> classAverage(courseID));
+    }
+
+    /** Mean final percentage of a course's roster; the caller takes care of locking. */
+    private double classAverage(String courseID) {
+        Course course = lookup(courseMap, courseID);
         if (course == null) return 0.0;
 
-        List<String> studentIDs = getStudentIDsInCourse(courseID);
+        List<String> studentIDs = studentIDsInCourse(courseID);
         double total = 0.0;
 
         for (String sid : studentIDs) {
+            CourseLocks.checkpoint();
             total += course.isUsingWeightedGrading()
                     ? computeWeightedPercentage(sid, courseID)
                     : computeTotalPointsPercentage(sid, courseID);
@@ -399,117 +1104,108 @@ public class LibraryModel {
     }
 
     public double calculateGPA(String studentID) {
-        Student s = studentMap.get(studentID);
+        Student s = lookup(studentMap, studentID);
         if (s == null) {
             throw new IllegalArgumentException("No such student: " + studentID);
         }
+        return summarize(s).gpa();
+    }
 
-        int totalPoints = 0, count = 0;
-        for (String courseID : s.getEnrolledCourseIDs()) {
-            Course course = courseMap.get(courseID);
-            if (course == null) continue;
-
-            double pct = course.isUsingWeightedGrading()
-                    ? computeWeightedPercentage(studentID, courseID)
-                    : computeTotalPointsPercentage(studentID, courseID);
-
-            Grade grade = Grade.fromScore(pct);
-            int gpaPoints = switch (grade) {
-                case A -> 4;
-                case B -> 3;
-                case C -> 2;
-                case D -> 1;
-                case F -> 0;
-            };
-            totalPoints += gpaPoints;
-            count++;
+    /**
+     * GPA and per-course final percentages for many students in one pass.
+     * Each (student, course) percentage is computed once and reused for both
+     * the GPA and the returned percentages. Large rosters are processed in
+     * parallel; unknown student IDs are skipped.
+     *
+     * @param studentIDs the students to summarize, e.g. a course roster
+     * @return studentID → summary, in the iteration order of studentIDs
+     */
+    public Map<String, StudentGradeSummary> calculateGradeSummaries(Collection<String> studentIDs) {
+        Stream<String> ids = studentIDs.size() >= PARALLEL_SUMMARY_THRESHOLD
+                ? studentIDs.parallelStream()
+                : studentIDs.stream();
+        List<StudentGradeSummary> summaries = ids
+                .map(studentMap::get)
+                .filter(Objects::nonNull)
+                .map(this::summarize)
+                .toList();
+
+        Map<String, StudentGradeSummary> result = new LinkedHashMap<>();
+        for (StudentGradeSummary summary : summaries) {
+            result.put(summary.studentID(), summary);
         }
-        return count == 0 ? 0.0 : (double) totalPoints / count;
+        return result;
     }
 
-    public double getOverallClassAverage(String courseID) {
-        Course course = courseMap.get(courseID);
-        if (course == null) return 0.0;
-
-        List<String> studentIDs = getStudentIDsInCourse(courseID);
-        double total = 0.0;
+    private StudentGradeSummary summarize(Student s) {
+        return locks.optimisticRead(s.getEnrolledCourseIDs(), () -> {
+            Map<String, Double> percentages = new HashMap<>();
+            int totalPoints = 0;
+            for (String courseID : s.getEnrolledCourseIDs()) {
+                CourseLocks.checkpoint();
+                Course course = lookup(courseMap, courseID);
+                if (course == null) continue;
+
+                double pct = course.isUsingWeightedGrading()
+                        ? computeWeightedPercentage(s.getStuID(), courseID)
+                        : computeTotalPointsPercentage(s.getStuID(), courseID);
+                percentages.put(courseID, pct);
+                totalPoints += gpaPoints(Grade.fromScore(pct));
+            }
+            int count = percentages.size();
+            double gpa = count == 0 ? 0.0 : (double) totalPoints / count;
+            return new StudentGradeSummary(s.getStuID(), gpa, Collections.unmodifiableMap(percentages));
+        });
+    }
 
-        for (String sid : studentIDs) {
-            total += course.isUsingWeightedGrading()
-                    ? computeWeightedPercentage(sid, courseID)
-                    : computeTotalPointsPercentage(sid, courseID);
-        }
+    private static int gpaPoints(Grade grade) {
+        return switch (grade) {
+            case A -> 4;
+            case B -> 3;
+            case C -> 2;
+            case D -> 1;
+            case F -> 0;
+        };
+    }
 
-        return studentIDs.isEmpty() ? 0.0 : total / studentIDs.size();
+    public double getOverallClassAverage(String courseID) {
+        return locks.optimisticRead(courseID, () -> classAverage(courseID));
     }
 
     public Map<String, Grade> assignFinalLetterGrades(String courseID) {
-        Map<String, Grade> result = new HashMap<>();
-        Course course = courseMap.get(courseID);
-        if (course == null) return result;
-
-        for (String sid : getStudentIDsInCourse(courseID)) {
-            double pct = course.isUsingWeightedGrading()
-                    ? computeWeightedPercentage(sid, courseID)
-                    : computeTotalPointsPercentage(sid, courseID);
-            String name = studentMap.get(sid).getFullName();
-            result.put(name, Grade.fromScore(pct));
-        }
-        return result;
+        return locks.optimisticRead(courseID, () -> {
+            Map<String, Grade> result = new HashMap<>();
+            Course course = lookup(courseMap, courseID);
+            if (course == null) return result;
+
+            for (String sid : studentIDsInCourse(courseID)) {
+                CourseLocks.checkpoint();
+                double pct = course.isUsingWeightedGrading()
+                        ? computeWeightedPercentage(sid, courseID)
+                        : computeTotalPointsPercentage(sid, courseID);
+                String name = lookup(studentMap, sid).getFullName();
+                result.put(name, Grade.fromScore(pct));
+            }
+            return result;
+        });
     }
 
     private double computeTotalPointsPercentage(String studentID, String courseID) {
-        List<Assignment> assignments = getAssignmentsForStudentInCourse(studentID, courseID);
-        int earned = 0, total = 0;
-
-        for (Assignment a : assignments) {
-            Score s = getScoreForAssignment(a.getAssignmentID());
-            if (s != null) {
-                earned += s.getEarned();
-                total += s.getTotal();
-            }
-        }
-        return total == 0 ? 0.0 : (100.0 * earned / total);
+        return aggregates.getPercentage(studentID, courseID);
     }
 
     private double computeWeightedPercentage(String studentID, String courseID) {
-        Course course = courseMap.get(courseID);
+        Course course = lookup(courseMap, courseID);
         if (course == null) return 0.0;
-
-        Map<String, List<Score>> byCategory = new HashMap<>();
-
-        for (Assignment a : getAssignmentsForStudentInCourse(studentID, courseID)) {
-            if (a.getGradeID() == null) continue;
-            Score s = getScoreForAssignment(a.getAssignmentID());
-            if (s == null) continue;
-
-            String cat = a.getCategory();
-            byCategory.putIfAbsent(cat, new ArrayList<>());
-            byCategory.get(cat).add(s);
-        }
-
-        double weightedTotal = 0.0;
-
-        for (String cat : course.getCategoryWeights().keySet()) {
-            List<Score> scores = byCategory.getOrDefault(cat, new ArrayList<>());
-            scores.sort(Comparator.comparingDouble(Score::getPercentage)); // low → high
-            int drop = course.getDropCountForCategory(cat);
-            if (drop >= scores.size()) continue;
-
-            List<Score> used = scores.subList(drop, scores.size());
-            int earned = used.stream().mapToInt(Score::getEarned).sum();
-            int total = used.stream().mapToInt(Score::getTotal).sum();
-            if (total > 0) {
-                double pct = 1.0 * earned / total;
-                double weight = course.getCategoryWeight(cat);
-                weightedTotal += pct * weight;
-            }
-        }
-
-        return weightedTotal * 100.0; // final percent
+        return aggregates.getWeightedPercentage(studentID, courseID, course);
     }
+
     public double getFinalPercentage(String studentID, String courseID) {
-        Course c = courseMap.get(courseID);
+        return locks.optimisticRead(courseID, () -> finalPercentage(studentID, courseID));
+    }
+
+    private double finalPercentage(String studentID, String courseID) {
+        Course c = lookup(courseMap, courseID);
         if (c == null) return 0.0;
         return c.isUsingWeightedGrading()
                 ? computeWeightedPercentage(studentID, courseID)
@@ -517,64 +1213,81 @@ public class LibraryModel {
     }
 
     public void setGradingMode(String courseID, boolean weighted) {
-        Course c = courseMap.get(courseID);
-        if (c != null) c.setGradingMode(weighted);
+        try (CourseLocks.Held held = locks.write(courseID)) {
+            Course c = lookup(courseMap, courseID);
+            if (c != null) {
+                c.setGradingMode(weighted);
+                courseSnapshots.invalidate(courseID);
+                fire(l -> l.coursePut(c));
+            }
+        }
     }
 
     public void setCategoryWeight(String courseID, String category, double weight) {
-        Course c = courseMap.get(courseID);
-        if (c != null) c.setCategoryWeight(category, weight);
+        try (CourseLocks.Held held = locks.write(courseID)) {
+            Course c = lookup(courseMap, courseID);
+            if (c != null) {
+                c.setCategoryWeight(category, weight);
+                courseSnapshots.invalidate(courseID);
+                fire(l -> l.coursePut(c));
+            }
+        }
     }
 
     public void setCategoryDrop(String courseID, String category, int drop) {
-        Course c = courseMap.get(courseID);
-        if (c != null) c.setCategoryDropCount(category, drop);
+        try (CourseLocks.Held held = locks.write(courseID)) {
+            Course c = lookup(courseMap, courseID);
+            if (c != null) {
+                c.setCategoryDropCount(category, drop);
+                courseSnapshots.invalidate(courseID);
+                fire(l -> l.coursePut(c));
+            }
+        }
     }
 
     public double getAveragePercentageForGroup(String courseID, String assignmentName) {
-        List<Assignment> all = getAssignmentsInCourse(courseID);
-        List<Double> percentages = all.stream()
-                .filter(a -> assignmentName.equals(a.getAssignmentName()))
-                .map(a -> {
-                    Score s = getScoreForAssignment(a.getAssignmentID());
-                    return (s == null) ? null : s.getPercentage();
-                })
-                .filter(Objects::nonNull)
-                .toList();
-
-        if (percentages.isEmpty()) return 0.0;
-        return percentages.stream().mapToDouble(Double::doubleValue).average().orElse(0.0);
+        return locks.optimisticRead(courseID, () -> {
+            IntList slots = scoreGroups.slots(courseID, assignmentName);
+            if (slots == null || slots.isEmpty()) return 0.0;
+            double sum = 0.0;
+            for (int i = 0; i < slots.size(); i++) {
+                CourseLocks.checkpoint();
+                sum += gradeMap.percentageAt(slots.get(i));
+            }
+            return sum / slots.size();
+        });
     }
 
     public double getMedianPercentageForGroup(String courseID, String assignmentName) {
-        List<Assignment> all = getAssignmentsInCourse(courseID);
-        List<Double> sorted = all.stream()
-                .filter(a -> assignmentName.equals(a.getAssignmentName()))
-                .map(a -> {
-                    Score s = getScoreForAssignment(a.getAssignmentID());
-                    return (s == null) ? null : s.getPercentage();
-                })
-                .filter(Objects::nonNull)
-                .sorted()
-                .toList();
-
-        if (sorted.isEmpty()) return 0.0;
-        int mid = sorted.size() / 2;
-        return (sorted.size() % 2 == 1)
-                ? sorted.get(mid)
-                : (sorted.get(mid - 1) + sorted.get(mid)) / 2.0;
+        return locks.optimisticRead(courseID, () -> {
+            IntList slots = scoreGroups.slots(courseID, assignmentName);
+            if (slots == null || slots.isEmpty()) return 0.0;
+            double[] sorted = new double[slots.size()];
+            for (int i = 0; i < sorted.length; i++) {
+                CourseLocks.checkpoint();
+                sorted[i] = gradeMap.percentageAt(slots.get(i));
+            }
+            Arrays.sort(sorted);
+            int mid = sorted.length / 2;
+            return (sorted.length % 2 == 1)
+                    ? sorted[mid]
+                    : (sorted[mid - 1] + sorted[mid]) / 2.0;
+        });
     }
 
-
     public void markCourseAsCompleted(String courseID) {
-        Course course = courseMap.get(courseID);
-        if (course != null) {
-            course.markCompleted();
+        try (CourseLocks.Held held = locks.write(courseID)) {
+            Course course = lookup(courseMap, courseID);
+            if (course != null) {
+                course.markCompleted();
+                courseSnapshots.invalidate(courseID);
+                fire(l -> l.coursePut(course));
+            }
         }
     }
 
     public List<String> getStudentCourses(String studentID) {
-        Student s = studentMap.get(studentID);
+        Student s = lookup(studentMap, studentID);
         if (s == null) {
             // No such student → empty list
             return Collections.emptyList();
@@ -587,59 +1300,65 @@ public class LibraryModel {
      * Build a plain-text grade report for one student
      */
     public String buildGradeReport(String studentID) {
-        Student s = studentMap.get(studentID);
+        Student s = lookup(studentMap, studentID);
         if (s == null) {
             throw new IllegalArgumentException("No such student: " + studentID);
         }
+        return locks.optimisticRead(s.getEnrolledCourseIDs(), () -> {
+            StringBuilder sb = new StringBuilder();
+            sb.append("Grade report for ")
+                    .append(s.getFullName())
+                    .append(":\n");
+
+            for (String courseID : s.getEnrolledCourseIDs()) {
+                CourseLocks.checkpoint();
+                Course c = lookup(courseMap, courseID);
+                if (c == null) continue;
+
+                double pct = finalPercentage(studentID, courseID);
+                Grade  g   = Grade.fromScore(pct);
+
+                sb.append("  • ")
+                        .append(c.getCourseName())
+                        .append(" – ")
+                        .append(String.format("%.1f%%", pct))
+                        .append(" (")
+                        .append(g)
+                        .append(")\n");
+            }
 
-        StringBuilder sb = new StringBuilder();
-        sb.append("Grade report for ")
-                .append(s.getFullName())
-                .append(":\n");
-
-        for (String courseID : s.getEnrolledCourseIDs()) {
-            Course c = courseMap.get(courseID);
-            if (c == null) continue;
-
-            double pct = getFinalPercentage(studentID, courseID);
-            Grade  g   = Grade.fromScore(pct);
-
-            sb.append("  • ")
-                    .append(c.getCourseName())
-                    .append(" – ")
-                    .append(String.format("%.1f%%", pct))
+            double overall = averageAcrossAll(s, false);
+            sb.append("Overall average: ")
+                    .append(String.format("%.1f%%", overall))
                     .append(" (")
-                    .append(g)
+                    .append(Grade.fromScore(overall))
                     .append(")\n");
-        }
 
-        double overall = courseAverageAcrossAll(studentID, false);
-        sb.append("Overall average: ")
-                .append(String.format("%.1f%%", overall))
-                .append(" (")
-                .append(Grade.fromScore(overall))
-                .append(")\n");
-
-        return sb.toString();
+            return sb.toString();
+        });
     }
     /**
      * Average of the final percentage for every course the student is enrolled in.
      */
     public double courseAverageAcrossAll(String stuID, boolean completedOnly) {
-        Student s = studentMap.get(stuID);
+        Student s = lookup(studentMap, stuID);
         if (s == null) {
             // no such student → no data → average zero
             return 0.0;
         }
+        return locks.optimisticRead(s.getEnrolledCourseIDs(), () -> averageAcrossAll(s, completedOnly));
+    }
 
+    private double averageAcrossAll(Student s, boolean completedOnly) {
         double total   = 0.0;
         int    counted = 0;
         for (String cid : s.getEnrolledCourseIDs()) {
-            Course c = courseMap.get(cid);
+            CourseLocks.checkpoint();
+            Course c = lookup(courseMap, cid);
             if (c == null) continue;
             if (completedOnly && !c.isCompleted()) continue;
 
-            total   += getFinalPercentage(stuID, cid);
+            total   += finalPercentage(s.getStuID(), cid);
             counted++;
         }
         return counted == 0 ? 0.0 : total / counted;
@@ -7,13 +7,21 @@ import java.io.IOException;
 import java.io.Reader;
 import java.io.Writer;
 import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.stream.Collectors;
 
-import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 
 public class LibraryUsers {
 
@@ -21,6 +29,13 @@ public class LibraryUsers {
 
     // key: username
     private final Map<String, LibraryUser> users = new HashMap<>();
+    private static final Type USERS_TYPE = new TypeToken<Map<String, LibraryUser>>() {}.getType();
+
+    // told about every change to the user table, e.g. by the write-ahead journal and the autosave
+    private transient List<MutationListener> mutationListeners = new CopyOnWriteArrayList<>();
+
+    // who is logged in; never persisted
+    private final transient SessionManager sessions = new SessionManager();
 
     /**
      * instance of LibraryUser
@@ -53,14 +68,101 @@ public class LibraryUsers {
         }
     }
 
-    public void clearAllUsers() {
+    /** Register the adapter for the private user class (see {@link GsonSupport}). */
+    static GsonBuilder registerTypeAdapters(GsonBuilder builder) {
+        return builder.registerTypeAdapter(LibraryUser.class, new UserAdapter().nullSafe());
+    }
+
+    /** Streams a LibraryUser field by field, in declaration order, without reflection. */
+    private static class UserAdapter extends TypeAdapter<LibraryUser> {
+        @Override
+        public void write(JsonWriter out, LibraryUser u) throws IOException {
+            out.beginObject();
+            out.name("username").value(u.username);
+            out.name("encryptedPassword").value(u.encryptedPassword);
+            out.name("firstName").value(u.firstName);
+            out.name("lastName").value(u.lastName);
+            out.name("email").value(u.email);
+            out.name("type").value(u.type == null ? null : u.type.name());
+            out.name("objectID").value(u.objectID);
+            out.endObject();
+        }
+
+        @Override
+        public LibraryUser read(JsonReader in) throws IOException {
+            LibraryUser u = new LibraryUser();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "username" -> u.username = GsonSupport.readString(in);
+                    case "encryptedPassword" -> u.encryptedPassword = GsonSupport.readString(in);
+                    case "firstName" -> u.firstName = GsonSupport.readString(in);
+                    case "lastName" -> u.lastName = GsonSupport.readString(in);
+                    case "email" -> u.email = GsonSupport.readString(in);
+                    case "type" -> {
+                        String t = GsonSupport.readString(in);
+                        u.type = (t == null) ? null : UserType.valueOf(t);
+                    }
+                    case "objectID" -> u.objectID = GsonSupport.readString(in);
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return u;
+        }
+    }
+
+    /** Flat copy of one user, for persistence formats that do not go through Gson. */
+    record UserRecord(String username, String encryptedPassword, String firstName,
+                      String lastName, String email, UserType type, String objectID) { }
+
+    /** Every user as a flat record (used by {@link DataStoreSnapshot}). */
+    synchronized List<UserRecord> exportUsers() {
+        List<UserRecord> out = new ArrayList<>(users.size());
+        for (LibraryUser u : users.values()) {
+            out.add(new UserRecord(u.username, u.encryptedPassword, u.firstName,
+                    u.lastName, u.email, u.type, u.objectID));
+        }
+        return out;
+    }
+
+    /** Add users previously produced by {@link #exportUsers()}, replacing same-named ones. */
+    synchronized void importUsers(Collection<UserRecord> records) {
+        for (UserRecord r : records) {
+            LibraryUser u = new LibraryUser(r.username(), r.encryptedPassword(), r.firstName(),
+                    r.lastName(), r.email(), r.type());
+            u.objectID = r.objectID();
+            users.put(r.username(), u);
+        }
+    }
+
+    /** Register a listener that is told about every change to the user table from now on. */
+    public void addMutationListener(MutationListener listener) {
+        mutationListeners.add(listener);
+    }
+
+    public void removeMutationListener(MutationListener listener) {
+        mutationListeners.remove(listener);
+    }
+
+    private void userChanged(LibraryUser u) {
+        UserRecord record = new UserRecord(u.username, u.encryptedPassword, u.firstName,
+                u.lastName, u.email, u.type, u.objectID);
+        for (MutationListener l : mutationListeners) {
+            l.userPut(record);
+        }
+    }
+
+    public synchronized void clearAllUsers() {
         users.clear();
+        sessions.clear();
+        mutationListeners.forEach(MutationListener::usersCleared);
     }
 
     /** 
      * Registers a user by saving login information and basic details without creating an entity 
      */
-    public boolean registerUser(String username,
+    public synchronized boolean registerUser(String username,
                                 String password,
                                 String firstName,
                                 String lastName,
@@ -68,33 +170,100 @@ public class LibraryUsers {
                                 UserType type,
                                 VICData vic) {
         if (users.containsKey(username)) return false;
-        String encrypted = EncryptVIC.encrypt(password, vic);
-        users.put(username,
-                new LibraryUser(username, encrypted, firstName, lastName, email, type));
+        String encrypted = vic.cipher().encrypt(password);
+        LibraryUser u = new LibraryUser(username, encrypted, firstName, lastName, email, type);
+        users.put(username, u);
+        userChanged(u);
         return true;
     }
 
+    /** One student row of a bulk import; the email doubles as the username. */
+    record NewStudent(String firstName, String lastName, String email) { }
+
+    /**
+     * Registers every row as a STUDENT user with its own {@link Student}, all
+     * with the same already encrypted password. The users and model locks are
+     * taken once for the whole batch. Rows whose email is already a username
+     * are skipped.
+     *
+     * @return the emails that were skipped
+     */
+    synchronized Set<String> registerStudents(Collection<NewStudent> rows,
+                                              String encryptedPassword,
+                                              LibraryModel model) {
+        Set<String> skipped = new HashSet<>();
+        try (CourseLocks.Held locked = model.lockAll()) {
+            for (NewStudent r : rows) {
+                if (users.containsKey(r.email())) {
+                    skipped.add(r.email());
+                    continue;
+                }
+                LibraryUser u = new LibraryUser(r.email(), encryptedPassword, r.firstName(),
+                        r.lastName(), r.email(), UserType.STUDENT);
+                Student s = new Student(r.firstName(), r.lastName(), r.email());
+                model.addStudent(s);
+                u.objectID = s.getStuID();
+                users.put(u.username, u);
+                userChanged(u);
+            }
+        }
+        return skipped;
+    }
+
     /** 
      * Authenticates a user by checking the username and password
      */
     public boolean authenticate(String username, String inputPassword, VICData vic) {
-        LibraryUser u = users.get(username);
-        return u != null && EncryptVIC.encrypt(inputPassword, vic).equals(u.encryptedPassword);
+        String encrypted = vic.cipher().encrypt(inputPassword);   // the slow part, outside the monitor
+        synchronized (this) {
+            LibraryUser u = users.get(username);
+            return u != null && encrypted.equals(u.encryptedPassword);
+        }
+    }
+
+    /**
+     * Authenticates a user and opens a session for it. The check and the
+     * session are made under the monitor, so a concurrent {@link #assignRole}
+     * either sees the session (and ends it) or the session gets the new role.
+     * @return the session token, or null if the username or password is wrong
+     */
+    public String login(String username, String inputPassword, VICData vic) {
+        String encrypted = vic.cipher().encrypt(inputPassword);
+        synchronized (this) {
+            LibraryUser u = users.get(username);
+            if (u == null || !encrypted.equals(u.encryptedPassword)) return null;
+            return sessions.issue(username, u.type);
+        }
+    }
+
+    /** The live session of a token, or null if it is unknown or expired */
+    SessionManager.Session session(String token) {
+        return sessions.validate(token);
+    }
+
+    /** Whether the token belongs to a live session with the given role */
+    public boolean hasRole(String token, UserType type) {
+        SessionManager.Session s = sessions.validate(token);
+        return s != null && s.type() == type;
+    }
+
+    public void logout(String token) {
+        sessions.invalidate(token);
     }
 
     /** 
      * Retrieves the user role based on the username 
      */
-    public UserType getUserType(String username) {
+    public synchronized UserType getUserType(String username) {
         LibraryUser u = users.get(username);
         return u != null ? u.type : null;
     }
 
-    public boolean userExists(String username) {
+    public synchronized boolean userExists(String username) {
         return users.containsKey(username);
     }
 
-    public boolean superAdminExists() {
+    public synchronized boolean superAdminExists() {
         return users.values().stream()
                 .anyMatch(u -> u.type == UserType.SUPERADMIN);
     }
@@ -102,12 +271,13 @@ public class LibraryUsers {
     /**
      * Assigns a role to a user and creates an entity if necessary, recording the objectID
      */
-    public boolean assignRole(String username,
+    public synchronized boolean assignRole(String username,
                               UserType newType,
                               LibraryModel model) {
         LibraryUser u = users.get(username);
         if (u == null || u.type == UserType.SUPERADMIN) return false;
         u.type = newType;
+        sessions.invalidateUser(username);   // their sessions still carry the old role
 
         switch (newType) {
             case STUDENT -> {
@@ -122,13 +292,14 @@ public class LibraryUsers {
             }
             default -> {}
         }
+        userChanged(u);
         return true;
     }
 
     /** 
      * Retrieves the objectID of a user during login 
      */
-    public String getObjectID(String username) {
+    public synchronized String getObjectID(String username) {
         LibraryUser u = users.get(username);
         return u == null ? null : u.objectID;
     }
@@ -136,7 +307,7 @@ public class LibraryUsers {
     /** 
      * Lists all users and their roles for AdminUI display 
      */
-    public Map<String, UserType> listAllUsers() {
+    public synchronized Map<String, UserType> listAllUsers() {
         return users.entrySet().stream()
                 .collect(Collectors.toMap(
                         Map.Entry::getKey,
@@ -148,10 +319,9 @@ public class LibraryUsers {
      * Saves user data to a JSON file 
      * @param path the file path where user data will be saved
      */
-    public void saveToJSON(String path) {
+    public synchronized void saveToJSON(String path) {
         try (Writer writer = new FileWriter(path)) {
-            Gson gson = new GsonBuilder().setPrettyPrinting().create();
-            gson.toJson(users, writer);
+            GsonSupport.GSON.toJson(users, USERS_TYPE, writer);
         } catch (IOException e) {
             System.err.println("❌ Failed to save user info: " + e.getMessage());
         }
@@ -161,16 +331,14 @@ public class LibraryUsers {
      * Loads user data from a JSON file 
      * @param path the file path from which user data will be loaded
      */
-    public void loadFromJSON(String path) {
+    public synchronized void loadFromJSON(String path) {
         File file = new File(path);
         if (!file.exists()) {
             System.out.println("⚠️ User data file not found, stop loading.");
             return;
         }
         try (Reader reader = new FileReader(file)) {
-            Gson gson = new Gson();
-            Type type = new TypeToken<Map<String, LibraryUser>>() {}.getType();
-            Map<String, LibraryUser> loaded = gson.fromJson(reader, type);
+            Map<String, LibraryUser> loaded = GsonSupport.GSON.fromJson(reader, USERS_TYPE);
             if (loaded != null) {
                 users.clear();
                 users.putAll(loaded);
@@ -1,22 +1,11 @@
 package org.fp;
 
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.Reader;
-import java.io.Writer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.time.LocalDate;
 import java.util.Scanner;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.JsonDeserializer;
-import com.google.gson.JsonPrimitive;
-import com.google.gson.JsonSerializer;
-
 import io.github.cdimascio.dotenv.Dotenv;
 
 public class LoginUI {
@@ -24,7 +13,23 @@ public class LoginUI {
 
     // Singleton DataStore
     private static DataStore ds = new DataStore();
+    private static final Path DATA_DIR = Paths.get("data");
+    // where the store lives: "shards" (default), "json", "kv" or "sql", set by STORAGE_BACKEND
+    private static StorageBackend backend;
+    // single-file snapshot from before the sharded layout, imported once
+    private static final Path SNAPSHOT_PATH = Paths.get("data/datastore.bin");
+    // JSON stays available for import when no store exists yet; it is also the json backend's live file
     private static final Path STORE_PATH = Paths.get("data/datastore.json");
+    // option 4 writes here, so an export never overwrites the store it was taken from
+    private static final Path EXPORT_PATH = Paths.get("data/export.json");
+    private static final Path JOURNAL_DIR = Paths.get("data/journal");
+    private static final long AUTOSAVE_INTERVAL_MILLIS = 5_000;
+    // write-ahead journal; null if it could not be opened or the backend writes through
+    private static MutationJournal journal;
+    // writes the snapshot in the background after changes
+    private static AutosaveService autosave;
+    // JSON API for many clients at once; only started when HTTP_PORT is set
+    private static GradebookServer api;
 
     public static void main(String[] args) {
         // Ensure the data directory exists
@@ -35,10 +40,6 @@ public class LoginUI {
             return;
         }
 
-        // Ensure the data directory exists
-        ds = loadDataStore();  // load or create a new DataStore
-        ds.model.initializeIDGen();
-
         // Load environment variables
         Dotenv env = Dotenv.configure().ignoreIfMissing().load();
         VICData vic = new VICData(
@@ -49,20 +50,52 @@ public class LoginUI {
                 ""
         );
 
+        // Load the store
+        String backendName = env.get("STORAGE_BACKEND", "shards");
+        try {
+            backend = StorageBackend.forName(backendName, DATA_DIR);
+            ds = openStore();  // shards: only the index is read; courses load when first opened
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("❌ Failed to open the " + backendName + " store: " + e.getMessage());
+            return;
+        }
+        if (!backend.writesThrough()) {
+            try {
+                journal = MutationJournal.open(JOURNAL_DIR, backend::save, ds);  // replays changes a crash left behind
+            } catch (IOException e) {
+                System.err.println("⚠️ Journal unavailable, changes are only kept by the autosave: " + e.getMessage());
+            }
+        }
+        ds.model.initializeIDGen();
+        autosave = AutosaveService.start(ds, LoginUI::saveDataStore, AUTOSAVE_INTERVAL_MILLIS);
+        String httpPort = env.get("HTTP_PORT", null);
+        if (httpPort != null) {
+            try {
+                api = GradebookServer.start(ds, vic, Integer.parseInt(httpPort.trim()));
+                System.out.println("🌐 JSON API listening on port " + api.port());
+            } catch (IOException | NumberFormatException e) {
+                System.err.println("⚠️ JSON API not started on port " + httpPort + ": " + e.getMessage());
+            }
+        }
+
         // Main loop
         boolean running = true;
         while (running) {
-            System.out.println("1) Register  2) Login  3) Exit");
+            System.out.println("1) Register  2) Login  3) Exit  4) Export JSON");
             System.out.print("👉 Choice: ");
             String choice = sc.nextLine().trim();
             switch (choice) {
                 case "1" -> doRegister(vic);
                 case "2" -> doLogin(vic);
                 case "3" -> {
-                    saveDataStore();
+                    if (api != null) api.close();  // no more changes from clients
+                    autosave.close();  // final save
+                    if (journal != null) journal.close();
+                    closeStore();
                     running = false;
                 }
-                default  -> System.out.println("❌ Invalid option, please enter '1', '2', or '3'");
+                case "4" -> exportDataStore();
+                default  -> System.out.println("❌ Invalid option, please enter '1', '2', '3', or '4'");
             }
         }
     }
@@ -96,9 +129,10 @@ public class LoginUI {
 
         if (ds.users.registerUser(u, p, fn, ln, em, type, vic)) {
             System.out.println("✅ register success：" + type);
-            saveDataStore();
             if (type == LibraryUsers.UserType.SUPERADMIN) {
-                AdminUI.start(ds.users, vic, ds.model);
+                String session = ds.users.login(u, p, vic);
+                AdminUI.start(ds.users, session, vic, ds.model, autosave);
+                ds.users.logout(session);
             }
         } else {
             System.out.println("❌ Registration failed");
@@ -111,7 +145,8 @@ public class LoginUI {
         System.out.print("Password：");
         String password = sc.nextLine().trim();
 
-        if (!ds.users.authenticate(username, password, vic)) {
+        String session = ds.users.login(username, password, vic);
+        if (session == null) {
             System.out.println("❌ Invalid username or password");
             return;
         }
@@ -123,30 +158,58 @@ public class LoginUI {
 
         if (role == LibraryUsers.UserType.UNASSIGNED) {
             System.out.println("❌ This account has not been assigned a role by a super admin, please contact the administrator.");
+            ds.users.logout(session);
             return;
         }
 
         switch (role) {
             case SUPERADMIN ->
-                    AdminUI.start(ds.users, vic, ds.model);
+                    AdminUI.start(ds.users, session, vic, ds.model, autosave);
             case TEACHER   ->
                     TeacherUI.start(ds.model, objectID);
             case STUDENT   ->
                     StudentUI.start(ds.model, objectID);
             default       -> { }
         }
+        ds.users.logout(session);
+    }
+
+    /** Open the backend's store, or build it once from datastore.bin / datastore.json */
+    private static DataStore openStore() throws IOException {
+        if (backend.exists()) {
+            return backend.open();
+        }
+        DataStore imported = loadDataStore();
+        backend.adopt(imported);
+        return imported;
+    }
+
+    private static void closeStore() {
+        try {
+            backend.close();
+        } catch (IOException e) {
+            System.err.println("❌ Closing the store failed: " + e.getMessage());
+        }
     }
 
-    /** load or create DataStore */
+    /** load or create DataStore: binary snapshot first, then a JSON import */
     private static DataStore loadDataStore() {
+        if (Files.exists(SNAPSHOT_PATH)) {
+            try {
+                return DataStoreSnapshot.read(SNAPSHOT_PATH);
+            } catch (IOException e) {
+                System.err.println("⚠️ Loading datastore.bin failed, trying datastore.json: " + e.getMessage());
+            }
+        }
         if (Files.exists(STORE_PATH)) {
-            try (Reader r = new FileReader(STORE_PATH.toFile())) {
-                Gson gson = createGson();
-                DataStore loaded = gson.fromJson(r, DataStore.class);
-                if (loaded != null) {
-                    return loaded;
-                }
+            try {
+                DataStoreLoader loader = new DataStoreLoader((read, total) ->
+                        System.out.print("\r⏳ Loading datastore... " + (total == 0 ? 100 : 100 * read / total) + "%"));
+                DataStore loaded = loader.load(STORE_PATH);
+                System.out.println();
+                return loaded;
             } catch (IOException e) {
+                System.out.println();
                 System.err.println("⚠️ Loading datastore.json failed, using new instance: " + e.getMessage());
             }
         }
@@ -154,26 +217,23 @@ public class LoginUI {
         return new DataStore();
     }
 
-    /** Save the current DataStore to JSON */
-    private static void saveDataStore() {
-        try (Writer w = new FileWriter(STORE_PATH.toFile())) {
-            Gson gson = createGson();
-            gson.toJson(ds, w);
-        } catch (IOException e) {
-            System.err.println("❌ Saving datastore.json failed: " + e.getMessage());
+    /** Save through the backend (and fold the journal into it); runs on the autosave thread */
+    private static void saveDataStore() throws IOException {
+        if (journal != null) {
+            journal.checkpoint();
+        } else {
+            backend.save();
         }
     }
 
-    /** Construct Gson that supports LocalDate */
-    private static Gson createGson() {
-        GsonBuilder builder = new GsonBuilder().setPrettyPrinting();
-        // LocalDate serialization/deserialization
-        builder.registerTypeAdapter(LocalDate.class,
-                (JsonSerializer<LocalDate>) (src, typeOfSrc, ctx) -> new JsonPrimitive(src.toString()));
-        builder.registerTypeAdapter(LocalDate.class,
-                (JsonDeserializer<LocalDate>) (json, type, ctx) -> LocalDate.parse(json.getAsString()));
-        return builder.create();
+    /** Export a consistent copy of the current DataStore to JSON */
+    private static void exportDataStore() {
+        try {
+            JsonFileBackend.write(ds, EXPORT_PATH);
+            System.out.println("✅ Exported to " + EXPORT_PATH);
+        } catch (IOException e) {
+            System.err.println("❌ Saving " + EXPORT_PATH + " failed: " + e.getMessage());
+        }
     }
 
-
 }
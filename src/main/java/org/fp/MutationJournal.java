@@ -0,0 +1,678 @@
+package org.fp;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead journal of every {@link LibraryModel} and {@link LibraryUsers}
+ * mutation, so a crash between two snapshots loses nothing.
+ * <p>
+ * Each mutation becomes one compact record {@code [int length][int crc32][payload]}
+ * appended to the current segment file ({@code journal-000001.log}, ...).
+ * A single writer thread commits records in groups: whatever queued up while
+ * the previous fsync ran is written and forced together. A caller queues its
+ * record while the model still holds its locks and waits for the fsync only
+ * after letting go of them (see {@link CourseLocks#whenUnlocked}), so a slow
+ * disk never makes other threads wait for a course. If the journal cannot be
+ * written, or is already closed, that wait throws {@link UncheckedIOException}
+ * and every later change fails the same way.
+ * <p>
+ * On {@link #open}, the segments left behind by an earlier run are replayed
+ * into the freshly loaded store and folded into the snapshot right away.
+ * While running, a background compactor checkpoints once the journal has
+ * grown past a threshold: it seals the current segment, saves the live store
+ * and deletes the sealed segments.
+ */
+class MutationJournal implements MutationListener, AutoCloseable {
+
+    /** Writes the live store to the snapshot the journal is folded into. */
+    @FunctionalInterface
+    interface SnapshotWriter {
+        void save() throws IOException;
+    }
+
+    private static final long COMPACT_THRESHOLD_BYTES = 8L * 1024 * 1024;
+    private static final long COMPACT_INTERVAL_SECONDS = 60;
+
+    // record types
+    private static final byte STUDENT_PUT = 1;
+    private static final byte STUDENT_REMOVE = 2;
+    private static final byte TEACHER_PUT = 3;
+    private static final byte COURSE_PUT = 4;
+    private static final byte COURSE_REMOVE = 5;
+    private static final byte ASSIGNMENT_PUT = 6;
+    private static final byte ASSIGNMENT_REMOVE = 7;
+    private static final byte SCORE_PUT = 8;
+    private static final byte ENROLL = 9;
+    private static final byte UNENROLL = 10;
+    private static final byte MODEL_CLEAR = 11;
+    private static final byte USER_PUT = 12;
+    private static final byte USERS_CLEAR = 13;
+
+    private final Path dir;
+    private final SnapshotWriter snapshot;
+    private final DataStore ds;
+
+    // group commit state, guarded by lock
+    private final Object lock = new Object();
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private long appendedSeq = 0;
+    private long durableSeq = 0;
+    private boolean writing = false;
+    private boolean closed = false;
+    // set when a write or fsync fails; nothing is recorded after that
+    private IOException failure;
+    private FileChannel channel;
+    private int segment;
+
+    // held while a snapshot is written and folded segments are deleted
+    private final Object compactionLock = new Object();
+
+    private final Thread writer;
+    private final ScheduledExecutorService compactor;
+
+    // per thread: the highest sequence number it queued and still has to wait for
+    private final ThreadLocal<long[]> owed = ThreadLocal.withInitial(() -> new long[1]);
+
+    private MutationJournal(Path dir, SnapshotWriter snapshot, DataStore ds, int segment) throws IOException {
+        this.dir = dir;
+        this.snapshot = snapshot;
+        this.ds = ds;
+        this.segment = segment;
+        this.channel = openSegment(segment);
+        this.writer = new Thread(this::writeLoop, "journal-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+        this.compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "journal-compactor");
+            t.setDaemon(true);
+            return t;
+        });
+        this.compactor.scheduleWithFixedDelay(this::compactQuietly,
+                COMPACT_INTERVAL_SECONDS, COMPACT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /** {@link #open(Path, SnapshotWriter, DataStore)} for a single-file snapshot. */
+    public static MutationJournal open(Path dir, Path snapshotPath, DataStore ds) throws IOException {
+        if (!Files.exists(snapshotPath)) {
+            DataStoreSnapshot.save(ds, snapshotPath);
+        }
+        return open(dir, () -> DataStoreSnapshot.save(ds, snapshotPath), ds);
+    }
+
+    /**
+     * Replay the journal in {@code dir} into the freshly loaded store, make
+     * sure the snapshot contains everything, and start journaling every
+     * further mutation of the store.
+     */
+    public static MutationJournal open(Path dir, SnapshotWriter snapshot, DataStore ds) throws IOException {
+        Files.createDirectories(dir);
+        List<Path> leftover = segments(dir);
+        if (!leftover.isEmpty()) {
+            ds.model.loadAllCourses();   // records may touch any course
+        }
+        for (int i = 0; i < leftover.size(); i++) {
+            long valid = replay(leftover.get(i), ds);
+            if (i == leftover.size() - 1 && valid < Files.size(leftover.get(i))) {
+                // torn tail from a crash mid-append; drop it
+                try (FileChannel ch = FileChannel.open(leftover.get(i), StandardOpenOption.WRITE)) {
+                    ch.truncate(valid);
+                }
+            }
+        }
+        if (!leftover.isEmpty()) {
+            snapshot.save();
+            for (Path p : leftover) {
+                Files.delete(p);
+            }
+        }
+        int next = leftover.isEmpty() ? 1 : segmentNumber(leftover.get(leftover.size() - 1)) + 1;
+        MutationJournal journal = new MutationJournal(dir, snapshot, ds, next);
+        ds.model.addMutationListener(journal);
+        ds.users.addMutationListener(journal);
+        return journal;
+    }
+
+    // ---------- MutationListener: encode and append ----------
+
+    @Override
+    public void studentPut(Student s) {
+        append(studentRecord(s));
+    }
+
+    @Override
+    public void studentRemoved(String studentID) {
+        append(record(STUDENT_REMOVE, out -> writeStr(out, studentID)));
+    }
+
+    @Override
+    public void teacherPut(Teacher t) {
+        append(teacherRecord(t));
+    }
+
+    @Override
+    public void coursePut(Course c) {
+        append(courseRecord(c));
+    }
+
+    @Override
+    public void courseRemoved(String courseID) {
+        append(record(COURSE_REMOVE, out -> writeStr(out, courseID)));
+    }
+
+    @Override
+    public void assignmentPut(Assignment a) {
+        append(assignmentRecord(a));
+    }
+
+    @Override
+    public void assignmentRemoved(String assignmentID) {
+        append(record(ASSIGNMENT_REMOVE, out -> writeStr(out, assignmentID)));
+    }
+
+    @Override
+    public void scorePut(String gradeID, String assignmentID, String studentID, int earned, int total) {
+        append(scoreRecord(gradeID, assignmentID, studentID, earned, total));
+    }
+
+    @Override
+    public void enrolled(String studentID, String courseID) {
+        append(record(ENROLL, out -> {
+            writeStr(out, studentID);
+            writeStr(out, courseID);
+        }));
+    }
+
+    @Override
+    public void unenrolled(String studentID, String courseID) {
+        append(record(UNENROLL, out -> {
+            writeStr(out, studentID);
+            writeStr(out, courseID);
+        }));
+    }
+
+    @Override
+    public void modelCleared() {
+        append(record(MODEL_CLEAR, out -> { }));
+    }
+
+    @Override
+    public void userPut(LibraryUsers.UserRecord u) {
+        append(userRecord(u));
+    }
+
+    @Override
+    public void usersCleared() {
+        append(record(USERS_CLEAR, out -> { }));
+    }
+
+    // ---------- record bodies, also stored as values by KeyValueBackend ----------
+
+    static byte[] studentRecord(Student s) {
+        return record(STUDENT_PUT, out -> {
+            writeStr(out, s.getStuID());
+            writeStr(out, s.getFirstName());
+            writeStr(out, s.getLastName());
+            writeStr(out, s.getEmail());
+            writeSet(out, s.getEnrolledCourseIDs());
+            writeSet(out, s.getAssignmentIDs());
+        });
+    }
+
+    static byte[] teacherRecord(Teacher t) {
+        return record(TEACHER_PUT, out -> {
+            writeStr(out, t.getTeacherID());
+            writeStr(out, t.getFirstName());
+            writeStr(out, t.getLastName());
+            writeSet(out, t.getTeachingCourseIDs());
+        });
+    }
+
+    static byte[] courseRecord(Course c) {
+        return record(COURSE_PUT, out -> {
+            writeStr(out, c.getCourseID());
+            writeStr(out, c.getCourseName());
+            writeStr(out, c.getCourseDescription());
+            writeStr(out, c.getTeacherID());
+            out.writeBoolean(c.isUsingWeightedGrading());
+            out.writeBoolean(c.isCompleted());
+            out.writeInt(c.getCategoryWeights().size());
+            for (Map.Entry<String, Double> w : c.getCategoryWeights().entrySet()) {
+                writeStr(out, w.getKey());
+                out.writeDouble(w.getValue());
+            }
+            out.writeInt(c.getCategoryDropCounts().size());
+            for (Map.Entry<String, Integer> d : c.getCategoryDropCounts().entrySet()) {
+                writeStr(out, d.getKey());
+                out.writeInt(d.getValue());
+            }
+        });
+    }
+
+    static byte[] assignmentRecord(Assignment a) {
+        return record(ASSIGNMENT_PUT, out -> {
+            writeStr(out, a.getAssignmentID());
+            writeStr(out, a.getAssignmentName());
+            writeStr(out, a.getStudentID());
+            writeStr(out, a.getCourseID());
+            writeStr(out, a.getGradeID());
+            writeStr(out, a.getCategory());
+            out.writeLong(a.getAssignDate().toEpochDay());
+            out.writeLong(a.getDueDate().toEpochDay());
+            out.writeByte(a.getStatus().ordinal());
+            out.writeBoolean(a.isPublished());
+        });
+    }
+
+    static byte[] scoreRecord(String gradeID, String assignmentID, String studentID, int earned, int total) {
+        return record(SCORE_PUT, out -> {
+            writeStr(out, gradeID);
+            writeStr(out, assignmentID);
+            writeStr(out, studentID);
+            out.writeInt(earned);
+            out.writeInt(total);
+        });
+    }
+
+    static byte[] userRecord(LibraryUsers.UserRecord u) {
+        return record(USER_PUT, out -> {
+            writeStr(out, u.username());
+            writeStr(out, u.encryptedPassword());
+            writeStr(out, u.firstName());
+            writeStr(out, u.lastName());
+            writeStr(out, u.email());
+            out.writeByte(u.type() == null ? -1 : u.type().ordinal());
+            writeStr(out, u.objectID());
+        });
+    }
+
+    @FunctionalInterface
+    private interface Payload {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private static byte[] record(byte type, Payload payload) {
+        try {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(body);
+            out.writeByte(type);
+            payload.write(out);
+            out.flush();
+            return body.toByteArray();
+        } catch (IOException e) {
+            // ByteArrayOutputStream does not fail; keep the compiler happy
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Frame and queue one record; the calling thread waits for it to be
+     * forced to disk once it holds no model lock any more.
+     */
+    private void append(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        ByteBuffer framed = ByteBuffer.allocate(8 + bytes.length);
+        framed.putInt(bytes.length).putInt((int) crc.getValue()).put(bytes);
+        byte[] record = framed.array();
+
+        long seq;
+        synchronized (lock) {
+            if (failure != null) {
+                throw new UncheckedIOException("Journal is broken, change not recorded", failure);
+            }
+            if (closed) {
+                throw new UncheckedIOException(new IOException("Journal is closed, change not recorded"));
+            }
+            pending.writeBytes(record);
+            seq = ++appendedSeq;
+            lock.notifyAll();
+        }
+        long[] mine = owed.get();
+        boolean waiting = mine[0] != 0;
+        mine[0] = seq;
+        if (!waiting) {
+            // one wait covers everything this thread queues before it unlocks
+            CourseLocks.whenUnlocked(() -> {
+                long upTo = mine[0];
+                mine[0] = 0;
+                awaitDurable(upTo);
+            });
+        }
+    }
+
+    /** Block until record {@code seq} is on disk. */
+    private void awaitDurable(long seq) {
+        synchronized (lock) {
+            while (durableSeq < seq) {
+                if (failure != null) {
+                    throw new UncheckedIOException("Writing the journal failed", failure);
+                }
+                if (!writer.isAlive()) {
+                    throw new UncheckedIOException(new IOException("Journal closed before the change was recorded"));
+                }
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new UncheckedIOException(
+                            new InterruptedIOException("Interrupted while waiting for the journal"));
+                }
+            }
+        }
+    }
+
+    private void writeLoop() {
+        try {
+            while (true) {
+                byte[] batch;
+                long upTo;
+                FileChannel ch;
+                synchronized (lock) {
+                    while (pending.size() == 0 && !closed) {
+                        try {
+                            lock.wait();
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                    }
+                    if (pending.size() == 0) {
+                        return;   // closed and drained
+                    }
+                    batch = pending.toByteArray();
+                    pending.reset();
+                    upTo = appendedSeq;
+                    ch = channel;
+                    writing = true;
+                }
+                try {
+                    ByteBuffer buf = ByteBuffer.wrap(batch);
+                    while (buf.hasRemaining()) {
+                        ch.write(buf);
+                    }
+                    ch.force(false);
+                } catch (IOException e) {
+                    System.err.println("❌ Writing the journal failed: " + e.getMessage());
+                    synchronized (lock) {
+                        writing = false;
+                        failure = e;
+                    }
+                    return;   // the records are not durable; never claim they are
+                }
+                synchronized (lock) {
+                    writing = false;
+                    durableSeq = upTo;
+                    lock.notifyAll();
+                }
+            }
+        } finally {
+            synchronized (lock) {
+                lock.notifyAll();   // wake waiters so they see the failure or the closed journal
+            }
+        }
+    }
+
+    // ---------- snapshots and compaction ----------
+
+    /**
+     * Write the live store as the new snapshot and drop every journal segment
+     * it now contains. The store is captured after the journal rotates, so
+     * changes made meanwhile are in the new segment and replay idempotently.
+     */
+    public void checkpoint() throws IOException {
+        synchronized (compactionLock) {
+            int sealedBelow = rotate();
+            snapshot.save();
+            deleteSegmentsBelow(sealedBelow);
+        }
+    }
+
+    /** Checkpoint if the journal has grown past {@code thresholdBytes}. */
+    void compact(long thresholdBytes) throws IOException {
+        long size = 0;
+        for (Path p : segments(dir)) {
+            size += Files.size(p);
+        }
+        if (size >= thresholdBytes) {
+            checkpoint();
+        }
+    }
+
+    private void compactQuietly() {
+        try {
+            compact(COMPACT_THRESHOLD_BYTES);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("⚠️ Journal compaction failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Wait until everything queued is durable, then continue in a new segment.
+     * @return the new segment number; every segment below it is sealed
+     */
+    private int rotate() throws IOException {
+        synchronized (lock) {
+            while ((pending.size() > 0 || writing) && failure == null) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while sealing the journal", e);
+                }
+            }
+            if (failure != null) {
+                throw new IOException("Journal is broken", failure);
+            }
+            channel.close();
+            segment++;
+            channel = openSegment(segment);
+            return segment;
+        }
+    }
+
+    private void deleteSegmentsBelow(int sealedBelow) throws IOException {
+        for (Path p : segments(dir)) {
+            if (segmentNumber(p) < sealedBelow) {
+                Files.delete(p);
+            }
+        }
+    }
+
+    /** Flush what is queued, stop both background threads and close the segment. */
+    @Override
+    public void close() {
+        compactor.shutdownNow();
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            writer.join();
+            channel.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            System.err.println("❌ Closing the journal failed: " + e.getMessage());
+        }
+        ds.model.removeMutationListener(this);
+        ds.users.removeMutationListener(this);
+    }
+
+    // ---------- segments ----------
+
+    private FileChannel openSegment(int n) throws IOException {
+        return FileChannel.open(dir.resolve(String.format("journal-%06d.log", n)),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private static List<Path> segments(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.getFileName().toString().matches("journal-\\d+\\.log"))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static int segmentNumber(Path p) {
+        String name = p.getFileName().toString();
+        return Integer.parseInt(name.substring("journal-".length(), name.length() - ".log".length()));
+    }
+
+    // ---------- replay ----------
+
+    /**
+     * Apply every intact record of a segment to the store.
+     * @return the length of the valid prefix; anything after it is a torn or corrupt tail
+     */
+    static long replay(Path segmentPath, DataStore store) throws IOException {
+        long valid = 0;
+        try (InputStream raw = new BufferedInputStream(Files.newInputStream(segmentPath));
+             DataInputStream in = new DataInputStream(raw)) {
+            while (true) {
+                byte[] body;
+                try {
+                    int length = in.readInt();
+                    int expected = in.readInt();
+                    if (length <= 0) break;
+                    body = in.readNBytes(length);
+                    if (body.length < length) break;
+                    CRC32 crc = new CRC32();
+                    crc.update(body);
+                    if ((int) crc.getValue() != expected) break;
+                } catch (EOFException e) {
+                    break;
+                }
+                apply(body, store);
+                valid += 8 + body.length;
+            }
+        }
+        return valid;
+    }
+
+    /** Apply one record body (as produced by {@code studentRecord} and friends) to the store. */
+    static void apply(byte[] record, DataStore store) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+        LibraryModel model = store.model;
+        switch (in.readByte()) {
+            case STUDENT_PUT -> model.addStudent(new Student(readStr(in), readStr(in), readStr(in),
+                    readStr(in), readSet(in), readSet(in)));
+            case STUDENT_REMOVE -> model.removeStudent(readStr(in));
+            case TEACHER_PUT -> model.addTeacher(new Teacher(readStr(in), readStr(in), readStr(in), readSet(in)));
+            case COURSE_PUT -> applyCourse(in, model);
+            case COURSE_REMOVE -> model.removeCourse(readStr(in));
+            case ASSIGNMENT_PUT -> {
+                String id = readStr(in), name = readStr(in), studentID = readStr(in), courseID = readStr(in);
+                String gradeID = readStr(in), category = readStr(in);
+                LocalDate assigned = LocalDate.ofEpochDay(in.readLong());
+                LocalDate due = LocalDate.ofEpochDay(in.readLong());
+                Assignment.SubmissionStatus status = Assignment.SubmissionStatus.values()[in.readByte()];
+                boolean published = in.readBoolean();
+                model.addAssignment(new Assignment(id, name, studentID, courseID, gradeID,
+                        assigned, due, status, published, category));
+            }
+            case ASSIGNMENT_REMOVE -> model.removeAssignment(readStr(in));
+            case SCORE_PUT -> model.addScore(new Score(readStr(in), readStr(in), readStr(in),
+                    in.readInt(), in.readInt()));
+            case ENROLL -> {
+                String sid = readStr(in), cid = readStr(in);
+                if (model.studentExists(sid) && model.getCourse(cid) != null) {
+                    model.enrollStudentInCourse(sid, cid);
+                }
+            }
+            case UNENROLL -> model.removeStudentFromCourse(readStr(in), readStr(in));
+            case MODEL_CLEAR -> model.clearAllData();
+            case USER_PUT -> {
+                String username = readStr(in), password = readStr(in), first = readStr(in);
+                String last = readStr(in), email = readStr(in);
+                byte type = in.readByte();
+                String objectID = readStr(in);
+                store.users.importUsers(List.of(new LibraryUsers.UserRecord(username, password, first,
+                        last, email, type < 0 ? null : LibraryUsers.UserType.values()[type], objectID)));
+            }
+            case USERS_CLEAR -> store.users.clearAllUsers();
+            default -> throw new IOException("Unknown journal record type");
+        }
+    }
+
+    /**
+     * A new course is added (and tied to its teacher, as the course screen
+     * does); for a known course only the grading setup is applied, so the
+     * course keeps the assignments tied to it.
+     */
+    private static void applyCourse(DataInputStream in, LibraryModel model) throws IOException {
+        String id = readStr(in), name = readStr(in), description = readStr(in), teacherID = readStr(in);
+        boolean weighted = in.readBoolean();
+        boolean completed = in.readBoolean();
+        Map<String, Double> weights = new HashMap<>();
+        for (int n = in.readInt(); n > 0; n--) {
+            weights.put(readStr(in), in.readDouble());
+        }
+        Map<String, Integer> drops = new HashMap<>();
+        for (int n = in.readInt(); n > 0; n--) {
+            drops.put(readStr(in), in.readInt());
+        }
+
+        if (model.getCourseSnapshot(id) == null) {
+            model.addCourse(new Course(id, name, description, teacherID, weighted, weights, drops, completed));
+            if (model.teacherExists(teacherID)) {
+                model.assignCourseToTeacher(teacherID, id);
+            }
+            return;
+        }
+        model.setGradingMode(id, weighted);
+        weights.forEach((category, w) -> model.setCategoryWeight(id, category, w));
+        drops.forEach((category, d) -> model.setCategoryDrop(id, category, d));
+        if (completed) {
+            model.markCourseAsCompleted(id);
+        }
+    }
+
+    private static void writeStr(DataOutputStream out, String s) throws IOException {
+        out.writeBoolean(s != null);
+        if (s != null) out.writeUTF(s);
+    }
+
+    private static String readStr(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeSet(DataOutputStream out, Set<String> values) throws IOException {
+        out.writeInt(values.size());
+        for (String v : values) {
+            out.writeUTF(v);
+        }
+    }
+
+    private static Set<String> readSet(DataInputStream in) throws IOException {
+        int n = in.readInt();
+        Set<String> set = new HashSet<>(n * 2);
+        for (int i = 0; i < n; i++) {
+            set.add(in.readUTF());
+        }
+        return set;
+    }
+}
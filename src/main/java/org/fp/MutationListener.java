@@ -0,0 +1,42 @@
+package org.fp;
+
+/**
+ * Told about every state change made through {@link LibraryModel} and
+ * {@link LibraryUsers}, after the change has been applied. Callbacks run on the
+ * mutating thread and receive the live objects, so an implementation has to
+ * copy whatever it needs before returning.
+ * Changes to different courses are made under different locks (see
+ * {@link CourseLocks}), so callbacks may arrive from several threads at once.
+ * <p>
+ * Put-style callbacks carry the whole entity as it is now, which makes
+ * applying them again idempotent. Every callback that is not overridden
+ * falls through to {@link #changed()}, so a listener that only needs to know
+ * that something changed overrides just that one.
+ */
+interface MutationListener {
+
+    /** Called by every callback below that is not overridden. */
+    default void changed() { }
+
+    default void studentPut(Student s) { changed(); }
+    default void studentRemoved(String studentID) { changed(); }
+    default void teacherPut(Teacher t) { changed(); }
+
+    /** A course was added, or its grading setup or completion state changed. */
+    default void coursePut(Course c) { changed(); }
+    default void courseRemoved(String courseID) { changed(); }
+
+    /** An assignment was added or replaced, or its submission state changed. */
+    default void assignmentPut(Assignment a) { changed(); }
+    default void assignmentRemoved(String assignmentID) { changed(); }
+
+    /** A score was added or its points changed. */
+    default void scorePut(String gradeID, String assignmentID, String studentID, int earned, int total) { changed(); }
+
+    default void enrolled(String studentID, String courseID) { changed(); }
+    default void unenrolled(String studentID, String courseID) { changed(); }
+    default void modelCleared() { changed(); }
+
+    default void userPut(LibraryUsers.UserRecord user) { changed(); }
+    default void usersCleared() { changed(); }
+}
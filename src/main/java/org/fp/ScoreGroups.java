@@ -0,0 +1,62 @@
+package org.fp;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Score-store slots of every graded assignment, grouped by course and
+ * assignment name ("HW 1" of every student in a course), so group statistics
+ * walk the primitive columns of {@link ScoreStore} directly instead of
+ * scanning every assignment in the model.
+ * <p>
+ * LibraryModel adds a score wherever it folds it into {@link GradeAggregates}
+ * and removes it wherever it takes it back out. The course map is concurrent;
+ * the groups of one course are guarded by that course's lock.
+ */
+class ScoreGroups {
+
+    /** Where a gradeID is filed, so it can be taken back out. */
+    private record Member(String courseID, String name, int slot) { }
+
+    // courseID → assignment name → score slots
+    private final Map<String, Map<String, IntList>> byCourse = new ConcurrentHashMap<>();
+    // gradeID → where it is filed
+    private final Map<String, Member> members = new ConcurrentHashMap<>();
+
+    /** File a score slot under its course and assignment name, replacing any earlier filing. */
+    void put(String gradeID, String courseID, String name, int slot) {
+        remove(gradeID);
+        if (courseID == null || name == null) return;   // no group to be found in
+        members.put(gradeID, new Member(courseID, name, slot));
+        byCourse.computeIfAbsent(courseID, c -> new HashMap<>())
+                .computeIfAbsent(name, n -> new IntList())
+                .add(slot);
+    }
+
+    /** Take a score back out; unknown gradeIDs are ignored. */
+    void remove(String gradeID) {
+        Member m = members.remove(gradeID);
+        if (m == null) return;
+        Map<String, IntList> groups = byCourse.get(m.courseID());
+        IntList slots = groups.get(m.name());
+        slots.removeValue(m.slot());
+        if (slots.isEmpty()) {
+            groups.remove(m.name());
+            if (groups.isEmpty()) {
+                byCourse.remove(m.courseID());
+            }
+        }
+    }
+
+    /** Slots of a group, or null if nothing in it is graded; read under the course's lock. */
+    IntList slots(String courseID, String name) {
+        Map<String, IntList> groups = (courseID == null) ? null : byCourse.get(courseID);
+        return (groups == null || name == null) ? null : groups.get(name);
+    }
+
+    void clear() {
+        byCourse.clear();
+        members.clear();
+    }
+}
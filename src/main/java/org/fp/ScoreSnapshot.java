@@ -0,0 +1,20 @@
+package org.fp;
+
+/**
+ * Immutable, shareable view of a {@link Score}.
+ */
+public record ScoreSnapshot(String gradeID,
+                            String assignmentID,
+                            String studentID,
+                            int earned,
+                            int total) {
+
+    static ScoreSnapshot of(Score s) {
+        return new ScoreSnapshot(s.getGradeID(), s.getAssignmentID(), s.getStudentID(),
+                s.getEarned(), s.getTotal());
+    }
+
+    public double percentage() {
+        return total == 0 ? 0 : ((double) earned / total) * 100.0;
+    }
+}
@@ -0,0 +1,249 @@
+package org.fp;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Column-oriented storage for every {@link Score} in the model.
+ * Each gradeID owns a dense slot; earned/total points live in primitive
+ * {@code int[]} columns and the IDs in parallel String columns, so scans over
+ * many scores touch two flat arrays instead of one object per score.
+ * {@code Score} objects are only created when a caller asks for one.
+ * <p>
+ * A gradeID finds its slot through an open-addressing table of plain ints
+ * that probes the gradeID column, so there is no map entry or boxed Integer
+ * per score. A score costs 20 bytes of columns (two ints, three references)
+ * plus 4 to 8 bytes of table, about 28 bytes in all; the ID strings it
+ * references are not counted. Slots freed by {@link #remove} are reused by
+ * later inserts.
+ */
+class ScoreStore {
+    private static final int INITIAL_CAPACITY = 64;
+
+    // slot + 1 for each gradeID, 0 where empty; linear probing, at most half full
+    private int[] index = new int[INITIAL_CAPACITY * 2];
+    private int size = 0;
+    private String[] gradeIDs = new String[INITIAL_CAPACITY];
+    private String[] assignmentIDs = new String[INITIAL_CAPACITY];
+    private String[] studentIDs = new String[INITIAL_CAPACITY];
+    private int[] earned = new int[INITIAL_CAPACITY];
+    private int[] total = new int[INITIAL_CAPACITY];
+
+    private int[] freeSlots = new int[8];
+    private int freeCount = 0;
+    private int highWater = 0;
+
+    /** Store (or overwrite) the values of a score; the Score itself is not kept. */
+    public void put(Score score) {
+        int s = slotOf(score.getGradeID());
+        if (s < 0) s = allocate(score.getGradeID());
+        gradeIDs[s] = score.getGradeID();
+        assignmentIDs[s] = score.getAssignmentID();
+        studentIDs[s] = score.getStudentID();
+        earned[s] = score.getEarned();
+        total[s] = score.getTotal();
+    }
+
+    /** Overwrite the points of an existing score. @return false if unknown */
+    public boolean setPoints(String gradeID, int earnedPoints, int totalPoints) {
+        int s = slotOf(gradeID);
+        if (s < 0) return false;
+        earned[s] = earnedPoints;
+        total[s] = totalPoints;
+        return true;
+    }
+
+    /** A fresh Score built from the columns, or null if the gradeID is unknown. */
+    public Score get(String gradeID) {
+        int s = slotOf(gradeID);
+        return (s < 0) ? null : materialize(s);
+    }
+
+    public boolean contains(String gradeID) {
+        return slotOf(gradeID) >= 0;
+    }
+
+    public void remove(String gradeID) {
+        if (gradeID == null) return;
+        int at = probe(gradeID);
+        if (index[at] == 0) return;
+        int s = index[at] - 1;
+        unlink(at);
+        size--;
+        gradeIDs[s] = null;
+        assignmentIDs[s] = null;
+        studentIDs[s] = null;
+        earned[s] = 0;
+        total[s] = 0;
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        }
+        freeSlots[freeCount++] = s;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(index, 0);
+        size = 0;
+        Arrays.fill(gradeIDs, 0, highWater, null);
+        Arrays.fill(assignmentIDs, 0, highWater, null);
+        Arrays.fill(studentIDs, 0, highWater, null);
+        freeCount = 0;
+        highWater = 0;
+    }
+
+    /** Every stored gradeID, in slot order. */
+    public Set<String> gradeIDs() {
+        Set<String> ids = new LinkedHashSet<>();
+        for (int s = 0; s < highWater; s++) {
+            if (gradeIDs[s] != null) ids.add(gradeIDs[s]);
+        }
+        return Collections.unmodifiableSet(ids);
+    }
+
+    // ---------- column access ----------
+
+    /** Slot of a gradeID, or -1 if it is not stored. */
+    public int slotOf(String gradeID) {
+        return (gradeID == null) ? -1 : index[probe(gradeID)] - 1;
+    }
+
+    public String assignmentIDAt(int slot) { return assignmentIDs[slot]; }
+    public String studentIDAt(int slot) { return studentIDs[slot]; }
+    public int earnedAt(int slot) { return earned[slot]; }
+    public int totalAt(int slot) { return total[slot]; }
+
+    /** Same value as {@link Score#getPercentage()} for the score in this slot. */
+    public double percentageAt(int slot) {
+        return total[slot] == 0 ? 0 : ((double) earned[slot] / total[slot]) * 100.0;
+    }
+
+    /** Copy of every score as gradeID → Score. */
+    public Map<String, Score> toMap() {
+        Map<String, Score> copy = new LinkedHashMap<>();
+        for (int s = 0; s < highWater; s++) {
+            if (gradeIDs[s] != null) copy.put(gradeIDs[s], materialize(s));
+        }
+        return copy;
+    }
+
+    private Score materialize(int s) {
+        return new Score(gradeIDs[s], assignmentIDs[s], studentIDs[s], earned[s], total[s]);
+    }
+
+    private int allocate(String gradeID) {
+        int s;
+        if (freeCount > 0) {
+            s = freeSlots[--freeCount];
+        } else {
+            if (highWater == earned.length) {
+                grow();
+            }
+            s = highWater++;
+        }
+        gradeIDs[s] = gradeID;
+        index[probe(gradeID)] = s + 1;
+        if (++size * 2 > index.length) {
+            rehash(index.length * 2);
+        }
+        return s;
+    }
+
+    // ---------- gradeID → slot table ----------
+
+    private static int home(String gradeID, int mask) {
+        int h = gradeID.hashCode();
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /** Table position holding gradeID, or the empty position where it belongs. */
+    private int probe(String gradeID) {
+        int mask = index.length - 1;
+        int at = home(gradeID, mask);
+        while (index[at] != 0 && !gradeIDs[index[at] - 1].equals(gradeID)) {
+            at = (at + 1) & mask;
+        }
+        return at;
+    }
+
+    /** Empty a table position, shifting later entries of the same run back so probes still find them. */
+    private void unlink(int at) {
+        int mask = index.length - 1;
+        int hole = at;
+        for (int i = (at + 1) & mask; index[i] != 0; i = (i + 1) & mask) {
+            int home = home(gradeIDs[index[i] - 1], mask);
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                index[hole] = index[i];
+                hole = i;
+            }
+        }
+        index[hole] = 0;
+    }
+
+    private void rehash(int capacity) {
+        int[] old = index;
+        index = new int[capacity];
+        for (int entry : old) {
+            if (entry != 0) index[probe(gradeIDs[entry - 1])] = entry;
+        }
+    }
+
+    private void grow() {
+        int capacity = earned.length * 2;
+        gradeIDs = Arrays.copyOf(gradeIDs, capacity);
+        assignmentIDs = Arrays.copyOf(assignmentIDs, capacity);
+        studentIDs = Arrays.copyOf(studentIDs, capacity);
+        earned = Arrays.copyOf(earned, capacity);
+        total = Arrays.copyOf(total, capacity);
+    }
+
+    /**
+     * Keeps the datastore format unchanged: the store is written and read as
+     * the same gradeID → Score object that a plain map produced.
+     */
+    static class GsonAdapterFactory implements TypeAdapterFactory {
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+            TypeAdapter<Map<String, Score>> mapAdapter =
+                    gson.getAdapter(new TypeToken<Map<String, Score>>() { });
+            return (TypeAdapter<T>) new TypeAdapter<ScoreStore>() {
+                @Override
+                public void write(JsonWriter out, ScoreStore store) throws IOException {
+                    mapAdapter.write(out, store == null ? null : store.toMap());
+                }
+
+                @Override
+                public ScoreStore read(JsonReader in) throws IOException {
+                    ScoreStore store = new ScoreStore();
+                    Map<String, Score> scores = mapAdapter.read(in);
+                    if (scores != null) {
+                        for (Score score : scores.values()) {
+                            store.put(score);
+                        }
+                    }
+                    return store;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package org.fp;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Login sessions of {@link LibraryUsers}. A successful login gets an opaque
+ * random token that stays valid for a fixed time; privileged actions check
+ * the token with one concurrent map lookup instead of running the password
+ * through the cipher again. Expired sessions are refused on lookup and
+ * removed by a background sweeper, started with the first session.
+ */
+class SessionManager implements AutoCloseable {
+    static final long DEFAULT_TTL_MILLIS = TimeUnit.MINUTES.toMillis(30);
+    private static final long SWEEP_INTERVAL_SECONDS = 60;
+    private static final int TOKEN_BYTES = 32;
+
+    /** One logged-in user. */
+    record Session(String token, String username, LibraryUsers.UserType type, long expiresAtMillis) {
+        boolean isExpired(long now) {
+            return now >= expiresAtMillis;
+        }
+    }
+
+    private final ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private ScheduledExecutorService sweeper;   // guarded by this
+
+    SessionManager() {
+        this(DEFAULT_TTL_MILLIS, System::currentTimeMillis);
+    }
+
+    SessionManager(long ttlMillis, LongSupplier clock) {
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+    }
+
+    /** Open a session for {@code username} and return its token. */
+    String issue(String username, LibraryUsers.UserType type) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        sessions.put(token, new Session(token, username, type, clock.getAsLong() + ttlMillis));
+        startSweeper();
+        return token;
+    }
+
+    /** The live session of {@code token}, or null if it is unknown or has expired. */
+    Session validate(String token) {
+        if (token == null) return null;
+        Session s = sessions.get(token);
+        if (s == null) return null;
+        if (s.isExpired(clock.getAsLong())) {
+            sessions.remove(token, s);
+            return null;
+        }
+        return s;
+    }
+
+    void invalidate(String token) {
+        if (token != null) sessions.remove(token);
+    }
+
+    /** End every session of one user, e.g. after its role changed. */
+    void invalidateUser(String username) {
+        sessions.values().removeIf(s -> s.username().equals(username));
+    }
+
+    void clear() {
+        sessions.clear();
+    }
+
+    /**
+     * Remove every expired session.
+     * @return how many were removed
+     */
+    int sweep() {
+        long now = clock.getAsLong();
+        int removed = 0;
+        for (Session s : sessions.values()) {
+            if (s.isExpired(now) && sessions.remove(s.token(), s)) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    int size() {
+        return sessions.size();
+    }
+
+    private synchronized void startSweeper() {
+        if (sweeper != null) return;
+        sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "session-sweeper");
+            t.setDaemon(true);
+            return t;
+        });
+        sweeper.scheduleWithFixedDelay(this::sweep, SWEEP_INTERVAL_SECONDS, SWEEP_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /** Stop the sweeper; sessions stay valid until they expire. */
+    @Override
+    public synchronized void close() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+            sweeper = null;
+        }
+    }
+}
@@ -0,0 +1,315 @@
+package org.fp;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * The binary snapshot split into one shard per course (data/shards).
+ * <pre>
+ * index.bin        : users, students, teachers and every course's settings
+ * course-ID.bin    : the assignments of one course and their scores
+ * </pre>
+ * Both kinds of file use the {@link DataStoreSnapshot} format. Enrollment is
+ * kept on the student records in the index, so rosters and course lists work
+ * before any shard has been read. Assignments or scores that belong to no
+ * known course stay in the index as well.
+ * <p>
+ * {@link #open} reads only the index; a shard is read the first time
+ * {@link LibraryModel#loadCourse} is called for its course. {@link #save}
+ * rewrites the index and only the shards whose course changed since the
+ * previous save, then deletes the shards of removed courses.
+ */
+class ShardedSnapshot implements StorageBackend, MutationListener {
+    static final String INDEX_FILE = "index.bin";
+    private static final String SHARD_PREFIX = "course-";
+    private static final String SHARD_SUFFIX = ".bin";
+
+    private final Path dir;
+    // the store being followed; null until open or adopt
+    private DataStore ds;
+
+    // what changed since the last save, guarded by this
+    private boolean indexDirty = false;
+    private final Set<String> dirtyCourses = new HashSet<>();
+    private final Set<String> removedCourses = new HashSet<>();
+    private boolean cleared = false;
+    // assignment → course of every loaded assignment, to route removals and scores
+    private final Map<String, String> courseOfAssignment = new HashMap<>();
+
+    ShardedSnapshot(Path dir) {
+        this.dir = dir;
+    }
+
+    @Override
+    public boolean exists() {
+        return Files.exists(dir.resolve(INDEX_FILE));
+    }
+
+    /** Read the index; every course shard is left on disk until it is needed. */
+    @Override
+    public DataStore open() throws IOException {
+        DataStore store = new DataStore();
+        if (exists()) {
+            LibraryModel model = store.model;
+            DataStoreSnapshot.readInto(dir.resolve(INDEX_FILE), store.users, model);
+            List<String> courseIDs = new ArrayList<>();
+            for (Course c : model.courseValues()) {
+                courseIDs.add(c.getCourseID());
+            }
+            model.setCourseLoader(this::loadShard, courseIDs);
+        }
+        follow(store);
+        return store;
+    }
+
+    /**
+     * Take over a store that is already fully in memory (e.g. imported from
+     * datastore.bin or JSON) and write every shard of it.
+     */
+    @Override
+    public void adopt(DataStore store) throws IOException {
+        follow(store);
+        try (CourseLocks.Held locked = store.model.lockAll()) {
+            synchronized (this) {
+                for (Assignment a : store.model.assignmentValues()) {
+                    courseOfAssignment.put(a.getAssignmentID(), a.getCourseID());
+                }
+                for (Course c : store.model.courseValues()) {
+                    dirtyCourses.add(c.getCourseID());
+                }
+                indexDirty = true;
+                cleared = true;   // drop shards left over from an older store
+            }
+        }
+        save();
+    }
+
+    private synchronized void follow(DataStore store) {
+        stopFollowing();
+        indexDirty = false;
+        dirtyCourses.clear();
+        removedCourses.clear();
+        cleared = false;
+        courseOfAssignment.clear();
+        ds = store;
+        ds.model.addMutationListener(this);
+        ds.users.addMutationListener(this);
+    }
+
+    private void stopFollowing() {
+        if (ds != null) {
+            ds.model.removeMutationListener(this);
+            ds.users.removeMutationListener(this);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        save();
+        stopFollowing();
+    }
+
+    private Path shardPath(String courseID) {
+        return dir.resolve(SHARD_PREFIX + courseID + SHARD_SUFFIX);
+    }
+
+    /** Called by the model, holding its lock, the first time a course is needed. */
+    private void loadShard(String courseID) throws IOException {
+        Path shard = shardPath(courseID);
+        if (!Files.exists(shard)) return;   // a course without assignments has no shard
+        DataStoreSnapshot.readInto(shard, null, ds.model);
+        synchronized (this) {
+            for (Assignment a : ds.model.getAssignmentsInCourse(courseID)) {
+                courseOfAssignment.put(a.getAssignmentID(), courseID);
+            }
+        }
+    }
+
+    // ---------- saving ----------
+
+    /**
+     * Write the index and every shard that changed since the last save. Under
+     * the users and model locks only the change sets are taken and the model
+     * is frozen; everything is encoded from the frozen view and written after
+     * both locks are released.
+     */
+    @Override
+    public void save() throws IOException {
+        if (ds == null) return;
+        List<LibraryUsers.UserRecord> users = null;
+        FrozenModel view;
+        Set<String> changedCourses;
+        Set<String> removed;
+        boolean clearAll;
+        synchronized (ds.users) {
+            try (CourseLocks.Held locked = ds.model.lockAll()) {
+                synchronized (this) {
+                    if (!indexDirty && dirtyCourses.isEmpty() && removedCourses.isEmpty() && !cleared) {
+                        return;
+                    }
+                    changedCourses = new HashSet<>(dirtyCourses);
+                    removed = new HashSet<>(removedCourses);
+                    clearAll = cleared;
+                    if (indexDirty) {
+                        users = ds.users.exportUsers();
+                    }
+                    indexDirty = false;
+                    dirtyCourses.clear();
+                    removedCourses.clear();
+                    cleared = false;
+                }
+                view = ds.model.freeze();
+            }
+        }
+
+        byte[][] index = null;
+        Map<String, byte[][]> shards = new HashMap<>();
+        try (view) {
+            // group loaded assignments and scores by course; the rest stays in the index
+            Map<String, List<AssignmentSnapshot>> assignmentsByCourse = new HashMap<>();
+            List<AssignmentSnapshot> unsharded = new ArrayList<>();
+            for (AssignmentSnapshot a : view.assignmentValues()) {
+                if (view.isCourseLoaded(a.courseID())) {
+                    assignmentsByCourse.computeIfAbsent(a.courseID(), k -> new ArrayList<>()).add(a);
+                } else {
+                    unsharded.add(a);
+                }
+            }
+            Map<String, List<ScoreSnapshot>> scoresByCourse = new HashMap<>();
+            List<ScoreSnapshot> unshardedScores = new ArrayList<>();
+            for (ScoreSnapshot sc : view.scoreValues()) {
+                AssignmentSnapshot a = view.assignments.get(sc.assignmentID());
+                if (a != null && view.isCourseLoaded(a.courseID())) {
+                    scoresByCourse.computeIfAbsent(a.courseID(), k -> new ArrayList<>()).add(sc);
+                } else {
+                    unshardedScores.add(sc);
+                }
+            }
+            for (String courseID : changedCourses) {
+                if (!view.isCourseLoaded(courseID)) continue;
+                shards.put(courseID, DataStoreSnapshot.encode(List.of(), List.of(), List.of(), List.of(),
+                        assignmentsByCourse.getOrDefault(courseID, List.of()),
+                        scoresByCourse.getOrDefault(courseID, List.of())));
+            }
+            if (users != null) {
+                index = DataStoreSnapshot.encode(users, view.studentValues(), view.teacherValues(),
+                        view.courseValues(), unsharded, unshardedScores);
+            }
+        } catch (IOException | RuntimeException e) {
+            retryLater(users != null, changedCourses, removed, clearAll);
+            throw e;
+        }
+
+        try {
+            Files.createDirectories(dir);
+            if (clearAll) {
+                // only shards written below survive a clear
+                try (Stream<Path> files = Files.list(dir)) {
+                    for (Path p : (Iterable<Path>) files::iterator) {
+                        String name = p.getFileName().toString();
+                        if (name.startsWith(SHARD_PREFIX) && !shards.containsKey(courseIDOf(name))) {
+                            Files.delete(p);
+                        }
+                    }
+                }
+            }
+            for (Map.Entry<String, byte[][]> e : shards.entrySet()) {
+                DataStoreSnapshot.writeAtomically(e.getValue(), shardPath(e.getKey()));
+            }
+            // the index goes last: a course only exists once the index lists it
+            if (index != null) {
+                DataStoreSnapshot.writeAtomically(index, dir.resolve(INDEX_FILE));
+            }
+            for (String courseID : removed) {
+                Files.deleteIfExists(shardPath(courseID));
+            }
+        } catch (IOException e) {
+            retryLater(index != null, shards.keySet(), removed, clearAll);
+            throw e;
+        }
+    }
+
+    /** Put back what a failed save took, so the next save tries it again. */
+    private synchronized void retryLater(boolean index, Set<String> courses, Set<String> removed, boolean clearAll) {
+        indexDirty |= index;
+        dirtyCourses.addAll(courses);
+        removedCourses.addAll(removed);
+        cleared |= clearAll;
+    }
+
+    private static String courseIDOf(String shardFileName) {
+        return shardFileName.substring(SHARD_PREFIX.length(),
+                shardFileName.length() - SHARD_SUFFIX.length());
+    }
+
+    // ---------- change tracking ----------
+
+    private synchronized void courseChanged(String courseID) {
+        if (courseID != null && ds.model.isCourseLoaded(courseID)) {
+            dirtyCourses.add(courseID);
+        } else {
+            indexDirty = true;
+        }
+    }
+
+    @Override
+    public synchronized void changed() {
+        indexDirty = true;
+    }
+
+    @Override
+    public synchronized void coursePut(Course c) {
+        indexDirty = true;
+        removedCourses.remove(c.getCourseID());
+    }
+
+    @Override
+    public synchronized void courseRemoved(String courseID) {
+        indexDirty = true;
+        dirtyCourses.remove(courseID);
+        removedCourses.add(courseID);
+    }
+
+    @Override
+    public void assignmentPut(Assignment a) {
+        synchronized (this) {
+            courseOfAssignment.put(a.getAssignmentID(), a.getCourseID());
+        }
+        courseChanged(a.getCourseID());
+    }
+
+    @Override
+    public void assignmentRemoved(String assignmentID) {
+        String courseID;
+        synchronized (this) {
+            courseID = courseOfAssignment.remove(assignmentID);
+        }
+        courseChanged(courseID);
+    }
+
+    @Override
+    public void scorePut(String gradeID, String assignmentID, String studentID, int earned, int total) {
+        String courseID;
+        synchronized (this) {
+            courseID = courseOfAssignment.get(assignmentID);
+        }
+        courseChanged(courseID);
+    }
+
+    @Override
+    public synchronized void modelCleared() {
+        indexDirty = true;
+        cleared = true;
+        dirtyCourses.clear();
+        removedCourses.clear();
+        courseOfAssignment.clear();
+    }
+}
@@ -0,0 +1,151 @@
+package org.fp;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Copy-on-write cache of immutable snapshots for one entity map of {@link LibraryModel}.
+ * A snapshot is built the first time it is read and then shared by every later
+ * reader until the model invalidates it; the "all" view is rebuilt from the
+ * per-entity snapshots only after something in the map changed.
+ * <p>
+ * It also keeps the frozen map behind {@link LibraryModel#freeze}: ID →
+ * snapshot as of the last freeze. A freeze only re-snapshots the entities
+ * invalidated since the previous one. While a {@link FrozenModel} still reads
+ * the frozen map, the next freeze copies it before changing it (copy on
+ * write); once every reader of that generation has released it, the map is
+ * updated in place again. Freezing and releasing happen under the model's
+ * exclusive lock; invalidations may come from several course operations at
+ * once, which is why the per-entity maps are concurrent.
+ *
+ * @param <E> the mutable entity type
+ * @param <S> the immutable snapshot type
+ */
+class SnapshotCache<E, S> {
+    private final Function<E, S> snapshotter;
+    private final Map<String, S> byID = new ConcurrentHashMap<>();
+    private volatile All<S> all = null;
+    // bumped by every invalidation, so an "all" view built meanwhile is not kept
+    private final AtomicInteger version = new AtomicInteger();
+
+    // frozen map of the current generation and how many views still read it
+    private Map<String, S> frozen = new HashMap<>();
+    private int readers = 0;
+    // IDs invalidated since the last freeze; stale means rebuild it all
+    private final Set<String> changed = ConcurrentHashMap.newKeySet();
+    private boolean stale = true;
+
+    /** The "all" view and the version it was built at. */
+    private record All<T>(int version, Collection<T> snapshots) { }
+
+    SnapshotCache(Function<E, S> snapshotter) {
+        this.snapshotter = snapshotter;
+    }
+
+    /** Snapshot of the entity with the given ID, or null if the source has none. */
+    S get(String id, Map<String, E> source) {
+        return get(id, source::get);
+    }
+
+    /**
+     * Same as {@link #get(String, Map)} for sources that are not plain maps.
+     * The snapshot copies the live entity, so the caller holds the model
+     * locks that keep it from changing; they are taken outside this call,
+     * never inside the lookup, since invalidations come from lock holders.
+     */
+    S get(String id, Function<String, E> lookup) {
+        if (id == null) return null;
+        S s = byID.get(id);
+        if (s == null) {
+            // built inside computeIfAbsent, so an invalidate() of the same ID waits for it
+            s = byID.computeIfAbsent(id, k -> {
+                E e = lookup.apply(k);
+                return (e == null) ? null : snapshotter.apply(e);
+            });
+        }
+        return s;
+    }
+
+    /** Unmodifiable snapshots of every entity in the source map. */
+    Collection<S> all(Map<String, E> source) {
+        return all(source.keySet(), source::get);
+    }
+
+    /** Unmodifiable snapshots of the given IDs, resolved through the lookup. */
+    Collection<S> all(Collection<String> ids, Function<String, E> lookup) {
+        int v = version.get();
+        All<S> cached = all;
+        if (cached != null && cached.version() == v) {
+            return cached.snapshots();
+        }
+        List<S> list = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            list.add(get(id, lookup));
+        }
+        Collection<S> snapshots = Collections.unmodifiableList(list);
+        all = new All<>(v, snapshots);
+        return snapshots;
+    }
+
+    /** Forget the snapshot of one entity after it changed. */
+    void invalidate(String id) {
+        if (id == null) return;
+        byID.remove(id);
+        version.incrementAndGet();
+        changed.add(id);
+    }
+
+    void clear() {
+        byID.clear();
+        version.incrementAndGet();
+        changed.clear();
+        stale = true;
+    }
+
+    /**
+     * Bring the frozen map up to date and hand it out; it must not be changed
+     * by the caller and is given back through {@link #release}.
+     */
+    Map<String, S> freeze(Collection<String> ids, Function<String, E> lookup) {
+        if (stale) {
+            frozen = new HashMap<>();
+            readers = 0;
+            for (String id : ids) {
+                frozen.put(id, get(id, lookup));
+            }
+            changed.clear();
+            stale = false;
+        } else if (!changed.isEmpty()) {
+            if (readers > 0) {
+                frozen = new HashMap<>(frozen);   // older views keep the previous generation
+                readers = 0;
+            }
+            for (String id : changed) {
+                S s = get(id, lookup);
+                if (s == null) {
+                    frozen.remove(id);
+                } else {
+                    frozen.put(id, s);
+                }
+            }
+            changed.clear();
+        }
+        readers++;
+        return frozen;
+    }
+
+    /** A view of {@code map} is done reading it. */
+    void release(Map<String, S> map) {
+        if (map == frozen && readers > 0) {
+            readers--;
+        }
+    }
+}
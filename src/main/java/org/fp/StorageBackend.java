@@ -0,0 +1,55 @@
+package org.fp;
+
+import java.io.IOException;
+
+/**
+ * Where a {@link DataStore} is persisted. A backend follows the store it
+ * opened (or adopted) as a {@link MutationListener}, so every change made
+ * through {@link LibraryModel} and {@link LibraryUsers} reaches it; what it
+ * does with a change is up to the backend. File snapshots only remember that
+ * something changed and write on {@link #save}, a log-structured store
+ * appends each change as it happens.
+ * <p>
+ * Implementations: {@link ShardedSnapshot} (the default), {@link JsonFileBackend},
+ * {@link KeyValueBackend} and {@link JdbcBackend}. {@link #forName} picks one by name.
+ */
+interface StorageBackend extends AutoCloseable {
+
+    /** True if this backend already holds a persisted store. */
+    boolean exists() throws IOException;
+
+    /** Read the persisted store (empty if there is none) and follow its changes from now on. */
+    DataStore open() throws IOException;
+
+    /** Replace whatever is persisted with {@code ds}, e.g. on an import, and follow it from now on. */
+    void adopt(DataStore ds) throws IOException;
+
+    /** Make every change seen so far durable. */
+    void save() throws IOException;
+
+    /**
+     * True if every change is persisted as it happens, so a write-ahead
+     * {@link MutationJournal} in front of the backend adds nothing.
+     */
+    default boolean writesThrough() {
+        return false;
+    }
+
+    /** Save what is pending, stop following the store and release any files. */
+    @Override
+    void close() throws IOException;
+
+    /**
+     * The backend called {@code name} ("shards", "json", "kv" or "sql"), keeping its
+     * files under {@code dataDir}.
+     */
+    static StorageBackend forName(String name, java.nio.file.Path dataDir) {
+        return switch (name) {
+            case "shards" -> new ShardedSnapshot(dataDir.resolve("shards"));
+            case "json" -> new JsonFileBackend(dataDir.resolve("datastore.json"));
+            case "kv" -> new KeyValueBackend(dataDir.resolve("kv"));
+            case "sql" -> JdbcBackend.h2File(dataDir.resolve("gradebook"));
+            default -> throw new IllegalArgumentException("Unknown storage backend: " + name);
+        };
+    }
+}
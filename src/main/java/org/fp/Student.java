@@ -22,6 +22,17 @@ public class Student {
     }
 
 
+    /** Rebuild a persisted student with its original ID (used by {@link DataStoreLoader}). */
+    Student(String stuID, String firstName, String lastName, String email,
+            Set<String> enrolledCourseIDs, Set<String> assignmentIDs) {
+        this.stuID = stuID;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.email = email;
+        this.enrolledCourseIDs = new HashSet<>(enrolledCourseIDs);
+        this.assignmentIDs = new HashSet<>(assignmentIDs);
+    }
+
         // Copy constructor
     public Student(Student other) {
             if (other == null) {
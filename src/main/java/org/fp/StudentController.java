@@ -27,19 +27,41 @@ public class StudentController extends BaseController {
     }
 
 
+    // shared course snapshots for the course list; full Course copies are only made on selection
+    private List<CourseSnapshot> cachedCourseSnapshots = new ArrayList<>();
+
     public void loadStudentCourses() {
-        Student student = model.getStudent(currentStudentID);
+        StudentSnapshot student = model.getStudentSnapshot(currentStudentID);
         if (student == null) return;
-        cachedCourses = student.getEnrolledCourseIDs().stream()
-                .map(model::getCourse)
+        model.loadCourses(student.enrolledCourseIDs());  // reads each course's shard the first time
+        cachedCourseSnapshots = student.enrolledCourseIDs().stream()
+                .map(model::getCourseSnapshot)
                 .filter(Objects::nonNull)
                 .collect(Collectors.toList());
     }
+
+    @Override
+    public Course getCachedCourse(int index) {
+        return (index >= 0 && index < cachedCourseSnapshots.size())
+                ? model.getCourse(cachedCourseSnapshots.get(index).courseID())
+                : null;
+    }
+
+    @Override
+    public void sortCachedCourses(CourseSort sort) {
+        switch (sort) {
+            case NAME -> cachedCourseSnapshots.sort(Comparator.comparing(CourseSnapshot::courseName));
+            case STATUS -> cachedCourseSnapshots.sort(Comparator.comparing(CourseSnapshot::courseDescription));
+            case NONE -> {}
+        }
+    }
+
+    @Override
     public List<List<String>> getFormattedCourseListForDisplayRows() {
         List<List<String>> output = new ArrayList<>();
-        for (Course c : cachedCourses) {
-            String status = c.isCompleted() ? "✅ Completed" : "🟢 In Progress";
-            output.add(List.of(c.getCourseName(), c.getCourseDescription(), status));
+        for (CourseSnapshot c : cachedCourseSnapshots) {
+            String status = c.completed() ? "✅ Completed" : "🟢 In Progress";
+            output.add(List.of(c.courseName(), c.courseDescription(), status));
         }
         return output;
     }
@@ -0,0 +1,18 @@
+package org.fp;
+
+import java.util.Map;
+
+/**
+ * GPA of one student together with the final percentage of every course the
+ * GPA was computed from (courseID → percent). Produced in bulk by
+ * {@link LibraryModel#calculateGradeSummaries}.
+ */
+public record StudentGradeSummary(String studentID,
+                                  double gpa,
+                                  Map<String, Double> finalPercentages) {
+
+    /** Final percentage in one course, or 0 if the student is not enrolled in it. */
+    public double finalPercentage(String courseID) {
+        return finalPercentages.getOrDefault(courseID, 0.0);
+    }
+}
@@ -0,0 +1,31 @@
+package org.fp;
+
+import java.util.Set;
+
+/**
+ * Immutable, shareable view of a {@link Student} as it was when the snapshot was taken.
+ * Handed out by {@link LibraryModel} instead of a fresh deep copy on every read;
+ * the model replaces a snapshot only after the student changes.
+ */
+public record StudentSnapshot(String stuID,
+                              String firstName,
+                              String lastName,
+                              String email,
+                              Set<String> enrolledCourseIDs,
+                              Set<String> assignmentIDs) {
+
+    static StudentSnapshot of(Student s) {
+        return new StudentSnapshot(
+                s.getStuID(),
+                s.getFirstName(),
+                s.getLastName(),
+                s.getEmail(),
+                Set.copyOf(s.getEnrolledCourseIDs()),
+                Set.copyOf(s.getAssignmentIDs())
+        );
+    }
+
+    public String fullName() {
+        return firstName + " " + lastName;
+    }
+}
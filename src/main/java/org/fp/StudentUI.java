@@ -159,15 +159,15 @@ public class StudentUI {
         System.out.println("--------------------------------------------------");
 
         for (String cid : cids) {
-            Course c = m.getCourse(cid); // deep copy OK
-            if (completedOnly && !c.isCompleted()) continue;
+            CourseSnapshot c = m.getCourseSnapshot(cid); // shared, no copy
+            if (completedOnly && !c.completed()) continue;
 
             double pct   = m.getFinalPercentage(cur.getStuID(), cid);
             Grade  grade = Grade.fromScore(pct);
             int    pts   = switch (grade) { case A->4; case B->3; case C->2; case D->1; case F->0; };
 
             System.out.printf(" %-12s │ %7.2f%% │   %d   │ %s%n",
-                    c.getCourseName(), pct, pts, grade);
+                    c.courseName(), pct, pts, grade);
 
             pctSum  += pct;
             ptsSum  += pts;
@@ -19,6 +19,14 @@ public class Teacher {
         this.lastName = lastName;
     }
 
+    /** Rebuild a persisted teacher with its original ID (used by {@link DataStoreLoader}). */
+    Teacher(String teacherID, String firstName, String lastName, Set<String> teachingCourseIDs) {
+        this.teacherID = teacherID;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.teachingCourseIDs = new HashSet<>(teachingCourseIDs);
+    }
+
     // Copy constructor
     public Teacher(Teacher other) {
         if (other == null) {
@@ -69,6 +69,7 @@ public class TeacherController extends BaseController {
 
 
     public void loadAssignmentsForCourse(String courseID) {
+        model.loadCourse(courseID);  // reads the course's shard the first time
         this.currentCourseID = courseID;
         this.cachedAssignments = model.getAssignmentsInCourse(courseID);
     }
@@ -409,9 +410,8 @@ public class TeacherController extends BaseController {
         for (Course course : cachedCoursesManagement) {
             if (addedCourseIDs.contains(course.getCourseID())) {
                 model.addCourse(course);
-                Teacher teacher = model.getTeacher(course.getTeacherID());
-                if (teacher != null) {
-                    teacher.addCourse(course.getCourseID());
+                if (model.teacherExists(course.getTeacherID())) {
+                    model.assignCourseToTeacher(course.getTeacherID(), course.getCourseID());
                 }
             }
         }
@@ -430,31 +430,28 @@ public class TeacherController extends BaseController {
     }
 
 
-    public List<Student> getAvailableStudents(String courseID) {
+    public List<StudentSnapshot> getAvailableStudents(String courseID) {
         // get students in course
-        Set<String> enrolled = getStudentsInCourse(courseID)
+        Set<String> enrolled = new HashSet<>(model.getStudentIDsInCourse(courseID));
+        // All students (shared snapshots, no copies), filter out enrolled ones
+        return model.getStudentSnapshots()
                 .stream()
-                .map(Student::getStuID)
-                .collect(Collectors.toSet());
-        // All students, filter out enrolled ones
-        return model.getAllStudents()
-                .stream()
-                .filter(s -> !enrolled.contains(s.getStuID()))
-                .sorted(Comparator.comparing(Student::getFullName))
+                .filter(s -> !enrolled.contains(s.stuID()))
+                .sorted(Comparator.comparing(StudentSnapshot::fullName))
                 .collect(Collectors.toList());
     }
 
     /**
      * Search available students by keyword
      */
-    public List<Student> searchAvailableStudents(String courseID, String keyword) {
+    public List<StudentSnapshot> searchAvailableStudents(String courseID, String keyword) {
         String kw = keyword.toLowerCase();
         return getAvailableStudents(courseID)
                 .stream()
                 .filter(s ->
-                        s.getFirstName().toLowerCase().contains(kw) ||
-                                s.getLastName().toLowerCase().contains(kw)  ||
-                                s.getEmail().toLowerCase().contains(kw))
+                        s.firstName().toLowerCase().contains(kw) ||
+                                s.lastName().toLowerCase().contains(kw)  ||
+                                s.email().toLowerCase().contains(kw))
                 .collect(Collectors.toList());
     }
 
@@ -0,0 +1,21 @@
+package org.fp;
+
+import java.util.Set;
+
+/**
+ * Immutable, shareable view of a {@link Teacher}.
+ */
+public record TeacherSnapshot(String teacherID,
+                              String firstName,
+                              String lastName,
+                              Set<String> teachingCourseIDs) {
+
+    static TeacherSnapshot of(Teacher t) {
+        return new TeacherSnapshot(
+                t.getTeacherID(),
+                t.getFirstName(),
+                t.getLastName(),
+                Set.copyOf(t.getTeachingCourseIDs())
+        );
+    }
+}
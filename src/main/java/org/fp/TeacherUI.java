@@ -86,6 +86,7 @@ public class TeacherUI {
                     if (choice.matches("[1-9][0-9]*") && Integer.parseInt(choice) <= courseData.size()) {
                         int index = Integer.parseInt(choice) - 1;
                         Course selected = controller.getCachedCourse(index);
+                        controller.loadAssignmentsForCourse(selected.getCourseID());
                         level_2(controller, selected);
                     } else {
                         System.out.println("❌ Invalid choice. Enter again.");
@@ -622,11 +623,16 @@ public class TeacherUI {
                 "Grade", "GPA"));
 
 
+        List<Student> students = TeacherController.getStudentsInCourse(courseID);
+        Map<String, StudentGradeSummary> summaries = model.calculateGradeSummaries(
+                students.stream().map(Student::getStuID).toList());
+
         int index = 1;
-        for (Student s : TeacherController.getStudentsInCourse(courseID)) {
-            double pct   = model.getFinalPercentage(s.getStuID(), courseID);
+        for (Student s : students) {
+            StudentGradeSummary summary = summaries.get(s.getStuID());
+            double pct   = summary.finalPercentage(courseID);
             Grade grade  = Grade.fromScore(pct);
-            double gpa   = model.calculateGPA(s.getStuID());
+            double gpa   = summary.gpa();
 
             rows.add(List.of(
                     String.valueOf(index++),
@@ -1013,7 +1019,7 @@ public class TeacherUI {
      */
     private static void selectExistingStudent(TeacherController controller, Course course) {
         // get current students in course
-        List<Student> available = controller.getAvailableStudents(course.getCourseID());
+        List<StudentSnapshot> available = controller.getAvailableStudents(course.getCourseID());
         clear();
         if (available.isEmpty()) {
             System.out.println("❌ No available students to add.");
@@ -1025,12 +1031,12 @@ public class TeacherUI {
         List<List<String>> rows = new ArrayList<>();
         rows.add(List.of("No.", "First Name", "Last Name", "Email"));
         for (int i = 0; i < available.size(); i++) {
-            Student s = available.get(i);
+            StudentSnapshot s = available.get(i);
             rows.add(List.of(
                     String.valueOf(i + 1),
-                    s.getFirstName(),
-                    s.getLastName(),
-                    s.getEmail()
+                    s.firstName(),
+                    s.lastName(),
+                    s.email()
             ));
         }
         TablePrinter.printDynamicTable(
@@ -1047,7 +1053,7 @@ public class TeacherUI {
             else if (input.equals("f")) {
                 System.out.print("🔍 Enter keyword: ");
                 String kw = sc.nextLine().trim();
-                List<Student> matched = controller.searchAvailableStudents(
+                List<StudentSnapshot> matched = controller.searchAvailableStudents(
                         course.getCourseID(), kw
                 );
                 if (matched.isEmpty()) {
@@ -1057,12 +1063,12 @@ public class TeacherUI {
                     rows.clear();
                     rows.add(List.of("No.", "First Name", "Last Name", "Email"));
                     for (int i = 0; i < matched.size(); i++) {
-                        Student s = matched.get(i);
+                        StudentSnapshot s = matched.get(i);
                         rows.add(List.of(
                                 String.valueOf(i + 1),
-                                s.getFirstName(),
-                                s.getLastName(),
-                                s.getEmail()
+                                s.firstName(),
+                                s.lastName(),
+                                s.email()
                         ));
                     }
                     TablePrinter.printDynamicTable(
@@ -1074,13 +1080,13 @@ public class TeacherUI {
             else if (input.matches("\\d+")) {
                 int idx = Integer.parseInt(input);
                 if (idx > 0 && idx <= available.size()) {
-                    Student chosen = available.get(idx - 1);
+                    StudentSnapshot chosen = available.get(idx - 1);
 
                     String err = controller.addExistingStudentToCache(
-                            chosen.getStuID(), course.getCourseID()
+                            chosen.stuID(), course.getCourseID()
                     );
                     if (err == null) {
-                        System.out.println("✅ Added " + chosen.getFullName());
+                        System.out.println("✅ Added " + chosen.fullName());
                     } else {
                         System.out.println("❌ " + err);
                     }
@@ -0,0 +1,110 @@
+package org.fp;
+
+import java.util.Objects;
+
+/**
+ * The VIC key schedule of one {@link VICData}, derived once.
+ * <p>
+ * {@link EncryptVIC} and {@link DecryptVIC} redo steps 1-5 (no-carry
+ * addition, chain addition, two digit permutations) and rebuild the
+ * checkerboard map on every call, although the key never changes while the
+ * app runs. This class keeps the result as a {@link CheckerboardCodec}, so
+ * a call only walks the message. Output is the same as the two classes
+ * above, including "null" for a character the checkerboard has no code for.
+ * Keys that those classes reject with an exception are handed to them
+ * unchanged.
+ * <p>
+ * Obtain one through {@link VICData#cipher()}.
+ */
+final class VICCipher {
+    private static final int ID_LENGTH = 5;
+
+    // the VICData this was compiled from and the key fields it had then
+    private final VICData source;
+    private final String agentID;
+    private final String date;
+    private final String phrase;
+    private final String anagram;
+
+    // false if deriving the key failed; every call then goes through the old path
+    private final boolean valid;
+    private final int idIndex;
+    private final CheckerboardCodec checkerboard;
+
+    private VICCipher(VICData vic) {
+        source = vic;
+        agentID = vic.agentID;
+        date = vic.date;
+        phrase = vic.phrase;
+        anagram = vic.anagram;
+
+        CheckerboardCodec board = null;
+        int index = -1;
+        try {
+            String step5 = VICKernels.checkerboardPermutation(agentID, date, phrase);
+            board = CheckerboardCodec.of(step5, anagram);
+            index = Integer.parseInt(date.substring(5));
+        } catch (RuntimeException e) {
+            board = null;
+        }
+        valid = board != null && index >= 0 && agentID.length() == ID_LENGTH;
+        idIndex = index;
+        checkerboard = board;
+    }
+
+    static VICCipher compile(VICData vic) {
+        return new VICCipher(vic);
+    }
+
+    /** Whether the key fields of {@code vic} are still the ones this was compiled from. */
+    boolean compiledFrom(VICData vic) {
+        return vic == source
+                && Objects.equals(agentID, vic.agentID)
+                && Objects.equals(date, vic.date)
+                && Objects.equals(phrase, vic.phrase)
+                && Objects.equals(anagram, vic.anagram);
+    }
+
+    /** Same result as {@link EncryptVIC#encrypt}. */
+    String encrypt(String password) {
+        if (!valid) {
+            return EncryptVIC.encrypt(password, source);
+        }
+        StringBuilder out = new StringBuilder(password.length() * 2 + ID_LENGTH);
+        checkerboard.encode(password, out);
+        return out.insert(idIndex, agentID).toString();
+    }
+
+    /** Same result as {@link DecryptVIC#decrypt}. */
+    String decrypt(String encrypted) {
+        int length = encrypted.length() - ID_LENGTH;
+        // a different agent ID means a different key
+        if (!valid || idIndex > length || !encrypted.regionMatches(idIndex, agentID, 0, ID_LENGTH)) {
+            return DecryptVIC.decrypt(encrypted, source);
+        }
+        return checkerboard.decode(new WithoutID(encrypted, idIndex));
+    }
+
+    /** The encoded message with the agent ID cut out, without copying it. */
+    private record WithoutID(String encrypted, int idIndex) implements CharSequence {
+        @Override
+        public int length() {
+            return encrypted.length() - ID_LENGTH;
+        }
+
+        @Override
+        public char charAt(int i) {
+            return encrypted.charAt(i < idIndex ? i : i + ID_LENGTH);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return toString().subSequence(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return encrypted.substring(0, idIndex) + encrypted.substring(idIndex + ID_LENGTH);
+        }
+    }
+}
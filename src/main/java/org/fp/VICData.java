@@ -7,6 +7,9 @@ public class VICData {
     public String anagram;
     public String message;
 
+    // key schedule derived from the fields above, rebuilt when one of them is reassigned
+    private transient volatile VICCipher cipher;
+
     public VICData(String agentID, String date, String phrase, String anagram, String message) {
         this.agentID = agentID;
         this.date = date;
@@ -18,4 +21,14 @@ public class VICData {
     // Default constructor
     public VICData() {
     }
+
+    /** The compiled cipher for the current key, derived on first use. */
+    VICCipher cipher() {
+        VICCipher c = cipher;
+        if (c == null || !c.compiledFrom(this)) {
+            c = VICCipher.compile(this);
+            cipher = c;
+        }
+        return c;
+    }
 }
@@ -0,0 +1,196 @@
+package org.fp;
+
+/**
+ * Primitive versions of the VIC digit operations in {@link VICOperations}.
+ * <p>
+ * Digits are bytes 0-9 in caller-supplied buffers, so a whole key derivation
+ * (steps 1-5 of {@link EncryptVIC}) runs in a few small arrays instead of a
+ * chain of StringBuilders, maps and boxed integers:
+ * <ul>
+ *   <li>{@link #noCarryAddition} adds right-aligned digits in place;</li>
+ *   <li>{@link #chainAddition} extends a buffer in place;</li>
+ *   <li>{@link #digitPermutation} ranks characters with a counting sort.</li>
+ * </ul>
+ * The String methods give the same results as their VICOperations
+ * counterparts, including null and exceptions; input the kernels do not
+ * cover (non-digits, non-ASCII letters, ...) is handed to VICOperations.
+ */
+final class VICKernels {
+    private static final int ASCII = 128;
+
+    private VICKernels() { }
+
+    // ---------- kernels ----------
+
+    /**
+     * Digit-wise sum mod 10 of {@code a[0..aLen)} and {@code b[0..bLen)},
+     * aligned on their last digit, without leading zeros (one zero is kept).
+     * {@code out} may be {@code a} or {@code b}.
+     *
+     * @return the number of digits written to {@code out}
+     */
+    static int noCarryAddition(byte[] a, int aLen, byte[] b, int bLen, byte[] out) {
+        int len = Math.max(aLen, bLen);
+        // right to left, so writing into a or b never overwrites a digit still to be read
+        for (int i = 1; i <= len; i++) {
+            int x = aLen - i >= 0 ? a[aLen - i] : 0;
+            int y = bLen - i >= 0 ? b[bLen - i] : 0;
+            out[len - i] = (byte) ((x + y) % 10);
+        }
+        int start = 0;
+        while (start < len - 1 && out[start] == 0) {
+            start++;
+        }
+        if (start > 0) {
+            System.arraycopy(out, start, out, 0, len - start);
+        }
+        return len - start;
+    }
+
+    /**
+     * Extend {@code buf[0..len)} to {@code digits} digits by chain addition:
+     * each new digit is the sum mod 10 of the digits {@code len} and
+     * {@code len - 1} places back (a single digit starts from an implied 0).
+     * Requires {@code 1 <= len < digits}.
+     */
+    static void chainAddition(byte[] buf, int len, int digits) {
+        if (len == 1) {
+            buf[1] = buf[0];
+            for (int k = 2; k < digits; k++) {
+                buf[k] = (byte) ((buf[k - 2] + buf[k - 1]) % 10);
+            }
+        } else {
+            for (int k = len; k < digits; k++) {
+                buf[k] = (byte) ((buf[k - len] + buf[k - len + 1]) % 10);
+            }
+        }
+    }
+
+    /**
+     * Number the 10 keys {@code keys[0..10)} 0-9 in ascending order, equal
+     * keys left to right, with a counting sort. Keys must be below 128.
+     */
+    static void digitPermutation(byte[] keys, byte[] out) {
+        int[] start = new int[ASCII + 1];
+        for (int i = 0; i < 10; i++) {
+            start[keys[i] + 1]++;
+        }
+        for (int k = 0; k < ASCII; k++) {
+            start[k + 1] += start[k];
+        }
+        for (int i = 0; i < 10; i++) {
+            out[i] = (byte) start[keys[i]]++;
+        }
+    }
+
+    // ---------- drop-in String versions ----------
+
+    /** Same as {@link VICOperations#noCarryAddition}. */
+    static String noCarryAddition(String num1, String num2) {
+        if (!isDigits(num1) || !isDigits(num2)) {
+            return VICOperations.noCarryAddition(num1, num2);
+        }
+        byte[] a = digits(num1, num1.length());
+        byte[] out = new byte[Math.max(num1.length(), num2.length())];
+        return text(out, noCarryAddition(a, a.length, digits(num2, num2.length()), num2.length(), out));
+    }
+
+    /** Same as {@link VICOperations#chainAddition}. */
+    static String chainAddition(String num, int digit) {
+        if (num.isEmpty() || num.length() >= digit || !isDigits(num)) {
+            return VICOperations.chainAddition(num, digit);
+        }
+        byte[] buf = digits(num, digit);
+        chainAddition(buf, num.length(), digit);
+        return text(buf, digit);
+    }
+
+    /** Same as {@link VICOperations#digitPermutation}. */
+    static String digitPermutation(String s) {
+        if (s == null || s.length() < 10) return null;
+        byte[] keys = new byte[10];
+        if (s.length() != 10 || !rankKeys(s, keys)) {
+            return VICOperations.digitPermutation(s);
+        }
+        byte[] out = new byte[10];
+        digitPermutation(keys, out);
+        return text(out, 10);
+    }
+
+    /**
+     * Steps 1-5 of {@link EncryptVIC}: the digit permutation the checkerboard
+     * is built from, or null if the key does not yield one.
+     */
+    static String checkerboardPermutation(String agentID, String date, String phrase) {
+        byte[] keys = new byte[10];
+        if (!isDigits(agentID) || agentID.isEmpty() || date.length() < 5 || !isDigits(date.substring(0, 5))
+                || phrase == null || phrase.length() != 10 || !rankKeys(phrase, keys)) {
+            String step1 = VICOperations.noCarryAddition(agentID, date.substring(0, 5));
+            String step2 = VICOperations.chainAddition(step1, 10);
+            String step3 = VICOperations.digitPermutation(phrase);
+            String step4 = VICOperations.noCarryAddition(step2, step3);
+            return VICOperations.digitPermutation(step4);
+        }
+        // step 1 and 2 share one buffer: the sum, then its chain to 10 digits
+        byte[] chain = new byte[Math.max(agentID.length(), 10)];
+        for (int i = 0; i < agentID.length(); i++) {
+            chain[i] = (byte) (agentID.charAt(i) - '0');
+        }
+        byte[] date5 = digits(date, 5);
+        int len = noCarryAddition(chain, agentID.length(), date5, 5, chain);
+        if (len < 10) {
+            chainAddition(chain, len, 10);
+        }
+        // step 3 and 4: the phrase permutation added to the chain
+        byte[] sum = new byte[10];
+        digitPermutation(keys, sum);
+        len = noCarryAddition(chain, 10, sum, 10, sum);
+        if (len < 10) return null;   // digitPermutation needs 10 digits
+        // step 5: permute the sum; digits rank in the same order as their chars
+        byte[] out = new byte[10];
+        digitPermutation(sum, out);
+        return text(out, 10);
+    }
+
+    // ---------- helpers ----------
+
+    /**
+     * Rank keys of {@code s} as digitPermutation orders them (its lower-case
+     * characters); false if one is not ASCII.
+     */
+    private static boolean rankKeys(String s, byte[] keys) {
+        for (int i = 0; i < 10; i++) {
+            char c = Character.toLowerCase(s.charAt(i));
+            if (c >= ASCII) return false;
+            keys[i] = (byte) c;
+        }
+        return true;
+    }
+
+    private static boolean isDigits(String s) {
+        if (s == null) return false;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') return false;
+        }
+        return true;
+    }
+
+    /** The digits of {@code s[0..n)} in a buffer of at least {@code capacity}. */
+    private static byte[] digits(String s, int capacity) {
+        int n = Math.min(s.length(), capacity);
+        byte[] b = new byte[Math.max(n, capacity)];
+        for (int i = 0; i < n; i++) {
+            b[i] = (byte) (s.charAt(i) - '0');
+        }
+        return b;
+    }
+
+    private static String text(byte[] digits, int len) {
+        char[] c = new char[len];
+        for (int i = 0; i < len; i++) {
+            c[i] = (char) ('0' + digits[i]);
+        }
+        return new String(c);
+    }
+}
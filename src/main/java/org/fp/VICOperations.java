@@ -41,7 +41,6 @@ import java.util.Arrays;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeMap;
 
@@ -364,42 +363,27 @@ public class VICOperations {
 		return labels.toString();
 	}
 
+	/**
+	 * Encodes a message with the straddling checkerboard of
+	 * {@link #get2DTable}; a character that has no code becomes "null".
+	 *
+	 * @return the digits, or null if the permutation or anagram is invalid
+	 */
 	public static String checkerboardEncode(String numberPermutation, String anagram, String message) {
-		LinkedHashMap<Character, String> board = get2DTable(numberPermutation, anagram);
-		if (board == null) return null;
-		StringBuilder encoded = new StringBuilder();
-		for (char c : message.toCharArray()) {
-			encoded.append(board.get(c));
-		}
-		return encoded.toString();
+		CheckerboardCodec codec = CheckerboardCodec.of(numberPermutation, anagram);
+		if (codec == null) return null;
+		return codec.encode(message);
 	}
 
-	// Decode the message using the straddling checkerboard
+	/**
+	 * Decodes digits produced by {@link #checkerboardEncode}.
+	 *
+	 * @return the message, or null if the permutation or anagram is invalid
+	 */
 	public static String checkerboardDecode(String numberPermutation, String anagram, String encodedMessage) {
-		LinkedHashMap<Character, String> board = get2DTable(numberPermutation, anagram);
-		String label = getLabel(numberPermutation, anagram);
-		if (board == null) return null;
-
-		ArrayList<String> messageList = new ArrayList<>();
-		for (int i = 0; i < encodedMessage.length(); i++) {
-			if (label.indexOf(encodedMessage.charAt(i)) != -1) {
-				messageList.add(encodedMessage.substring(i, i + 2));
-				i++;
-			} else {
-				messageList.add(encodedMessage.substring(i, i + 1));
-			}
-		}
-
-		StringBuilder decoded = new StringBuilder();
-		for (String code : messageList) {
-			for (Entry<Character, String> entry : board.entrySet()) {
-				if (entry.getValue().equals(code)) {
-					decoded.append(entry.getKey());
-					break;
-				}
-			}
-		}
-		return decoded.toString();
+		CheckerboardCodec codec = CheckerboardCodec.of(numberPermutation, anagram);
+		if (codec == null) return null;
+		return codec.decode(encodedMessage);
 	}
 
 	// insert agentID
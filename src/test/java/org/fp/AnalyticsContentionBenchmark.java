@@ -0,0 +1,216 @@
+package org.fp;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Contention benchmark for the analytics reads of {@link LibraryModel} while
+ * teachers keep grading. Reader threads loop over group averages and
+ * medians, class averages and grade reports; writer threads loop over
+ * {@link LibraryModel#updateScore} in random courses. Two setups run on
+ * the same model:
+ * <ul>
+ *   <li>one {@link ReentrantReadWriteLock} around every call, i.e. a model
+ *       guarded by a single lock, as the baseline;</li>
+ *   <li>the model's own locking: per-course locks with optimistic reads.</li>
+ * </ul>
+ * Not a test; run it by hand, e.g.
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=org.fp.AnalyticsContentionBenchmark -Dexec.args="8 2 5"}.
+ *
+ * Arguments (all optional): reader threads, writer threads, seconds per run.
+ */
+class AnalyticsContentionBenchmark {
+    private static final int COURSES = 24;
+    private static final int STUDENTS_PER_COURSE = 30;
+    private static final int ASSIGNMENTS_PER_STUDENT = 5;
+    private static final int COURSES_PER_STUDENT = 2;
+
+    /** How the threads get at the model. */
+    private interface Access {
+        <T> T read(Supplier<T> call);
+        void write(Runnable call);
+    }
+
+    private record Run(String name, long reads, long writes, long millis) {
+        double readsPerSecond() {
+            return reads * 1000.0 / millis;
+        }
+
+        double writesPerSecond() {
+            return writes * 1000.0 / millis;
+        }
+    }
+
+    private final LibraryModel model = new LibraryModel();
+    private final List<String> courseIDs = new ArrayList<>();
+    private final List<String> studentIDs = new ArrayList<>();
+    private final List<String> gradeIDs = new ArrayList<>();
+
+    public static void main(String[] args) throws InterruptedException {
+        int readers = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int writers = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+
+        AnalyticsContentionBenchmark bench = new AnalyticsContentionBenchmark();
+        bench.populate();
+        System.out.println("📊 " + bench.courseIDs.size() + " courses, " + bench.studentIDs.size()
+                + " students, " + bench.gradeIDs.size() + " scores; "
+                + readers + " readers, " + writers + " writers, " + seconds + " s per run");
+
+        ReentrantReadWriteLock single = new ReentrantReadWriteLock();
+        Access baseline = new Access() {
+            @Override
+            public <T> T read(Supplier<T> call) {
+                single.readLock().lock();
+                try {
+                    return call.get();
+                } finally {
+                    single.readLock().unlock();
+                }
+            }
+
+            @Override
+            public void write(Runnable call) {
+                single.writeLock().lock();
+                try {
+                    call.run();
+                } finally {
+                    single.writeLock().unlock();
+                }
+            }
+        };
+        Access optimistic = new Access() {
+            @Override
+            public <T> T read(Supplier<T> call) {
+                return call.get();
+            }
+
+            @Override
+            public void write(Runnable call) {
+                call.run();
+            }
+        };
+
+        // warm both paths up before measuring
+        bench.run("warm-up", baseline, readers, writers, 1);
+        bench.run("warm-up", optimistic, readers, writers, 1);
+
+        List<Run> runs = List.of(
+                bench.run("ReentrantReadWriteLock (one lock)", baseline, readers, writers, seconds),
+                bench.run("StampedLock optimistic (per course)", optimistic, readers, writers, seconds));
+
+        List<List<String>> rows = new ArrayList<>();
+        rows.add(List.of("Setup", "Reads/s", "Writes/s"));
+        for (Run r : runs) {
+            rows.add(List.of(r.name(), String.format("%,.0f", r.readsPerSecond()),
+                    String.format("%,.0f", r.writesPerSecond())));
+        }
+        TablePrinter.printDynamicTable("Analytics under grading contention", rows);
+        System.out.printf("🚀 Reads: %.2fx, writes: %.2fx of the baseline%n",
+                runs.get(1).readsPerSecond() / runs.get(0).readsPerSecond(),
+                runs.get(1).writesPerSecond() / runs.get(0).writesPerSecond());
+    }
+
+    private void populate() {
+        Teacher t = new Teacher("Bench", "Mark");
+        model.addTeacher(t);
+        for (int c = 0; c < COURSES; c++) {
+            Course course = new Course("Course " + c, "Benchmark", t.getTeacherID());
+            model.addCourse(course);
+            courseIDs.add(course.getCourseID());
+            if (c % 2 == 0) {
+                model.setGradingMode(course.getCourseID(), true);
+                model.setCategoryWeight(course.getCourseID(), "Homework", 1.0);
+                model.setCategoryDrop(course.getCourseID(), "Homework", 1);
+            }
+        }
+        LocalDate due = LocalDate.of(2025, 4, 1);
+        int students = COURSES * STUDENTS_PER_COURSE / COURSES_PER_STUDENT;
+        for (int i = 0; i < students; i++) {
+            Student s = new Student("S" + i, "Bench", "s" + i + "@bench.test");
+            model.addStudent(s);
+            studentIDs.add(s.getStuID());
+            for (int k = 0; k < COURSES_PER_STUDENT; k++) {
+                String courseID = courseIDs.get((i + k * (COURSES / COURSES_PER_STUDENT)) % COURSES);
+                model.enrollStudentInCourse(s.getStuID(), courseID);
+                for (int n = 1; n <= ASSIGNMENTS_PER_STUDENT; n++) {
+                    Assignment a = new Assignment("HW " + n, s.getStuID(), courseID, due, due.plusDays(7));
+                    a.setCategory("Homework");
+                    a.submit();
+                    String gradeID = "G_" + a.getAssignmentID();
+                    a.markGraded(gradeID);
+                    model.addAssignment(a);
+                    model.addScore(new Score(gradeID, a.getAssignmentID(), s.getStuID(), 50 + n * 9, 100));
+                    gradeIDs.add(gradeID);
+                }
+            }
+        }
+    }
+
+    private Run run(String name, Access access, int readers, int writers, int seconds)
+            throws InterruptedException {
+        LongAdder reads = new LongAdder();
+        LongAdder writes = new LongAdder();
+        AtomicBoolean stop = new AtomicBoolean(false);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < readers; i++) {
+            threads.add(new Thread(() -> {
+                await(start);
+                ThreadLocalRandom rnd = ThreadLocalRandom.current();
+                double sink = 0;
+                while (!stop.get()) {
+                    String courseID = courseIDs.get(rnd.nextInt(courseIDs.size()));
+                    String group = "HW " + (1 + rnd.nextInt(ASSIGNMENTS_PER_STUDENT));
+                    sink += switch (rnd.nextInt(4)) {
+                        case 0 -> access.read(() -> model.getAveragePercentageForGroup(courseID, group));
+                        case 1 -> access.read(() -> model.getMedianPercentageForGroup(courseID, group));
+                        case 2 -> access.read(() -> model.calculateClassAverage(courseID));
+                        default -> access.read(() -> model.buildGradeReport(
+                                studentIDs.get(rnd.nextInt(studentIDs.size())))).length();
+                    };
+                    reads.increment();
+                }
+                if (sink == 42) System.out.print("");   // keeps the reads from being optimised away
+            }, "bench-reader-" + i));
+        }
+        for (int i = 0; i < writers; i++) {
+            threads.add(new Thread(() -> {
+                await(start);
+                ThreadLocalRandom rnd = ThreadLocalRandom.current();
+                while (!stop.get()) {
+                    String gradeID = gradeIDs.get(rnd.nextInt(gradeIDs.size()));
+                    int earned = rnd.nextInt(101);
+                    access.write(() -> model.updateScore(gradeID, earned, 100));
+                    writes.increment();
+                }
+            }, "bench-writer-" + i));
+        }
+        threads.forEach(Thread::start);
+        long begin = System.nanoTime();
+        start.countDown();
+        Thread.sleep(seconds * 1000L);
+        stop.set(true);
+        for (Thread th : threads) {
+            th.join();
+        }
+        long millis = Math.max(1, (System.nanoTime() - begin) / 1_000_000);
+        return new Run(name, reads.sum(), writes.sum(), millis);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package org.fp;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AssignmentIndexTest {
+
+    @Test
+    void testPairsKeepTheirOwnAssignments() {
+        AssignmentIndex index = new AssignmentIndex();
+        index.add(0, 0, 10);
+        index.add(0, 0, 11);
+        index.add(0, 0, 11);   // already there
+        index.add(0, 1, 12);
+        index.add(5, 0, 13);
+
+        assertEquals(2, index.get(0, 0).size());
+        assertTrue(index.get(0, 1).contains(12));
+        assertTrue(index.get(5, 0).contains(13));
+        assertNull(index.get(1, 0));
+        assertNull(index.get(0, 2));
+        assertNull(index.get(-1, 0));
+        assertNull(index.get(99, 0));
+
+        index.remove(0, 0, 10);
+        assertEquals(1, index.get(0, 0).size());
+        index.remove(0, 0, 11);
+        assertNull(index.get(0, 0));
+        assertTrue(index.get(0, 1).contains(12));   // the student's other course is untouched
+        index.remove(7, 0, 1);                      // unknown pair
+
+        index.clear();
+        assertNull(index.get(0, 1));
+    }
+
+    @Test
+    void testManyCoursesPerStudent() {
+        AssignmentIndex index = new AssignmentIndex();
+        for (int c = 0; c < 20; c++) {
+            index.add(3, c, 100 + c);
+        }
+        for (int c = 0; c < 20; c++) {
+            assertEquals(100 + c, index.get(3, c).get(0));
+        }
+    }
+
+    @Test
+    void testCourseListsFollowEveryStudent() {
+        AssignmentIndex index = new AssignmentIndex();
+        index.add(0, 2, 10);
+        index.add(1, 2, 11);
+        index.add(1, 2, 11);   // already there
+        index.add(1, 3, 12);
+
+        assertEquals(2, index.inCourse(2).size());
+        assertTrue(index.inCourse(3).contains(12));
+        assertNull(index.inCourse(0));
+        assertNull(index.inCourse(-1));
+
+        index.remove(0, 2, 10);
+        index.remove(0, 2, 11);   // not this student's: the course keeps it
+        assertEquals(1, index.inCourse(2).size());
+        index.remove(1, 2, 11);
+        assertNull(index.inCourse(2));
+
+        index.clear();
+        assertNull(index.inCourse(3));
+    }
+}
@@ -0,0 +1,81 @@
+package org.fp;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AutosaveServiceTest {
+
+    // long enough that the background thread never fires during a test
+    private static final long NEVER = TimeUnit.HOURS.toMillis(1);
+
+    @Test
+    void testBurstOfChangesIsSavedOnce() throws IOException {
+        DataStore ds = new DataStore();
+        AtomicInteger saves = new AtomicInteger();
+        try (AutosaveService autosave = AutosaveService.start(ds, saves::incrementAndGet, NEVER)) {
+            assertFalse(autosave.isDirty());
+            for (int i = 0; i < 50; i++) {
+                ds.model.addStudent(new Student("S" + i, "Burst", "s" + i + "@test.com"));
+            }
+            assertTrue(autosave.isDirty());
+
+            assertTrue(autosave.flush());
+            assertFalse(autosave.flush());   // nothing new
+            assertEquals(1, saves.get());
+            assertEquals(1, autosave.saveCount());
+            assertEquals(0, autosave.lagMillis());
+        }
+        assertEquals(1, saves.get());   // clean on close, so no extra save
+    }
+
+    @Test
+    void testCloseSavesPendingChanges() {
+        DataStore ds = new DataStore();
+        AtomicInteger saves = new AtomicInteger();
+        AutosaveService autosave = AutosaveService.start(ds, saves::incrementAndGet, NEVER);
+        ds.model.addTeacher(new Teacher("Tina", "Close"));
+        autosave.close();
+        assertEquals(1, saves.get());
+
+        // no longer listening once closed
+        ds.model.addTeacher(new Teacher("Tom", "Late"));
+        assertFalse(autosave.isDirty());
+    }
+
+    @Test
+    void testFailedSaveStaysDirty() {
+        DataStore ds = new DataStore();
+        try (AutosaveService autosave = AutosaveService.start(ds, () -> {
+            throw new IOException("disk full");
+        }, NEVER)) {
+            ds.model.addTeacher(new Teacher("Fay", "Fail"));
+            assertThrows(IOException.class, autosave::flush);
+            assertTrue(autosave.isDirty());
+            assertEquals(0, autosave.saveCount());
+        }
+    }
+
+    @Test
+    void testBackgroundSaveWritesSnapshot(@TempDir Path dir) throws Exception {
+        DataStore ds = new DataStore();
+        Path bin = dir.resolve("datastore.bin");
+        CountDownLatch saved = new CountDownLatch(1);
+        try (AutosaveService autosave = AutosaveService.start(ds, () -> {
+            DataStoreSnapshot.save(ds, bin);
+            saved.countDown();
+        }, 20)) {
+            Teacher t = new Teacher("Bea", "Background");
+            ds.model.addTeacher(t);
+            assertTrue(saved.await(5, TimeUnit.SECONDS));
+            assertNotNull(DataStoreSnapshot.read(bin).model.getTeacher(t.getTeacherID()));
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package org.fp;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BulkImportTest {
+
+    @TempDir
+    Path dir;
+
+    private final VICData vic = new VICData("12345", "250314", "HELLOWORLD", "AB CD EFGH", "");
+    private LibraryUsers users;
+    private LibraryModel model;
+
+    @BeforeEach
+    void setUp() {
+        users = new LibraryUsers();
+        model = new LibraryModel();
+    }
+
+    private Path csv(String name, String... lines) throws IOException {
+        List<String> all = new ArrayList<>();
+        all.add("first,last,email");
+        all.addAll(List.of(lines));
+        return Files.write(dir.resolve(name), all);
+    }
+
+    @Test
+    void testRegistersValidRowsAsStudents() throws IOException {
+        Path f = csv("StudentList1.csv", "Ada,Lovelace,ada@test.com", "Alan,Turing,alan@test.com");
+        BulkImport.Result r = BulkImport.run(List.of(f), "pw", vic, users, model);
+
+        assertEquals(2, r.added());
+        assertEquals(2, r.rows());
+        assertEquals(LibraryUsers.UserType.STUDENT, users.getUserType("ada@test.com"));
+        assertTrue(users.authenticate("ada@test.com", "pw", vic));
+        Student s = model.getStudent(users.getObjectID("alan@test.com"));
+        assertEquals("Turing", s.getLastName());
+        assertEquals(2, model.getAllStudents().size());
+    }
+
+    @Test
+    void testDuplicatesAndInvalidRowsAreCountedPerFile() throws IOException {
+        users.registerUser("old@test.com", "x", "Old", "User", "old@test.com",
+                LibraryUsers.UserType.STUDENT, vic);
+        Path a = csv("StudentList1.csv",
+                "A,One,a@test.com",
+                "A,Again,a@test.com",
+                "Bad,Row",
+                "No,Email,nope",
+                "Old,User,old@test.com");
+        Path b = csv("StudentList2.csv", "A,Other,a@test.com", "B,Two,b@test.com");
+        BulkImport.Result r = BulkImport.run(List.of(a, b), "pw", vic, users, model);
+
+        BulkImport.FileSummary first = r.files().get(0);
+        assertEquals(1, first.added());
+        assertEquals(2, first.duplicates());
+        assertEquals(2, first.invalid());
+        BulkImport.FileSummary second = r.files().get(1);
+        assertEquals(1, second.added());
+        assertEquals(1, second.duplicates());
+        assertEquals(7, r.rows());
+        assertEquals(2, r.added());
+        assertEquals("One", model.getStudent(users.getObjectID("a@test.com")).getLastName());
+    }
+
+    @Test
+    void testEmptyFileIsReported() throws IOException {
+        Path empty = Files.createFile(dir.resolve("StudentList3.csv"));
+        BulkImport.Result r = BulkImport.run(List.of(empty), "pw", vic, users, model);
+        assertEquals("File is empty", r.files().get(0).error());
+        assertEquals(0, r.added());
+    }
+
+    @Test
+    void testManyFilesImportConcurrently() throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (int f = 0; f < 8; f++) {
+            String[] lines = new String[500];
+            for (int i = 0; i < lines.length; i++) {
+                lines[i] = "S" + i + ",F" + f + ",s" + f + "-" + i + "@test.com";
+            }
+            files.add(csv("StudentList" + f + ".csv", lines));
+        }
+        BulkImport.Result r = BulkImport.run(files, "pw", vic, users, model);
+        assertEquals(4000, r.added());
+        assertEquals(4000, model.getAllStudents().size());
+        assertTrue(r.rowsPerSecond() > 0);
+    }
+}
@@ -0,0 +1,119 @@
+package org.fp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CheckerboardCodecTest {
+
+    /** checkerboardEncode as it was: one map lookup per character. */
+    private static String mapEncode(Map<Character, String> board, String message) {
+        StringBuilder sb = new StringBuilder();
+        for (char c : message.toCharArray()) {
+            sb.append(board.get(c));
+        }
+        return sb.toString();
+    }
+
+    /** checkerboardDecode as it was: a scan of the board per code. */
+    private static String mapDecode(Map<Character, String> board, String label, String encoded) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < encoded.length(); i++) {
+            String code;
+            if (label.indexOf(encoded.charAt(i)) != -1) {
+                code = encoded.substring(i, i + 2);
+                i++;
+            } else {
+                code = encoded.substring(i, i + 1);
+            }
+            for (Map.Entry<Character, String> e : board.entrySet()) {
+                if (e.getValue().equals(code)) {
+                    sb.append(e.getKey());
+                    break;
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    @Test
+    void testMatchesTheMapBoardOnRandomKeys() {
+        Random rnd = new Random(7);
+        for (int round = 0; round < 500; round++) {
+            String number = randomPermutation(rnd);
+            String anagram = randomAnagram(rnd);
+            Map<Character, String> board = VICOperations.get2DTable(number, anagram);
+            String label = VICOperations.getLabel(number, anagram);
+            CheckerboardCodec codec = CheckerboardCodec.of(number, anagram);
+
+            String message = randomMessage(rnd);
+            assertEquals(mapEncode(board, message), codec.encode(message));
+            String digits = mapEncode(board, message.replaceAll("[^A-Z]", ""));
+            assertEquals(mapDecode(board, label, digits), codec.decode(digits));
+            String noise = digits + "x7" + rnd.nextInt(10) + "3";
+            if (label.indexOf(noise.charAt(noise.length() - 1)) < 0) {
+                assertEquals(mapDecode(board, label, noise), codec.decode(noise));
+            }
+        }
+    }
+
+    @Test
+    void testUnknownCharactersEncodeAsNull() {
+        CheckerboardCodec codec = CheckerboardCodec.of("4071826395", "A TIN SHOE");
+        assertEquals(VICOperations.checkerboardEncode("4071826395", "A TIN SHOE", "hi!"), codec.encode("hi!"));
+        assertEquals("nullnullnull", codec.encode("hi!"));
+    }
+
+    @Test
+    void testInvalidKeyHasNoCodec() {
+        assertNull(CheckerboardCodec.of("01234", "ABCDEFGH  "));
+        assertNull(CheckerboardCodec.of("0123456789", "ABCDEFGHIJ"));
+        assertNull(VICOperations.checkerboardDecode("01234", "ABCDEFGH  ", "123"));
+    }
+
+    @Test
+    void testCutOffCodeThrows() {
+        // the spaces sit over 2 and 3, so a trailing 2 starts a code that never ends
+        CheckerboardCodec codec = CheckerboardCodec.of("0123456789", "AB  CDEFGH");
+        assertThrows(StringIndexOutOfBoundsException.class, () -> codec.decode("012"));
+    }
+
+    private static String randomPermutation(Random rnd) {
+        List<Character> digits = new ArrayList<>();
+        for (char c = '0'; c <= '9'; c++) digits.add(c);
+        Collections.shuffle(digits, rnd);
+        StringBuilder sb = new StringBuilder();
+        digits.forEach(sb::append);
+        return sb.toString();
+    }
+
+    private static String randomAnagram(Random rnd) {
+        List<Character> letters = new ArrayList<>();
+        for (char c = 'A'; c <= 'Z'; c++) letters.add(c);
+        Collections.shuffle(letters, rnd);
+        List<Character> anagram = new ArrayList<>(letters.subList(0, 8));
+        anagram.add(' ');
+        anagram.add(' ');
+        Collections.shuffle(anagram, rnd);
+        StringBuilder sb = new StringBuilder();
+        for (char c : anagram) {
+            sb.append(rnd.nextBoolean() ? Character.toLowerCase(c) : c);
+        }
+        return sb.toString();
+    }
+
+    private static String randomMessage(Random rnd) {
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabc 1!";
+        StringBuilder sb = new StringBuilder();
+        for (int i = rnd.nextInt(20); i > 0; i--) {
+            sb.append(alphabet.charAt(rnd.nextInt(alphabet.length())));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,341 @@
+package org.fp;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CourseLocksTest {
+
+    private LibraryModel model;
+    private String sid;
+    private String math;
+    private String art;
+    private final ExecutorService pool = Executors.newCachedThreadPool();
+
+    @BeforeEach
+    void setUp() {
+        model = new LibraryModel();
+        Teacher t = new Teacher("Lee", "Lock");
+        model.addTeacher(t);
+        Student s = new Student("Stu", "Dent", "stu@test.com");
+        model.addStudent(s);
+        sid = s.getStuID();
+        math = addCourse("Math", t);
+        art = addCourse("Art", t);
+        addGraded(math, "GM", 8);
+        addGraded(art, "GA", 6);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    private String addCourse(String name, Teacher t) {
+        Course c = new Course(name, "Locks", t.getTeacherID());
+        model.addCourse(c);
+        model.enrollStudentInCourse(sid, c.getCourseID());
+        return c.getCourseID();
+    }
+
+    private void addGraded(String courseID, String gradeID, int earned) {
+        Assignment a = new Assignment("HW", sid, courseID, LocalDate.of(2025, 4, 1), LocalDate.of(2025, 4, 8));
+        a.submit();
+        a.markGraded(gradeID);
+        model.addAssignment(a);
+        model.addScore(new Score(gradeID, a.getAssignmentID(), sid, earned, 10));
+    }
+
+    /** Parks the thread grading {@code gradeID} inside the model until released. */
+    private CountDownLatch blockWhileGrading(String gradeID, CountDownLatch entered) {
+        CountDownLatch release = new CountDownLatch(1);
+        model.addMutationListener(new MutationListener() {
+            @Override
+            public void scorePut(String g, String assignmentID, String studentID, int earned, int total) {
+                if (!g.equals(gradeID)) return;
+                entered.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        return release;
+    }
+
+    @Test
+    void testGradingOneCourseDoesNotWaitForAnother() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = blockWhileGrading("GM", entered);
+        Future<?> slow = pool.submit(() -> model.updateScore("GM", 9, 10));
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+        // Math is locked, Art is not
+        pool.submit(() -> {
+            model.updateScore("GA", 10, 10);
+            model.setCategoryWeight(art, "Homework", 1.0);
+        }).get(5, TimeUnit.SECONDS);
+        assertEquals(100.0, model.getFinalPercentage(sid, art), 1e-9);
+
+        Future<?> sameCourse = pool.submit(() -> model.updateScore("GM", 1, 10));
+        assertThrows(TimeoutException.class, () -> sameCourse.get(200, TimeUnit.MILLISECONDS));
+
+        release.countDown();
+        slow.get(5, TimeUnit.SECONDS);
+        sameCourse.get(5, TimeUnit.SECONDS);
+        assertEquals(1, model.getScore("GM").getEarned());
+    }
+
+    @Test
+    void testStructuralChangeWaitsForCourseOperations() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = blockWhileGrading("GA", entered);
+        Future<?> grading = pool.submit(() -> model.updateScore("GA", 7, 10));
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+        Future<?> add = pool.submit(() -> model.addStudent(new Student("New", "Comer", "new@test.com")));
+        assertThrows(TimeoutException.class, () -> add.get(200, TimeUnit.MILLISECONDS));
+
+        release.countDown();
+        grading.get(5, TimeUnit.SECONDS);
+        add.get(5, TimeUnit.SECONDS);
+        assertEquals(2, model.getAllStudents().size());
+    }
+
+    @Test
+    void testCrossCourseReadsAndGradingDoNotDeadlock() throws Exception {
+        for (int i = 0; i < 6; i++) {
+            Course c = new Course("Extra" + i, "Locks", model.getAllTeachers().iterator().next().getTeacherID());
+            model.addCourse(c);
+            model.enrollStudentInCourse(sid, c.getCourseID());
+            addGraded(c.getCourseID(), "GX" + i, 5);
+        }
+        List<String> gradeIDs = new ArrayList<>(List.of("GM", "GA"));
+        for (int i = 0; i < 6; i++) gradeIDs.add("GX" + i);
+
+        List<Future<?>> work = new ArrayList<>();
+        for (int w = 0; w < 4; w++) {
+            int seed = w;
+            work.add(pool.submit(() -> {
+                for (int round = 0; round < 2000; round++) {
+                    String g = gradeIDs.get((round + seed) % gradeIDs.size());
+                    model.updateScore(g, round % 11, 10);
+                }
+            }));
+            work.add(pool.submit(() -> {
+                for (int round = 0; round < 500; round++) {
+                    double gpa = model.calculateGPA(sid);
+                    assertTrue(gpa >= 0.0 && gpa <= 4.0);
+                    assertTrue(model.buildGradeReport(sid).startsWith("Grade report for Stu Dent"));
+                }
+            }));
+        }
+        for (Future<?> f : work) {
+            f.get(30, TimeUnit.SECONDS);
+        }
+        for (String g : gradeIDs) {
+            model.updateScore(g, 10, 10);
+        }
+        assertEquals(4.0, model.calculateGPA(sid), 1e-9);
+    }
+
+    @Test
+    void testMultiCourseReadLocksInIDOrder() throws Exception {
+        CourseLocks locks = new CourseLocks();
+        // one reader asks for B then A, a writer holds A: the reader must stop at A, holding nothing on B
+        CourseLocks.Held a = locks.write("A");
+        Future<?> reader = pool.submit(() -> {
+            try (CourseLocks.Held both = locks.read(List.of("B", "A"))) {
+                return null;
+            }
+        });
+        assertThrows(TimeoutException.class, () -> reader.get(200, TimeUnit.MILLISECONDS));
+        pool.submit(() -> {
+            try (CourseLocks.Held b = locks.write("B")) {
+                return null;
+            }
+        }).get(5, TimeUnit.SECONDS);
+        a.close();
+        reader.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testOptimisticReadRetriesAfterAnOverlappingWrite() {
+        CourseLocks locks = new CourseLocks();
+        AtomicInteger calls = new AtomicInteger();
+        int result = locks.optimisticRead("A", () -> {
+            if (calls.incrementAndGet() == 1) {
+                locks.write("A").close();   // a grading write gets in during the first attempt
+            }
+            return calls.get();
+        });
+        assertEquals(2, result);
+
+        calls.set(0);
+        assertEquals(1, (int) locks.optimisticRead("A", () -> {
+            locks.write("B").close();       // other courses do not matter
+            return calls.incrementAndGet();
+        }));
+    }
+
+    @Test
+    void testStructuralChangeInvalidatesOptimisticReads() {
+        CourseLocks locks = new CourseLocks();
+        AtomicInteger calls = new AtomicInteger();
+        int result = locks.optimisticRead(List.of("A", "B"), () -> {
+            if (calls.incrementAndGet() == 1) {
+                locks.exclusive().close();
+            }
+            return calls.get();
+        });
+        assertEquals(2, result);
+    }
+
+    @Test
+    void testCheckpointEndsAnAttemptThatAWriterGotInto() {
+        CourseLocks locks = new CourseLocks();
+        AtomicInteger calls = new AtomicInteger();
+        int result = locks.optimisticRead("A", () -> {
+            if (calls.incrementAndGet() == 1) {
+                locks.write("A").close();
+                while (true) {
+                    CourseLocks.checkpoint();   // a torn read that would never finish on its own
+                }
+            }
+            return calls.get();
+        });
+        assertEquals(2, result);
+        CourseLocks.checkpoint();   // no attempt running: nothing to check
+    }
+
+    @Test
+    void testErrorsOfConflictingAttemptsAreRetried() {
+        CourseLocks locks = new CourseLocks();
+        AtomicInteger calls = new AtomicInteger();
+        int result = locks.optimisticRead(List.of("A"), () -> {
+            if (calls.incrementAndGet() == 1) {
+                locks.write("A").close();
+                throw new StackOverflowError();
+            }
+            return calls.get();
+        });
+        assertEquals(2, result);
+
+        assertThrows(StackOverflowError.class, () -> locks.optimisticRead("A", () -> {
+            throw new StackOverflowError();   // nobody got in: the error is real
+        }));
+    }
+
+    @Test
+    void testOnlyValidAttemptsThrow() {
+        CourseLocks locks = new CourseLocks();
+        AtomicInteger calls = new AtomicInteger();
+        // a conflicting attempt that fails is just retried
+        int result = locks.optimisticRead(List.of("A", "B"), () -> {
+            if (calls.incrementAndGet() == 1) {
+                locks.write("B").close();
+                throw new IllegalStateException("saw a half-made change");
+            }
+            return calls.get();
+        });
+        assertEquals(2, result);
+
+        calls.set(0);
+        assertThrows(IllegalArgumentException.class, () -> locks.optimisticRead("A", () -> {
+            calls.incrementAndGet();
+            throw new IllegalArgumentException("No such student");
+        }));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void testOptimisticReadWaitsForAnActiveWriter() throws Exception {
+        CourseLocks locks = new CourseLocks();
+        CourseLocks.Held writing = locks.write("A");
+        Future<Integer> reader = pool.submit(() -> locks.optimisticRead("A", () -> 42));
+        assertThrows(TimeoutException.class, () -> reader.get(200, TimeUnit.MILLISECONDS));
+        assertEquals(7, (int) pool.submit(() -> locks.optimisticRead("B", () -> 7)).get(5, TimeUnit.SECONDS));
+        writing.close();
+        assertEquals(42, reader.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testAnalyticsWhileGrading() throws Exception {
+        AtomicBoolean done = new AtomicBoolean(false);
+        // every write leaves both Math scores equal, so a consistent read never sees them apart
+        addGraded(math, "GM2", 8);
+        Future<?> writer = pool.submit(() -> {
+            for (int round = 0; !done.get(); round = (round + 1) % 11) {
+                try (CourseLocks.Held all = model.lockAll()) {
+                    model.updateScore("GM", round, 10);
+                    for (int spin = 0; spin < 200; spin++) Thread.onSpinWait();   // widen the window
+                    model.updateScore("GM2", round, 10);
+                }
+            }
+        });
+        try {
+            for (int i = 0; i < 20000; i++) {
+                double avg = model.getAveragePercentageForGroup(math, "HW");
+                double median = model.getMedianPercentageForGroup(math, "HW");
+                // both at round * 10%; one old and one new score would average to an odd multiple of 5
+                assertEquals(0.0, avg % 10, 1e-9, "read a half-graded group");
+                assertEquals(0.0, median % 10, 1e-9);
+            }
+        } finally {
+            done.set(true);
+        }
+        writer.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testNullIDsAreUnknown() {
+        assertNull(model.getStudent(null));
+        assertNull(model.getCourse(null));
+        assertFalse(model.studentExists(null));
+        assertNull(model.getStudentSnapshot(null));
+        assertEquals(0.0, model.getFinalPercentage(sid, null));
+    }
+
+    @Test
+    void testDeferredWorkRunsOnceTheOutermostLockIsReleased() {
+        CourseLocks locks = new CourseLocks();
+        List<String> ran = new ArrayList<>();
+        CourseLocks.whenUnlocked(() -> ran.add("now"));
+        assertEquals(List.of("now"), ran);
+
+        try (CourseLocks.Held outer = locks.exclusive()) {
+            try (CourseLocks.Held inner = locks.read("A")) {
+                CourseLocks.whenUnlocked(() -> ran.add("later"));
+            }
+            assertEquals(List.of("now"), ran);
+        }
+        assertEquals(List.of("now", "later"), ran);
+    }
+
+    @Test
+    void testDeferredFailureIsThrownAfterTheLocksAreReleased() {
+        CourseLocks locks = new CourseLocks();
+        CourseLocks.Held held = locks.write("A");
+        CourseLocks.whenUnlocked(() -> { throw new IllegalStateException("deferred"); });
+        assertThrows(IllegalStateException.class, held::close);
+        // the lock is free again
+        try (CourseLocks.Held again = locks.write("A")) {
+            assertNotNull(again);
+        }
+    }
+}
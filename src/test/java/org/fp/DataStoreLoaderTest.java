@@ -0,0 +1,95 @@
+package org.fp;
+
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonDeserializer;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSerializer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DataStoreLoaderTest {
+
+    @TempDir
+    Path dir;
+
+    private static Gson gson() {
+        return new GsonBuilder().setPrettyPrinting()
+                .registerTypeAdapter(LocalDate.class,
+                        (JsonSerializer<LocalDate>) (src, t, ctx) -> new JsonPrimitive(src.toString()))
+                .registerTypeAdapter(LocalDate.class,
+                        (JsonDeserializer<LocalDate>) (json, t, ctx) -> LocalDate.parse(json.getAsString()))
+                .create();
+    }
+
+    @Test
+    void testStreamedStoreMatchesSavedModel() throws Exception {
+        DataStore ds = new DataStore();
+        LibraryModel model = ds.model;
+        Teacher t = new Teacher("Load", "Teacher");
+        model.addTeacher(t);
+        Course c = new Course("CS", "Streaming", t.getTeacherID());
+        model.addCourse(c);
+        model.setGradingMode(c.getCourseID(), true);
+        model.setCategoryWeight(c.getCourseID(), "Quiz", 1.0);
+        Student s = new Student("Load", "Student", "load@test.com");
+        model.addStudent(s);
+        model.enrollStudentInCourse(s.getStuID(), c.getCourseID());
+
+        Assignment graded = new Assignment("Quiz 1", s.getStuID(), c.getCourseID(),
+                LocalDate.of(2025, 4, 1), LocalDate.of(2025, 4, 8));
+        graded.setCategory("Quiz");
+        graded.submit();
+        graded.markGraded("G-load");
+        model.addAssignment(graded);
+        model.addScore(new Score("G-load", graded.getAssignmentID(), s.getStuID(), 18, 20));
+        Assignment open = new Assignment("Quiz 2", s.getStuID(), c.getCourseID(),
+                LocalDate.of(2025, 4, 9), LocalDate.of(2025, 4, 16));
+        model.addAssignment(open);
+        ds.users.registerUser("load", "pw", "Load", "Student", "load@test.com",
+                LibraryUsers.UserType.STUDENT, new VICData("12345", "250314", "HELLOWORLD", "AB CD EFGH", ""));
+
+        Path file = dir.resolve("datastore.json");
+        try (Writer w = Files.newBufferedWriter(file)) {
+            gson().toJson(ds, w);
+        }
+
+        List<Long> progress = new ArrayList<>();
+        DataStore loaded = new DataStoreLoader((read, total) -> progress.add(read)).load(file);
+        LibraryModel m = loaded.model;
+
+        assertTrue(loaded.users.userExists("load"));
+        assertEquals(Files.size(file), progress.get(progress.size() - 1));
+
+        assertEquals(s.getEmail(), m.getStudent(s.getStuID()).getEmail());
+        assertEquals(List.of(s.getStuID()), m.getStudentIDsInCourse(c.getCourseID()));
+        assertEquals(2, m.getAssignmentsForStudentInCourse(s.getStuID(), c.getCourseID()).size());
+        assertTrue(m.getCourse(c.getCourseID()).isUsingWeightedGrading());
+        assertEquals(2, m.getCourse(c.getCourseID()).getAssignmentIDs().size());
+
+        Assignment back = m.getAssignmentsForStudentInCourse(s.getStuID(), c.getCourseID()).stream()
+                .filter(a -> a.getAssignmentID().equals(graded.getAssignmentID()))
+                .findFirst().orElseThrow();
+        assertEquals(Assignment.SubmissionStatus.GRADED, back.getStatus());
+        assertEquals("Quiz", back.getCategory());
+        assertEquals(LocalDate.of(2025, 4, 8), back.getDueDate());
+        assertEquals(90.0, m.getFinalPercentage(s.getStuID(), c.getCourseID()), 1e-9);
+    }
+
+    @Test
+    void testMalformedFileIsReportedAsIOException() throws Exception {
+        Path file = dir.resolve("broken.json");
+        Files.writeString(file, "{\"model\": {\"studentMap\": [1, 2]}}");
+        assertThrows(java.io.IOException.class,
+                () -> new DataStoreLoader((read, total) -> { }).load(file));
+    }
+}
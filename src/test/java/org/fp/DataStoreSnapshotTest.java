@@ -0,0 +1,117 @@
+package org.fp;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DataStoreSnapshotTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testRoundTripKeepsEntitiesUsersAndGrades() throws IOException {
+        VICData vic = new VICData("12345", "250314", "HELLOWORLD", "AB CD EFGH", "");
+        DataStore ds = new DataStore();
+        LibraryModel model = ds.model;
+        Teacher t = new Teacher("Bin", "Teacher");
+        model.addTeacher(t);
+        Course c = new Course("CS", "Snapshots", t.getTeacherID());
+        model.addCourse(c);
+        model.setCategoryDrop(c.getCourseID(), "Quiz", 1);
+        model.markCourseAsCompleted(c.getCourseID());
+        Student s = new Student("Bïn", "Student", "bin@test.com");
+        model.addStudent(s);
+        model.enrollStudentInCourse(s.getStuID(), c.getCourseID());
+
+        Assignment a = new Assignment("Quiz 1", s.getStuID(), c.getCourseID(),
+                LocalDate.of(2025, 4, 1), LocalDate.of(2025, 4, 8));
+        a.setCategory("Quiz");
+        a.submit();
+        a.markGraded("G-bin");
+        a.publish();
+        model.addAssignment(a);
+        model.addScore(new Score("G-bin", a.getAssignmentID(), s.getStuID(), 7, 10));
+
+        ds.users.registerUser("bin", "pw", "Bin", "Student", "bin@test.com",
+                LibraryUsers.UserType.UNASSIGNED, vic);
+        ds.users.assignRole("bin", LibraryUsers.UserType.TEACHER, new LibraryModel());
+
+        Path file = dir.resolve("datastore.bin");
+        DataStoreSnapshot.write(ds, file);
+        DataStore back = DataStoreSnapshot.read(file);
+        LibraryModel m = back.model;
+
+        assertTrue(back.users.authenticate("bin", "pw", vic));
+        assertEquals(LibraryUsers.UserType.TEACHER, back.users.getUserType("bin"));
+        assertEquals(ds.users.getObjectID("bin"), back.users.getObjectID("bin"));
+
+        assertEquals("Bïn", m.getStudent(s.getStuID()).getFirstName());
+        assertEquals(List.of(s.getStuID()), m.getStudentIDsInCourse(c.getCourseID()));
+        Course cb = m.getCourse(c.getCourseID());
+        assertTrue(cb.isCompleted());
+        assertEquals(1, cb.getDropCountForCategory("Quiz"));
+        assertEquals(1, cb.getAssignmentIDs().size());
+
+        Assignment ab = m.getAssignmentsForStudentInCourse(s.getStuID(), c.getCourseID()).get(0);
+        assertEquals(LocalDate.of(2025, 4, 8), ab.getDueDate());
+        assertEquals("Quiz", ab.getCategory());
+        assertTrue(ab.isPublished());
+        assertEquals(70.0, m.getScoreForAssignment(a.getAssignmentID()).getPercentage(), 1e-9);
+        assertEquals(70.0, m.getFinalPercentage(s.getStuID(), c.getCourseID()), 1e-9);
+    }
+
+    @Test
+    void testRejectsForeignFiles() throws IOException {
+        Path file = dir.resolve("other.bin");
+        Files.write(file, new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+        assertThrows(IOException.class, () -> DataStoreSnapshot.read(file));
+        Files.write(file, new byte[] {0x47, 0x42});
+        assertThrows(IOException.class, () -> DataStoreSnapshot.read(file));
+    }
+
+    @Test
+    void testDamagedFilesFailWithIOException() throws IOException {
+        DataStore ds = new DataStore();
+        Teacher t = new Teacher("Dee", "Damage");
+        ds.model.addTeacher(t);
+        Course c = new Course("Bits", "Rot", t.getTeacherID());
+        ds.model.addCourse(c);
+        Student s = new Student("Flip", "Bit", "flip@test.com");
+        ds.model.addStudent(s);
+        ds.model.enrollStudentInCourse(s.getStuID(), c.getCourseID());
+        Assignment a = new Assignment("HW", s.getStuID(), c.getCourseID(), LocalDate.of(2025, 4, 1), LocalDate.of(2025, 4, 8));
+        a.submit();
+        a.markGraded("G1");
+        ds.model.addAssignment(a);
+        ds.model.addScore(new Score("G1", a.getAssignmentID(), s.getStuID(), 7, 10));
+        Path good = dir.resolve("good.bin");
+        DataStoreSnapshot.write(ds, good);
+        byte[] bytes = Files.readAllBytes(good);
+
+        // overwrite every int in the file with a negative and with a huge value
+        Path bad = dir.resolve("bad.bin");
+        for (int at = 0; at + 4 <= bytes.length; at++) {
+            for (int value : new int[] {-1, Integer.MAX_VALUE}) {
+                byte[] damaged = bytes.clone();
+                damaged[at] = (byte) (value >>> 24);
+                damaged[at + 1] = (byte) (value >>> 16);
+                damaged[at + 2] = (byte) (value >>> 8);
+                damaged[at + 3] = (byte) value;
+                Files.write(bad, damaged);
+                try {
+                    DataStoreSnapshot.read(bad);
+                } catch (IOException expected) {
+                    // fine: damage is reported as an IOException, never as anything else
+                }
+            }
+        }
+    }
+}
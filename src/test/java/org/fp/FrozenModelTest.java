@@ -0,0 +1,150 @@
+package org.fp;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FrozenModelTest {
+
+    @TempDir
+    Path dir;
+
+    private DataStore ds;
+    private LibraryModel model;
+    private String tid;
+    private String sid;
+    private String cid;
+
+    @BeforeEach
+    void setUp() {
+        ds = new DataStore();
+        model = ds.model;
+        Teacher t = new Teacher("Fay", "Frost");
+        model.addTeacher(t);
+        tid = t.getTeacherID();
+        Student s = new Student("Stu", "Dent", "stu@test.com");
+        model.addStudent(s);
+        sid = s.getStuID();
+        Course c = new Course("Math", "Frozen", tid);
+        model.addCourse(c);
+        cid = c.getCourseID();
+        model.enrollStudentInCourse(sid, cid);
+        addGraded("HW1", "G1", 7);
+    }
+
+    private void addGraded(String name, String gradeID, int earned) {
+        Assignment a = new Assignment(name, sid, cid, LocalDate.of(2025, 4, 1), LocalDate.of(2025, 4, 8));
+        a.submit();
+        a.markGraded(gradeID);
+        model.addAssignment(a);
+        model.addScore(new Score(gradeID, a.getAssignmentID(), sid, earned, 10));
+    }
+
+    @Test
+    void testViewIgnoresLaterChanges() {
+        try (FrozenModel view = model.freeze()) {
+            model.updateScore("G1", 2, 10);
+            addGraded("HW2", "G2", 9);
+            model.assignCourseToTeacher(tid, cid);
+
+            assertEquals(7, view.scores.get("G1").earned());
+            assertNull(view.scores.get("G2"));
+            assertEquals(1, view.assignments.size());
+            assertTrue(view.teachers.get(tid).teachingCourseIDs().isEmpty());
+        }
+        try (FrozenModel view = model.freeze()) {
+            assertEquals(2, view.scores.get("G1").earned());
+            assertEquals(9, view.scores.get("G2").earned());
+            assertEquals(2, view.assignments.size());
+            assertTrue(view.teachers.get(tid).teachingCourseIDs().contains(cid));
+        }
+    }
+
+    @Test
+    void testOverlappingViewsKeepTheirOwnGeneration() {
+        FrozenModel first = model.freeze();
+        model.updateScore("G1", 3, 10);
+        FrozenModel second = model.freeze();
+        model.updateScore("G1", 4, 10);
+        first.close();
+        FrozenModel third = model.freeze();
+
+        assertEquals(7, first.scores.get("G1").earned());
+        assertEquals(3, second.scores.get("G1").earned());
+        assertEquals(4, third.scores.get("G1").earned());
+        second.close();
+        third.close();
+    }
+
+    @Test
+    void testRemovalsAndClearReachTheView() {
+        model.removeCourse(cid);
+        try (FrozenModel view = model.freeze()) {
+            assertTrue(view.courses.isEmpty());
+            assertTrue(view.assignments.isEmpty());
+            assertFalse(view.isCourseLoaded(cid));
+        }
+        model.clearAllData();
+        try (FrozenModel view = model.freeze()) {
+            assertTrue(view.students.isEmpty());
+            assertTrue(view.teachers.isEmpty());
+        }
+    }
+
+    @Test
+    void testThawCopiesEverything() {
+        LibraryModel copy;
+        try (FrozenModel view = model.freeze()) {
+            copy = view.thaw();
+        }
+        model.updateScore("G1", 1, 10);
+        assertEquals(7, copy.getScore("G1").getEarned());
+        assertEquals(70.0, copy.getFinalPercentage(sid, cid), 1e-9);
+        assertEquals(model.getCourse(cid).getCourseName(), copy.getCourse(cid).getCourseName());
+    }
+
+    @Test
+    void testSnapshotSavedWhileScoresChange() throws Exception {
+        model.updateScore("G1", 5, 10);
+        for (int i = 2; i <= 50; i++) {
+            addGraded("HW" + i, "G" + i, 5);
+        }
+        AtomicBoolean done = new AtomicBoolean(false);
+        Thread writer = new Thread(() -> {
+            // every score moves together, so a consistent save has them all equal
+            for (int round = 0; !done.get(); round = (round + 1) % 10) {
+                try (CourseLocks.Held locked = model.lockAll()) {
+                    for (int i = 1; i <= 50; i++) {
+                        model.updateScore("G" + i, round, 10);
+                    }
+                }
+            }
+        });
+        writer.start();
+        try {
+            for (int n = 0; n < 20; n++) {
+                Path file = dir.resolve("datastore-" + n + ".bin");
+                DataStoreSnapshot.save(ds, file);
+                LibraryModel back = DataStoreSnapshot.read(file).model;
+                int earned = back.getScore("G1").getEarned();
+                for (int i = 2; i <= 50; i++) {
+                    assertEquals(earned, back.getScore("G" + i).getEarned());
+                }
+            }
+        } finally {
+            done.set(true);
+            writer.join();
+        }
+    }
+
+    @Test
+    void testUnknownTeacherIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> model.assignCourseToTeacher("T-none", cid));
+    }
+}
@@ -0,0 +1,78 @@
+package org.fp;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GradeAggregatesTest {
+
+    @Test
+    void testPutRescoreAndRemove() {
+        GradeAggregates agg = new GradeAggregates();
+        agg.put("G1", "S1", "C1", "Quiz", 8, 10);
+        agg.put("G2", "S1", "C1", "Homework", 45, 50);
+
+        assertEquals(53, agg.get("S1", "C1").getEarned());
+        assertEquals(60, agg.get("S1", "C1").getTotal());
+        assertEquals(8, agg.get("S1", "C1", "Quiz").getEarned());
+
+        assertTrue(agg.rescore("G1", 10, 10));
+        assertEquals(55, agg.get("S1", "C1").getEarned());
+        assertFalse(agg.rescore("NOPE", 1, 1));
+
+        agg.remove("G2");
+        assertNull(agg.get("S1", "C1", "Homework"));
+        assertEquals(100.0, agg.getPercentage("S1", "C1"), 1e-9);
+
+        agg.remove("G1");
+        assertNull(agg.get("S1", "C1"));
+        assertEquals(0.0, agg.getPercentage("S1", "C1"));
+    }
+
+    @Test
+    void testPutSameGradeIDReplacesContribution() {
+        GradeAggregates agg = new GradeAggregates();
+        agg.put("G1", "S1", "C1", "Quiz", 5, 10);
+        agg.put("G1", "S1", "C1", "Quiz", 7, 10);
+
+        assertEquals(1, agg.get("S1", "C1").getCount());
+        assertEquals(70.0, agg.getPercentage("S1", "C1"), 1e-9);
+
+        agg.clear();
+        assertFalse(agg.contains("G1"));
+    }
+
+    @Test
+    void testWeightedPercentageDropsLowestWithoutResorting() {
+        Course course = new Course("CS", "Weighted", "T1");
+        course.setGradingMode(true);
+        course.setCategoryWeight("Quiz", 0.5);
+        course.setCategoryWeight("Homework", 0.5);
+        course.setCategoryDropCount("Quiz", 1);
+
+        GradeAggregates agg = new GradeAggregates();
+        agg.put("Q1", "S1", "C1", "Quiz", 40, 100);
+        agg.put("Q2", "S1", "C1", "Quiz", 90, 100);
+        agg.put("Q3", "S1", "C1", "Quiz", 8, 10);
+        agg.put("H1", "S1", "C1", "Homework", 100, 100);
+
+        // Quiz drops the 40% score: (90 + 8) / 110
+        double expected = (98.0 / 110 * 0.5 + 0.5) * 100.0;
+        assertEquals(expected, agg.getWeightedPercentage("S1", "C1", course), 1e-9);
+
+        // a new low score becomes the dropped one
+        agg.put("Q4", "S1", "C1", "Quiz", 0, 100);
+        expected = (138.0 / 210 * 0.5 + 0.5) * 100.0;
+        assertEquals(expected, agg.getWeightedPercentage("S1", "C1", course), 1e-9);
+
+        // changing the drop count is picked up lazily
+        course.setCategoryDropCount("Quiz", 2);
+        expected = (98.0 / 110 * 0.5 + 0.5) * 100.0;
+        assertEquals(expected, agg.getWeightedPercentage("S1", "C1", course), 1e-9);
+
+        // dropping every score leaves the category out
+        course.setCategoryDropCount("Quiz", 4);
+        assertEquals(50.0, agg.getWeightedPercentage("S1", "C1", course), 1e-9);
+        assertEquals(0.0, agg.getWeightedPercentage("S2", "C1", course));
+    }
+}
@@ -0,0 +1,209 @@
+package org.fp;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GradebookServerTest {
+
+    private static final String PASSWORD = "ABCD";
+
+    private final VICData vic = new VICData("12345", "210101", "JKLMNOPQRS", "ABCD EFG H", null);
+    private final HttpClient client = HttpClient.newHttpClient();
+    private DataStore ds;
+    private GradebookServer server;
+    private String teacherID;
+    private String otherTeacherID;
+    private String studentID;
+    private String courseID;
+    private String assignmentID;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        ds = new DataStore();
+        ds.users.registerUser("admin", PASSWORD, "Ada", "Admin", "admin@test.com",
+                LibraryUsers.UserType.SUPERADMIN, vic);
+        teacherID = addUser("teach", LibraryUsers.UserType.TEACHER);
+        otherTeacherID = addUser("other", LibraryUsers.UserType.TEACHER);
+        studentID = addUser("stu", LibraryUsers.UserType.STUDENT);
+        addUser("nobody", LibraryUsers.UserType.UNASSIGNED);
+
+        Course c = new Course("Math", "API", teacherID);
+        ds.model.addCourse(c);
+        courseID = c.getCourseID();
+        ds.model.addCourse(new Course("Art", "API", otherTeacherID));
+        ds.model.enrollStudentInCourse(studentID, courseID);
+        Assignment a = new Assignment("HW 1", studentID, courseID, LocalDate.now(), LocalDate.now().plusDays(7));
+        ds.model.addAssignment(a);
+        assignmentID = a.getAssignmentID();
+
+        server = GradebookServer.start(ds, vic, 0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.close();
+        server.close();
+    }
+
+    private String addUser(String username, LibraryUsers.UserType type) {
+        ds.users.registerUser(username, PASSWORD, username, "User", username + "@test.com",
+                LibraryUsers.UserType.UNASSIGNED, vic);
+        ds.users.assignRole(username, type, ds.model);
+        return ds.users.getObjectID(username);
+    }
+
+    private HttpResponse<String> send(String method, String path, String token, String body) throws Exception {
+        HttpRequest.Builder b = HttpRequest.newBuilder(URI.create("http://localhost:" + server.port() + path))
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofString(body));
+        if (token != null) b.header("Authorization", "Bearer " + token);
+        return client.send(b.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private JsonElement ok(HttpResponse<String> response) {
+        assertEquals(200, response.statusCode(), response.body());
+        return JsonParser.parseString(response.body());
+    }
+
+    private String login(String username) throws Exception {
+        return ok(send("POST", "/api/login", null,
+                "{\"username\":\"" + username + "\",\"password\":\"" + PASSWORD + "\"}"))
+                .getAsJsonObject().get("token").getAsString();
+    }
+
+    @Test
+    void testLoginGoesThroughLibraryUsers() throws Exception {
+        assertEquals(401, send("POST", "/api/login", null,
+                "{\"username\":\"stu\",\"password\":\"DCBA\"}").statusCode());
+        assertEquals(403, send("POST", "/api/login", null,
+                "{\"username\":\"nobody\",\"password\":\"ABCD\"}").statusCode());
+        assertEquals(400, send("POST", "/api/login", null, "{not json").statusCode());
+
+        String token = login("stu");
+        assertTrue(ds.users.hasRole(token, LibraryUsers.UserType.STUDENT));
+        assertEquals(401, send("GET", "/api/students/" + studentID + "/gpa", null, null).statusCode());
+        ok(send("GET", "/api/students/" + studentID + "/gpa", token, null));
+
+        ok(send("POST", "/api/logout", token, null));
+        assertEquals(401, send("GET", "/api/students/" + studentID + "/gpa", token, null).statusCode());
+    }
+
+    @Test
+    void testSubmitGradeAndRead() throws Exception {
+        String student = login("stu");
+        String teacher = login("teach");
+
+        // teachers cannot submit, students cannot grade
+        assertEquals(403, send("POST", "/api/assignments/" + assignmentID + "/submit", teacher, null).statusCode());
+        assertEquals(409, send("POST", "/api/assignments/" + assignmentID + "/grade", teacher,
+                "{\"earned\":8,\"total\":10}").statusCode());   // not submitted yet
+        ok(send("POST", "/api/assignments/" + assignmentID + "/submit", student, null));
+        assertEquals(403, send("POST", "/api/assignments/" + assignmentID + "/grade", student,
+                "{\"earned\":10,\"total\":10}").statusCode());
+        assertEquals(400, send("POST", "/api/assignments/" + assignmentID + "/grade", teacher,
+                "{\"earned\":-1,\"total\":10}").statusCode());
+
+        String gradeID = ok(send("POST", "/api/assignments/" + assignmentID + "/grade", teacher,
+                "{\"earned\":8,\"total\":10}")).getAsJsonObject().get("gradeID").getAsString();
+        assertEquals(8, ds.model.getScore(gradeID).getEarned());
+
+        JsonArray scores = ok(send("GET", "/api/students/" + studentID + "/scores", student, null)).getAsJsonArray();
+        assertEquals(1, scores.size());
+        assertEquals(8, scores.get(0).getAsJsonObject().get("earned").getAsInt());
+
+        JsonObject gpa = ok(send("GET", "/api/students/" + studentID + "/gpa", teacher, null)).getAsJsonObject();
+        assertEquals(3.0, gpa.get("gpa").getAsDouble(), 1e-9);
+
+        JsonArray grades = ok(send("GET", "/api/courses/" + courseID + "/grades", teacher, null)).getAsJsonArray();
+        JsonObject grade = grades.get(0).getAsJsonObject();
+        assertEquals(80.0, grade.get("percentage").getAsDouble(), 1e-9);
+        assertEquals("B", grade.get("grade").getAsString());
+
+        JsonArray groups = ok(send("GET", "/api/courses/" + courseID + "/assignments", teacher, null)).getAsJsonArray();
+        JsonObject hw = groups.get(0).getAsJsonObject();
+        assertEquals("HW 1", hw.get("name").getAsString());
+        assertEquals(80.0, hw.get("average").getAsDouble(), 1e-9);
+        assertEquals(1, hw.getAsJsonArray("assignments").size());
+    }
+
+    @Test
+    void testTeachersOnlySeeTheirOwnCourses() throws Exception {
+        String other = login("other");
+        String student = login("stu");
+        assertEquals(403, send("GET", "/api/courses/" + courseID + "/roster", other, null).statusCode());
+        assertEquals(403, send("GET", "/api/students/" + studentID + "/scores", other, null).statusCode());
+        assertEquals(403, send("GET", "/api/courses/" + courseID + "/roster", student, null).statusCode());
+        assertEquals(404, send("GET", "/api/courses/NO_SUCH/roster", other, null).statusCode());
+        assertEquals(404, send("GET", "/api/courses/" + courseID + "/nothing", other, null).statusCode());
+        assertEquals(405, send("POST", "/api/courses/" + courseID + "/roster", login("teach"), "{}").statusCode());
+
+        JsonArray roster = ok(send("GET", "/api/courses/" + courseID + "/roster", login("admin"), null)).getAsJsonArray();
+        assertEquals(studentID, roster.get(0).getAsJsonObject().get("stuID").getAsString());
+    }
+
+    @Test
+    void testForbiddenCallersNeitherLoadCoursesNorCrashOnMissingTeachers() throws Exception {
+        List<String> loads = new ArrayList<>();
+        ds.model.setCourseLoader(loads::add, List.of(courseID));
+        assertEquals(403, send("GET", "/api/courses/" + courseID + "/roster", login("stu"), null).statusCode());
+        assertEquals(403, send("GET", "/api/courses/" + courseID + "/roster", login("other"), null).statusCode());
+        assertTrue(loads.isEmpty());
+        assertFalse(ds.model.isCourseLoaded(courseID));
+
+        ok(send("GET", "/api/courses/" + courseID + "/roster", login("teach"), null));
+        assertEquals(List.of(courseID), loads);
+
+        Course orphan = new Course("Orphan", "API", null);
+        ds.model.addCourse(orphan);
+        assertEquals(403, send("GET", "/api/courses/" + orphan.getCourseID() + "/roster",
+                login("teach"), null).statusCode());
+    }
+
+    @Test
+    void testConcurrentEnrollAndGrading() throws Exception {
+        String teacher = login("teach");
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            Student s = new Student("S" + i, "Crowd", "s" + i + "@test.com");
+            ds.model.addStudent(s);
+            ids.add(s.getStuID());
+        }
+
+        List<CompletableFuture<HttpResponse<String>>> calls = new ArrayList<>();
+        for (String sid : ids) {
+            HttpRequest enroll = HttpRequest.newBuilder(
+                            URI.create("http://localhost:" + server.port() + "/api/courses/" + courseID + "/enroll"))
+                    .header("Authorization", "Bearer " + teacher)
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"studentID\":\"" + sid + "\"}"))
+                    .build();
+            HttpRequest roster = HttpRequest.newBuilder(
+                            URI.create("http://localhost:" + server.port() + "/api/courses/" + courseID + "/grades"))
+                    .header("Authorization", "Bearer " + teacher)
+                    .build();
+            calls.add(client.sendAsync(enroll, HttpResponse.BodyHandlers.ofString()));
+            calls.add(client.sendAsync(roster, HttpResponse.BodyHandlers.ofString()));
+        }
+        for (CompletableFuture<HttpResponse<String>> call : calls) {
+            assertEquals(200, call.get().statusCode(), call.get().body());
+        }
+        assertEquals(41, ds.model.getStudentIDsInCourse(courseID).size());
+        assertEquals(41, ok(send("GET", "/api/courses/" + courseID + "/roster", teacher, null)).getAsJsonArray().size());
+    }
+}
@@ -0,0 +1,97 @@
+package org.fp;
+
+import java.time.LocalDate;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonDeserializer;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSerializer;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GsonSupportTest {
+
+    /** What datastore.json used to be written with: reflection plus a LocalDate adapter. */
+    private static Gson reflective() {
+        return new GsonBuilder()
+                .registerTypeAdapter(LocalDate.class,
+                        (JsonSerializer<LocalDate>) (src, t, ctx) -> new JsonPrimitive(src.toString()))
+                .registerTypeAdapter(LocalDate.class,
+                        (JsonDeserializer<LocalDate>) (json, t, ctx) -> LocalDate.parse(json.getAsString()))
+                .create();
+    }
+
+    private static DataStore sampleStore() {
+        DataStore ds = new DataStore();
+        LibraryModel model = ds.model;
+        Teacher t = new Teacher("Gina", "Gson");
+        model.addTeacher(t);
+        Course c = new Course("CS", "Adapters", t.getTeacherID());
+        model.addCourse(c);
+        model.setGradingMode(c.getCourseID(), true);
+        model.setCategoryWeight(c.getCourseID(), "Quiz", 0.5);
+        model.setCategoryDrop(c.getCourseID(), "Quiz", 1);
+        Student s = new Student("Sal", "Stream", "sal@test.com");
+        model.addStudent(s);
+        model.enrollStudentInCourse(s.getStuID(), c.getCourseID());
+        Assignment a = new Assignment("Quiz 1", s.getStuID(), c.getCourseID(),
+                LocalDate.of(2025, 4, 1), LocalDate.of(2025, 4, 8));
+        a.setCategory("Quiz");
+        a.submit();
+        a.markGraded("G-gson");
+        model.addAssignment(a);
+        model.addScore(new Score("G-gson", a.getAssignmentID(), s.getStuID(), 7, 10));
+        model.addAssignment(new Assignment("Quiz 2", s.getStuID(), c.getCourseID(),
+                LocalDate.of(2025, 4, 9), LocalDate.of(2025, 4, 16)));
+        ds.users.registerUser("sal", "pw", "Sal", "Stream", "sal@test.com",
+                LibraryUsers.UserType.STUDENT, new VICData("12345", "250314", "HELLOWORLD", "AB CD EFGH", ""));
+        return ds;
+    }
+
+    @Test
+    void testOutputMatchesReflectiveGson() {
+        DataStore ds = sampleStore();
+        assertEquals(JsonParser.parseString(reflective().toJson(ds)),
+                JsonParser.parseString(GsonSupport.GSON.toJson(ds)));
+    }
+
+    @Test
+    void testEntitiesRoundTrip() {
+        Gson gson = GsonSupport.GSON;
+        Assignment a = new Assignment("HW", "STU1", "CRS1",
+                LocalDate.of(2025, 1, 2), LocalDate.of(2025, 1, 9));
+        a.setCategory("Homework");
+        Assignment back = gson.fromJson(gson.toJson(a), Assignment.class);
+        assertEquals(a.getAssignmentID(), back.getAssignmentID());
+        assertEquals(LocalDate.of(2025, 1, 9), back.getDueDate());
+        assertEquals(Assignment.SubmissionStatus.UNSUBMITTED, back.getStatus());
+        assertEquals("Homework", back.getCategory());
+        assertNull(back.getGradeID());
+
+        Score score = gson.fromJson(gson.toJson(new Score("G1", "ASG1", "STU1", 3, 4)), Score.class);
+        assertEquals(3, score.getEarned());
+        assertEquals(4, score.getTotal());
+
+        assertEquals("null", gson.toJson(null, Student.class));
+        assertNull(gson.fromJson("null", Course.class));
+    }
+
+    @Test
+    void testReadsFilesWrittenByReflectiveGson() {
+        DataStore ds = sampleStore();
+        Student s = ds.model.getAllStudents().iterator().next();
+        Student back = GsonSupport.GSON.fromJson(reflective().toJson(s), Student.class);
+        assertEquals(s.getStuID(), back.getStuID());
+        assertEquals(s.getEnrolledCourseIDs(), back.getEnrolledCourseIDs());
+        assertEquals(s.getAssignmentIDs(), back.getAssignmentIDs());
+
+        Course c = ds.model.getAllCourses().iterator().next();
+        Course course = GsonSupport.GSON.fromJson(reflective().toJson(c), Course.class);
+        assertTrue(course.isUsingWeightedGrading());
+        assertEquals(0.5, course.getCategoryWeight("Quiz"), 1e-9);
+        assertEquals(1, course.getDropCountForCategory("Quiz"));
+    }
+}
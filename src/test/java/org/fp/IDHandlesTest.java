@@ -0,0 +1,25 @@
+package org.fp;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IDHandlesTest {
+
+    @Test
+    void testHandlesAreDenseAndStable() {
+        IDHandles handles = new IDHandles();
+        assertEquals(0, handles.intern("STU00001"));
+        assertEquals(1, handles.intern("STU00002"));
+        assertEquals(0, handles.intern("STU00001"));
+        assertEquals(2, handles.size());
+
+        assertEquals(1, handles.handleOf("STU00002"));
+        assertEquals(-1, handles.handleOf("STU99999"));
+        assertEquals("STU00002", handles.idOf(1));
+
+        handles.clear();
+        assertEquals(-1, handles.handleOf("STU00001"));
+        assertEquals(0, handles.intern("STU00002"));
+    }
+}
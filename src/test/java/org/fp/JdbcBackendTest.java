@@ -0,0 +1,177 @@
+package org.fp;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JdbcBackendTest {
+
+    @TempDir
+    Path dir;
+
+    private DataStore ds;
+    private String plain;
+    private String weighted;
+    private final List<String> sids = new ArrayList<>();
+    private int grades = 0;
+
+    @BeforeEach
+    void setUp() {
+        ds = new DataStore();
+        LibraryModel model = ds.model;
+        ds.users.importUsers(List.of(new LibraryUsers.UserRecord("ada", "x", "Ada", "Admin",
+                "a@test.com", LibraryUsers.UserType.SUPERADMIN, null)));
+        Teacher t = new Teacher("Sue", "Quill");
+        model.addTeacher(t);
+        Course p = new Course("Math", "Total points", t.getTeacherID());
+        Course w = new Course("Art", "Weighted", t.getTeacherID());
+        model.addCourse(p);
+        model.addCourse(w);
+        plain = p.getCourseID();
+        weighted = w.getCourseID();
+        model.setGradingMode(weighted, true);
+        model.setCategoryWeight(weighted, "Homework", 0.6);
+        model.setCategoryWeight(weighted, "Quiz", 0.4);
+        model.setCategoryDrop(weighted, "Quiz", 1);
+
+        for (int i = 0; i < 4; i++) {
+            Student s = new Student("Stu" + i, "Dent", "s" + i + "@test.com");
+            model.addStudent(s);
+            sids.add(s.getStuID());
+            model.enrollStudentInCourse(s.getStuID(), plain);
+            model.enrollStudentInCourse(s.getStuID(), weighted);
+            if (i == 3) continue;   // enrolled, but nothing graded yet
+            grade(model, s.getStuID(), plain, "HW1", "Homework", 5 + i, 10);
+            grade(model, s.getStuID(), plain, "HW2", "Homework", 18, 20);
+            grade(model, s.getStuID(), weighted, "HW1", "Homework", 7 + i, 10);
+            grade(model, s.getStuID(), weighted, "Quiz1", "Quiz", 2 * i, 10);
+            grade(model, s.getStuID(), weighted, "Quiz2", "Quiz", 9, 10);
+        }
+    }
+
+    private void grade(LibraryModel model, String sid, String cid, String name, String category,
+                       int earned, int total) {
+        Assignment a = new Assignment(name, sid, cid, LocalDate.of(2025, 4, 1), LocalDate.of(2025, 4, 8));
+        a.setCategory(category);
+        a.submit();
+        String gradeID = "G" + (++grades);
+        a.markGraded(gradeID);
+        model.addAssignment(a);
+        model.addScore(new Score(gradeID, a.getAssignmentID(), sid, earned, total));
+    }
+
+    private JdbcBackend backend() {
+        return JdbcBackend.h2File(dir.resolve("gradebook"));
+    }
+
+    @Test
+    void testRoundTrip() throws IOException {
+        try (JdbcBackend db = backend()) {
+            assertFalse(db.exists());
+            db.adopt(ds);
+        }
+        try (JdbcBackend db = backend()) {
+            assertTrue(db.exists());
+            DataStore back = db.open();
+            assertTrue(back.users.userExists("ada"));
+            assertEquals(new HashSet<>(sids), new HashSet<>(back.model.getStudentIDsInCourse(weighted)));
+            for (String sid : sids) {
+                assertEquals(ds.model.getFinalPercentage(sid, plain), back.model.getFinalPercentage(sid, plain), 1e-9);
+                assertEquals(ds.model.getFinalPercentage(sid, weighted), back.model.getFinalPercentage(sid, weighted), 1e-9);
+            }
+            assertEquals(1, back.model.getCourse(weighted).getDropCountForCategory("Quiz"));
+        }
+    }
+
+    @Test
+    void testAveragesArePushedDownToSql() throws IOException {
+        try (JdbcBackend db = backend()) {
+            db.adopt(ds);
+            assertEquals(ds.model.calculateClassAverage(plain), db.classAverage(plain), 1e-9);
+            assertEquals(ds.model.calculateClassAverage(weighted), db.classAverage(weighted), 1e-9);
+            assertEquals(ds.model.getAveragePercentageForGroup(weighted, "Quiz1"),
+                    db.groupAverage(weighted, "Quiz1"), 1e-9);
+            assertEquals(0.0, db.classAverage("nope"));
+        }
+    }
+
+    @Test
+    void testIndexedLookupsMatchTheModel() throws IOException {
+        try (JdbcBackend db = backend()) {
+            db.adopt(ds);
+            String sid = sids.get(0);
+            assertEquals(new HashSet<>(ds.model.getStudentIDsInCourse(plain)),
+                    new HashSet<>(db.studentIDsInCourse(plain)));
+            Set<String> inCourse = new HashSet<>();
+            ds.model.getAssignmentsInCourse(weighted).forEach(a -> inCourse.add(a.getAssignmentID()));
+            assertEquals(inCourse, new HashSet<>(db.assignmentIDsInCourse(weighted)));
+            Set<String> forStudent = new HashSet<>();
+            ds.model.getAssignmentsForStudentInCourse(sid, weighted).forEach(a -> forStudent.add(a.getAssignmentID()));
+            assertEquals(forStudent, new HashSet<>(db.assignmentIDsForStudentInCourse(sid, weighted)));
+        }
+    }
+
+    @Test
+    void testSaveWritesOnlyWhatChanged() throws IOException {
+        try (JdbcBackend db = backend()) {
+            db.adopt(ds);
+            ds.model.updateScore("G1", 10, 10);
+            ds.model.removeStudentFromCourse(sids.get(3), plain);
+            ds.model.removeCourse(weighted);
+            db.save();
+            assertEquals(ds.model.calculateClassAverage(plain), db.classAverage(plain), 1e-9);
+            assertTrue(db.assignmentIDsInCourse(weighted).isEmpty());
+            assertEquals(3, db.studentIDsInCourse(plain).size());
+        }
+        try (JdbcBackend db = backend()) {
+            DataStore back = db.open();
+            assertNull(back.model.getCourse(weighted));
+            assertEquals(10, back.model.getScore("G1").getEarned());
+        }
+    }
+
+    @Test
+    void testGradingDoesNotWaitForTheConnection() throws Exception {
+        try (JdbcBackend db = backend()) {
+            db.adopt(ds);
+            CountDownLatch holding = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            Thread sql = new Thread(() -> {
+                synchronized (db) {   // what a save does while its transaction runs
+                    holding.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException ignored) {
+                    }
+                }
+            });
+            sql.start();
+            try {
+                assertTrue(holding.await(5, TimeUnit.SECONDS));
+                Thread grader = new Thread(() -> ds.model.updateScore("G1", 9, 10));
+                grader.start();
+                grader.join(5000);
+                assertFalse(grader.isAlive(), "grading waited for the connection");
+            } finally {
+                release.countDown();
+                sql.join();
+            }
+            db.save();
+        }
+        try (JdbcBackend db = backend()) {
+            assertEquals(9, db.open().model.getScore("G1").getEarned());
+        }
+    }
+}
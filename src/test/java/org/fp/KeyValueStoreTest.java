@@ -0,0 +1,113 @@
+package org.fp;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeyValueStoreTest {
+
+    @TempDir
+    Path dir;
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(byte[] b) {
+        return b == null ? null : new String(b, StandardCharsets.UTF_8);
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.getFileName().toString().endsWith(".data")).sorted().toList();
+        }
+    }
+
+    @Test
+    void testPutGetDeleteAndReopen() throws IOException {
+        try (KeyValueStore kv = KeyValueStore.open(dir)) {
+            kv.put("S/1", bytes("Alice"));
+            kv.put("S/2", bytes("Bob"));
+            kv.put("S/1", bytes("Alice B."));
+            kv.delete("S/2");
+            kv.put("T/1", bytes("Tina"));
+            assertEquals("Alice B.", string(kv.get("S/1")));
+            assertNull(kv.get("S/2"));
+            assertEquals(List.of("S/1"), kv.keys("S/"));
+        }
+        try (KeyValueStore kv = KeyValueStore.open(dir)) {
+            assertEquals("Alice B.", string(kv.get("S/1")));
+            assertNull(kv.get("S/2"));
+            assertEquals("Tina", string(kv.get("T/1")));
+            assertEquals(2, kv.size());
+        }
+    }
+
+    @Test
+    void testMergeKeepsOnlyLiveValues() throws IOException {
+        try (KeyValueStore kv = KeyValueStore.open(dir, 64)) {
+            for (int i = 0; i < 50; i++) {
+                kv.put("G/" + (i % 5), bytes("score " + i));
+            }
+            kv.put("G/gone", bytes("x"));
+            kv.delete("G/gone");
+            int before = segments().size();
+            assertTrue(before > 2);
+
+            assertTrue(kv.merge());
+            assertTrue(segments().size() < before);
+            for (int i = 0; i < 5; i++) {
+                assertEquals("score " + (45 + i), string(kv.get("G/" + i)));
+            }
+            kv.put("G/0", bytes("after merge"));
+        }
+        try (KeyValueStore kv = KeyValueStore.open(dir, 64)) {
+            assertEquals("after merge", string(kv.get("G/0")));
+            assertEquals("score 49", string(kv.get("G/4")));
+            assertNull(kv.get("G/gone"));
+            assertEquals(5, kv.size());
+        }
+    }
+
+    @Test
+    void testTornTailIsDropped() throws IOException {
+        try (KeyValueStore kv = KeyValueStore.open(dir)) {
+            kv.put("A/1", bytes("first"));
+            kv.put("A/2", bytes("second"));
+        }
+        Path segment = segments().get(0);
+        try (FileChannel ch = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            ch.truncate(ch.size() - 3);   // crash in the middle of the last append
+        }
+        try (KeyValueStore kv = KeyValueStore.open(dir)) {
+            assertEquals("first", string(kv.get("A/1")));
+            assertNull(kv.get("A/2"));
+            kv.put("A/3", bytes("third"));
+        }
+        try (KeyValueStore kv = KeyValueStore.open(dir)) {
+            assertEquals("third", string(kv.get("A/3")));
+        }
+    }
+
+    @Test
+    void testUnfinishedMergeIsDiscarded() throws IOException {
+        try (KeyValueStore kv = KeyValueStore.open(dir)) {
+            kv.put("C/1", bytes("Math"));
+        }
+        Files.write(dir.resolve("kv-000001.data.merge"), bytes("half written"));
+        try (KeyValueStore kv = KeyValueStore.open(dir)) {
+            assertEquals("Math", string(kv.get("C/1")));
+        }
+        assertFalse(Files.exists(dir.resolve("kv-000001.data.merge")));
+    }
+}
@@ -898,6 +898,32 @@ public class LibraryModelTest {
         assertEquals(100.0, avg, 0.01);
     }
 
+    @Test
+    void testGroupStatisticsFollowRegradesAndRemovals() {
+        Assignment a1 = new Assignment("HW1", s1.getStuID(), course.getCourseID(), LocalDate.now(), LocalDate.now().plusDays(3));
+        a1.submit(); a1.markGraded("G-grp-1");
+        model.addAssignment(a1);
+        model.addScore(new Score("G-grp-1", a1.getAssignmentID(), s1.getStuID(), 90, 100));
+        Assignment a2 = new Assignment("HW1", s2.getStuID(), course.getCourseID(), LocalDate.now(), LocalDate.now().plusDays(3));
+        a2.submit(); a2.markGraded("G-grp-2");
+        model.addAssignment(a2);
+        model.addScore(new Score("G-grp-2", a2.getAssignmentID(), s2.getStuID(), 70, 100));
+
+        model.updateScore("G-grp-2", 50, 100);
+        assertEquals(70.0, model.getAveragePercentageForGroup(course.getCourseID(), "HW1"), 0.01);
+
+        model.removeAssignment(a1.getAssignmentID());
+        assertEquals(50.0, model.getAveragePercentageForGroup(course.getCourseID(), "HW1"), 0.01);
+        assertEquals(50.0, model.getMedianPercentageForGroup(course.getCourseID(), "HW1"), 0.01);
+
+        // a replaced assignment moves to the group of its new name
+        Assignment renamed = new Assignment(a2.getAssignmentID(), "HW2", a2.getStudentID(), a2.getCourseID(),
+                a2.getGradeID(), a2.getAssignDate(), a2.getDueDate(), a2.getStatus(), false, a2.getCategory());
+        model.addAssignment(renamed);
+        assertEquals(0.0, model.getAveragePercentageForGroup(course.getCourseID(), "HW1"));
+        assertEquals(50.0, model.getAveragePercentageForGroup(course.getCourseID(), "HW2"), 0.01);
+    }
+
     @Test
     void testAveragePercentage_NoMatchingAssignments() {
         double avg = model.getAveragePercentageForGroup(course.getCourseID(), "NonExistentHW");
@@ -2397,7 +2423,329 @@ public class LibraryModelTest {
         init.invoke(model, "ASG", ids);
         assertEquals("ASG00008", IDGen.generate("ASG"));
     }
-}
 
+    @Test
+    void testStudentCourseAssignmentIndexStaysInSync() {
+        Teacher t = new Teacher("Index", "Teacher");
+        model.addTeacher(t);
+        Course c1 = new Course("CS", "Index One", t.getTeacherID());
+        Course c2 = new Course("CS", "Index Two", t.getTeacherID());
+        model.addCourse(c1);
+        model.addCourse(c2);
+        Student s = new Student("Index", "Student", "index@test.com");
+        model.addStudent(s);
+
+        Assignment a1 = new Assignment("HW 1", s.getStuID(), c1.getCourseID(), LocalDate.now(), LocalDate.now().plusDays(1));
+        Assignment a2 = new Assignment("HW 2", s.getStuID(), c1.getCourseID(), LocalDate.now(), LocalDate.now().plusDays(1));
+        Assignment b1 = new Assignment("HW 1", s.getStuID(), c2.getCourseID(), LocalDate.now(), LocalDate.now().plusDays(1));
+        model.addAssignment(a1);
+        model.addAssignment(a2);
+        model.addAssignment(b1);
+        model.addAssignment(a1); // re-adding must not duplicate
+
+        assertEquals(2, model.getAssignmentsForStudentInCourse(s.getStuID(), c1.getCourseID()).size());
+        assertEquals(1, model.getAssignmentsForStudentInCourse(s.getStuID(), c2.getCourseID()).size());
+
+        model.removeAssignment(a2.getAssignmentID());
+        List<Assignment> left = model.getAssignmentsForStudentInCourse(s.getStuID(), c1.getCourseID());
+        assertEquals(1, left.size());
+        assertEquals(a1.getAssignmentID(), left.get(0).getAssignmentID());
+
+        model.removeCourse(c1.getCourseID());
+        assertTrue(model.getAssignmentsForStudentInCourse(s.getStuID(), c1.getCourseID()).isEmpty());
+        assertEquals(1, model.getAssignmentsForStudentInCourse(s.getStuID(), c2.getCourseID()).size());
+
+        model.rebuildIndexes();
+        assertEquals(1, model.getAssignmentsForStudentInCourse(s.getStuID(), c2.getCourseID()).size());
+
+        model.clearAllData();
+        assertTrue(model.getAssignmentsForStudentInCourse(s.getStuID(), c2.getCourseID()).isEmpty());
+    }
+
+    @Test
+    void testRosterIndexFollowsEnrollmentChanges() {
+        Teacher t = new Teacher("Roster", "Teacher");
+        model.addTeacher(t);
+        Course c1 = new Course("CS", "Roster One", t.getTeacherID());
+        Course c2 = new Course("CS", "Roster Two", t.getTeacherID());
+        model.addCourse(c1);
+        model.addCourse(c2);
+        Student s1 = new Student("A", "One", "a1@test.com");
+        Student s2 = new Student("B", "Two", "b2@test.com");
+        model.addStudent(s1);
+        model.addStudent(s2);
+
+        model.enrollStudentInCourse(s1.getStuID(), c1.getCourseID());
+        model.enrollStudentInCourse(s2.getStuID(), c1.getCourseID());
+        model.enrollStudentInCourse(s2.getStuID(), c2.getCourseID());
+        assertEquals(List.of(s1.getStuID(), s2.getStuID()), model.getStudentIDsInCourse(c1.getCourseID()));
+
+        model.removeStudentFromCourse(s1.getStuID(), c1.getCourseID());
+        assertEquals(List.of(s2.getStuID()), model.getStudentIDsInCourse(c1.getCourseID()));
+
+        model.removeCourse(c2.getCourseID());
+        assertTrue(model.getStudentIDsInCourse(c2.getCourseID()).isEmpty());
+        assertFalse(model.getStudentCourses(s2.getStuID()).contains(c2.getCourseID()));
+
+        model.removeStudent(s2.getStuID());
+        assertTrue(model.getStudentIDsInCourse(c1.getCourseID()).isEmpty());
+
+        // students that arrive already enrolled (e.g. from a loaded file) are indexed too
+        Student s3 = new Student("C", "Three", "c3@test.com");
+        s3.enrollInCourse(c1.getCourseID());
+        model.addStudent(s3);
+        assertEquals(List.of(s3.getStuID()), model.getStudentIDsInCourse(c1.getCourseID()));
+        model.rebuildIndexes();
+        assertEquals(List.of(s3.getStuID()), model.getStudentIDsInCourse(c1.getCourseID()));
+    }
+
+    @Test
+    void testRunningTotalsFollowScoreEditsAndRemovals() {
+        Teacher t = new Teacher("Agg", "Teacher");
+        model.addTeacher(t);
+        Course c = new Course("CS", "Aggregates", t.getTeacherID());
+        model.addCourse(c);
+        Student s = new Student("Agg", "Student", "agg@test.com");
+        model.addStudent(s);
+        model.enrollStudentInCourse(s.getStuID(), c.getCourseID());
+
+        Assignment a1 = new Assignment("HW 1", s.getStuID(), c.getCourseID(), LocalDate.now(), LocalDate.now().plusDays(1));
+        Assignment a2 = new Assignment("HW 2", s.getStuID(), c.getCourseID(), LocalDate.now(), LocalDate.now().plusDays(1));
+        model.addAssignment(a1);
+        model.addAssignment(a2);
+        a1.submit();
+        a1.markGraded("G1");
+        model.addScore(new Score("G1", a1.getAssignmentID(), s.getStuID(), 60, 100));
+        a2.submit();
+        a2.markGraded("G2");
+        model.addScore(new Score("G2", a2.getAssignmentID(), s.getStuID(), 100, 100));
+        assertEquals(80.0, model.getFinalPercentage(s.getStuID(), c.getCourseID()), 1e-9);
+
+        model.updateScore("G1", 90, 100);
+        assertEquals(95.0, model.getFinalPercentage(s.getStuID(), c.getCourseID()), 1e-9);
+        assertEquals(90, model.getScore("G1").getEarned());
+
+        model.removeAssignment(a2.getAssignmentID());
+        assertEquals(90.0, model.getFinalPercentage(s.getStuID(), c.getCourseID()), 1e-9);
+
+        model.rebuildIndexes();
+        assertEquals(90.0, model.getFinalPercentage(s.getStuID(), c.getCourseID()), 1e-9);
+        assertThrows(IllegalArgumentException.class, () -> model.updateScore("NOPE", 1, 1));
+    }
+
+    @Test
+    void testSnapshotsAreSharedUntilTheEntityChanges() {
+        Teacher t = new Teacher("Snap", "Teacher");
+        model.addTeacher(t);
+        Course c = new Course("CS", "Snapshots", t.getTeacherID());
+        model.addCourse(c);
+        Student s = new Student("Snap", "Student", "snap@test.com");
+        model.addStudent(s);
+
+        StudentSnapshot first = model.getStudentSnapshot(s.getStuID());
+        assertSame(first, model.getStudentSnapshot(s.getStuID()));
+        Collection<StudentSnapshot> all = model.getStudentSnapshots();
+        assertSame(all, model.getStudentSnapshots());
+        assertThrows(UnsupportedOperationException.class, () -> all.clear());
+
+        model.enrollStudentInCourse(s.getStuID(), c.getCourseID());
+        StudentSnapshot second = model.getStudentSnapshot(s.getStuID());
+        assertNotSame(first, second);
+        assertTrue(second.enrolledCourseIDs().contains(c.getCourseID()));
+        assertFalse(first.enrolledCourseIDs().contains(c.getCourseID()));
+
+        Assignment a = new Assignment("HW 1", s.getStuID(), c.getCourseID(), LocalDate.now(), LocalDate.now().plusDays(1));
+        model.addAssignment(a);
+        assertTrue(model.getCourseSnapshot(c.getCourseID()).assignmentIDs().contains(a.getAssignmentID()));
+
+        model.submitAssignment(a.getAssignmentID());
+        assertEquals(Assignment.SubmissionStatus.SUBMITTED_UNGRADED,
+                model.getAssignmentSnapshot(a.getAssignmentID()).status());
+
+        model.markCourseAsCompleted(c.getCourseID());
+        assertTrue(model.getCourseSnapshot(c.getCourseID()).completed());
+
+        model.removeStudent(s.getStuID());
+        assertNull(model.getStudentSnapshot(s.getStuID()));
+        assertTrue(model.getStudentSnapshots().isEmpty());
+    }
+
+    @Test
+    void testGradeSummariesMatchPerStudentGpa() {
+        Teacher t = new Teacher("Batch", "Teacher");
+        model.addTeacher(t);
+        Course c1 = new Course("CS1", "Batch one", t.getTeacherID());
+        Course c2 = new Course("CS2", "Batch two", t.getTeacherID());
+        model.addCourse(c1);
+        model.addCourse(c2);
+
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            Student s = new Student("S" + i, "Batch", "s" + i + "@test.com");
+            model.addStudent(s);
+            model.enrollStudentInCourse(s.getStuID(), c1.getCourseID());
+            if (i % 2 == 0) {
+                model.enrollStudentInCourse(s.getStuID(), c2.getCourseID());
+            }
+            Assignment a = new Assignment("HW", s.getStuID(), c1.getCourseID(), LocalDate.now(), LocalDate.now().plusDays(1));
+            a.submit();
+            a.markGraded("G-batch-" + i);
+            model.addAssignment(a);
+            model.addScore(new Score("G-batch-" + i, a.getAssignmentID(), s.getStuID(), i % 100, 100));
+            ids.add(s.getStuID());
+        }
+        ids.add("NO_SUCH_STUDENT");
+
+        Map<String, StudentGradeSummary> summaries = model.calculateGradeSummaries(ids);
+        assertEquals(300, summaries.size());
+        assertEquals(ids.subList(0, 300), new ArrayList<>(summaries.keySet()));
+        for (String id : ids.subList(0, 300)) {
+            StudentGradeSummary summary = summaries.get(id);
+            assertEquals(model.calculateGPA(id), summary.gpa(), 1e-9);
+            assertEquals(model.getFinalPercentage(id, c1.getCourseID()),
+                    summary.finalPercentage(c1.getCourseID()), 1e-9);
+        }
+        StudentGradeSummary first = summaries.get(ids.get(0));
+        assertEquals(2, first.finalPercentages().size());
+        assertEquals(0.0, first.finalPercentage(c2.getCourseID()), 1e-9);
+    }
+
+    @Test
+    void testGradeAssignmentGradesThenRegrades() {
+        Teacher t = new Teacher("Gail", "Grader");
+        model.addTeacher(t);
+        Course c = new Course("Grading", "Test", t.getTeacherID());
+        model.addCourse(c);
+        Student s = new Student("Sam", "Submit", "sam@test.com");
+        model.addStudent(s);
+        model.enrollStudentInCourse(s.getStuID(), c.getCourseID());
+        Assignment a = new Assignment("HW", s.getStuID(), c.getCourseID(), LocalDate.now(), LocalDate.now().plusDays(1));
+        model.addAssignment(a);
+
+        assertThrows(IllegalStateException.class, () -> model.gradeAssignment(a.getAssignmentID(), 5, 10));
+        assertThrows(IllegalArgumentException.class, () -> model.gradeAssignment("NO_SUCH", 5, 10));
+
+        model.submitAssignment(a.getAssignmentID());
+        String gradeID = model.gradeAssignment(a.getAssignmentID(), 5, 10);
+        assertEquals(Assignment.SubmissionStatus.GRADED, model.getAssignmentSnapshot(a.getAssignmentID()).status());
+        assertEquals(gradeID, model.getAssignmentSnapshot(a.getAssignmentID()).gradeID());
+        assertEquals(50.0, model.getFinalPercentage(s.getStuID(), c.getCourseID()), 1e-9);
+
+        assertEquals(gradeID, model.gradeAssignment(a.getAssignmentID(), 9, 10));
+        assertEquals(9, model.getScore(gradeID).getEarned());
+        assertEquals(90.0, model.getFinalPercentage(s.getStuID(), c.getCourseID()), 1e-9);
+    }
+
+    @Test
+    void testFailedCourseLoadIsRolledBackAndRetried() {
+        Teacher t = new Teacher("Lou", "Loader");
+        model.addTeacher(t);
+        Course c = new Course("Lazy", "Test", t.getTeacherID());
+        model.addCourse(c);
+        Student s = new Student("Sam", "Shard", "sam@test.com");
+        model.addStudent(s);
+        model.enrollStudentInCourse(s.getStuID(), c.getCourseID());
+
+        boolean[] fail = {true};
+        model.setCourseLoader(courseID -> {
+            Assignment a = new Assignment("A-lazy", "HW", s.getStuID(), courseID, "G-lazy",
+                    LocalDate.now(), LocalDate.now(), Assignment.SubmissionStatus.GRADED, true, null);
+            model.addAssignment(a);
+            model.addScore(new Score("G-lazy", a.getAssignmentID(), s.getStuID(), 7, 10));
+            if (fail[0]) {
+                throw new IllegalStateException("damaged shard");
+            }
+        }, List.of(c.getCourseID()));
+
+        assertThrows(IllegalStateException.class, () -> model.loadCourse(c.getCourseID()));
+        assertFalse(model.isCourseLoaded(c.getCourseID()));
+        assertNull(model.getAssignment("A-lazy"));
+        assertNull(model.getScore("G-lazy"));
+        assertTrue(model.getStudent(s.getStuID()).getAssignmentIDs().isEmpty());
+
+        fail[0] = false;
+        model.loadCourse(c.getCourseID());
+        assertTrue(model.isCourseLoaded(c.getCourseID()));
+        assertEquals(70.0, model.getFinalPercentage(s.getStuID(), c.getCourseID()), 1e-9);
+    }
 
+    @Test
+    void testRosterAndAssignmentReadsAreSafeWhileTheModelGrows() throws Exception {
+        Teacher t = new Teacher("Rhea", "Reader");
+        model.addTeacher(t);
+        Course c = new Course("Busy", "Test", t.getTeacherID());
+        model.addCourse(c);
+        Student first = new Student("Fay", "First", "fay@test.com");
+        model.addStudent(first);
+        model.enrollStudentInCourse(first.getStuID(), c.getCourseID());
+
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 300; i++) {
+                Student s = new Student("S" + i, "Grow", i + "@test.com");
+                model.addStudent(s);
+                model.enrollStudentInCourse(s.getStuID(), c.getCourseID());
+                Assignment a = new Assignment("HW" + i, first.getStuID(), c.getCourseID(),
+                        LocalDate.now(), LocalDate.now().plusDays(1));
+                model.addAssignment(a);
+                model.submitAssignment(a.getAssignmentID());
+                model.gradeAssignment(a.getAssignmentID(), i % 10, 10);
+            }
+        });
+        writer.start();
+        while (writer.isAlive()) {
+            assertFalse(model.getStudentIDsInCourse(c.getCourseID()).isEmpty());
+            for (Assignment a : model.getAssignmentsForStudentInCourse(first.getStuID(), c.getCourseID())) {
+                Score score = model.getScoreForAssignment(a.getAssignmentID());
+                if (score != null) {
+                    assertNotNull(model.getScore(score.getGradeID()));
+                }
+            }
+        }
+        writer.join();
+        assertEquals(301, model.getStudentIDsInCourse(c.getCourseID()).size());
+        assertEquals(300, model.getAssignmentsForStudentInCourse(first.getStuID(), c.getCourseID()).size());
+    }
 
+    @Test
+    void testCopiesAndSnapshotsAreTakenUnderLocks() throws Exception {
+        Teacher t = new Teacher("Cora", "Copy");
+        model.addTeacher(t);
+        Course c = new Course("Copied", "Test", t.getTeacherID());
+        model.addCourse(c);
+        Student first = new Student("Fay", "First", "fay@test.com");
+        model.addStudent(first);
+        model.enrollStudentInCourse(first.getStuID(), c.getCourseID());
+
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 300; i++) {
+                model.setCategoryWeight(c.getCourseID(), "Cat" + i, 0.01);
+                model.setCategoryDrop(c.getCourseID(), "Cat" + i, 1);
+                Course other = new Course("Other" + i, "Test", t.getTeacherID());
+                model.addCourse(other);
+                model.enrollStudentInCourse(first.getStuID(), other.getCourseID());
+                model.addAssignment(new Assignment("HW" + i, first.getStuID(), c.getCourseID(),
+                        LocalDate.now(), LocalDate.now().plusDays(1)));
+            }
+        });
+        writer.start();
+        while (writer.isAlive()) {
+            assertNotNull(model.getCourse(c.getCourseID()));
+            assertNotNull(model.getCourseSnapshot(c.getCourseID()));
+            assertNotNull(model.getStudentSnapshot(first.getStuID()));
+            assertNotNull(model.getStudent(first.getStuID()));
+            assertFalse(model.getCoursesByTeacher(t.getTeacherID()).isEmpty());
+            model.getAssignmentsInCourse(c.getCourseID());
+            model.getAllScores();
+        }
+        writer.join();
+
+        List<Assignment> inCourse = model.getAssignmentsInCourse(c.getCourseID());
+        assertEquals(300, inCourse.size());
+        inCourse.get(0).submit();   // a copy: the model is untouched
+        assertEquals(Assignment.SubmissionStatus.UNSUBMITTED,
+                model.getAssignment(inCourse.get(0).getAssignmentID()).getStatus());
+        model.getTeacher(t.getTeacherID()).addCourse("ELSEWHERE");
+        assertFalse(model.getTeacher(t.getTeacherID()).getTeachingCourseIDs().contains("ELSEWHERE"));
+        assertNull(model.getCourseSnapshot("NO_SUCH"));
+    }
+}
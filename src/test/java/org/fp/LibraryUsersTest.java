@@ -6,6 +6,8 @@ import org.junit.jupiter.api.io.TempDir;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -56,6 +58,39 @@ class LibraryUsersTest {
         assertFalse(lu.authenticate("nope", "ABCD", vic));
     }
 
+    @Test
+    void testLoginOpensASessionWithTheRole() {
+        LibraryUsers lu = new LibraryUsers();
+        VICData vic = makeVic();
+        lu.registerUser("boss", "ABCD", "B", "Oss", "b@ex.com", LibraryUsers.UserType.SUPERADMIN, vic);
+
+        assertNull(lu.login("boss", "WXYZ", vic));
+        String token = lu.login("boss", "ABCD", vic);
+        assertNotNull(token);
+        assertTrue(lu.hasRole(token, LibraryUsers.UserType.SUPERADMIN));
+        assertFalse(lu.hasRole(token, LibraryUsers.UserType.STUDENT));
+        assertEquals("boss", lu.session(token).username());
+
+        lu.logout(token);
+        assertFalse(lu.hasRole(token, LibraryUsers.UserType.SUPERADMIN));
+        assertFalse(lu.hasRole(null, LibraryUsers.UserType.SUPERADMIN));
+    }
+
+    @Test
+    void testRoleChangeAndClearEndSessions() {
+        LibraryUsers lu = new LibraryUsers();
+        VICData vic = makeVic();
+        lu.registerUser("u", "ABCD", "F", "L", "u@ex.com", LibraryUsers.UserType.UNASSIGNED, vic);
+        String token = lu.login("u", "ABCD", vic);
+        lu.assignRole("u", LibraryUsers.UserType.TEACHER, new LibraryModel());
+        assertNull(lu.session(token));
+
+        String again = lu.login("u", "ABCD", vic);
+        assertTrue(lu.hasRole(again, LibraryUsers.UserType.TEACHER));
+        lu.clearAllUsers();
+        assertNull(lu.session(again));
+    }
+
     @Test
     void testAssignRoleStudentAndTeacher() {
         LibraryUsers lu = new LibraryUsers();
@@ -181,4 +216,32 @@ class LibraryUsersTest {
         assertDoesNotThrow(() -> lu.loadFromJSON(missing.toString()));
         assertFalse(lu.userExists("anyone"));
     }
+
+    @Test
+    void testNoLiveSessionKeepsARoleThatWasChanged() throws InterruptedException {
+        LibraryUsers lu = new LibraryUsers();
+        VICData vic = makeVic();
+        LibraryModel model = new LibraryModel();
+        lu.registerUser("u", "ABCD", "F", "L", "u@ex.com", LibraryUsers.UserType.UNASSIGNED, vic);
+
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 40; i++) {
+                lu.assignRole("u", i % 2 == 0 ? LibraryUsers.UserType.STUDENT : LibraryUsers.UserType.TEACHER, model);
+                lu.registerUser("x" + i, "ABCD", "X", "Y", i + "@ex.com", LibraryUsers.UserType.UNASSIGNED, vic);
+            }
+        });
+        List<String> tokens = new ArrayList<>();
+        writer.start();
+        while (writer.isAlive()) {
+            tokens.add(lu.login("u", "ABCD", vic));
+            assertNotNull(lu.getUserType("u"));
+            lu.listAllUsers();
+        }
+        writer.join();
+
+        for (String token : tokens) {
+            SessionManager.Session s = lu.session(token);
+            assertTrue(s == null || s.type() == LibraryUsers.UserType.TEACHER);
+        }
+    }
 }
@@ -0,0 +1,157 @@
+package org.fp;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MutationJournalTest {
+
+    @TempDir
+    Path dir;
+
+    private final VICData vic = new VICData("12345", "250314", "HELLOWORLD", "AB CD EFGH", "");
+
+    private Path snapshot() { return dir.resolve("datastore.bin"); }
+    private Path journalDir() { return dir.resolve("journal"); }
+
+    /** Mutates the store the way the UI would and returns the IDs it created. */
+    private String[] populate(DataStore ds) {
+        LibraryModel model = ds.model;
+        ds.users.registerUser("jo", "pw", "Jo", "Journal", "jo@test.com",
+                LibraryUsers.UserType.UNASSIGNED, vic);
+        ds.users.assignRole("jo", LibraryUsers.UserType.STUDENT, model);
+        String sid = ds.users.getObjectID("jo");
+
+        Teacher t = new Teacher("Jay", "Teacher");
+        model.addTeacher(t);
+        Course c = new Course("CS", "Journaled", t.getTeacherID());
+        model.addCourse(c);
+        model.setCategoryWeight(c.getCourseID(), "Quiz", 1.0);
+        model.enrollStudentInCourse(sid, c.getCourseID());
+
+        Assignment a = new Assignment("Quiz 1", sid, c.getCourseID(),
+                LocalDate.of(2025, 4, 1), LocalDate.of(2025, 4, 8));
+        a.setCategory("Quiz");
+        model.addAssignment(a);
+        model.submitAssignment(a.getAssignmentID());
+        Assignment graded = model.getAssignment(a.getAssignmentID());
+        graded.markGraded("G-j");
+        model.addAssignment(graded);
+        model.addScore(new Score("G-j", a.getAssignmentID(), sid, 6, 10));
+        model.updateScore("G-j", 9, 10);
+        return new String[] {sid, c.getCourseID(), a.getAssignmentID()};
+    }
+
+    private void assertRecovered(DataStore back, String[] ids) {
+        assertTrue(back.users.authenticate("jo", "pw", vic));
+        assertEquals(LibraryUsers.UserType.STUDENT, back.users.getUserType("jo"));
+        assertEquals(List.of(ids[0]), back.model.getStudentIDsInCourse(ids[1]));
+        assertEquals(1.0, back.model.getCourse(ids[1]).getCategoryWeight("Quiz"), 1e-9);
+        assertEquals(Assignment.SubmissionStatus.GRADED, back.model.getAssignment(ids[2]).getStatus());
+        assertEquals(90.0, back.model.getFinalPercentage(ids[0], ids[1]), 1e-9);
+    }
+
+    @Test
+    void testJournalReplaysChangesMadeAfterTheSnapshot() throws IOException {
+        DataStore ds = new DataStore();
+        MutationJournal journal = MutationJournal.open(journalDir(), snapshot(), ds);
+        assertTrue(Files.exists(snapshot()));
+        String[] ids = populate(ds);
+        // no checkpoint: the process "crashes" with only the journal on disk
+        journal.close();
+
+        DataStore back = DataStoreSnapshot.read(snapshot());
+        assertNull(back.model.getStudent(ids[0]));
+        MutationJournal reopened = MutationJournal.open(journalDir(), snapshot(), back);
+        reopened.close();
+        assertRecovered(back, ids);
+
+        // the replayed changes were folded into the snapshot on open
+        assertRecovered(DataStoreSnapshot.read(snapshot()), ids);
+    }
+
+    @Test
+    void testTornTailIsIgnored() throws IOException {
+        DataStore ds = new DataStore();
+        MutationJournal journal = MutationJournal.open(journalDir(), snapshot(), ds);
+        String[] ids = populate(ds);
+        journal.close();
+
+        Path segment;
+        try (var files = Files.list(journalDir())) {
+            segment = files.sorted().reduce((x, y) -> y).orElseThrow();
+        }
+        Files.write(segment, new byte[] {0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        DataStore back = DataStoreSnapshot.read(snapshot());
+        MutationJournal.open(journalDir(), snapshot(), back).close();
+        assertRecovered(back, ids);
+    }
+
+    @Test
+    void testCompactionFoldsSealedSegmentsIntoTheSnapshot() throws IOException {
+        DataStore ds = new DataStore();
+        MutationJournal journal = MutationJournal.open(journalDir(), snapshot(), ds);
+        String[] ids = populate(ds);
+        journal.compact(0);
+
+        assertRecovered(DataStoreSnapshot.read(snapshot()), ids);
+        try (var files = Files.list(journalDir())) {
+            assertEquals(1, files.count());   // only the fresh, empty segment is left
+        }
+
+        ds.model.updateScore("G-j", 5, 10);
+        journal.checkpoint();
+        journal.close();
+        assertEquals(50.0, DataStoreSnapshot.read(snapshot()).model.getFinalPercentage(ids[0], ids[1]), 1e-9);
+    }
+
+    @Test
+    void testReplayedCourseIsTiedToItsTeacherThroughTheModel() throws IOException {
+        DataStore back = new DataStore();
+        Teacher t = new Teacher("Jay", "Teacher");
+        back.model.addTeacher(t);
+        List<String> told = new ArrayList<>();
+        back.model.addMutationListener(new MutationListener() {
+            @Override
+            public void teacherPut(Teacher put) {
+                told.addAll(put.getTeachingCourseIDs());
+            }
+        });
+
+        Course c = new Course("CS", "Replayed", t.getTeacherID());
+        MutationJournal.apply(MutationJournal.courseRecord(c), back);
+
+        assertEquals(List.of(c.getCourseID()), told);
+        assertTrue(back.model.getTeacher(t.getTeacherID()).getTeachingCourseIDs().contains(c.getCourseID()));
+    }
+
+    @Test
+    void testChangesReturnOnlyOnceDurable() throws IOException {
+        DataStore ds = new DataStore();
+        MutationJournal journal = MutationJournal.open(journalDir(), snapshot(), ds);
+        Teacher t = new Teacher("Jay", "Teacher");
+        try (CourseLocks.Held held = ds.model.lockAll()) {
+            ds.model.addTeacher(t);   // queued under the lock, awaited once it is released
+        }
+        Path segment;
+        try (var files = Files.list(journalDir())) {
+            segment = files.sorted().reduce((x, y) -> y).orElseThrow();
+        }
+        assertTrue(Files.size(segment) > 0);
+        journal.close();
+
+        DataStore back = DataStoreSnapshot.read(snapshot());
+        MutationJournal.open(journalDir(), snapshot(), back).close();
+        assertNotNull(back.model.getTeacher(t.getTeacherID()));
+    }
+}
@@ -0,0 +1,43 @@
+package org.fp;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScoreGroupsTest {
+
+    @Test
+    void testSlotsAreFiledByCourseAndName() {
+        ScoreGroups groups = new ScoreGroups();
+        groups.put("G1", "C1", "HW 1", 0);
+        groups.put("G2", "C1", "HW 1", 3);
+        groups.put("G3", "C1", "HW 2", 1);
+        groups.put("G4", "C2", "HW 1", 2);
+
+        IntList hw1 = groups.slots("C1", "HW 1");
+        assertEquals(2, hw1.size());
+        assertTrue(hw1.contains(0) && hw1.contains(3));
+        assertEquals(1, groups.slots("C2", "HW 1").size());
+        assertNull(groups.slots("C1", "Quiz"));
+        assertNull(groups.slots(null, "HW 1"));
+
+        // re-filing moves the slot, removing an unknown ID does nothing
+        groups.put("G1", "C1", "HW 2", 0);
+        groups.remove("NO_SUCH");
+        assertEquals(1, groups.slots("C1", "HW 1").size());
+        assertEquals(2, groups.slots("C1", "HW 2").size());
+
+        groups.remove("G2");
+        assertNull(groups.slots("C1", "HW 1"));
+        groups.clear();
+        assertNull(groups.slots("C1", "HW 2"));
+    }
+
+    @Test
+    void testUnnamedAssignmentsAreNotGrouped() {
+        ScoreGroups groups = new ScoreGroups();
+        groups.put("G1", "C1", null, 0);
+        assertNull(groups.slots("C1", null));
+        groups.remove("G1");
+    }
+}
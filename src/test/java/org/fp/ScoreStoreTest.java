@@ -0,0 +1,104 @@
+package org.fp;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.annotations.JsonAdapter;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScoreStoreTest {
+
+    @Test
+    void testPutGetAndSetPoints() {
+        ScoreStore store = new ScoreStore();
+        store.put(new Score("G1", "A1", "S1", 8, 10));
+
+        Score s = store.get("G1");
+        assertEquals("A1", s.getAssignmentID());
+        assertEquals("S1", s.getStudentID());
+        assertEquals(8, s.getEarned());
+        assertNotSame(s, store.get("G1"));
+
+        s.setScore(0, 10);
+        assertEquals(8, store.get("G1").getEarned());
+
+        assertTrue(store.setPoints("G1", 9, 10));
+        assertEquals(90.0, store.percentageAt(store.slotOf("G1")), 1e-9);
+        assertFalse(store.setPoints("NOPE", 1, 1));
+        assertNull(store.get("NOPE"));
+        assertEquals(-1, store.slotOf(null));
+    }
+
+    @Test
+    void testRemovedSlotsAreReusedAndGrowthKeepsValues() {
+        ScoreStore store = new ScoreStore();
+        for (int i = 0; i < 200; i++) {
+            store.put(new Score("G" + i, "A" + i, "S", i, 200));
+        }
+        int freed = store.slotOf("G17");
+        store.remove("G17");
+        assertFalse(store.contains("G17"));
+        store.put(new Score("NEW", "A-new", "S", 1, 2));
+        assertEquals(freed, store.slotOf("NEW"));
+
+        assertEquals(200, store.size());
+        assertEquals(199, store.get("G199").getEarned());
+        assertEquals(200, store.toMap().size());
+
+        store.clear();
+        assertTrue(store.isEmpty());
+        assertEquals(0, store.slotOf("NEW") + 1);
+    }
+
+    @Test
+    void testLookupsSurviveRemovalsAndRehashing() {
+        ScoreStore store = new ScoreStore();
+        Map<String, Integer> expected = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 5000; i++) {
+            String gradeID = "G" + random.nextInt(600);
+            if (random.nextInt(3) == 0) {
+                store.remove(gradeID);
+                expected.remove(gradeID);
+            } else {
+                store.put(new Score(gradeID, "A", "S", i, 5000));
+                expected.put(gradeID, i);
+            }
+        }
+        assertEquals(expected.size(), store.size());
+        assertEquals(expected.keySet(), store.gradeIDs());
+        for (int g = 0; g < 600; g++) {
+            String gradeID = "G" + g;
+            Integer earned = expected.get(gradeID);
+            assertEquals(earned != null, store.contains(gradeID), gradeID);
+            if (earned != null) assertEquals(earned, store.earnedAt(store.slotOf(gradeID)));
+        }
+    }
+
+    private static class Holder {
+        @JsonAdapter(ScoreStore.GsonAdapterFactory.class)
+        private final ScoreStore gradeMap = new ScoreStore();
+    }
+
+    @Test
+    void testJsonShapeMatchesPlainScoreMap() {
+        Holder h = new Holder();
+        h.gradeMap.put(new Score("G1", "A1", "S1", 7, 10));
+
+        Gson gson = new Gson();
+        JsonObject json = gson.toJsonTree(h).getAsJsonObject();
+        JsonObject g1 = json.getAsJsonObject("gradeMap").getAsJsonObject("G1");
+        assertEquals("A1", g1.get("assignmentID").getAsString());
+        assertEquals(7, g1.get("earned").getAsInt());
+
+        Holder back = gson.fromJson(json, Holder.class);
+        Map<String, Score> scores = back.gradeMap.toMap();
+        assertEquals(1, scores.size());
+        assertEquals(10, scores.get("G1").getTotal());
+    }
+}
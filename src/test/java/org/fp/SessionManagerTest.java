@@ -0,0 +1,76 @@
+package org.fp;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionManagerTest {
+
+    private final AtomicLong now = new AtomicLong(1_000);
+    private final SessionManager sessions = new SessionManager(500, now::get);
+
+    @AfterEach
+    void tearDown() {
+        sessions.close();
+    }
+
+    @Test
+    void testIssuedTokenValidatesUntilItExpires() {
+        String token = sessions.issue("ada", LibraryUsers.UserType.SUPERADMIN);
+        SessionManager.Session s = sessions.validate(token);
+        assertEquals("ada", s.username());
+        assertEquals(LibraryUsers.UserType.SUPERADMIN, s.type());
+        assertEquals(1_500, s.expiresAtMillis());
+
+        now.set(1_499);
+        assertNotNull(sessions.validate(token));
+        now.set(1_500);
+        assertNull(sessions.validate(token));
+        assertEquals(0, sessions.size());   // an expired lookup drops the session
+    }
+
+    @Test
+    void testTokensAreUniqueAndOpaque() {
+        Set<String> tokens = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            // '@' and '.' are not in the token alphabet, so this cannot match by chance
+            String token = sessions.issue("ada@test.com", LibraryUsers.UserType.STUDENT);
+            assertFalse(token.contains("ada@test.com"));
+            assertTrue(token.length() >= 40);
+            tokens.add(token);
+        }
+        assertEquals(1000, tokens.size());
+        assertNull(sessions.validate("not-a-token"));
+        assertNull(sessions.validate(null));
+    }
+
+    @Test
+    void testSweepRemovesOnlyExpiredSessions() {
+        sessions.issue("old", LibraryUsers.UserType.STUDENT);
+        now.addAndGet(300);
+        String fresh = sessions.issue("new", LibraryUsers.UserType.STUDENT);
+        now.addAndGet(300);
+
+        assertEquals(1, sessions.sweep());
+        assertEquals(1, sessions.size());
+        assertNotNull(sessions.validate(fresh));
+    }
+
+    @Test
+    void testInvalidateUserEndsAllItsSessions() {
+        String a = sessions.issue("ada", LibraryUsers.UserType.TEACHER);
+        String b = sessions.issue("ada", LibraryUsers.UserType.TEACHER);
+        String c = sessions.issue("bob", LibraryUsers.UserType.TEACHER);
+        sessions.invalidateUser("ada");
+        assertNull(sessions.validate(a));
+        assertNull(sessions.validate(b));
+        assertNotNull(sessions.validate(c));
+        sessions.invalidate(c);
+        assertEquals(0, sessions.size());
+    }
+}
@@ -0,0 +1,143 @@
+package org.fp;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardedSnapshotTest {
+
+    @TempDir
+    Path dir;
+
+    private DataStore ds;
+    private String sid;
+    private String math;
+    private String art;
+
+    @BeforeEach
+    void setUp() {
+        ds = new DataStore();
+        LibraryModel model = ds.model;
+        Teacher t = new Teacher("Sam", "Shard");
+        model.addTeacher(t);
+        Student s = new Student("Stu", "Dent", "stu@test.com");
+        model.addStudent(s);
+        sid = s.getStuID();
+        math = addCourseWithScore(model, t, "Math", 8);
+        art = addCourseWithScore(model, t, "Art", 6);
+    }
+
+    private String addCourseWithScore(LibraryModel model, Teacher t, String name, int earned) {
+        Course c = new Course(name, "Sharded", t.getTeacherID());
+        model.addCourse(c);
+        model.enrollStudentInCourse(sid, c.getCourseID());
+        Assignment a = new Assignment(name + " HW", sid, c.getCourseID(),
+                LocalDate.of(2025, 4, 1), LocalDate.of(2025, 4, 8));
+        a.submit();
+        a.markGraded("G-" + name);
+        model.addAssignment(a);
+        model.addScore(new Score("G-" + name, a.getAssignmentID(), sid, earned, 10));
+        return c.getCourseID();
+    }
+
+    private Path shard(String courseID) {
+        return dir.resolve("course-" + courseID + ".bin");
+    }
+
+    @Test
+    void testOpenReadsOnlyTheIndex() throws IOException {
+        new ShardedSnapshot(dir).adopt(ds);
+        assertTrue(Files.exists(shard(math)));
+        assertTrue(Files.exists(shard(art)));
+
+        LibraryModel back = new ShardedSnapshot(dir).open().model;
+        assertNotNull(back.getCourse(math));
+        assertEquals(List.of(sid), back.getStudentIDsInCourse(math));
+        assertFalse(back.isCourseLoaded(math));
+        assertTrue(back.getAssignmentsInCourse(math).isEmpty());
+
+        back.loadCourse(math);
+        assertTrue(back.isCourseLoaded(math));
+        assertFalse(back.isCourseLoaded(art));
+        assertEquals(1, back.getAssignmentsForStudentInCourse(sid, math).size());
+        assertEquals(80.0, back.getFinalPercentage(sid, math), 1e-9);
+        assertNull(back.getScore("G-Art"));
+    }
+
+    @Test
+    void testSaveRewritesOnlyChangedShards() throws IOException {
+        new ShardedSnapshot(dir).adopt(ds);
+        ShardedSnapshot shards = new ShardedSnapshot(dir);
+        LibraryModel model = shards.open().model;
+        FileTime untouched = FileTime.fromMillis(0);
+        Files.setLastModifiedTime(shard(art), untouched);
+
+        model.loadCourse(math);
+        model.updateScore("G-Math", 10, 10);
+        shards.save();
+        assertEquals(untouched, Files.getLastModifiedTime(shard(art)));
+
+        LibraryModel back = new ShardedSnapshot(dir).open().model;
+        back.loadCourses(List.of(math, art));
+        assertEquals(100.0, back.getFinalPercentage(sid, math), 1e-9);
+        assertEquals(60.0, back.getFinalPercentage(sid, art), 1e-9);
+    }
+
+    @Test
+    void testRemovedCourseDropsItsShard() throws IOException {
+        new ShardedSnapshot(dir).adopt(ds);
+        ShardedSnapshot shards = new ShardedSnapshot(dir);
+        LibraryModel model = shards.open().model;
+        model.removeCourse(art);
+        shards.save();
+        assertFalse(Files.exists(shard(art)));
+        assertTrue(Files.exists(shard(math)));
+
+        model.clearAllData();
+        shards.save();
+        assertFalse(Files.exists(shard(math)));
+        assertEquals(0, new ShardedSnapshot(dir).open().model.getCourseCount());
+    }
+
+    @Test
+    void testNewAssignmentLoadsTheCourseFirst() throws IOException {
+        new ShardedSnapshot(dir).adopt(ds);
+        ShardedSnapshot shards = new ShardedSnapshot(dir);
+        LibraryModel model = shards.open().model;
+        model.addAssignment(new Assignment("Math Quiz", sid, math,
+                LocalDate.of(2025, 5, 1), LocalDate.of(2025, 5, 8)));
+        shards.save();
+
+        LibraryModel back = new ShardedSnapshot(dir).open().model;
+        back.loadCourse(math);
+        assertEquals(2, back.getAssignmentsInCourse(math).size());
+    }
+
+    @Test
+    void testJournalReplaysIntoShards() throws IOException {
+        new ShardedSnapshot(dir).adopt(ds);
+        Path journalDir = dir.resolve("journal");
+        ShardedSnapshot shards = new ShardedSnapshot(dir);
+        DataStore store = shards.open();
+        MutationJournal journal = MutationJournal.open(journalDir, shards::save, store);
+        LibraryModel model = store.model;
+        model.loadCourse(art);
+        model.updateScore("G-Art", 9, 10);
+        journal.close();   // "crash" before any save
+
+        ShardedSnapshot reopened = new ShardedSnapshot(dir);
+        MutationJournal.open(journalDir, reopened::save, reopened.open()).close();
+        LibraryModel back = new ShardedSnapshot(dir).open().model;
+        back.loadCourse(art);
+        assertEquals(90.0, back.getFinalPercentage(sid, art), 1e-9);
+    }
+}
@@ -0,0 +1,136 @@
+package org.fp;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StorageBackendTest {
+
+    @TempDir
+    Path dir;
+
+    private DataStore ds;
+    private String sid;
+    private String cid;
+    private String aid;
+
+    @BeforeEach
+    void setUp() {
+        ds = new DataStore();
+        LibraryModel model = ds.model;
+        ds.users.importUsers(List.of(new LibraryUsers.UserRecord("tina", "x", "Tina", "Teach",
+                "t@test.com", LibraryUsers.UserType.TEACHER, null)));
+        Teacher t = new Teacher("Tina", "Teach");
+        model.addTeacher(t);
+        Student s = new Student("Stu", "Dent", "stu@test.com");
+        model.addStudent(s);
+        sid = s.getStuID();
+        Course c = new Course("Math", "Backends", t.getTeacherID());
+        model.addCourse(c);
+        cid = c.getCourseID();
+        model.enrollStudentInCourse(sid, cid);
+        Assignment a = new Assignment("HW", sid, cid, LocalDate.of(2025, 4, 1), LocalDate.of(2025, 4, 8));
+        a.submit();
+        a.markGraded("G-1");
+        model.addAssignment(a);
+        aid = a.getAssignmentID();
+        model.addScore(new Score("G-1", aid, sid, 7, 10));
+    }
+
+    private void assertSameStore(DataStore back) {
+        assertTrue(back.users.userExists("tina"));
+        assertEquals(List.of(sid), back.model.getStudentIDsInCourse(cid));
+        assertEquals(1, back.model.getAssignmentsForStudentInCourse(sid, cid).size());
+        assertEquals(70.0, back.model.getFinalPercentage(sid, cid), 1e-9);
+    }
+
+    private long sizeOf(Path d) throws IOException {
+        try (Stream<Path> files = Files.list(d)) {
+            long total = 0;
+            for (Path p : (Iterable<Path>) files::iterator) total += Files.size(p);
+            return total;
+        }
+    }
+
+    @Test
+    void testForNameRejectsUnknownBackend() {
+        assertThrows(IllegalArgumentException.class, () -> StorageBackend.forName("tape", dir));
+        assertInstanceOf(KeyValueBackend.class, StorageBackend.forName("kv", dir));
+    }
+
+    @Test
+    void testJsonRoundTrip() throws IOException {
+        Path file = dir.resolve("datastore.json");
+        JsonFileBackend json = new JsonFileBackend(file);
+        assertFalse(json.exists());
+        json.adopt(ds);
+        ds.model.updateScore("G-1", 9, 10);
+        json.close();
+
+        JsonFileBackend reopened = new JsonFileBackend(file);
+        DataStore back = reopened.open();
+        assertEquals(9, back.model.getScore("G-1").getEarned());
+        back.model.updateScore("G-1", 7, 10);
+        reopened.close();
+        assertSameStore(new JsonFileBackend(file).open());
+    }
+
+    @Test
+    void testJsonExportLeavesTheLiveFileAlone() throws IOException {
+        Path file = dir.resolve("datastore.json");
+        JsonFileBackend json = new JsonFileBackend(file);
+        json.adopt(ds);
+        byte[] live = Files.readAllBytes(file);
+
+        Path export = dir.resolve("export.json");
+        JsonFileBackend.write(ds, export);
+        assertArrayEquals(live, Files.readAllBytes(file));
+        assertFalse(Files.exists(dir.resolve("export.json.tmp")));
+        assertSameStore(new DataStoreLoader((read, total) -> { }).load(export));
+        json.close();
+    }
+
+    @Test
+    void testKeyValueRoundTrip() throws IOException {
+        Path kvDir = dir.resolve("kv");
+        try (KeyValueBackend kv = new KeyValueBackend(kvDir)) {
+            assertFalse(kv.exists());
+            kv.adopt(ds);
+        }
+        try (KeyValueBackend kv = new KeyValueBackend(kvDir)) {
+            assertTrue(kv.exists());
+            assertSameStore(kv.open());
+        }
+    }
+
+    @Test
+    void testKeyValueWritesThroughEachChange() throws IOException {
+        Path kvDir = dir.resolve("kv");
+        try (KeyValueBackend kv = new KeyValueBackend(kvDir)) {
+            kv.adopt(ds);
+            long before = sizeOf(kvDir);
+            ds.model.updateScore("G-1", 10, 10);
+            // one small record appended, nothing rewritten
+            assertTrue(sizeOf(kvDir) - before < 100);
+            assertEquals(10, kv.readScore("G-1").getEarned());
+
+            ds.model.removeCourse(cid);
+            assertNull(kv.readScore("G-1"));
+        }
+        try (KeyValueBackend kv = new KeyValueBackend(kvDir)) {
+            DataStore back = kv.open();
+            assertNull(back.model.getCourse(cid));
+            assertNull(back.model.getAssignment(aid));
+            assertTrue(back.model.getStudent(sid).getEnrolledCourseIDs().isEmpty());
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package org.fp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VICCipherTest {
+
+    private static VICData key() {
+        return new VICData("85721", "470918", "ABCDEFGHIJ", "ABCD EFGH ", null);
+    }
+
+    @Test
+    void testMatchesKnownCiphertext() {
+        VICCipher cipher = key().cipher();
+        assertEquals("0973737485721677476733", cipher.encrypt("HELLOWORLD"));
+        assertEquals("HELLOWORLD", cipher.decrypt("0973737485721677476733"));
+    }
+
+    @Test
+    void testUnmappedCharactersStayNull() {
+        VICData vic = key();
+        for (String password : List.of("abc", "pass word!", "Ünïcode")) {
+            assertEquals(EncryptVIC.encrypt(password, key()), vic.cipher().encrypt(password));
+        }
+    }
+
+    @Test
+    void testRandomKeysAndMessagesMatchTheOldPath() {
+        Random rnd = new Random(42);
+        for (int round = 0; round < 300; round++) {
+            VICData vic = randomKey(rnd);
+            VICCipher cipher = vic.cipher();
+            for (int m = 0; m < 5; m++) {
+                String password = randomText(rnd, 1 + rnd.nextInt(12));
+                Object expected = outcome(() -> EncryptVIC.encrypt(password, randomCopy(vic)));
+                assertEquals(expected, outcome(() -> cipher.encrypt(password)), "encrypt " + password);
+                if (expected instanceof String encrypted) {
+                    assertEquals(outcome(() -> DecryptVIC.decrypt(encrypted, randomCopy(vic))),
+                            outcome(() -> cipher.decrypt(encrypted)));
+                }
+            }
+        }
+    }
+
+    @Test
+    void testCipherIsRebuiltWhenTheKeyChanges() {
+        VICData vic = key();
+        VICCipher first = vic.cipher();
+        assertSame(first, vic.cipher());
+        vic.anagram = "EFGH ABCD ";
+        assertNotSame(first, vic.cipher());
+        assertEquals(EncryptVIC.encrypt("HELLO", key2()), vic.cipher().encrypt("HELLO"));
+    }
+
+    @Test
+    void testInvalidKeyFailsLikeTheOldPath() {
+        VICData vic = new VICData("85721", "470918", "SHORT", "ABCD EFGH ", null);
+        assertThrows(NullPointerException.class, () -> vic.cipher().encrypt("HELLO"));
+    }
+
+    /** The result, or the exception type if the call throws. */
+    private static Object outcome(Supplier<String> call) {
+        try {
+            return call.get();
+        } catch (RuntimeException e) {
+            return e.getClass();
+        }
+    }
+
+    private static VICData key2() {
+        return new VICData("85721", "470918", "ABCDEFGHIJ", "EFGH ABCD ", null);
+    }
+
+    private static VICData randomCopy(VICData vic) {
+        return new VICData(vic.agentID, vic.date, vic.phrase, vic.anagram, null);
+    }
+
+    private static VICData randomKey(Random rnd) {
+        StringBuilder id = new StringBuilder();
+        for (int i = 0; i < 5; i++) id.append(rnd.nextInt(10));
+        String date = String.format("%02d%02d%02d", rnd.nextInt(100), 1 + rnd.nextInt(12), rnd.nextInt(10));
+        List<Character> letters = new ArrayList<>();
+        for (char c = 'A'; c <= 'Z'; c++) letters.add(c);
+        Collections.shuffle(letters, rnd);
+        List<Character> anagram = new ArrayList<>(letters.subList(0, 8));
+        anagram.add(' ');
+        anagram.add(' ');
+        Collections.shuffle(anagram, rnd);
+        StringBuilder a = new StringBuilder();
+        anagram.forEach(a::append);
+        return new VICData(id.toString(), date, randomText(rnd, 10),
+                a.toString(), null);
+    }
+
+    private static String randomText(Random rnd, int length) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            sb.append(rnd.nextInt(10) == 0 ? '#' : (char) ('A' + rnd.nextInt(26)));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,107 @@
+package org.fp;
+
+import java.util.Random;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VICKernelsTest {
+
+    private final Random rnd = new Random(2024);
+
+    /** The result, or the exception type if the call throws. */
+    private static Object outcome(Supplier<String> call) {
+        try {
+            return call.get();
+        } catch (RuntimeException e) {
+            return e.getClass();
+        }
+    }
+
+    private String digits(int length) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < length; i++) sb.append((char) ('0' + rnd.nextInt(10)));
+        return sb.toString();
+    }
+
+    /** Mostly digits, sometimes a letter, to reach the fallback as well. */
+    private String mostlyDigits(int length) {
+        String s = digits(length);
+        if (length > 0 && rnd.nextInt(8) == 0) {
+            int i = rnd.nextInt(length);
+            s = s.substring(0, i) + 'x' + s.substring(i + 1);
+        }
+        return s;
+    }
+
+    private String phrase(int length) {
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcz0189 -Ä";
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < length; i++) sb.append(alphabet.charAt(rnd.nextInt(alphabet.length())));
+        return sb.toString();
+    }
+
+    @Test
+    void testNoCarryAdditionMatches() {
+        for (int i = 0; i < 5000; i++) {
+            String a = mostlyDigits(rnd.nextInt(13));
+            String b = mostlyDigits(rnd.nextInt(13));
+            assertEquals(outcome(() -> VICOperations.noCarryAddition(a, b)),
+                    outcome(() -> VICKernels.noCarryAddition(a, b)), a + " + " + b);
+        }
+    }
+
+    @Test
+    void testChainAdditionMatches() {
+        for (int i = 0; i < 5000; i++) {
+            String num = mostlyDigits(rnd.nextInt(12));
+            int digit = rnd.nextInt(15);
+            assertEquals(outcome(() -> VICOperations.chainAddition(num, digit)),
+                    outcome(() -> VICKernels.chainAddition(num, digit)), num + " to " + digit);
+        }
+    }
+
+    @Test
+    void testDigitPermutationMatches() {
+        for (int i = 0; i < 5000; i++) {
+            String s = rnd.nextInt(10) == 0 ? phrase(8 + rnd.nextInt(6)) : phrase(10);
+            assertEquals(outcome(() -> VICOperations.digitPermutation(s)),
+                    outcome(() -> VICKernels.digitPermutation(s)), s);
+        }
+        assertNull(VICKernels.digitPermutation(null));
+        assertEquals("4071826395", VICKernels.digitPermutation("BANANALAND"));
+    }
+
+    @Test
+    void testCheckerboardPermutationMatchesTheStringSteps() {
+        for (int i = 0; i < 5000; i++) {
+            String agentID = mostlyDigits(3 + rnd.nextInt(10));
+            String date = mostlyDigits(5 + rnd.nextInt(3));
+            String phrase = rnd.nextInt(10) == 0 ? phrase(9 + rnd.nextInt(3)) : phrase(10);
+            Object expected = outcome(() -> {
+                String step1 = VICOperations.noCarryAddition(agentID, date.substring(0, 5));
+                String step2 = VICOperations.chainAddition(step1, 10);
+                String step3 = VICOperations.digitPermutation(phrase);
+                String step4 = VICOperations.noCarryAddition(step2, step3);
+                return VICOperations.digitPermutation(step4);
+            });
+            assertEquals(expected, outcome(() -> VICKernels.checkerboardPermutation(agentID, date, phrase)),
+                    agentID + " / " + date + " / " + phrase);
+        }
+    }
+
+    @Test
+    void testKernelsWorkInPlace() {
+        byte[] buf = {5, 2, 0, 0, 0};
+        VICKernels.chainAddition(buf, 2, 5);
+        assertArrayEquals(new byte[] {5, 2, 7, 9, 6}, buf);
+
+        byte[] a = {9, 9, 9};
+        int len = VICKernels.noCarryAddition(a, 3, new byte[] {1, 0, 1}, 3, a);
+        assertEquals(2, len);
+        assertEquals(9, a[0]);
+        assertEquals(0, a[1]);
+    }
+}